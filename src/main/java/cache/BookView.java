@@ -0,0 +1,69 @@
+package cache;
+
+import model.Book;
+
+// Flyweight over one row of a ColumnarCatalogue: reads the columns on demand instead of copying them into a Book.
+// moveTo lets one view walk the whole catalogue, e.g. while filtering.
+public class BookView {
+    private final ColumnarCatalogue catalogue;
+    private int row;
+
+    BookView(ColumnarCatalogue catalogue, int row) {
+        this.catalogue = catalogue;
+        this.row = row;
+    }
+
+    public BookView moveTo(int row) {
+        this.row = row;
+        return this;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getId() {
+        return catalogue.getId(row);
+    }
+
+    public String getTitle() {
+        return catalogue.getTitle(row);
+    }
+
+    public String getAuthor() {
+        return catalogue.getAuthor(row);
+    }
+
+    public int getYearOfPublication() {
+        return catalogue.getYearOfPublication(row);
+    }
+
+    public int getQuantity() {
+        return catalogue.getQuantity(row);
+    }
+
+    public int getLocationId() {
+        return catalogue.getLocationId(row);
+    }
+
+    public String getSection() {
+        return catalogue.getSection(row);
+    }
+
+    public int getShelf() {
+        return catalogue.getShelf(row);
+    }
+
+    public Book toBook() {
+        return catalogue.toBook(row);
+    }
+
+    @Override
+    public String toString() {
+        return "BookView{" +
+                "row=" + row +
+                ", id=" + getId() +
+                ", title='" + getTitle() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,205 @@
+package cache;
+
+import model.Book;
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Compact binary copy of the books catalogue (books joined with their shelf locations) kept on local disk,
+// so a freshly started desk can list and look up books before its first database round-trip completes.
+// In memory the catalogue is held as a ColumnarCatalogue; Book objects are only created for the rows a caller asks for.
+// Layout: header (magic, format version, watermark, book count) followed by one record per book:
+// id, year, quantity, location id, shelf as ints, then title, author and section as length-prefixed UTF-8.
+public class CatalogueSnapshot {
+    private static final Logger logger = Logger.getLogger(CatalogueSnapshot.class.getName());
+    public static final Path DEFAULT_PATH = Path.of(System.getProperty("user.home"), ".library", "catalogue.snapshot");
+    private static final int MAGIC = 0x4C494243; // "LIBC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    private volatile ColumnarCatalogue catalogue = ColumnarCatalogue.empty();
+    private volatile long watermark;
+    private volatile boolean loaded;
+
+    public CatalogueSnapshot(Path path) {
+        this.path = path;
+    }
+
+    // Maps the snapshot file and decodes it; returns false if there is no usable snapshot
+    public boolean load() {
+        if (!Files.exists(path)) {
+            logger.info("No catalogue snapshot found at " + path);
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warning("Ignoring catalogue snapshot with an unknown format: " + path);
+                return false;
+            }
+
+            long snapshotWatermark = buffer.getLong();
+            int count = buffer.getInt();
+            ColumnarCatalogue.Builder decoded = new ColumnarCatalogue.Builder(count);
+
+            for (int i = 0; i < count; i++) {
+                int id = buffer.getInt();
+                int year = buffer.getInt();
+                int quantity = buffer.getInt();
+                int locationId = buffer.getInt();
+                int shelf = buffer.getInt();
+                String title = readString(buffer);
+                String author = readString(buffer);
+                String section = readString(buffer);
+                decoded.add(id, title, author, year, quantity, locationId, section, shelf, 0);
+            }
+
+            catalogue = decoded.build();
+            watermark = snapshotWatermark;
+            loaded = true;
+            logger.info("Loaded " + count + " books from the catalogue snapshot.");
+            return true;
+
+        } catch (IOException | BufferUnderflowException e) {
+            logger.log(Level.WARNING, "Failed to read catalogue snapshot: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Replaces the snapshot with the given books, kept in the given order
+    public void save(List<Book> books, long catalogueWatermark) throws IOException {
+        save(ColumnarCatalogue.of(books, catalogueWatermark), catalogueWatermark);
+    }
+
+    // Replaces the snapshot with the given catalogue; the file is written aside and moved into place atomically
+    public synchronized void save(ColumnarCatalogue catalogue, long catalogueWatermark) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temporaryFile = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(catalogueWatermark).putInt(catalogue.size());
+
+            for (int row = 0; row < catalogue.size(); row++) {
+                int titleLength = catalogue.titleLength(row);
+                byte[] author = catalogue.getAuthor(row).getBytes(StandardCharsets.UTF_8);
+                byte[] section = catalogue.getSection(row).getBytes(StandardCharsets.UTF_8);
+                int recordBytes = 5 * Integer.BYTES + 3 * Short.BYTES + titleLength + author.length + section.length;
+
+                if (buffer.remaining() < recordBytes) {
+                    writeFully(channel, buffer);
+                }
+                if (buffer.capacity() < recordBytes) {
+                    buffer = ByteBuffer.allocateDirect(recordBytes); // Oversized record, cannot happen with VARCHAR(255) columns
+                }
+
+                buffer.putInt(catalogue.getId(row))
+                        .putInt(catalogue.getYearOfPublication(row))
+                        .putInt(catalogue.getQuantity(row))
+                        .putInt(catalogue.getLocationId(row))
+                        .putInt(catalogue.getShelf(row));
+                buffer.putShort((short) titleLength);
+                catalogue.putTitle(row, buffer); // Already UTF-8 in the catalogue
+                putString(buffer, author);
+                putString(buffer, section);
+            }
+
+            writeFully(channel, buffer);
+            channel.force(false);
+        }
+
+        Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.catalogue = catalogue;
+        watermark = catalogueWatermark;
+        loaded = true;
+        logger.info("Saved " + catalogue.size() + " books to the catalogue snapshot.");
+    }
+
+    // Merges the books changed since the snapshot's watermark into it and persists the result.
+    // Returns false if the change set starts after the watermark, since applying it would skip the changes in between.
+    // Rows are merged even when the change set ends below the watermark: the change feed delivers rows committed late,
+    // after higher versions were read, without moving its watermark past them.
+    public synchronized boolean applyChanges(ChangeSet<Book> changes) throws IOException {
+        if (changes.getSinceVersion() > watermark) {
+            logger.info("Ignoring book changes since version " + changes.getSinceVersion() + ", the snapshot is at version " + watermark);
+            return false;
+        }
+        if (changes.isEmpty() && changes.getVersion() <= watermark) {
+            return true; // Nothing new since the last refresh
+        }
+
+        save(catalogue.withChanges(changes), Math.max(watermark, changes.getVersion()));
+        return true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public ColumnarCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    // Returns the catalogue in the same order as BookDAO.getAllBooks
+    public List<Book> getAllBooks() {
+        return catalogue.toBooks();
+    }
+
+    public List<Book> getBooksByTitle(String title) {
+        ColumnarCatalogue current = catalogue;
+        IntArrayList rows = current.findRowsByTitle(title);
+        List<Book> found = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            found.add(current.toBook(rows.get(i)));
+        }
+        return found;
+    }
+
+    public Optional<Book> findBookByDetails(String title, String author, int yearOfPublication) {
+        ColumnarCatalogue current = catalogue;
+        int row = current.findRow(title, author, yearOfPublication);
+        return row >= 0 ? Optional.of(current.toBook(row)) : Optional.empty();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] utf8) {
+        buffer.putShort((short) utf8.length);
+        buffer.put(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] utf8 = new byte[length];
+        buffer.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
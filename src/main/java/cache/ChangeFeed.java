@@ -0,0 +1,250 @@
+package cache;
+
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import dao.BorrowedBookDAO;
+import dao.ChangeNotificationDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import model.BorrowedBook;
+import model.ChangeSet;
+import model.Reader;
+import util.collections.IntArrayList;
+import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Delivers changes made by any desk to local caches.
+// On PostgreSQL the DAOs' NOTIFY wakes the feed thread as soon as the writing transaction commits; on H2 the feed polls.
+// Either way the changed rows are then fetched with changesSince from the feed's last watermark for each table,
+// so listeners can patch their copies instead of re-reading whole tables.
+//
+// Versions are taken from one sequence when a row is written, but the row only becomes visible when its transaction
+// commits, so a lower version can appear after higher ones were already read. A table's watermark therefore only moves
+// up to the highest version read by a poll at least the settle time ago, by which time every transaction that had taken
+// a version up to it has committed or rolled back. Rows above the watermark are read again by every poll and delivered
+// only if the feed has not delivered that version of the row before. Transactions running longer than the settle time
+// can still be missed.
+public class ChangeFeed implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ChangeFeed.class.getName());
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+    // Even with notifications, look at every table this often in case a notification was lost with a dropped connection
+    private static final long FULL_POLL_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    public static final long DEFAULT_SETTLE_MILLIS = 30_000;
+
+    private final ChangeNotificationDAO changeNotificationDAO;
+    private final BookDAO bookDAO;
+    private final ReaderDAO readerDAO;
+    private final BookLocationDAO bookLocationDAO;
+    private final BorrowedBookDAO borrowedBookDAO;
+    private final long pollIntervalMillis;
+    private final long settleNanos;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, TableWatermark> watermarks = new HashMap<>(); // Only touched by the feed thread once started
+    private boolean pushNotifications;
+    private volatile boolean running;
+    private Thread feedThread;
+
+    // The feed takes ownership of the connection, it must not be shared with the services
+    public ChangeFeed(Connection connection) {
+        this(connection, DEFAULT_POLL_INTERVAL_MILLIS);
+    }
+
+    public ChangeFeed(Connection connection, long pollIntervalMillis) {
+        this(connection, pollIntervalMillis, DEFAULT_SETTLE_MILLIS);
+    }
+
+    public ChangeFeed(Connection connection, long pollIntervalMillis, long settleMillis) {
+        this.changeNotificationDAO = new ChangeNotificationDAO(connection);
+        this.bookDAO = new BookDAO(connection);
+        this.readerDAO = new ReaderDAO(connection);
+        this.bookLocationDAO = new BookLocationDAO(connection);
+        this.borrowedBookDAO = new BorrowedBookDAO(connection);
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+    }
+
+    // Where the feed stands in one table
+    private static final class TableWatermark {
+        private long version; // Every change up to this version has been delivered
+        private final Map<Integer, Long> deliveredRows = new HashMap<>(); // Row ID -> version delivered, above the watermark
+        private final Map<Integer, Long> deliveredDeletions = new HashMap<>(); // Row ID -> highest version read when delivered
+        private final ArrayDeque<long[]> reads = new ArrayDeque<>(); // {System.nanoTime() after the poll, highest version read}
+
+        private TableWatermark(long version) {
+            this.version = version;
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Records the current version of every table and starts delivering changes made after it
+    public synchronized void start() throws DatabaseOperationException {
+        if (running) {
+            return;
+        }
+
+        for (String tableName : ChangeNotificationDAO.TRACKED_TABLES) {
+            watermarks.put(tableName, new TableWatermark(changeNotificationDAO.getCurrentVersion(tableName)));
+        }
+
+        pushNotifications = changeNotificationDAO.supportsNotifications();
+        if (pushNotifications) {
+            changeNotificationDAO.listen();
+        }
+
+        running = true;
+        feedThread = new Thread(this::feedLoop, "change-feed");
+        feedThread.setDaemon(true);
+        feedThread.start();
+        logger.info("Change feed started using " + (pushNotifications ? "LISTEN/NOTIFY" : "polling every " + pollIntervalMillis + " ms"));
+    }
+
+    @Override
+    public void close() {
+        Thread feed;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            feed = feedThread;
+        }
+
+        LockSupport.unpark(feed);
+        try {
+            feed.join(pollIntervalMillis * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Change feed stopped.");
+    }
+
+    private void feedLoop() {
+        long lastFullPoll = System.nanoTime();
+
+        while (running) {
+            try {
+                Set<String> changedTables;
+                if (pushNotifications) {
+                    changedTables = changeNotificationDAO.awaitChangedTables((int) pollIntervalMillis);
+                    if (System.nanoTime() - lastFullPoll > FULL_POLL_INTERVAL_NANOS) {
+                        changedTables = ChangeNotificationDAO.TRACKED_TABLES;
+                    }
+                } else {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis));
+                    changedTables = ChangeNotificationDAO.TRACKED_TABLES;
+                }
+
+                if (changedTables == ChangeNotificationDAO.TRACKED_TABLES) {
+                    lastFullPoll = System.nanoTime();
+                }
+                if (running && !changedTables.isEmpty()) {
+                    deliverChanges(changedTables);
+                }
+
+            } catch (DatabaseOperationException e) {
+                logger.log(Level.WARNING, "Error while reading changes: " + e.getMessage(), e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis));
+            }
+        }
+    }
+
+    // Fetches the changed rows of each table and hands them to the listeners; locations first, since books refer to them
+    private void deliverChanges(Set<String> changedTables) throws DatabaseOperationException {
+        if (changedTables.contains("book_shelf_location")) {
+            TableWatermark watermark = watermarks.get("book_shelf_location");
+            long readStart = System.nanoTime();
+            deliver("book_shelf_location", watermark, bookLocationDAO.changesSince(watermark.version), readStart,
+                    BookLocation::getId, BookLocation::getVersion, ChangeListener::onLocationsChanged);
+        }
+        if (changedTables.contains("books")) {
+            TableWatermark watermark = watermarks.get("books");
+            long readStart = System.nanoTime();
+            deliver("books", watermark, bookDAO.changesSince(watermark.version), readStart,
+                    Book::getId, Book::getVersion, ChangeListener::onBooksChanged);
+        }
+        if (changedTables.contains("readers")) {
+            TableWatermark watermark = watermarks.get("readers");
+            long readStart = System.nanoTime();
+            deliver("readers", watermark, readerDAO.changesSince(watermark.version), readStart,
+                    Reader::getId, Reader::getVersion, ChangeListener::onReadersChanged);
+        }
+        if (changedTables.contains("borrowed_books")) {
+            TableWatermark watermark = watermarks.get("borrowed_books");
+            long readStart = System.nanoTime();
+            deliver("borrowed_books", watermark, borrowedBookDAO.changesSince(watermark.version), readStart,
+                    BorrowedBook::getId, BorrowedBook::getVersion, ChangeListener::onLoansChanged);
+        }
+    }
+
+    // Delivers the rows and deletions of 'changes' not delivered before, then moves the watermark as far as is safe.
+    // 'readStart' is when the read of 'changes' started.
+    private <T> void deliver(String tableName, TableWatermark watermark, ChangeSet<T> changes, long readStart,
+                             ToIntFunction<T> rowId, ToLongFunction<T> rowVersion,
+                             BiConsumer<ChangeListener, ChangeSet<T>> notification) {
+        List<T> changedRows = new ArrayList<>();
+        for (T row : changes.getChangedRows()) {
+            Long delivered = watermark.deliveredRows.get(rowId.applyAsInt(row));
+            if (delivered == null || delivered < rowVersion.applyAsLong(row)) {
+                changedRows.add(row);
+                watermark.deliveredRows.put(rowId.applyAsInt(row), rowVersion.applyAsLong(row));
+            }
+        }
+        IntArrayList deletedIds = new IntArrayList();
+        changes.getDeletedIds().forEach(id -> {
+            if (watermark.deliveredDeletions.putIfAbsent(id, changes.getVersion()) == null) {
+                deletedIds.add(id);
+            }
+        });
+
+        long sinceVersion = watermark.version;
+        watermark.reads.addLast(new long[] {System.nanoTime(), changes.getVersion()});
+        advance(watermark, readStart);
+        if (changedRows.isEmpty() && deletedIds.isEmpty()) {
+            return;
+        }
+
+        ChangeSet<T> delivered = new ChangeSet<>(changedRows, deletedIds, sinceVersion, watermark.version);
+        for (ChangeListener listener : listeners) {
+            try {
+                notification.accept(listener, delivered);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Change listener failed for table " + tableName + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Moves the watermark up to the highest version read by a poll that ended at least the settle time before 'readStart':
+    // every version up to it was taken before that poll, so its transaction has ended and the read that just ran saw it
+    private void advance(TableWatermark watermark, long readStart) {
+        long[] read;
+        while ((read = watermark.reads.peekFirst()) != null && readStart - read[0] >= settleNanos) {
+            watermark.version = Math.max(watermark.version, read[1]);
+            watermark.reads.pollFirst();
+        }
+        long version = watermark.version;
+        watermark.deliveredRows.values().removeIf(delivered -> delivered <= version);
+        watermark.deliveredDeletions.values().removeIf(readVersion -> readVersion <= version);
+    }
+}
@@ -0,0 +1,19 @@
+package cache;
+
+import model.Book;
+import model.BookLocation;
+import model.BorrowedBook;
+import model.ChangeSet;
+import model.Reader;
+
+// Receives rows changed by any desk, as delivered by ChangeFeed on its own thread.
+// Implementations override only the tables they cache and must not block for long.
+public interface ChangeListener {
+    default void onBooksChanged(ChangeSet<Book> changes) {}
+
+    default void onReadersChanged(ChangeSet<Reader> changes) {}
+
+    default void onLocationsChanged(ChangeSet<BookLocation> changes) {}
+
+    default void onLoansChanged(ChangeSet<BorrowedBook> changes) {}
+}
@@ -0,0 +1,366 @@
+package cache;
+
+import dao.BookDAO;
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import util.collections.IntBitSet;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Read-only, column-oriented copy of the books catalogue for listing and searching in memory.
+// Each book is a row index into parallel int columns (id, year, quantity, location id, shelf); authors and sections are
+// dictionary-encoded, since many books share them, and titles are stored back to back as UTF-8 in one byte array.
+// That is roughly 32 bytes plus the title per book, instead of a Book, a BookLocation and their Strings.
+// Rows are in catalogue order (title, then author). Callers read rows through the column getters or a BookView.
+public class ColumnarCatalogue {
+    public static final Comparator<Book> CATALOGUE_ORDER = Comparator.comparing(Book::getTitle).thenComparing(Book::getAuthor);
+    private static final ColumnarCatalogue EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final int[] ids;
+    private final int[] years;
+    private final int[] quantities;
+    private final int[] locationIds;
+    private final int[] shelves;
+    private final int[] authorCodes;
+    private final int[] sectionCodes;
+    private final String[] authors;
+    private final String[] sections;
+    private final byte[] titleArena;
+    private final int[] titleOffsets; // Title of row r: titleArena[titleOffsets[r] .. titleOffsets[r + 1])
+    private final long version;
+
+    private ColumnarCatalogue(Builder builder) {
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        years = Arrays.copyOf(builder.years, size);
+        quantities = Arrays.copyOf(builder.quantities, size);
+        locationIds = Arrays.copyOf(builder.locationIds, size);
+        shelves = Arrays.copyOf(builder.shelves, size);
+        authorCodes = Arrays.copyOf(builder.authorCodes, size);
+        sectionCodes = Arrays.copyOf(builder.sectionCodes, size);
+        authors = builder.authors.toArray(new String[0]);
+        sections = builder.sections.toArray(new String[0]);
+        titleArena = Arrays.copyOf(builder.titleArena, builder.titleBytes);
+        titleOffsets = Arrays.copyOf(builder.titleOffsets, size + 1);
+        version = builder.version;
+    }
+
+    public static ColumnarCatalogue empty() {
+        return EMPTY;
+    }
+
+    // Streams the whole catalogue from the database straight into the columns, without creating Book objects
+    public static ColumnarCatalogue load(BookDAO bookDAO) throws DatabaseOperationException {
+        Builder builder = new Builder(1024);
+        bookDAO.scanAllBooks(builder::add);
+        return builder.build();
+    }
+
+    // Builds a catalogue holding the given books in the given order
+    public static ColumnarCatalogue of(List<Book> books, long version) {
+        Builder builder = new Builder(books.size());
+        for (Book book : books) {
+            builder.add(book);
+        }
+        builder.version = version;
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Highest change version among the rows this catalogue was built from
+    public long getVersion() {
+        return version;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public String getTitle(int row) {
+        return new String(titleArena, titleOffsets[row], titleOffsets[row + 1] - titleOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    public String getAuthor(int row) {
+        return authors[authorCodes[row]];
+    }
+
+    public int getYearOfPublication(int row) {
+        return years[row];
+    }
+
+    public int getQuantity(int row) {
+        return quantities[row];
+    }
+
+    public int getLocationId(int row) {
+        return locationIds[row];
+    }
+
+    public String getSection(int row) {
+        return sections[sectionCodes[row]];
+    }
+
+    public int getShelf(int row) {
+        return shelves[row];
+    }
+
+    // Returns a flyweight over the row; move it with BookView.moveTo to walk many rows with one object
+    public BookView view(int row) {
+        return new BookView(this, row);
+    }
+
+    public Book toBook(int row) {
+        return new Book(ids[row], getTitle(row), getAuthor(row), years[row], quantities[row], new BookLocation(locationIds[row], getSection(row), shelves[row]));
+    }
+
+    public List<Book> toBooks() {
+        List<Book> books = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            books.add(toBook(row));
+        }
+        return books;
+    }
+
+    // Returns the rows whose title equals the given one ignoring case, like BookDAO.getBooksByTitle
+    public IntArrayList findRowsByTitle(String title) {
+        byte[] query = title.getBytes(StandardCharsets.UTF_8);
+        IntArrayList rows = new IntArrayList();
+        for (int row = 0; row < size; row++) {
+            if (titleEqualsIgnoreCase(row, query, title)) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    // Returns the rows whose author equals the given one ignoring case; the dictionary is matched once, then only codes are compared
+    public IntArrayList findRowsByAuthor(String author) {
+        IntBitSet matchingCodes = new IntBitSet(authors.length);
+        for (int code = 0; code < authors.length; code++) {
+            if (authors[code].equalsIgnoreCase(author)) {
+                matchingCodes.add(code);
+            }
+        }
+
+        IntArrayList rows = new IntArrayList();
+        if (matchingCodes.isEmpty()) {
+            return rows;
+        }
+        for (int row = 0; row < size; row++) {
+            if (matchingCodes.contains(authorCodes[row])) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    // Returns the row of the book with the given natural key (compared ignoring case), or -1
+    public int findRow(String title, String author, int yearOfPublication) {
+        byte[] query = title.getBytes(StandardCharsets.UTF_8);
+        for (int row = 0; row < size; row++) {
+            if (years[row] == yearOfPublication && getAuthor(row).equalsIgnoreCase(author) && titleEqualsIgnoreCase(row, query, title)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // Returns a new catalogue with the changed rows replaced or added and the deleted rows dropped, still in catalogue order.
+    // Unchanged rows are copied column to column; only their titles are decoded, to find where the changed books go.
+    public ColumnarCatalogue withChanges(ChangeSet<Book> changes) {
+        IntBitSet replacedIds = new IntBitSet();
+        changes.getChangedRows().forEach(book -> replacedIds.add(book.getId()));
+        changes.getDeletedIds().forEach(replacedIds::add);
+
+        List<Book> changedBooks = new ArrayList<>(changes.getChangedRows());
+        changedBooks.sort(CATALOGUE_ORDER);
+
+        Builder builder = new Builder(size + changedBooks.size());
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            if (replacedIds.contains(ids[row])) {
+                continue;
+            }
+            String title = getTitle(row);
+            String author = getAuthor(row);
+            while (next < changedBooks.size() && compareToRow(changedBooks.get(next), title, author) < 0) {
+                builder.add(changedBooks.get(next++));
+            }
+            builder.addRow(this, row);
+        }
+        while (next < changedBooks.size()) {
+            builder.add(changedBooks.get(next++));
+        }
+
+        builder.version = Math.max(version, changes.getVersion());
+        return builder.build();
+    }
+
+    int titleLength(int row) {
+        return titleOffsets[row + 1] - titleOffsets[row];
+    }
+
+    // Copies the row's UTF-8 title into the buffer without decoding it
+    void putTitle(int row, ByteBuffer buffer) {
+        buffer.put(titleArena, titleOffsets[row], titleLength(row));
+    }
+
+    private static int compareToRow(Book book, String title, String author) {
+        int byTitle = book.getTitle().compareTo(title);
+        return byTitle != 0 ? byTitle : book.getAuthor().compareTo(author);
+    }
+
+    // Compares ASCII titles byte by byte without decoding them; as soon as either side has a non-ASCII byte the title is
+    // decoded and compared with String.equalsIgnoreCase, which knows the Unicode case rules
+    private boolean titleEqualsIgnoreCase(int row, byte[] query, String queryString) {
+        int start = titleOffsets[row];
+        int length = titleLength(row);
+
+        for (int i = 0; i < length && i < query.length; i++) {
+            byte a = titleArena[start + i];
+            byte b = query[i];
+            if (a < 0 || b < 0) {
+                return getTitle(row).equalsIgnoreCase(queryString);
+            }
+            if (a != b && toLowerAscii(a) != toLowerAscii(b)) {
+                return false;
+            }
+        }
+        // Equal ASCII prefixes: the strings can only be equal if neither has characters left
+        return length == query.length;
+    }
+
+    private static int toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    // Collects rows into growable columns; build() trims them to size
+    public static class Builder {
+        private int size;
+        private int[] ids;
+        private int[] years;
+        private int[] quantities;
+        private int[] locationIds;
+        private int[] shelves;
+        private int[] authorCodes;
+        private int[] sectionCodes;
+        private final List<String> authors = new ArrayList<>();
+        private final List<String> sections = new ArrayList<>();
+        private final Map<String, Integer> authorDictionary = new HashMap<>();
+        private final Map<String, Integer> sectionDictionary = new HashMap<>();
+        private byte[] titleArena;
+        private int titleBytes;
+        private int[] titleOffsets;
+        private long version;
+
+        public Builder(int expectedBooks) {
+            int capacity = Math.max(16, expectedBooks);
+            ids = new int[capacity];
+            years = new int[capacity];
+            quantities = new int[capacity];
+            locationIds = new int[capacity];
+            shelves = new int[capacity];
+            authorCodes = new int[capacity];
+            sectionCodes = new int[capacity];
+            titleOffsets = new int[capacity + 1];
+            titleArena = new byte[capacity * 24]; // Rough average title length
+        }
+
+        public Builder add(int id, String title, String author, int yearOfPublication, int quantity, int locationId, String section, int shelf, long rowVersion) {
+            byte[] utf8 = title.getBytes(StandardCharsets.UTF_8);
+            int row = appendRow(id, yearOfPublication, quantity, locationId, shelf, utf8.length);
+            System.arraycopy(utf8, 0, titleArena, titleOffsets[row], utf8.length);
+            authorCodes[row] = encode(author, authors, authorDictionary);
+            sectionCodes[row] = encode(section, sections, sectionDictionary);
+            version = Math.max(version, rowVersion);
+            return this;
+        }
+
+        public Builder add(Book book) {
+            BookLocation location = book.getLocation();
+            return add(book.getId(), book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(),
+                    location.getId(), location.getSection(), location.getShelf(), book.getVersion());
+        }
+
+        // Copies a row of another catalogue, reusing its encoded title
+        Builder addRow(ColumnarCatalogue source, int sourceRow) {
+            int length = source.titleLength(sourceRow);
+            int row = appendRow(source.ids[sourceRow], source.years[sourceRow], source.quantities[sourceRow], source.locationIds[sourceRow], source.shelves[sourceRow], length);
+            System.arraycopy(source.titleArena, source.titleOffsets[sourceRow], titleArena, titleOffsets[row], length);
+            authorCodes[row] = encode(source.getAuthor(sourceRow), authors, authorDictionary);
+            sectionCodes[row] = encode(source.getSection(sourceRow), sections, sectionDictionary);
+            return this;
+        }
+
+        public ColumnarCatalogue build() {
+            return new ColumnarCatalogue(this);
+        }
+
+        // Reserves a row and titleLength bytes of arena for it, and fills in the int columns
+        private int appendRow(int id, int yearOfPublication, int quantity, int locationId, int shelf, int titleLength) {
+            if (size == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                years = Arrays.copyOf(years, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                locationIds = Arrays.copyOf(locationIds, capacity);
+                shelves = Arrays.copyOf(shelves, capacity);
+                authorCodes = Arrays.copyOf(authorCodes, capacity);
+                sectionCodes = Arrays.copyOf(sectionCodes, capacity);
+                titleOffsets = Arrays.copyOf(titleOffsets, capacity + 1);
+            }
+            if (titleBytes + titleLength > titleArena.length) {
+                titleArena = Arrays.copyOf(titleArena, Math.max(titleArena.length * 2, titleBytes + titleLength));
+            }
+
+            int row = size++;
+            ids[row] = id;
+            years[row] = yearOfPublication;
+            quantities[row] = quantity;
+            locationIds[row] = locationId;
+            shelves[row] = shelf;
+            titleOffsets[row] = titleBytes;
+            titleBytes += titleLength;
+            titleOffsets[row + 1] = titleBytes;
+            return row;
+        }
+
+        private static int encode(String value, List<String> values, Map<String, Integer> dictionary) {
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                dictionary.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarCatalogue{" +
+                "books=" + size +
+                ", authors=" + authors.length +
+                ", sections=" + sections.length +
+                ", titleBytes=" + titleArena.length +
+                ", version=" + version +
+                '}';
+    }
+}
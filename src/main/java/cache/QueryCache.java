@@ -0,0 +1,219 @@
+package cache;
+
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import model.ChangeSet;
+import model.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Results of listing queries, keyed by query and arguments, kept until a table the query reads changes.
+// Every entry is tagged with the tables it was read from; invalidating a table drops only the entries tagged with it.
+// Tables are invalidated by the services after their own writes commit, and, as a ChangeListener on a ChangeFeed, for
+// writes made by other desks or by code that does not know the cache. Bounded to 'maxEntries', least recently used first.
+// An optional time to live also drops entries that have been kept that long, in case a change notification is missed.
+// Both limits can be changed while the cache is in use.
+//
+// A result loaded while its tables were invalidated is returned to its caller but not kept, since it may predate the
+// write. Cached values are shared between callers and must not be modified; the services cache unmodifiable lists.
+public class QueryCache implements ChangeListener {
+    public static final String BOOKS = "books";
+    public static final String READERS = "readers";
+    public static final String LOCATIONS = "book_shelf_location";
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+
+    private record Key(String queryId, List<Object> arguments) {}
+
+    private record Entry(Object value, Set<String> tables, long loadedAt) {}
+
+    private int maxEntries;
+    private long timeToLiveNanos; // 0: kept until invalidated or evicted
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+    private final Map<String, Long> generations = new HashMap<>(); // Bumped by every invalidation of the table
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QueryCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public QueryCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true); // Access order: the eldest entry is the least recently used
+    }
+
+    // Returns the cached result of the query for the arguments, or runs the loader and keeps its result.
+    // 'tables' are the tables the query reads; the loader runs outside the cache's lock.
+    public <V> V get(String queryId, Set<String> tables, SingleFlight.Loader<V> loader, Object... arguments) throws DatabaseOperationException {
+        Key key = new Key(queryId, List.of(arguments));
+        long[] generationsBefore = new long[tables.size()];
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && timeToLiveNanos > 0 && System.nanoTime() - entry.loadedAt() > timeToLiveNanos) {
+                entries.remove(key);
+                untag(key, entry, null);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry != null) {
+                hits.increment();
+                @SuppressWarnings("unchecked")
+                V value = (V) entry.value();
+                return value;
+            }
+            int i = 0;
+            for (String table : tables) {
+                generationsBefore[i++] = generations.getOrDefault(table, 0L);
+            }
+        }
+
+        misses.increment();
+        V value = loader.load();
+
+        synchronized (this) {
+            int i = 0;
+            for (String table : tables) {
+                if (generations.getOrDefault(table, 0L) != generationsBefore[i++]) {
+                    return value; // A table changed while the query ran
+                }
+            }
+            put(key, new Entry(value, Set.copyOf(tables), System.nanoTime()));
+        }
+        return value;
+    }
+
+    // Drops every result read from the table
+    public synchronized void invalidate(String table) {
+        generations.merge(table, 1L, Long::sum);
+        Set<Key> keys = keysByTable.remove(table);
+        if (keys == null) {
+            return;
+        }
+        for (Key key : keys) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                untag(key, entry, table);
+                invalidations.increment();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        Set<String> tables = new HashSet<>(keysByTable.keySet());
+        tables.addAll(List.of(BOOKS, READERS, LOCATIONS)); // Also tables of queries still loading
+        for (String table : tables) {
+            generations.merge(table, 1L, Long::sum);
+        }
+        invalidations.add(entries.size());
+        entries.clear();
+        keysByTable.clear();
+    }
+
+    @Override
+    public void onBooksChanged(ChangeSet<Book> changes) {
+        invalidate(BOOKS);
+    }
+
+    @Override
+    public void onReadersChanged(ChangeSet<Reader> changes) {
+        invalidate(READERS);
+    }
+
+    @Override
+    public void onLocationsChanged(ChangeSet<BookLocation> changes) {
+        invalidate(LOCATIONS);
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        while (entries.size() > maxEntries) {
+            evictEldest();
+        }
+    }
+
+    // Entries older than this are loaded again; 0 keeps them until invalidated or evicted
+    public synchronized void setTimeToLive(long timeToLiveMillis) {
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Entries dropped to stay within the size bound or because they outlived the time to live
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // Entries dropped because a table they were read from changed
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private void put(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            untag(key, previous, null);
+        }
+        for (String table : entry.tables()) {
+            keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+        }
+
+        if (entries.size() > maxEntries) {
+            evictEldest();
+        }
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        Map.Entry<Key, Entry> evicted = eldest.next();
+        eldest.remove();
+        untag(evicted.getKey(), evicted.getValue(), null);
+        evictions.increment();
+    }
+
+    // Removes the key from the tag sets of the entry's tables, except 'skippedTable' whose set is being dropped
+    private void untag(Key key, Entry entry, String skippedTable) {
+        for (String table : entry.tables()) {
+            if (table.equals(skippedTable)) {
+                continue;
+            }
+            Set<Key> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByTable.remove(table);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package cache;
+
+import exception.DatabaseOperationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Coalesces identical concurrent calls: while a call for a key is running, later callers with the same key wait for it
+// and get its result (or its failure) instead of running their own. Nothing is kept once the call completes, so this
+// is not a cache; a caller arriving just after the call finished runs a new one and sees fresh data.
+// Callers that share a result share the same object and must not modify it.
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws DatabaseOperationException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalescedCalls = new LongAdder();
+
+    // Runs the loader, or waits for the call already running for the key
+    public V execute(K key, Loader<V> loader) throws DatabaseOperationException {
+        calls.increment();
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+
+        if (running != null) {
+            coalescedCalls.increment();
+            return await(running);
+        }
+
+        try {
+            V value = loader.load();
+            call.complete(value);
+            return value;
+        } catch (DatabaseOperationException | RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    // Calls made, including the coalesced ones
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    // Calls answered by another caller's call instead of their own
+    public long getCoalescedCalls() {
+        return coalescedCalls.sum();
+    }
+
+    // Calls that actually ran their loader
+    public long getExecutions() {
+        return calls.sum() - coalescedCalls.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) throws DatabaseOperationException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DatabaseOperationException databaseException) {
+                throw new DatabaseOperationException(databaseException.getMessage(), databaseException); // This caller's own stack trace
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Typed application settings, read from these layers, each overriding the ones before it:
+//   1. the built-in defaults below
+//   2. database.properties and library.properties on the classpath
+//   3. the external configuration file: -Dlibrary.config, else $LIBRARY_CONFIG, else ./library.properties if it exists
+//   4. environment variables: LIBRARY_ followed by the key in upper case with dots as underscores (LIBRARY_DB_URL)
+//   5. system properties: library. followed by the key (-Dlibrary.db.url=...)
+// A snapshot never changes. reloadDefault reads the layers again and installs a new default snapshot; only settings
+// marked reloadable take new values then, the others keep their startup values until the application restarts.
+public final class AppConfig {
+    private static final Logger logger = Logger.getLogger(AppConfig.class.getName());
+    private static final List<Setting<?>> SETTINGS = new ArrayList<>();
+
+    public static final Setting<String> DB_URL = string("db.url", false);
+    public static final Setting<String> DB_USERNAME = string("db.username", false);
+    public static final Setting<String> DB_PASSWORD = string("db.password", false);
+    public static final Setting<String> DB_REPLICA_URL = string("db.replica.url", false);
+    public static final Setting<String> DB_REPLICA_USERNAME = string("db.replica.username", false);
+    public static final Setting<String> DB_REPLICA_PASSWORD = string("db.replica.password", false);
+
+    public static final Setting<Integer> BORROW_PERIOD_DAYS = integer("loans.borrow_period_days", 28, 1, false);
+    public static final Setting<Integer> MAX_ACTIVE_LOANS = integer("loans.max_active", 5, 1, false);
+    public static final Setting<Integer> MAX_RENEWALS = integer("loans.max_renewals", 2, 0, false);
+
+    public static final Setting<Integer> FINE_DAILY_RATE_CENTS = integer("fines.daily_rate_cents", FinePolicy.DEFAULT_DAILY_RATE_CENTS, 0, true);
+    public static final Setting<Integer> FINE_MAX_PER_LOAN_CENTS = integer("fines.max_per_loan_cents", FinePolicy.DEFAULT_MAX_PER_LOAN_CENTS, 0, true);
+    public static final Setting<Integer> FINE_GRACE_DAYS = integer("fines.grace_days", FinePolicy.DEFAULT_GRACE_DAYS, 0, true);
+
+    // Performance knobs, applied to the running application on reload
+    public static final Setting<Integer> POOL_MAX_SIZE = integer("pool.max_size", 16, 1, true);
+    public static final Setting<Integer> QUERY_CACHE_MAX_ENTRIES = integer("query_cache.max_entries", 512, 1, true);
+    public static final Setting<Long> QUERY_CACHE_TTL_MILLIS = longInteger("query_cache.ttl_millis", 0L, true); // 0: until invalidated
+    public static final Setting<Integer> JOURNAL_BATCH_SIZE = integer("journal.batch_size", 256, 1, true);
+    public static final Setting<Long> SLOW_REQUEST_MILLIS = longInteger("server.slow_request_millis", 500L, true);
+
+    public static final Setting<Integer> SERVER_PORT = integer("server.port", 8080, 0, false);
+
+    private static final Object defaultLock = new Object();
+    private static volatile AppConfig defaultConfig;
+    private static final List<ConfigListener> listeners = new CopyOnWriteArrayList<>();
+
+    // One typed setting; values that do not parse are rejected when the configuration is read
+    public static final class Setting<T> {
+        private final String key;
+        private final T defaultValue;
+        private final Function<String, T> parser;
+        private final boolean reloadable;
+
+        private Setting(String key, T defaultValue, Function<String, T> parser, boolean reloadable) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.parser = parser;
+            this.reloadable = reloadable;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isReloadable() {
+            return reloadable;
+        }
+
+        public String getEnvironmentVariable() {
+            return "LIBRARY_" + key.toUpperCase(Locale.ROOT).replace('.', '_');
+        }
+
+        public String getSystemProperty() {
+            return "library." + key;
+        }
+
+        private T parse(String value) {
+            if (value == null || value.isBlank()) {
+                return defaultValue;
+            }
+            try {
+                return parser.apply(value.trim());
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(key + " has an invalid value: " + value, e);
+            }
+        }
+    }
+
+    private final Map<Setting<?>, Object> values;
+    private final Path file;
+    private final Map<String, String> environment;
+    private final Properties systemProperties;
+
+    private AppConfig(Map<Setting<?>, Object> values, Path file, Map<String, String> environment, Properties systemProperties) {
+        this.values = values;
+        this.file = file;
+        this.environment = environment;
+        this.systemProperties = systemProperties;
+    }
+
+    // The configuration of this process, read on first use
+    public static AppConfig getDefault() {
+        AppConfig config = defaultConfig;
+        if (config == null) {
+            synchronized (defaultLock) {
+                config = defaultConfig;
+                if (config == null) {
+                    config = load(defaultFile(), System.getenv(), System.getProperties());
+                    defaultConfig = config;
+                }
+            }
+        }
+        return config;
+    }
+
+    // Reads the layers again and installs the result as the default; on an invalid value the current configuration
+    // stays in place. Listeners are told after the new configuration is installed.
+    public static void reloadDefault() {
+        AppConfig reloaded;
+        synchronized (defaultLock) {
+            try {
+                reloaded = getDefault().reload();
+            } catch (IllegalArgumentException | UncheckedIOException e) {
+                logger.log(Level.SEVERE, "Configuration not reloaded, keeping the current one: " + e.getMessage(), e);
+                return;
+            }
+            defaultConfig = reloaded;
+        }
+        logger.info("Configuration reloaded.");
+
+        for (ConfigListener listener : listeners) {
+            try {
+                listener.onReload(reloaded);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Configuration listener failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void addListener(ConfigListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(ConfigListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Reads the layers from the given sources; 'file' may be null or missing
+    public static AppConfig load(Path file, Map<String, String> environment, Properties systemProperties) {
+        Properties merged = new Properties();
+        loadResource(merged, "database.properties");
+        loadResource(merged, "library.properties");
+        if (file != null && Files.isRegularFile(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                merged.load(input);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read " + file, e);
+            }
+        }
+
+        Map<Setting<?>, Object> values = new HashMap<>();
+        for (Setting<?> setting : SETTINGS) {
+            String value = merged.getProperty(setting.getKey());
+            value = environment.getOrDefault(setting.getEnvironmentVariable(), value);
+            value = systemProperties.getProperty(setting.getSystemProperty(), value);
+            Object parsed = setting.parse(value);
+            if (parsed != null) {
+                values.put(setting, parsed);
+            }
+        }
+        return new AppConfig(Collections.unmodifiableMap(values), file, environment, systemProperties);
+    }
+
+    // Reads the same layers again; settings that are not reloadable keep this snapshot's values
+    public AppConfig reload() {
+        AppConfig fresh = load(file, environment, systemProperties);
+        Map<Setting<?>, Object> values = new HashMap<>(fresh.values);
+
+        for (Setting<?> setting : SETTINGS) {
+            if (setting.isReloadable() || Objects.equals(this.values.get(setting), fresh.values.get(setting))) {
+                continue;
+            }
+            logger.warning(setting.getKey() + " changed; the new value takes effect after a restart.");
+            if (this.values.containsKey(setting)) {
+                values.put(setting, this.values.get(setting));
+            } else {
+                values.remove(setting);
+            }
+        }
+        return new AppConfig(Collections.unmodifiableMap(values), file, environment, systemProperties);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Setting<T> setting) {
+        return (T) values.getOrDefault(setting, setting.defaultValue);
+    }
+
+    // The external configuration file, if one exists; this is the file to watch for changes
+    public Optional<Path> getFile() {
+        return file != null && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    private static Path defaultFile() {
+        String path = System.getProperty("library.config", System.getenv("LIBRARY_CONFIG"));
+        return Path.of(path != null ? path : "library.properties").toAbsolutePath();
+    }
+
+    private static void loadResource(Properties properties, String name) {
+        try (InputStream input = AppConfig.class.getClassLoader().getResourceAsStream(name)) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + name, e);
+        }
+    }
+
+    private static Setting<String> string(String key, boolean reloadable) {
+        return register(new Setting<>(key, null, Function.identity(), reloadable));
+    }
+
+    private static Setting<Integer> integer(String key, int defaultValue, int minimum, boolean reloadable) {
+        return register(new Setting<>(key, defaultValue, value -> {
+            int parsed = Integer.parseInt(value);
+            if (parsed < minimum) {
+                throw new IllegalArgumentException("must be at least " + minimum);
+            }
+            return parsed;
+        }, reloadable));
+    }
+
+    private static Setting<Long> longInteger(String key, long defaultValue, boolean reloadable) {
+        return register(new Setting<>(key, defaultValue, value -> {
+            long parsed = Long.parseLong(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("must not be negative");
+            }
+            return parsed;
+        }, reloadable));
+    }
+
+    private static <T> Setting<T> register(Setting<T> setting) {
+        SETTINGS.add(setting);
+        return setting;
+    }
+}
@@ -0,0 +1,8 @@
+package config;
+
+// Told about a reloaded configuration, on the thread that reloaded it; implementations apply the reloadable
+// settings they use and must not block for long
+@FunctionalInterface
+public interface ConfigListener {
+    void onReload(AppConfig config);
+}
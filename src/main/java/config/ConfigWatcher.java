@@ -0,0 +1,103 @@
+package config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Runs an action whenever a file changes, e.g. AppConfig::reloadDefault for the external configuration file.
+// The file's directory is watched, since editors often replace a file instead of writing to it. Events arriving within
+// the settle delay of each other are taken as one change, so a save written in several steps is read once, complete.
+public class ConfigWatcher implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConfigWatcher.class.getName());
+    public static final long DEFAULT_SETTLE_MILLIS = 200;
+
+    private final Path file;
+    private final Runnable onChange;
+    private final long settleMillis;
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    public ConfigWatcher(Path file, Runnable onChange) {
+        this(file, onChange, DEFAULT_SETTLE_MILLIS);
+    }
+
+    public ConfigWatcher(Path file, Runnable onChange, long settleMillis) {
+        this.file = file.toAbsolutePath();
+        this.onChange = onChange;
+        this.settleMillis = settleMillis;
+    }
+
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watcherThread = new Thread(this::watchLoop, "config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("Watching " + file + " for configuration changes.");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close(); // Ends the watch loop
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error while closing the configuration watcher: " + e.getMessage(), e);
+        }
+        watchService = null;
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = concernsFile(key);
+
+                // Let the writer finish, folding its further events into this change
+                WatchKey next;
+                while ((next = service.poll(settleMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= concernsFile(next);
+                }
+
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.SEVERE, "Error while applying a change of " + file + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.info("Configuration watcher stopped.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Reads and resets the key; true if any of its events is about the watched file
+    private boolean concernsFile(WatchKey key) {
+        boolean concerns = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                concerns = true;
+            }
+        }
+        key.reset();
+        return concerns;
+    }
+}
@@ -0,0 +1,221 @@
+package config;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Bounded pool of database connections for servers handling many short requests.
+// getConnection lends a connection; closing it gives it back instead of disconnecting. A returned connection is reset
+// to the state it was opened in (uncommitted work rolled back, auto-commit on, writable, original isolation level),
+// since the services leave auto-commit off after their transactions. Connections are opened lazily up to the maximum;
+// callers beyond it wait, at most for the acquire timeout. The most recently returned connection is lent first.
+// The maximum can be changed while the pool is in use (setMaxSize), e.g. when the configuration is reloaded.
+public class ConnectionPool implements ConnectionSource, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+
+    private final ConnectionSource source;
+    private volatile int maxSize;
+    private final long acquireTimeoutMillis;
+    private final ResizableSemaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionSource source, int maxSize) {
+        this(source, maxSize, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(ConnectionSource source, int maxSize, long acquireTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.source = source;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new ResizableSemaphore(maxSize);
+    }
+
+    // Lends a connection; the caller closes it to give it back
+    @Override
+    public Connection getConnection() throws SQLException, IOException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed.");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a pooled connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection.", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null && pooled.physical.isClosed()) {
+                logger.info("Dropping a pooled connection that was closed by the database.");
+            }
+            if (pooled == null) {
+                Connection physical = source.getConnection();
+                pooled = new PooledConnection(physical, physical.getTransactionIsolation());
+            }
+            return lend(pooled);
+
+        } catch (SQLException | IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Changes how many connections may be lent at once. Lent connections are not taken back when shrinking: callers
+    // wait until enough of them have been given back, and idle connections beyond the new maximum are closed.
+    public synchronized void setMaxSize(int newMaxSize) {
+        if (newMaxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        int change = newMaxSize - maxSize;
+        if (change > 0) {
+            permits.release(change);
+        } else if (change < 0) {
+            permits.reducePermits(-change);
+        }
+        maxSize = newMaxSize;
+
+        PooledConnection pooled;
+        while (idle.size() > newMaxSize && (pooled = idle.pollLast()) != null) {
+            closeQuietly(pooled.physical);
+        }
+        logger.info("Connection pool resized to " + newMaxSize);
+    }
+
+    // Connections opened and waiting to be lent
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    // Connections currently lent out
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    // Closes the idle connections; lent connections are closed when they are given back
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.physical);
+        }
+    }
+
+    private Connection lend(PooledConnection pooled) {
+        InvocationHandler handler = new InvocationHandler() {
+            // Not synchronized: holding a monitor during JDBC calls would pin the virtual threads of the HTTP server
+            private final AtomicBoolean returned = new AtomicBoolean();
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (returned.compareAndSet(false, true)) {
+                            giveBack(pooled);
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return returned.get() || pooled.physical.isClosed();
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    case "toString" -> {
+                        return "Pooled " + pooled.physical;
+                    }
+                }
+                if (returned.get()) {
+                    throw new SQLException("The connection was already given back to the pool.");
+                }
+                try {
+                    return method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        try {
+            Connection physical = pooled.physical;
+            if (!physical.getAutoCommit()) {
+                physical.rollback(); // Anything the borrower neither committed nor rolled back
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            if (physical.getTransactionIsolation() != pooled.isolation) {
+                physical.setTransactionIsolation(pooled.isolation);
+            }
+
+            if (closed) {
+                physical.close();
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Discarding a pooled connection that could not be reset: " + e.getMessage(), e);
+            closeQuietly(pooled.physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Error while closing a pooled connection: " + e.getMessage(), e);
+        }
+    }
+
+    // Semaphore whose permits can be taken away even while they are held
+    private static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        public void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    private static final class PooledConnection {
+        final Connection physical;
+        final int isolation; // Isolation level the connection was opened with
+
+        PooledConnection(Connection physical, int isolation) {
+            this.physical = physical;
+            this.isolation = isolation;
+        }
+    }
+}
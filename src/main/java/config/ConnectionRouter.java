@@ -0,0 +1,151 @@
+package config;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Sends read-only work to a streaming replica and everything else to the primary.
+// Reads go to the primary instead when no replica is configured, for a while after a write recorded with recordWrite
+// (so a caller sees its own write even if the replica lags behind), and for a while after the replica could not be
+// reached. The replica's lag is not measured; the read-your-writes window is an upper bound chosen for it.
+public class ConnectionRouter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConnectionRouter.class.getName());
+    public static final long DEFAULT_READ_YOUR_WRITES_MILLIS = 5_000;
+    public static final long DEFAULT_REPLICA_RETRY_MILLIS = 30_000;
+
+    private final ConnectionSource primary;
+    private final ConnectionSource replica;
+    private final long readYourWritesNanos;
+    private final long replicaRetryNanos;
+    private final boolean ownsPools;
+    // Reads stay on the primary until these instants (System.nanoTime); both start in the past
+    private volatile long primaryReadsUntil = System.nanoTime();
+    private volatile long replicaRetryAt = System.nanoTime();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    // Routes every read to the primary
+    public ConnectionRouter(ConnectionSource primary) {
+        this(primary, null);
+    }
+
+    // 'replica' may be null; the router does not close the sources
+    public ConnectionRouter(ConnectionSource primary, ConnectionSource replica) {
+        this(primary, replica, DEFAULT_READ_YOUR_WRITES_MILLIS, DEFAULT_REPLICA_RETRY_MILLIS, false);
+    }
+
+    public ConnectionRouter(ConnectionSource primary, ConnectionSource replica, long readYourWritesMillis, long replicaRetryMillis) {
+        this(primary, replica, readYourWritesMillis, replicaRetryMillis, false);
+    }
+
+    private ConnectionRouter(ConnectionSource primary, ConnectionSource replica, long readYourWritesMillis, long replicaRetryMillis, boolean ownsPools) {
+        if (readYourWritesMillis < 0 || replicaRetryMillis < 0) {
+            throw new IllegalArgumentException("Read-your-writes window and replica retry interval must not be negative");
+        }
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMillis);
+        this.replicaRetryNanos = TimeUnit.MILLISECONDS.toNanos(replicaRetryMillis);
+        this.ownsPools = ownsPools;
+    }
+
+    // Pools of up to 'poolSize' connections to the primary and, if one is configured, the replica.
+    // The router closes them when it is closed.
+    public static ConnectionRouter withPools(int poolSize) {
+        ConnectionPool primaryPool = new ConnectionPool(DatabaseConnection::getConnection, poolSize);
+        ConnectionPool replicaPool = DatabaseConnection.isReplicaConfigured()
+                ? new ConnectionPool(DatabaseConnection::getReplicaConnection, poolSize)
+                : null;
+        return new ConnectionRouter(primaryPool, replicaPool, DEFAULT_READ_YOUR_WRITES_MILLIS, DEFAULT_REPLICA_RETRY_MILLIS, true);
+    }
+
+    // Resizes the pools created by withPools; a router over sources passed to a constructor leaves them to their owner
+    public void setPoolSize(int poolSize) {
+        if (!ownsPools) {
+            return;
+        }
+        ((ConnectionPool) primary).setMaxSize(poolSize);
+        if (replica != null) {
+            ((ConnectionPool) replica).setMaxSize(poolSize);
+        }
+    }
+
+    // A connection for writes, or for reads that must see the latest committed data
+    public Connection getPrimaryConnection() throws SQLException, IOException {
+        return primary.getConnection();
+    }
+
+    // A read-only connection to the replica, or to the primary when the replica should not or cannot be used
+    public Connection getReadConnection() throws SQLException, IOException {
+        long now = System.nanoTime();
+        if (replica == null || now - primaryReadsUntil < 0 || now - replicaRetryAt < 0) {
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+
+        try {
+            Connection connection = replica.getConnection();
+            connection.setReadOnly(true);
+            replicaReads.increment();
+            return connection;
+
+        } catch (SQLException | IOException e) {
+            logger.log(Level.WARNING, "Replica unavailable, reading from the primary for the next "
+                    + TimeUnit.NANOSECONDS.toMillis(replicaRetryNanos) + " ms: " + e.getMessage(), e);
+            replicaRetryAt = System.nanoTime() + replicaRetryNanos;
+            fallbacks.increment();
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+    }
+
+    // Sends reads to the primary for the read-your-writes window; call after committing a write
+    public void recordWrite() {
+        primaryReadsUntil = System.nanoTime() + readYourWritesNanos;
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    public ConnectionSource getPrimary() {
+        return primary;
+    }
+
+    // The replica's source, null if there is none
+    public ConnectionSource getReplica() {
+        return replica;
+    }
+
+    // Reads served by the replica
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    // Reads served by the primary, including fallbacks
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    // Reads sent to the primary because the replica could not be reached
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    // Closes the pools created by withPools; sources passed to a constructor are left to their owner
+    @Override
+    public void close() {
+        if (!ownsPools) {
+            return;
+        }
+        ((ConnectionPool) primary).close();
+        if (replica != null) {
+            ((ConnectionPool) replica).close();
+        }
+    }
+}
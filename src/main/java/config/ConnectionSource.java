@@ -0,0 +1,12 @@
+package config;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Hands out new database connections to components that need more than one, e.g. for parallel work.
+// DatabaseConnection::getConnection is the production source; the caller closes what it obtains.
+@FunctionalInterface
+public interface ConnectionSource {
+    Connection getConnection() throws SQLException, IOException;
+}
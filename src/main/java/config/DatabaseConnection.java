@@ -1,35 +1,46 @@
 package config;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 public class DatabaseConnection {
 
-    // Method to obtain a database connection using properties from a file
+    // Method to obtain a database connection using the db.* settings (see AppConfig for where they are read from)
     public static Connection getConnection() throws IOException, SQLException {
-        Properties properties = new Properties(); // Create a Properties object to hold database configuration
+        AppConfig config = AppConfig.getDefault();
 
-        // Load properties from the 'database.properties' file
-        try (InputStream input = DatabaseConnection.class.getClassLoader().getResourceAsStream("database.properties")) {
+        // Retrieve the database connection details from the configuration
+        String url = config.get(AppConfig.DB_URL);
+        if (url == null) {
+            throw new IOException("Sorry, no database URL is configured (db.url in database.properties or library.properties)");
+        }
+        String username = config.get(AppConfig.DB_USERNAME);
+        String password = config.get(AppConfig.DB_PASSWORD);
+
+        // Establish a connection to the database using the retrieved details
+        return DriverManager.getConnection(url, username, password);
+    }
 
-            if (input == null) {
-                throw new IOException("Sorry, unable to find database.properties");
-            }
+    // Method to obtain a connection to the read replica (db.replica.url); its credentials default to the primary's
+    public static Connection getReplicaConnection() throws IOException, SQLException {
+        AppConfig config = AppConfig.getDefault();
 
-            // Load the properties from the file into the Properties object
-            properties.load(input);
+        String url = config.get(AppConfig.DB_REPLICA_URL);
+        if (url == null) {
+            throw new IOException("No read replica is configured (db.replica.url)");
         }
+        String username = config.get(AppConfig.DB_REPLICA_USERNAME);
+        String password = config.get(AppConfig.DB_REPLICA_PASSWORD);
 
-        // Retrieve the database connection details from the loaded properties
-        String url = properties.getProperty("db.url");
-        String username = properties.getProperty("db.username");
-        String password = properties.getProperty("db.password");
+        return DriverManager.getConnection(url,
+                username != null ? username : config.get(AppConfig.DB_USERNAME),
+                password != null ? password : config.get(AppConfig.DB_PASSWORD));
+    }
 
-        // Establish a connection to the database using the retrieved details
-        return DriverManager.getConnection(url, username, password);
+    // Method to check if a read replica is configured
+    public static boolean isReplicaConfigured() {
+        return AppConfig.getDefault().get(AppConfig.DB_REPLICA_URL) != null;
     }
 }
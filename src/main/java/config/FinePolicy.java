@@ -0,0 +1,63 @@
+package config;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// Fines for overdue loans, in cents: a daily rate charged for every day past the due date beyond the grace days,
+// capped per loan. The default policy comes from the fines.* settings of AppConfig and follows its reloads.
+public final class FinePolicy {
+    public static final int DEFAULT_DAILY_RATE_CENTS = 25;
+    public static final int DEFAULT_MAX_PER_LOAN_CENTS = 1_000;
+    public static final int DEFAULT_GRACE_DAYS = 0;
+
+    private final int dailyRateCents;
+    private final int maxPerLoanCents;
+    private final int graceDays;
+
+    public FinePolicy(int dailyRateCents, int maxPerLoanCents, int graceDays) {
+        if (dailyRateCents < 0 || maxPerLoanCents < 0 || graceDays < 0) {
+            throw new IllegalArgumentException("Fine rate, cap and grace days must not be negative");
+        }
+        this.dailyRateCents = dailyRateCents;
+        this.maxPerLoanCents = maxPerLoanCents;
+        this.graceDays = graceDays;
+    }
+
+    // The policy of the current configuration
+    public static FinePolicy getDefault() {
+        return fromConfig(AppConfig.getDefault());
+    }
+
+    public static FinePolicy fromConfig(AppConfig config) {
+        return new FinePolicy(
+                config.get(AppConfig.FINE_DAILY_RATE_CENTS),
+                config.get(AppConfig.FINE_MAX_PER_LOAN_CENTS),
+                config.get(AppConfig.FINE_GRACE_DAYS));
+    }
+
+    // Fine of a loan due on 'dueDate' as of 'day'; 0 until the due date and the grace days have passed
+    public int fineFor(LocalDate dueDate, LocalDate day) {
+        long chargedDays = ChronoUnit.DAYS.between(dueDate, day) - graceDays;
+        if (chargedDays <= 0) {
+            return 0;
+        }
+        return (int) Math.min(maxPerLoanCents, chargedDays * dailyRateCents);
+    }
+
+    public int getDailyRateCents() {
+        return dailyRateCents;
+    }
+
+    public int getMaxPerLoanCents() {
+        return maxPerLoanCents;
+    }
+
+    public int getGraceDays() {
+        return graceDays;
+    }
+
+    // Formats an amount in cents for display, e.g. 125 as "1.25"
+    public static String formatCents(long cents) {
+        return (cents < 0 ? "-" : "") + Math.abs(cents) / 100 + "." + String.format("%02d", Math.abs(cents) % 100);
+    }
+}
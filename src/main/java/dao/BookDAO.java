@@ -3,50 +3,109 @@ package dao;
 import exception.DatabaseOperationException;
 import model.Book;
 import model.BookLocation;
+import model.ChangeSet;
+import util.collections.IntIntHashMap;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 public class BookDAO {
+    private static final int SCAN_FETCH_SIZE = 10_000;
     private final Connection connection;
 
     public BookDAO(Connection connection) {
         this.connection = connection;
     }
 
-    // Adds a new book or returns the ID of the newly created book. If the book already exists, returns an empty Optional.
-    public Optional<Integer> addBook(Book book) throws DatabaseOperationException {
-        String insertNewBookSql = "INSERT INTO books (title, author, year_of_publication, quantity, shelf_location_id) VALUES (?, ?, ?, ?, ?)";
+    @FunctionalInterface
+    public interface BookRowHandler {
+        void accept(int id, String title, String author, int yearOfPublication, int quantity, int locationId, String section, int shelf, long version);
+    }
 
+    // Adds a new book and returns its generated ID. If the book already exists, returns an empty Optional.
+    // A single statement both checks and inserts; the unique index on the natural key settles races between desks.
+    public Optional<Integer> addBook(Book book) throws DatabaseOperationException {
         try {
-            Optional<Integer> bookId = findBookIdByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
+            String insertNewBookSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO books (title, author, year_of_publication, quantity, shelf_location_id, version) " +
+                    "SELECT ?, ?, ?, ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM books WHERE LOWER(title) = LOWER(?) AND LOWER(author) = LOWER(?) AND year_of_publication = ?)");
+
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewBookSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                insertStatement.setString(1, book.getTitle());
+                insertStatement.setString(2, book.getAuthor());
+                insertStatement.setInt(3, book.getYearOfPublication());
+                insertStatement.setInt(4, book.getQuantity());
+                insertStatement.setInt(5, book.getLocation().getId());
+                insertStatement.setString(6, book.getTitle());
+                insertStatement.setString(7, book.getAuthor());
+                insertStatement.setInt(8, book.getYearOfPublication());
+
+                if (insertStatement.executeUpdate() == 0) {
+                    return Optional.empty(); // The book already exists
+                }
+                try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        int newBookId = generatedKeys.getInt(1);
+                        ChangeTracking.notifyChange(connection, "books", newBookId);
+                        return Optional.of(newBookId); // Return the generated ID
+                    }
+                }
+                throw new SQLException("Failed to insert new book, no ID obtained.");
+            }
+        } catch (SQLException e) {
+            if (SqlDialect.isUniqueViolation(e)) {
+                return Optional.empty(); // Added by another desk at the same moment
+            }
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Inserts the books in one batch, skipping those that already exist; every book's location must carry its ID.
+    // Returns the number of books inserted. Listening desks get a single notification for the whole batch.
+    public int addBooks(List<Book> books) throws DatabaseOperationException {
+        if (books.isEmpty()) {
+            return 0;
+        }
 
-            if (bookId.isPresent()) {
-                return Optional.empty(); // The book already exists
-            } else {
-                // Add new book and return the generated ID
-                try (PreparedStatement insertStatement = connection.prepareStatement(insertNewBookSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try {
+            String insertNewBookSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO books (title, author, year_of_publication, quantity, shelf_location_id, version) " +
+                    "SELECT ?, ?, ?, ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM books WHERE LOWER(title) = LOWER(?) AND LOWER(author) = LOWER(?) AND year_of_publication = ?)");
+            int inserted;
+
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewBookSql)) {
+                for (Book book : books) {
                     insertStatement.setString(1, book.getTitle());
                     insertStatement.setString(2, book.getAuthor());
                     insertStatement.setInt(3, book.getYearOfPublication());
                     insertStatement.setInt(4, book.getQuantity());
                     insertStatement.setInt(5, book.getLocation().getId());
-
-                    int result = insertStatement.executeUpdate();
-                    if (result > 0) {
-                        try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
-                            if (generatedKeys.next()) {
-                                return Optional.of(generatedKeys.getInt(1)); // Return the generated ID
-                            }
-                        }
-                    }
-                    throw new SQLException("Failed to insert new book, no ID obtained.");
+                    insertStatement.setString(6, book.getTitle());
+                    insertStatement.setString(7, book.getAuthor());
+                    insertStatement.setInt(8, book.getYearOfPublication());
+                    insertStatement.addBatch();
+                }
+                inserted = ChangeTracking.countInserted(insertStatement.executeBatch());
+            } catch (BatchUpdateException e) {
+                if (!SqlDialect.isUniqueViolation(e)) {
+                    throw e;
                 }
+                inserted = ChangeTracking.countInserted(e.getUpdateCounts()); // H2: some rows were added by another desk at the same moment
             }
+
+            if (inserted > 0) {
+                ChangeTracking.notifyTableChange(connection, "books");
+            }
+            return inserted;
+
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed.", e);
         }
@@ -54,7 +113,7 @@ public class BookDAO {
 
     // Method to increase the quantity of a book in the database by a specified amount
     public boolean increaseBookQuantity(Book book, int quantityToAdd) throws DatabaseOperationException {
-        String query = "UPDATE books SET quantity = quantity + ? WHERE id = ?";
+        String query = "UPDATE books SET quantity = quantity + ?, version = " + ChangeTracking.NEXT_VERSION + " WHERE id = ?";
 
         try {
             Optional<Integer> bookId = findBookIdByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
@@ -66,16 +125,22 @@ public class BookDAO {
                 statement.setInt(1, quantityToAdd);
                 statement.setInt(2, bookId.get());
 
-                return statement.executeUpdate() > 0; // Return true if the update was successful
+                if (statement.executeUpdate() > 0) {
+                    ChangeTracking.notifyChange(connection, "books", bookId.get());
+                    return true; // The update was successful
+                }
+                return false;
             }
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed.", e);
         }
     }
 
-    // Method to decrease the quantity of a book in the database by a specified amount
+    // Method to decrease the quantity of a book in the database by a specified amount.
+    // Returns false if the book does not exist or has fewer copies; the check is part of the update, so concurrent
+    // decreases cannot drive the quantity negative.
     public boolean decreaseBookQuantity(Book book, int quantityToReduce) throws DatabaseOperationException {
-        String query = "UPDATE books SET quantity = quantity - ? WHERE id = ?";
+        String query = "UPDATE books SET quantity = quantity - ?, version = " + ChangeTracking.NEXT_VERSION + " WHERE id = ? AND quantity >= ?";
 
         try {
             Optional<Integer> bookId = findBookIdByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
@@ -86,8 +151,13 @@ public class BookDAO {
             try (PreparedStatement statement = connection.prepareStatement(query)) {
                 statement.setInt(1, quantityToReduce);
                 statement.setInt(2, bookId.get());
+                statement.setInt(3, quantityToReduce);
 
-                return statement.executeUpdate() > 0; // Return true if the update was successful
+                if (statement.executeUpdate() > 0) {
+                    ChangeTracking.notifyChange(connection, "books", bookId.get());
+                    return true; // The update was successful
+                }
+                return false;
             }
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed.", e);
@@ -124,6 +194,28 @@ public class BookDAO {
         }
     }
 
+    // Streams all books in the same order as getAllBooks to the handler, one row at a time, without building a list.
+    // PostgreSQL only streams with autocommit off; with autocommit on the rows are still read in one go.
+    public void scanAllBooks(BookRowHandler handler) throws DatabaseOperationException {
+        String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id, l.section, l.shelf, b.version " +
+                "FROM books b " +
+                "JOIN book_shelf_location l ON b.shelf_location_id = l.id " +
+                "ORDER BY b.title, b.author";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setFetchSize(SCAN_FETCH_SIZE);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    handler.accept(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3), resultSet.getInt(4),
+                            resultSet.getInt(5), resultSet.getInt(6), resultSet.getString(7), resultSet.getInt(8), resultSet.getLong(9));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
     // Fetches books by title from the database along with location data
     public List<Book> getBooksByTitle(String title) throws DatabaseOperationException {
         String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id,  l.section, l.shelf " +
@@ -190,9 +282,9 @@ public class BookDAO {
         }
     }
 
-    // Fetches book by author, title, and year of publication along with location data
+    // Fetches book by author, title, and year of publication along with location data and the row's current version
     public Optional<Book> findBookByDetails(String title, String author, int yearOfPublication) throws DatabaseOperationException {
-        String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id, l.section, l.shelf " +
+        String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id, l.section, l.shelf, b.version " +
                 "FROM books b " +
                 "JOIN book_shelf_location l ON b.shelf_location_id = l.id " +
                 "WHERE LOWER(b.title) = LOWER(?) AND LOWER(b.author) = LOWER(?) AND b.year_of_publication = ? " +
@@ -212,6 +304,7 @@ public class BookDAO {
                             resultSet.getInt("year_of_publication"),
                             resultSet.getInt("quantity"),
                             location);
+                    book.setVersion(resultSet.getLong("version"));
                     return Optional.of(book);
                 } else {
                     return Optional.empty();
@@ -222,6 +315,179 @@ public class BookDAO {
         }
     }
 
+    // Fetches book by its ID along with location data and the row's current version
+    public Optional<Book> findBookById(int bookId) throws DatabaseOperationException {
+        String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id, l.section, l.shelf, b.version " +
+                "FROM books b " +
+                "JOIN book_shelf_location l ON b.shelf_location_id = l.id " +
+                "WHERE b.id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, bookId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    BookLocation location = new BookLocation(resultSet.getInt("shelf_location_id"), resultSet.getString("section"), resultSet.getInt("shelf"));
+                    Book book = new Book(resultSet.getInt("id"),
+                            resultSet.getString("title"),
+                            resultSet.getString("author"),
+                            resultSet.getInt("year_of_publication"),
+                            resultSet.getInt("quantity"),
+                            location);
+                    book.setVersion(resultSet.getLong("version"));
+                    return Optional.of(book);
+                } else {
+                    return Optional.empty();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Sets the quantity of a book only if its row still has the version the book was read with (compare-and-set).
+    // Returns false if another transaction changed or removed the book in the meantime; the caller re-reads and retries.
+    public boolean compareAndSetQuantity(Book book, int newQuantity) throws DatabaseOperationException {
+        String query = "UPDATE books SET quantity = ?, version = " + ChangeTracking.NEXT_VERSION + " WHERE id = ? AND version = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, newQuantity);
+            statement.setInt(2, book.getId());
+            statement.setLong(3, book.getVersion());
+
+            if (statement.executeUpdate() > 0) {
+                ChangeTracking.notifyChange(connection, "books", book.getId());
+                return true;
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Locks the book's row until the end of the transaction and returns its current quantity, empty if the book does not exist.
+    // Placing a hold and handing a returned copy to the hold queue both take this lock first, so a hold is never placed while
+    // a copy is on its way back to the shelf.
+    public Optional<Integer> lockBook(int bookId) throws DatabaseOperationException {
+        String query = "SELECT quantity FROM books WHERE id = ? FOR UPDATE";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, bookId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(resultSet.getInt("quantity")) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches the books matching any of the given books' title, author and year of publication in one query, with their current versions
+    public List<Book> findBooksByDetails(List<Book> books) throws DatabaseOperationException {
+        List<Book> foundBooks = new ArrayList<>();
+        if (books.isEmpty()) {
+            return foundBooks;
+        }
+
+        String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id, l.section, l.shelf, b.version " +
+                "FROM books b " +
+                "JOIN book_shelf_location l ON b.shelf_location_id = l.id " +
+                "WHERE (LOWER(b.title), LOWER(b.author), b.year_of_publication) IN (" +
+                String.join(", ", Collections.nCopies(books.size(), "(LOWER(?), LOWER(?), ?)")) + ")";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            int parameter = 1;
+            for (Book book : books) {
+                statement.setString(parameter++, book.getTitle());
+                statement.setString(parameter++, book.getAuthor());
+                statement.setInt(parameter++, book.getYearOfPublication());
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    BookLocation location = new BookLocation(resultSet.getInt("shelf_location_id"), resultSet.getString("section"), resultSet.getInt("shelf"));
+                    Book book = new Book(resultSet.getInt("id"),
+                            resultSet.getString("title"),
+                            resultSet.getString("author"),
+                            resultSet.getInt("year_of_publication"),
+                            resultSet.getInt("quantity"),
+                            location);
+                    book.setVersion(resultSet.getLong("version"));
+                    foundBooks.add(book);
+                }
+            }
+            return foundBooks;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Applies several quantity changes (book ID -> delta) in one batch. Each change only applies if it keeps the quantity
+    // non-negative, so concurrent borrows cannot oversell a book. Returns false if any change was refused; the caller rolls back.
+    // The rows are updated in ID order, so concurrent batches lock them in the same order and cannot deadlock.
+    public boolean adjustQuantities(IntIntHashMap quantityDeltaByBookId) throws DatabaseOperationException {
+        String query = "UPDATE books SET quantity = quantity + ?, version = " + ChangeTracking.NEXT_VERSION + " WHERE id = ? AND quantity + ? >= 0";
+        int[] bookIds = quantityDeltaByBookId.sortedKeys();
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int bookId : bookIds) {
+                int delta = quantityDeltaByBookId.get(bookId);
+                statement.setInt(1, delta);
+                statement.setInt(2, bookId);
+                statement.setInt(3, delta);
+                statement.addBatch();
+            }
+
+            for (int updatedRows : statement.executeBatch()) {
+                if (updatedRows == 0) {
+                    return false;
+                }
+            }
+            ChangeTracking.notifyTableChange(connection, "books");
+            return true;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches books added or modified after the given version, plus the IDs of books removed since then
+    public ChangeSet<Book> changesSince(long version) throws DatabaseOperationException {
+        String query = "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, b.shelf_location_id, l.section, l.shelf, b.version " +
+                "FROM books b " +
+                "JOIN book_shelf_location l ON b.shelf_location_id = l.id " +
+                "WHERE b.version > ? " +
+                "ORDER BY b.version";
+        List<Book> changedBooks = new ArrayList<>();
+        long maxVersion = version;
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, version);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    BookLocation location = new BookLocation(resultSet.getInt("shelf_location_id"), resultSet.getString("section"), resultSet.getInt("shelf"));
+                    Book book = new Book(resultSet.getInt("id"),
+                            resultSet.getString("title"),
+                            resultSet.getString("author"),
+                            resultSet.getInt("year_of_publication"),
+                            resultSet.getInt("quantity"),
+                            location);
+                    book.setVersion(resultSet.getLong("version"));
+
+                    changedBooks.add(book);
+                    maxVersion = resultSet.getLong("version");
+                }
+            }
+
+            return ChangeTracking.toChangeSet(connection, "books", version, changedBooks, maxVersion);
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
     // Helper method to check if a book exists and return its ID
     private Optional<Integer> findBookIdByDetails(String title, String author, int yearOfPublication) throws SQLException {
         String query = "SELECT id FROM books WHERE LOWER(title) = LOWER(?) AND LOWER(author) = LOWER(?) AND year_of_publication = ?";
@@ -247,7 +513,11 @@ public class BookDAO {
         try (PreparedStatement statement = connection.prepareStatement(query)) {
             statement.setInt(1, bookId);
 
-            return statement.executeUpdate() > 0; // Returns true if the book was successfully removed
+            if (statement.executeUpdate() > 0) {
+                ChangeTracking.recordDeletion(connection, "books", bookId);
+                return true; // The book was successfully removed
+            }
+            return false;
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed.", e);
         }
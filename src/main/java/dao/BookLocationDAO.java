@@ -2,6 +2,7 @@ package dao;
 
 import exception.DatabaseOperationException;
 import model.BookLocation;
+import model.ChangeSet;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -17,29 +18,37 @@ public class BookLocationDAO {
         this.connection = connection;
     }
 
-    // Adds a new book location or returns an Optional with the ID of the newly created location
+    // Adds a new book location and returns its generated ID. If the location already exists, returns an empty Optional.
+    // A single statement both checks and inserts; the unique constraint on (section, shelf) settles races between desks.
     public Optional<Integer> addLocation(BookLocation bookLocation) throws DatabaseOperationException {
-        Optional<Integer> locationId = doesBookLocationExist(bookLocation.getSection(), bookLocation.getShelf());
-        if (locationId.isPresent()) {
-            return Optional.empty(); // Location already exists, return empty Optional
-        }
-        String insertNewLocationSql = "INSERT INTO book_shelf_location (section, shelf) VALUES(?, ?)";
-
-        try (PreparedStatement insertStatement = connection.prepareStatement(insertNewLocationSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            insertStatement.setString(1, bookLocation.getSection());
-            insertStatement.setInt(2, bookLocation.getShelf());
-
-            int result = insertStatement.executeUpdate();
-            if (result > 0) {
+        try {
+            String insertNewLocationSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO book_shelf_location (section, shelf, version) " +
+                    "SELECT ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM book_shelf_location WHERE section = ? AND shelf = ?)");
+
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewLocationSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                insertStatement.setString(1, bookLocation.getSection());
+                insertStatement.setInt(2, bookLocation.getShelf());
+                insertStatement.setString(3, bookLocation.getSection());
+                insertStatement.setInt(4, bookLocation.getShelf());
+
+                if (insertStatement.executeUpdate() == 0) {
+                    return Optional.empty(); // Location already exists, return empty Optional
+                }
                 try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
-                        return Optional.of(generatedKeys.getInt(1)); // Return the generated ID
+                        int newLocationId = generatedKeys.getInt(1);
+                        ChangeTracking.notifyChange(connection, "book_shelf_location", newLocationId);
+                        return Optional.of(newLocationId); // Return the generated ID
                     }
                 }
+                throw new SQLException("Failed to insert new location, no ID obtained.");
             }
-            throw new SQLException("Failed to insert new location, no ID obtained.");
-
         } catch (SQLException e) {
+            if (SqlDialect.isUniqueViolation(e)) {
+                return Optional.empty(); // Added by another desk at the same moment
+            }
             throw new DatabaseOperationException("Database operation failed", e);
         }
     }
@@ -111,13 +120,49 @@ public class BookLocationDAO {
 
     // Method to remove a book location by its BookLocation object
     public boolean removeBookLocation(String section, int shelf) throws DatabaseOperationException {
-        String query = "DELETE FROM book_shelf_location WHERE section = ? AND shelf = ?";
+        Optional<Integer> locationId = doesBookLocationExist(section, shelf);
+        if (locationId.isEmpty()) {
+            return false; // Location does not exist
+        }
+
+        String query = "DELETE FROM book_shelf_location WHERE id = ?";
 
         try (PreparedStatement statement = connection.prepareStatement(query)) {
-            statement.setString(1, section);
-            statement.setInt(2, shelf);
+            statement.setInt(1, locationId.get());
+
+            if (statement.executeUpdate() > 0) {
+                ChangeTracking.recordDeletion(connection, "book_shelf_location", locationId.get());
+                return true;
+            }
+            return false;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
+    // Fetches book locations added or modified after the given version, plus the IDs of locations removed since then
+    public ChangeSet<BookLocation> changesSince(long version) throws DatabaseOperationException {
+        String query = "SELECT id, section, shelf, version FROM book_shelf_location WHERE version > ? ORDER BY version";
+        List<BookLocation> changedLocations = new ArrayList<>();
+        long maxVersion = version;
 
-            return statement.executeUpdate() > 0;
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, version);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    BookLocation bookLocation = new BookLocation(
+                            resultSet.getInt("id"),
+                            resultSet.getString("section"),
+                            resultSet.getInt("shelf")
+                    );
+                    bookLocation.setVersion(resultSet.getLong("version"));
+                    changedLocations.add(bookLocation);
+                    maxVersion = resultSet.getLong("version");
+                }
+            }
+            return ChangeTracking.toChangeSet(connection, "book_shelf_location", version, changedLocations, maxVersion);
 
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed", e);
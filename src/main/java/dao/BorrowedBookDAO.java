@@ -1,9 +1,14 @@
 package dao;
 
+import config.FinePolicy;
 import exception.DatabaseOperationException;
 import model.Book;
 import model.BorrowedBook;
+import model.ChangeSet;
 import model.Reader;
+import model.ReaderSummary;
+import util.collections.IntArrayList;
+import util.collections.IntBitSet;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -20,33 +25,39 @@ public class BorrowedBookDAO {
         this.connection = connection;
     }
 
-    // Adds a new Borrowed Book or returns the ID if it was added. If the book is already borrowed, returns an empty Optional.
+    // Adds a new Borrowed Book and returns its generated ID. If the book is already borrowed by the reader, returns an empty Optional.
+    // A single statement both checks and inserts; the unique index on (reader_id, book_id) settles races between desks.
     public Optional<Integer> addBorrowedBook(Reader reader, Book book) throws DatabaseOperationException {
-        Optional<Integer> borrowedBookId = findBorrowedBookIdByReaderAndBook(reader,book);
-
-        if(borrowedBookId.isPresent()){
-            return Optional.empty(); // Borrowed book already exists
-        }
-
-        String insertNewBorrowedBookSql = "INSERT INTO borrowed_books (reader_id, book_id, borrow_date, return_due_date) VALUES (?, ?, ?, ?)";
-
-        try (PreparedStatement insertStatement = connection.prepareStatement(insertNewBorrowedBookSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            insertStatement.setInt(1, reader.getId());
-            insertStatement.setInt(2, book.getId());
-            insertStatement.setDate(3, java.sql.Date.valueOf(LocalDate.now()));
-            insertStatement.setDate(4, java.sql.Date.valueOf(LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS)));
-
-            int result = insertStatement.executeUpdate();
-            if (result > 0) {
+        try {
+            String insertNewBorrowedBookSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO borrowed_books (reader_id, book_id, borrow_date, return_due_date, version) " +
+                    "SELECT ?, ?, ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM borrowed_books WHERE reader_id = ? AND book_id = ?)");
+
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewBorrowedBookSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                insertStatement.setInt(1, reader.getId());
+                insertStatement.setInt(2, book.getId());
+                insertStatement.setDate(3, java.sql.Date.valueOf(LocalDate.now()));
+                insertStatement.setDate(4, java.sql.Date.valueOf(LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS)));
+                insertStatement.setInt(5, reader.getId());
+                insertStatement.setInt(6, book.getId());
+
+                if (insertStatement.executeUpdate() == 0) {
+                    return Optional.empty(); // Borrowed book already exists
+                }
                 try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
-                        return Optional.of(generatedKeys.getInt(1)); // Return the generated ID
+                        int newBorrowedBookId = generatedKeys.getInt(1);
+                        ChangeTracking.notifyChange(connection, "borrowed_books", newBorrowedBookId);
+                        return Optional.of(newBorrowedBookId); // Return the generated ID
                     }
                 }
+                throw new SQLException("Failed to insert new borrowed book, no ID obtained.");
             }
-            throw new SQLException("Failed to insert new borrowed book, no ID obtained.");
-
         } catch (SQLException e) {
+            if (SqlDialect.isUniqueViolation(e)) {
+                return Optional.empty(); // Borrowed at another desk at the same moment
+            }
             throw new DatabaseOperationException("Database operation failed", e);
         }
     }
@@ -71,8 +82,12 @@ public class BorrowedBookDAO {
     }
 
 
-    // Method to find the borrowed book ID by reader and book details
+    // Method to find the borrowed book ID by reader and book; uses their IDs when both carry one, their details otherwise
     public Optional<Integer> findBorrowedBookIdByReaderAndBook(Reader reader, Book book) throws DatabaseOperationException {
+        if (reader.getId() > 0 && book.getId() > 0) {
+            return findBorrowedBookIdByReaderAndBook(reader.getId(), book.getId());
+        }
+
         String query = "SELECT bb.id FROM borrowed_books bb "+
                 "JOIN readers r ON bb.reader_id = r.id "+
                 "JOIN books b ON bb.book_id = b.id "+
@@ -99,8 +114,32 @@ public class BorrowedBookDAO {
         }
     }
 
+    // Method to find the borrowed book ID by reader ID and book ID, served by the (reader_id, book_id) index
+    public Optional<Integer> findBorrowedBookIdByReaderAndBook(int readerId, int bookId) throws DatabaseOperationException {
+        String query = "SELECT id FROM borrowed_books WHERE reader_id = ? AND book_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, readerId);
+            statement.setInt(2, bookId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(resultSet.getInt("id"));
+                } else {
+                    return Optional.empty();
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
     // Method to fetch all books borrowed by a specific reader with borrow and return dates
     public List<String> getBooksBorrowedByReaderWithDates(Reader reader) throws DatabaseOperationException {
+        if (reader.getId() > 0) {
+            return getBooksBorrowedByReaderWithDates(reader.getId());
+        }
+
         String query = "SELECT b.title, b.author, b.year_of_publication, bb.borrow_date, bb.return_due_date "+
                 "FROM borrowed_books bb "+
                 "JOIN books b ON bb.book_id = b.id "+
@@ -116,15 +155,31 @@ public class BorrowedBookDAO {
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
-                    String bookInfo = String.format(
-                            "Title: %s, Author: %s, Year of publication: %d, Date of hire: %s, Date of return: %s",
-                            resultSet.getString("title"),
-                            resultSet.getString("author"),
-                            resultSet.getInt("year_of_publication"),
-                            resultSet.getDate("borrow_date").toLocalDate(),
-                            resultSet.getDate("return_due_date").toLocalDate()
-                    );
-                    borrowedBooksInfo.add(bookInfo);
+                    borrowedBooksInfo.add(formatBorrowedBookInfo(resultSet));
+                }
+
+                return borrowedBooksInfo;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Method to fetch all books borrowed by the reader with the given ID with borrow and return dates
+    public List<String> getBooksBorrowedByReaderWithDates(int readerId) throws DatabaseOperationException {
+        String query = "SELECT b.title, b.author, b.year_of_publication, bb.borrow_date, bb.return_due_date "+
+                "FROM borrowed_books bb "+
+                "JOIN books b ON bb.book_id = b.id "+
+                "WHERE bb.reader_id = ?";
+
+        List<String> borrowedBooksInfo = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, readerId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    borrowedBooksInfo.add(formatBorrowedBookInfo(resultSet));
                 }
 
                 return borrowedBooksInfo;
@@ -134,9 +189,63 @@ public class BorrowedBookDAO {
         }
     }
 
-    // Method to fetch all readers who have overdue loans
+    // Fetches a reader's summary in one round-trip: one row per active loan, with the loan counts and the next due date
+    // computed over all of them by window functions, and the reader's lifetime borrow count.
+    // The reader is matched by ID when the object carries one, by details otherwise; returns an empty Optional for unknown readers.
+    public Optional<ReaderSummary> getReaderSummary(Reader reader) throws DatabaseOperationException {
+        String query = "SELECT r.id, r.first_name, r.last_name, r.date_of_birth, r.fine_balance_cents, r.total_borrowed, " +
+                "b.title, b.author, b.year_of_publication, bb.borrow_date, bb.return_due_date, " +
+                "SUM(CASE WHEN bb.return_due_date < CURRENT_DATE THEN 1 ELSE 0 END) OVER () AS overdue_loans, " +
+                "MIN(CASE WHEN bb.return_due_date >= CURRENT_DATE THEN bb.return_due_date END) OVER () AS next_due_date " +
+                "FROM readers r " +
+                "LEFT JOIN borrowed_books bb ON bb.reader_id = r.id " +
+                "LEFT JOIN books b ON bb.book_id = b.id " +
+                (reader.getId() > 0
+                        ? "WHERE r.id = ? "
+                        : "WHERE LOWER(r.first_name) = LOWER(?) AND LOWER(r.last_name) = LOWER(?) AND r.date_of_birth = ? ") +
+                "ORDER BY bb.return_due_date, b.title";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            if (reader.getId() > 0) {
+                statement.setInt(1, reader.getId());
+            } else {
+                statement.setString(1, reader.getFirstName());
+                statement.setString(2, reader.getLastName());
+                statement.setDate(3, java.sql.Date.valueOf(reader.getDateOfBirth()));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+
+                Reader foundReader = new Reader(resultSet.getInt("id"),
+                        resultSet.getString("first_name"),
+                        resultSet.getString("last_name"),
+                        resultSet.getDate("date_of_birth").toLocalDate());
+                int overdueLoans = resultSet.getInt("overdue_loans");
+                java.sql.Date nextDueDate = resultSet.getDate("next_due_date");
+                long totalBorrowed = resultSet.getLong("total_borrowed");
+                long fineBalanceCents = resultSet.getLong("fine_balance_cents");
+
+                List<String> activeLoans = new ArrayList<>();
+                do {
+                    if (resultSet.getString("title") != null) { // A reader without loans still yields one row
+                        activeLoans.add(formatBorrowedBookInfo(resultSet));
+                    }
+                } while (resultSet.next());
+
+                return Optional.of(new ReaderSummary(foundReader, activeLoans, overdueLoans,
+                        nextDueDate == null ? null : nextDueDate.toLocalDate(), totalBorrowed, fineBalanceCents, LocalDate.now()));
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Method to fetch all readers who have overdue loans, with their fine balance as of the last accrual run
     public List<String> getOverdueReaders() throws DatabaseOperationException {
-        String query = "SELECT r.first_name, r.last_name, r.date_of_birth, bb.borrow_date, bb.return_due_date " +
+        String query = "SELECT r.first_name, r.last_name, r.date_of_birth, r.fine_balance_cents, bb.borrow_date, bb.return_due_date " +
                 "FROM borrowed_books bb " +
                 "JOIN readers r ON bb.reader_id = r.id " +
                 "WHERE bb.return_due_date < CURRENT_DATE";
@@ -147,12 +256,13 @@ public class BorrowedBookDAO {
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
                     String readerInfo = String.format(
-                            "First name: %s, Last name: %s, Date of birth: %s, Date of hire: %s, Date of return: %s",
+                            "First name: %s, Last name: %s, Date of birth: %s, Date of hire: %s, Date of return: %s, Fine balance: %s",
                             resultSet.getString("first_name"),
                             resultSet.getString("last_name"),
                             resultSet.getDate("date_of_birth").toLocalDate(),
                             resultSet.getDate("borrow_date").toLocalDate(),
-                            resultSet.getDate("return_due_date").toLocalDate()
+                            resultSet.getDate("return_due_date").toLocalDate(),
+                            FinePolicy.formatCents(resultSet.getLong("fine_balance_cents"))
                     );
                     overdueReaders.add(readerInfo);
                 }
@@ -165,6 +275,10 @@ public class BorrowedBookDAO {
 
     // Method to check if a specific reader has overdue loans
     public boolean hasOverdueLoans(Reader reader) throws DatabaseOperationException {
+        if (reader.getId() > 0) {
+            return hasOverdueLoans(reader.getId());
+        }
+
         String query = "SELECT bb.id FROM borrowed_books bb " +
                 "JOIN readers r ON bb.reader_id = r.id " +
                 "WHERE LOWER(r.first_name) = LOWER(?) AND LOWER(r.last_name) = LOWER(?) AND r.date_of_birth = ? " +
@@ -183,22 +297,274 @@ public class BorrowedBookDAO {
         }
     }
 
+    // Method to check if the reader with the given ID has overdue loans, served by the (reader_id, return_due_date) index
+    public boolean hasOverdueLoans(int readerId) throws DatabaseOperationException {
+        String query = "SELECT 1 FROM borrowed_books WHERE reader_id = ? AND return_due_date < CURRENT_DATE";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, readerId);
+            statement.setMaxRows(1);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next(); // Return true if the reader has any overdue loans
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches loans added or modified after the given version, plus the IDs of loans returned since then
+    public ChangeSet<BorrowedBook> changesSince(long version) throws DatabaseOperationException {
+        String query = "SELECT id, reader_id, book_id, borrow_date, return_due_date, version FROM borrowed_books WHERE version > ? ORDER BY version";
+        List<BorrowedBook> changedLoans = new ArrayList<>();
+        long maxVersion = version;
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, version);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    BorrowedBook borrowedBook = new BorrowedBook(resultSet.getInt("id"),
+                            resultSet.getInt("reader_id"),
+                            resultSet.getInt("book_id"),
+                            resultSet.getDate("borrow_date").toLocalDate(),
+                            resultSet.getDate("return_due_date").toLocalDate());
+                    borrowedBook.setVersion(resultSet.getLong("version"));
+                    changedLoans.add(borrowedBook);
+                    maxVersion = resultSet.getLong("version");
+                }
+            }
+            return ChangeTracking.toChangeSet(connection, "borrowed_books", version, changedLoans, maxVersion);
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
     // Method to remove a borrowed book
     public boolean removeBorrowedBook(Reader reader, Book book) throws DatabaseOperationException {
         Optional<Integer> borrowedBookId = findBorrowedBookIdByReaderAndBook(reader, book);
         if (borrowedBookId.isEmpty()) {
             return false; // Borrowed book does not exist
         }
+        return removeBorrowedBookById(borrowedBookId.get());
+    }
 
+    // Method to remove a borrowed book by its ID
+    public boolean removeBorrowedBookById(int borrowedBookId) throws DatabaseOperationException {
         String query = "DELETE FROM borrowed_books WHERE id = ?";
 
         try (PreparedStatement statement = connection.prepareStatement(query)) {
-            statement.setInt(1, borrowedBookId.get());
+            statement.setInt(1, borrowedBookId);
 
-            return statement.executeUpdate() > 0;
+            if (statement.executeUpdate() > 0) {
+                ChangeTracking.recordDeletion(connection, "borrowed_books", borrowedBookId);
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed", e);
         }
     }
+
+    // Adds several loans in one batch and returns their generated IDs in the same order. If any of the readers has already
+    // borrowed the book, e.g. at another desk since the caller checked, returns an empty Optional; the caller rolls back,
+    // since the other loans of the batch were inserted. Listening desks get a single notification for the whole batch.
+    public Optional<IntArrayList> addBorrowedBooks(List<BorrowedBook> borrowedBooks) throws DatabaseOperationException {
+        IntArrayList borrowedBookIds = new IntArrayList(borrowedBooks.size());
+        if (borrowedBooks.isEmpty()) {
+            return Optional.of(borrowedBookIds);
+        }
+
+        try {
+            String insertNewBorrowedBookSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO borrowed_books (reader_id, book_id, borrow_date, return_due_date, version) " +
+                    "SELECT ?, ?, ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM borrowed_books WHERE reader_id = ? AND book_id = ?)");
+
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewBorrowedBookSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                for (BorrowedBook borrowedBook : borrowedBooks) {
+                    insertStatement.setInt(1, borrowedBook.getReaderID());
+                    insertStatement.setInt(2, borrowedBook.getBookID());
+                    insertStatement.setDate(3, java.sql.Date.valueOf(borrowedBook.getBorrowDate()));
+                    insertStatement.setDate(4, java.sql.Date.valueOf(borrowedBook.getReturnDueDate()));
+                    insertStatement.setInt(5, borrowedBook.getReaderID());
+                    insertStatement.setInt(6, borrowedBook.getBookID());
+                    insertStatement.addBatch();
+                }
+                if (ChangeTracking.countInserted(insertStatement.executeBatch()) < borrowedBooks.size()) {
+                    return Optional.empty(); // One of the loans already exists
+                }
+
+                try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
+                    while (generatedKeys.next()) {
+                        borrowedBookIds.add(generatedKeys.getInt(1));
+                    }
+                }
+            }
+            if (borrowedBookIds.size() != borrowedBooks.size()) {
+                throw new SQLException("Failed to insert borrowed books, expected " + borrowedBooks.size() + " IDs but obtained " + borrowedBookIds.size());
+            }
+            ChangeTracking.notifyTableChange(connection, "borrowed_books");
+            return Optional.of(borrowedBookIds);
+
+        } catch (SQLException e) {
+            if (SqlDialect.isUniqueViolation(e)) {
+                return Optional.empty(); // H2: borrowed at another desk at the same moment
+            }
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
+    // Fetches the loans of any of the given readers for any of the given books; the caller picks the pairs it asked for
+    public List<BorrowedBook> findBorrowedBooksByReadersAndBooks(IntBitSet readerIds, IntBitSet bookIds) throws DatabaseOperationException {
+        String query = "SELECT id, reader_id, book_id, borrow_date, return_due_date FROM borrowed_books WHERE reader_id = ANY(?) AND book_id = ANY(?)";
+        List<BorrowedBook> borrowedBooks = new ArrayList<>();
+        if (readerIds.isEmpty() || bookIds.isEmpty()) {
+            return borrowedBooks;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, readerIds.toArray()));
+            statement.setArray(2, SqlDialect.integerArray(connection, bookIds.toArray()));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    borrowedBooks.add(new BorrowedBook(resultSet.getInt("id"),
+                            resultSet.getInt("reader_id"),
+                            resultSet.getInt("book_id"),
+                            resultSet.getDate("borrow_date").toLocalDate(),
+                            resultSet.getDate("return_due_date").toLocalDate()));
+                }
+            }
+            return borrowedBooks;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
+    // Returns which of the given readers have at least one overdue loan
+    public IntBitSet findReaderIdsWithOverdueLoans(IntBitSet readerIds) throws DatabaseOperationException {
+        String query = "SELECT DISTINCT reader_id FROM borrowed_books WHERE reader_id = ANY(?) AND return_due_date < CURRENT_DATE";
+        IntBitSet overdueReaderIds = new IntBitSet();
+        if (readerIds.isEmpty()) {
+            return overdueReaderIds;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, readerIds.toArray()));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    overdueReaderIds.add(resultSet.getInt("reader_id"));
+                }
+            }
+            return overdueReaderIds;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Renews one loan to the new due date if it is eligible (see renewLoans); returns false if it is not
+    public boolean renewLoan(int borrowedBookId, LocalDate newDueDate, int maxRenewals) throws DatabaseOperationException {
+        try {
+            if (renewLoans("id = ?", borrowedBookId, newDueDate, maxRenewals) == 0) {
+                return false;
+            }
+            ChangeTracking.notifyChange(connection, "borrowed_books", borrowedBookId);
+            return true;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Renews every eligible loan of the reader to the new due date with one statement and returns how many were renewed
+    public int renewLoansByReader(int readerId, LocalDate newDueDate, int maxRenewals) throws DatabaseOperationException {
+        try {
+            int renewed = renewLoans("reader_id = ?", readerId, newDueDate, maxRenewals);
+            if (renewed > 0) {
+                ChangeTracking.notifyTableChange(connection, "borrowed_books");
+            }
+            return renewed;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Moves the due date of every loan due between the two dates (inclusive) to the new due date with one statement,
+    // e.g. past a closure; returns how many loans were moved. Not a renewal: the renewal count is left alone.
+    public int extendLoansDueBetween(LocalDate from, LocalDate to, LocalDate newDueDate) throws DatabaseOperationException {
+        String query = "UPDATE borrowed_books SET return_due_date = ?, version = " + ChangeTracking.NEXT_VERSION + " " +
+                "WHERE return_due_date BETWEEN ? AND ? AND return_due_date < ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, java.sql.Date.valueOf(newDueDate));
+            statement.setDate(2, java.sql.Date.valueOf(from));
+            statement.setDate(3, java.sql.Date.valueOf(to));
+            statement.setDate(4, java.sql.Date.valueOf(newDueDate));
+
+            int extended = statement.executeUpdate();
+            if (extended > 0) {
+                ChangeTracking.notifyTableChange(connection, "borrowed_books");
+            }
+            return extended;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Renews the loans matching the filter in one statement. All eligibility rules are part of the WHERE clause: the loan
+    // has been renewed fewer than maxRenewals times, the renewal would not shorten it, its reader has no overdue loans
+    // and no reader is waiting for its book.
+    private int renewLoans(String filter, int filterId, LocalDate newDueDate, int maxRenewals) throws SQLException {
+        String query = "UPDATE borrowed_books SET return_due_date = ?, renewal_count = renewal_count + 1, version = " + ChangeTracking.NEXT_VERSION + " " +
+                "WHERE " + filter + " AND renewal_count < ? AND return_due_date < ? " +
+                "AND NOT EXISTS (SELECT 1 FROM borrowed_books overdue WHERE overdue.reader_id = borrowed_books.reader_id AND overdue.return_due_date < CURRENT_DATE) " +
+                "AND NOT EXISTS (SELECT 1 FROM holds WHERE holds.book_id = borrowed_books.book_id AND holds.status = 'WAITING')";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, java.sql.Date.valueOf(newDueDate));
+            statement.setInt(2, filterId);
+            statement.setInt(3, maxRenewals);
+            statement.setDate(4, java.sql.Date.valueOf(newDueDate));
+            return statement.executeUpdate();
+        }
+    }
+
+    // Removes several loans by ID with one statement and returns how many were removed
+    public int removeBorrowedBooksByIds(IntArrayList borrowedBookIds) throws DatabaseOperationException {
+        if (borrowedBookIds.isEmpty()) {
+            return 0;
+        }
+        String query = "DELETE FROM borrowed_books WHERE id = ANY(?)";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, borrowedBookIds.toArray()));
+
+            int removedRows = statement.executeUpdate();
+            ChangeTracking.recordDeletions(connection, "borrowed_books", borrowedBookIds);
+            return removedRows;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
+    // Formats one row of the borrowed books queries for display
+    private static String formatBorrowedBookInfo(ResultSet resultSet) throws SQLException {
+        return String.format(
+                "Title: %s, Author: %s, Year of publication: %d, Date of hire: %s, Date of return: %s",
+                resultSet.getString("title"),
+                resultSet.getString("author"),
+                resultSet.getInt("year_of_publication"),
+                resultSet.getDate("borrow_date").toLocalDate(),
+                resultSet.getDate("return_due_date").toLocalDate()
+        );
+    }
 }
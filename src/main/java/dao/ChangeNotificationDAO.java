@@ -0,0 +1,80 @@
+package dao;
+
+import exception.DatabaseOperationException;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ChangeNotificationDAO {
+    public static final Set<String> TRACKED_TABLES = Set.of("books", "readers", "book_shelf_location", "borrowed_books");
+    private final Connection connection;
+
+    public ChangeNotificationDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Method to check if the database pushes change notifications (PostgreSQL) or has to be polled (H2)
+    public boolean supportsNotifications() throws DatabaseOperationException {
+        try {
+            return connection.isWrapperFor(PGConnection.class);
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
+    // Subscribes this connection to the change channel written to by the DAOs
+    public void listen() throws DatabaseOperationException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + ChangeTracking.CHANGE_CHANNEL);
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed while subscribing to change notifications", e);
+        }
+    }
+
+    // Waits up to 'timeoutMillis' for change notifications and returns the names of the tables they refer to
+    public Set<String> awaitChangedTables(int timeoutMillis) throws DatabaseOperationException {
+        Set<String> changedTables = new HashSet<>();
+
+        try {
+            PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(timeoutMillis);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    String payload = notification.getParameter(); // "<table>:<row id>"
+                    int separator = payload.indexOf(':');
+                    changedTables.add(separator < 0 ? payload : payload.substring(0, separator));
+                }
+            }
+            return changedTables;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed while waiting for change notifications", e);
+        }
+    }
+
+    // Fetches the newest change version of a table, including its deletions
+    public long getCurrentVersion(String tableName) throws DatabaseOperationException {
+        if (!TRACKED_TABLES.contains(tableName)) {
+            throw new IllegalArgumentException("Table is not change-tracked: " + tableName);
+        }
+
+        String query = "SELECT GREATEST(" +
+                "COALESCE((SELECT MAX(version) FROM " + tableName + "), 0), " +
+                "COALESCE((SELECT MAX(version) FROM deleted_rows WHERE table_name = ?), 0))";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, tableName);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+}
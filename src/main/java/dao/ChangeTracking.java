@@ -0,0 +1,106 @@
+package dao;
+
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Shared helpers for the change watermark kept on every table.
+// Each write stamps the row with the next value of one global sequence, and each delete leaves a tombstone
+// in deleted_rows, so changesSince(version) only has to look at rows newer than the caller's watermark.
+// On PostgreSQL every write also raises a NOTIFY on CHANGE_CHANNEL, delivered to other desks when the transaction commits.
+final class ChangeTracking {
+    // SQL expression producing the next change version, valid on PostgreSQL and H2
+    static final String NEXT_VERSION = "nextval('change_version_seq')";
+    static final String CHANGE_CHANNEL = "library_changes";
+
+    private ChangeTracking() {}
+
+    // Leaves a tombstone for a deleted row so incremental readers can drop it
+    static void recordDeletion(Connection connection, String tableName, int rowId) throws SQLException {
+        String query = "INSERT INTO deleted_rows (table_name, row_id, version) VALUES (?, ?, " + NEXT_VERSION + ")";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, tableName);
+            statement.setInt(2, rowId);
+            statement.executeUpdate();
+        }
+        notifyChange(connection, tableName, rowId);
+    }
+
+    // Leaves tombstones for several deleted rows of one table in a single batch
+    static void recordDeletions(Connection connection, String tableName, IntArrayList rowIds) throws SQLException {
+        String query = "INSERT INTO deleted_rows (table_name, row_id, version) VALUES (?, ?, " + NEXT_VERSION + ")";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < rowIds.size(); i++) {
+                statement.setString(1, tableName);
+                statement.setInt(2, rowIds.get(i));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        notifyTableChange(connection, tableName);
+    }
+
+    // Tells listening desks that a row changed; a no-op on databases without LISTEN/NOTIFY, which are polled instead
+    static void notifyChange(Connection connection, String tableName, int rowId) throws SQLException {
+        if (!SqlDialect.isPostgreSQL(connection)) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANGE_CHANNEL);
+            statement.setString(2, tableName + ":" + rowId);
+            statement.executeQuery().close();
+        }
+    }
+
+    // Tells listening desks that many rows of a table changed at once, with one notification instead of one per row
+    static void notifyTableChange(Connection connection, String tableName) throws SQLException {
+        if (!SqlDialect.isPostgreSQL(connection)) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANGE_CHANNEL);
+            statement.setString(2, tableName);
+            statement.executeQuery().close();
+        }
+    }
+
+    // Number of rows inserted by a batch of "INSERT ... WHERE NOT EXISTS" statements, each inserting one row or none
+    static int countInserted(int[] updateCounts) {
+        int inserted = 0;
+        for (int count : updateCounts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    // Adds the tombstones of the given table newer than 'version' to the changed rows and computes the next watermark
+    static <T> ChangeSet<T> toChangeSet(Connection connection, String tableName, long version, List<T> changedRows, long maxChangedVersion) throws SQLException {
+        String query = "SELECT row_id, version FROM deleted_rows WHERE table_name = ? AND version > ? ORDER BY version";
+        IntArrayList deletedIds = new IntArrayList();
+        long maxVersion = Math.max(version, maxChangedVersion);
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, tableName);
+            statement.setLong(2, version);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    deletedIds.add(resultSet.getInt("row_id"));
+                    maxVersion = Math.max(maxVersion, resultSet.getLong("version"));
+                }
+            }
+        }
+        return new ChangeSet<>(changedRows, deletedIds, version, maxVersion);
+    }
+}
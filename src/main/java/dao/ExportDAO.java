@@ -0,0 +1,98 @@
+package dao;
+
+import exception.DatabaseOperationException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Streams whole tables for the export package. Rows are handed to a callback one at a time in a single reused array,
+// so exporting a table of any size holds one row in memory; with autocommit off PostgreSQL streams them through a cursor.
+public class ExportDAO {
+    private static final int FETCH_SIZE = 5_000;
+
+    private final Connection connection;
+
+    public ExportDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    public enum Dataset {
+        BOOKS("books",
+                "SELECT b.id, b.title, b.author, b.year_of_publication, b.quantity, l.section, l.shelf " +
+                        "FROM books b JOIN book_shelf_location l ON b.shelf_location_id = l.id ORDER BY b.id",
+                "SELECT COUNT(*) FROM books",
+                "id", "title", "author", "year_of_publication", "quantity", "section", "shelf"),
+        READERS("readers",
+                "SELECT id, first_name, last_name, date_of_birth FROM readers ORDER BY id",
+                "SELECT COUNT(*) FROM readers",
+                "id", "first_name", "last_name", "date_of_birth"),
+        LOANS("loans",
+                "SELECT bb.id, bb.reader_id, r.first_name, r.last_name, bb.book_id, b.title, bb.borrow_date, bb.return_due_date " +
+                        "FROM borrowed_books bb " +
+                        "JOIN readers r ON bb.reader_id = r.id " +
+                        "JOIN books b ON bb.book_id = b.id " +
+                        "ORDER BY bb.id",
+                "SELECT COUNT(*) FROM borrowed_books",
+                "id", "reader_id", "first_name", "last_name", "book_id", "title", "borrow_date", "return_due_date");
+
+        private final String fileName;
+        private final String query;
+        private final String countQuery;
+        private final List<String> columns;
+
+        Dataset(String fileName, String query, String countQuery, String... columns) {
+            this.fileName = fileName;
+            this.query = query;
+            this.countQuery = countQuery;
+            this.columns = List.of(columns);
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+        // 'values' holds Integer, String or LocalDate values in column order and is overwritten by the next row
+        void accept(Object[] values);
+    }
+
+    // Counts the rows of the dataset, used to report export progress
+    public long countRows(Dataset dataset) throws DatabaseOperationException {
+        try (PreparedStatement statement = connection.prepareStatement(dataset.countQuery);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Streams every row of the dataset to the handler in ID order
+    public void scan(Dataset dataset, RowHandler handler) throws DatabaseOperationException {
+        Object[] values = new Object[dataset.columns.size()];
+
+        try (PreparedStatement statement = connection.prepareStatement(dataset.query)) {
+            statement.setFetchSize(FETCH_SIZE);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        Object value = resultSet.getObject(i + 1);
+                        values[i] = value instanceof java.sql.Date date ? date.toLocalDate() : value;
+                    }
+                    handler.accept(values);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+}
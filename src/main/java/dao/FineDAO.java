@@ -0,0 +1,175 @@
+package dao;
+
+import config.FinePolicy;
+import exception.DatabaseOperationException;
+import model.FineAccrual;
+import util.collections.IntArrayList;
+import util.collections.IntIntHashMap;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Fines are kept incrementally: every loan stores the fine accrued so far and the day it was accrued through, and every
+// reader a running balance. An accrual run only reads loans that are overdue, below the cap and not yet accrued through
+// the run's day, and adds the difference to both; balances are then read as they are, without date arithmetic over loans.
+// Like the loan counter, the fine columns are bookkeeping: they do not change row versions or notify listening desks.
+public class FineDAO {
+    private static final int BATCH_SIZE = 1_000;
+
+    private final Connection connection;
+
+    public FineDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Brings the fines of all overdue loans up to 'day' and adds the increases to their readers' balances
+    public FineAccrual accrueFines(LocalDate day, FinePolicy policy) throws DatabaseOperationException {
+        String query = "SELECT id, reader_id, return_due_date, fine_accrued_cents FROM borrowed_books " +
+                "WHERE return_due_date < ? AND fine_accrued_cents < ? AND (fine_accrued_through IS NULL OR fine_accrued_through < ?)";
+        // Conditional on the fine read above, so a loan accrued by an overlapping run is not charged twice
+        String updateQuery = "UPDATE borrowed_books SET fine_accrued_cents = ?, fine_accrued_through = ? WHERE id = ? AND fine_accrued_cents = ?";
+        IntIntHashMap increaseByReaderId = new IntIntHashMap();
+        IntArrayList batchReaderIds = new IntArrayList(BATCH_SIZE);
+        IntArrayList batchIncreases = new IntArrayList(BATCH_SIZE);
+        int loansAccrued = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(query);
+             PreparedStatement updateStatement = connection.prepareStatement(updateQuery)) {
+            statement.setDate(1, java.sql.Date.valueOf(day.minusDays(policy.getGraceDays()))); // Loans still in grace owe nothing
+            statement.setInt(2, policy.getMaxPerLoanCents());
+            statement.setDate(3, java.sql.Date.valueOf(day));
+            statement.setFetchSize(BATCH_SIZE);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int accrued = resultSet.getInt("fine_accrued_cents");
+                    int fine = policy.fineFor(resultSet.getDate("return_due_date").toLocalDate(), day);
+                    if (fine <= accrued) {
+                        continue;
+                    }
+
+                    updateStatement.setInt(1, fine);
+                    updateStatement.setDate(2, java.sql.Date.valueOf(day));
+                    updateStatement.setInt(3, resultSet.getInt("id"));
+                    updateStatement.setInt(4, accrued);
+                    updateStatement.addBatch();
+                    batchReaderIds.add(resultSet.getInt("reader_id"));
+                    batchIncreases.add(fine - accrued);
+
+                    if (batchReaderIds.size() == BATCH_SIZE) {
+                        loansAccrued += flush(updateStatement, batchReaderIds, batchIncreases, increaseByReaderId);
+                    }
+                }
+            }
+            loansAccrued += flush(updateStatement, batchReaderIds, batchIncreases, increaseByReaderId);
+
+            long centsAccrued = addToBalances(increaseByReaderId);
+            return new FineAccrual(loansAccrued, increaseByReaderId.size(), centsAccrued);
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Charges the rest of the fines of loans about to be returned: what accrued since the last run, up to 'day'.
+    // Must run in the returning transaction, before the loans are removed. Returns the cents charged.
+    // The loans are locked while read, so an accrual run that has updated one but not committed is waited for and its
+    // result settled from, instead of the same days being charged by both.
+    public long settleFines(IntArrayList loanIds, LocalDate day, FinePolicy policy) throws DatabaseOperationException {
+        if (loanIds.isEmpty()) {
+            return 0;
+        }
+        String query = "SELECT reader_id, return_due_date, fine_accrued_cents FROM borrowed_books WHERE id = ANY(?) AND return_due_date < ? FOR UPDATE";
+        IntIntHashMap increaseByReaderId = new IntIntHashMap();
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, loanIds.toArray()));
+            statement.setDate(2, java.sql.Date.valueOf(day.minusDays(policy.getGraceDays())));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int fine = policy.fineFor(resultSet.getDate("return_due_date").toLocalDate(), day);
+                    int increase = fine - resultSet.getInt("fine_accrued_cents");
+                    if (increase > 0) {
+                        increaseByReaderId.addTo(resultSet.getInt("reader_id"), increase);
+                    }
+                }
+            }
+            return addToBalances(increaseByReaderId);
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches the reader's fine balance in cents, 0 if the reader does not exist
+    public long getBalance(int readerId) throws DatabaseOperationException {
+        String query = "SELECT fine_balance_cents FROM readers WHERE id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, readerId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("fine_balance_cents") : 0;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Takes a payment off the reader's balance; returns false if the payment is larger than the balance
+    public boolean payFine(int readerId, long cents) throws DatabaseOperationException {
+        String query = "UPDATE readers SET fine_balance_cents = fine_balance_cents - ? WHERE id = ? AND fine_balance_cents >= ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, cents);
+            statement.setInt(2, readerId);
+            statement.setLong(3, cents);
+            return statement.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Executes the pending loan updates and adds the increases of those that applied to the per-reader totals
+    private static int flush(PreparedStatement updateStatement, IntArrayList readerIds, IntArrayList increases,
+                             IntIntHashMap increaseByReaderId) throws SQLException {
+        if (readerIds.isEmpty()) {
+            return 0;
+        }
+        int[] updateCounts = updateStatement.executeBatch();
+        int applied = 0;
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                increaseByReaderId.addTo(readerIds.get(i), increases.get(i));
+                applied++;
+            }
+        }
+        readerIds.clear();
+        increases.clear();
+        return applied;
+    }
+
+    private long addToBalances(IntIntHashMap increaseByReaderId) throws SQLException {
+        if (increaseByReaderId.isEmpty()) {
+            return 0;
+        }
+        String query = "UPDATE readers SET fine_balance_cents = fine_balance_cents + ? WHERE id = ?";
+        long total = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int readerId : increaseByReaderId.sortedKeys()) { // Same lock order as the loan counter updates
+                int increase = increaseByReaderId.get(readerId);
+                statement.setInt(1, increase);
+                statement.setInt(2, readerId);
+                statement.addBatch();
+                total += increase;
+            }
+            statement.executeBatch();
+        }
+        return total;
+    }
+}
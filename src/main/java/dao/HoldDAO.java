@@ -0,0 +1,230 @@
+package dao;
+
+import exception.DatabaseOperationException;
+import model.Hold;
+import util.collections.IntArrayList;
+import util.collections.IntBitSet;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Holds are queued per book in ID order. Every query on the queue names status = 'WAITING' literally, so it is answered
+// from the (book_id, id) index of waiting holds: taking the head of a queue is one index seek, however long the queue is.
+public class HoldDAO {
+    private static final String HOLD_COLUMNS = "id, reader_id, book_id, placed_at, status";
+
+    private final Connection connection;
+
+    public HoldDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Queues the reader for the book and returns the new hold's ID. If the reader already holds the book, returns an empty Optional.
+    public Optional<Integer> addHold(int readerId, int bookId) throws DatabaseOperationException {
+        try {
+            String insertHoldSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO holds (reader_id, book_id, placed_at, status) " +
+                    "SELECT ?, ?, CURRENT_TIMESTAMP, 'WAITING' " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM holds WHERE reader_id = ? AND book_id = ?)");
+
+            try (PreparedStatement statement = connection.prepareStatement(insertHoldSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                statement.setInt(1, readerId);
+                statement.setInt(2, bookId);
+                statement.setInt(3, readerId);
+                statement.setInt(4, bookId);
+
+                if (statement.executeUpdate() == 0) {
+                    return Optional.empty();
+                }
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        return Optional.of(generatedKeys.getInt(1));
+                    }
+                }
+                throw new SQLException("Failed to insert new hold, no ID obtained.");
+            }
+        } catch (SQLException e) {
+            if (SqlDialect.isUniqueViolation(e)) {
+                return Optional.empty(); // Placed by another desk at the same moment
+            }
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches the reader's hold on the book, waiting or ready
+    public Optional<Hold> findHold(int readerId, int bookId) throws DatabaseOperationException {
+        String query = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE reader_id = ? AND book_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, readerId);
+            statement.setInt(2, bookId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(mapHold(resultSet)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches the ready holds between the given readers and books in one query
+    public List<Hold> findReadyHolds(IntBitSet readerIds, IntBitSet bookIds) throws DatabaseOperationException {
+        String query = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE reader_id = ANY(?) AND book_id = ANY(?) AND status = 'READY'";
+        List<Hold> holds = new ArrayList<>();
+        if (readerIds.isEmpty() || bookIds.isEmpty()) {
+            return holds;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, readerIds.toArray()));
+            statement.setArray(2, SqlDialect.integerArray(connection, bookIds.toArray()));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    holds.add(mapHold(resultSet));
+                }
+            }
+            return holds;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches the reader's holds, oldest first
+    public List<Hold> getHoldsByReader(int readerId) throws DatabaseOperationException {
+        String query = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE reader_id = ? ORDER BY id";
+        List<Hold> holds = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, readerId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    holds.add(mapHold(resultSet));
+                }
+            }
+            return holds;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Makes the oldest waiting holds on the book READY, at most 'copies' of them, and returns them in queue order.
+    // The head is read and then claimed with a conditional update; if a concurrent return claimed it first, the next one is tried.
+    public List<Hold> assignNextHolds(int bookId, int copies) throws DatabaseOperationException {
+        String headQuery = "SELECT " + HOLD_COLUMNS + " FROM holds WHERE book_id = ? AND status = 'WAITING' ORDER BY id LIMIT 1";
+        String claimQuery = "UPDATE holds SET status = 'READY' WHERE id = ? AND status = 'WAITING'";
+        List<Hold> assigned = new ArrayList<>();
+
+        try (PreparedStatement headStatement = connection.prepareStatement(headQuery);
+             PreparedStatement claimStatement = connection.prepareStatement(claimQuery)) {
+            headStatement.setInt(1, bookId);
+
+            while (assigned.size() < copies) {
+                Hold head;
+                try (ResultSet resultSet = headStatement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        break; // Nobody is waiting
+                    }
+                    head = mapHold(resultSet);
+                }
+
+                claimStatement.setInt(1, head.getId());
+                if (claimStatement.executeUpdate() > 0) {
+                    assigned.add(new Hold(head.getId(), head.getReaderID(), head.getBookID(), head.getPlacedAt(), Hold.Status.READY));
+                }
+            }
+            return assigned;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Position of a waiting hold in its book's queue, 1 for the head
+    public int getQueuePosition(Hold hold) throws DatabaseOperationException {
+        String query = "SELECT COUNT(*) FROM holds WHERE book_id = ? AND status = 'WAITING' AND id <= ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, hold.getBookID());
+            statement.setInt(2, hold.getId());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Checks if the reader has any holds, waiting or ready
+    public boolean hasHoldsForReader(int readerId) throws DatabaseOperationException {
+        return exists("SELECT 1 FROM holds WHERE reader_id = ?", readerId);
+    }
+
+    // Checks if any reader is waiting for the book
+    public boolean hasWaitingHolds(int bookId) throws DatabaseOperationException {
+        return exists("SELECT 1 FROM holds WHERE book_id = ? AND status = 'WAITING'", bookId);
+    }
+
+    // Checks if the book has any holds, waiting or ready
+    public boolean hasHoldsForBook(int bookId) throws DatabaseOperationException {
+        return exists("SELECT 1 FROM holds WHERE book_id = ?", bookId);
+    }
+
+    // Removes a hold that was fulfilled or cancelled
+    public boolean removeHold(int holdId) throws DatabaseOperationException {
+        String query = "DELETE FROM holds WHERE id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, holdId);
+            return statement.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Removes several holds by ID with one statement and returns how many were removed
+    public int removeHoldsByIds(IntArrayList holdIds) throws DatabaseOperationException {
+        if (holdIds.isEmpty()) {
+            return 0;
+        }
+        String query = "DELETE FROM holds WHERE id = ANY(?)";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, holdIds.toArray()));
+            return statement.executeUpdate();
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    private boolean exists(String query, int id) throws DatabaseOperationException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setInt(1, id);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    private static Hold mapHold(ResultSet resultSet) throws SQLException {
+        return new Hold(resultSet.getInt("id"),
+                resultSet.getInt("reader_id"),
+                resultSet.getInt("book_id"),
+                resultSet.getTimestamp("placed_at").toLocalDateTime(),
+                Hold.Status.valueOf(resultSet.getString("status")));
+    }
+}
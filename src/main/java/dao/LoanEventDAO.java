@@ -0,0 +1,77 @@
+package dao;
+
+import exception.DatabaseOperationException;
+import model.LoanEvent;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoanEventDAO {
+    private final Connection connection;
+
+    public LoanEventDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Appends a batch of events to the journal table in a single round-trip and returns the number of rows written
+    public int addEvents(List<LoanEvent> events) throws DatabaseOperationException {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        String insertEventSql = "INSERT INTO loan_events (event_type, reader_id, book_id, quantity_delta, occurred_at) VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertEventSql)) {
+            for (LoanEvent event : events) {
+                insertStatement.setString(1, event.getEventType().name());
+                insertStatement.setInt(2, event.getReaderID());
+                insertStatement.setInt(3, event.getBookID());
+                insertStatement.setInt(4, event.getQuantityDelta());
+                insertStatement.setTimestamp(5, Timestamp.valueOf(event.getOccurredAt()));
+                insertStatement.addBatch();
+            }
+
+            int written = 0;
+            for (int result : insertStatement.executeBatch()) {
+                // Some drivers report SUCCESS_NO_INFO (-2) instead of a row count for batched statements
+                written += result == PreparedStatement.SUCCESS_NO_INFO ? 1 : result;
+            }
+            return written;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed while appending loan events", e);
+        }
+    }
+
+    // Fetches up to 'limit' events with an ID greater than 'lastEventId', in the order they were written
+    public List<LoanEvent> getEventsAfter(long lastEventId, int limit) throws DatabaseOperationException {
+        String query = "SELECT id, event_type, reader_id, book_id, quantity_delta, occurred_at FROM loan_events " +
+                "WHERE id > ? ORDER BY id LIMIT ?";
+        List<LoanEvent> events = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, lastEventId);
+            statement.setInt(2, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    LoanEvent event = new LoanEvent(resultSet.getLong("id"),
+                            LoanEvent.EventType.valueOf(resultSet.getString("event_type")),
+                            resultSet.getInt("reader_id"),
+                            resultSet.getInt("book_id"),
+                            resultSet.getInt("quantity_delta"),
+                            resultSet.getTimestamp("occurred_at").toLocalDateTime());
+                    events.add(event);
+                }
+            }
+            return events;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+}
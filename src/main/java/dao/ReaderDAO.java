@@ -1,12 +1,17 @@
 package dao;
 
 import exception.DatabaseOperationException;
+import model.ChangeSet;
 import model.Reader;
+import util.collections.IntBitSet;
+import util.collections.IntIntHashMap;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,29 +22,80 @@ public class ReaderDAO {
         this.connection = connection;
     }
 
-    // Adds a new reader or returns the ID if the reader already exists
+    // Adds a new reader and returns its generated ID. If the reader already exists, returns an empty Optional.
+    // A single statement both checks and inserts; the unique index on the natural key settles races between desks.
     public Optional<Integer> addReader(Reader reader) throws DatabaseOperationException {
-        Optional<Integer> readerId = doesReaderExist(reader);
-        if (readerId.isPresent()) {
-            return Optional.empty(); // Reader already exists, return empty Optional
-        }
-
-        String insertNewReaderSql = "INSERT INTO readers (first_name, last_name, date_of_birth) VALUES (?, ?, ?)";
+        try {
+            String insertNewReaderSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO readers (first_name, last_name, date_of_birth, version) " +
+                    "SELECT ?, ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM readers WHERE LOWER(first_name) = LOWER(?) AND LOWER(last_name) = LOWER(?) AND date_of_birth = ?)");
 
-        try (PreparedStatement insertStatement = connection.prepareStatement(insertNewReaderSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            insertStatement.setString(1, reader.getFirstName());
-            insertStatement.setString(2, reader.getLastName());
-            insertStatement.setDate(3, java.sql.Date.valueOf(reader.getDateOfBirth()));
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewReaderSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                insertStatement.setString(1, reader.getFirstName());
+                insertStatement.setString(2, reader.getLastName());
+                insertStatement.setDate(3, java.sql.Date.valueOf(reader.getDateOfBirth()));
+                insertStatement.setString(4, reader.getFirstName());
+                insertStatement.setString(5, reader.getLastName());
+                insertStatement.setDate(6, java.sql.Date.valueOf(reader.getDateOfBirth()));
 
-            int result = insertStatement.executeUpdate();
-            if(result > 0){
+                if (insertStatement.executeUpdate() == 0) {
+                    return Optional.empty(); // Reader already exists, return empty Optional
+                }
                 try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
                     if (generatedKeys.next()) {
-                        return Optional.of(generatedKeys.getInt(1)); // Return the generated ID
+                        int newReaderId = generatedKeys.getInt(1);
+                        ChangeTracking.notifyChange(connection, "readers", newReaderId);
+                        return Optional.of(newReaderId); // Return the generated ID
                     }
                 }
+                throw new SQLException("Failed to insert new reader, no ID obtained.");
+            }
+        } catch (SQLException e) {
+            if (SqlDialect.isUniqueViolation(e)) {
+                return Optional.empty(); // Added by another desk at the same moment
+            }
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
+    // Inserts the readers in one batch, skipping those that already exist, and returns the number inserted.
+    // Listening desks get a single notification for the whole batch.
+    public int addReaders(List<Reader> readers) throws DatabaseOperationException {
+        if (readers.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            String insertNewReaderSql = SqlDialect.insertIfAbsent(connection,
+                    "INSERT INTO readers (first_name, last_name, date_of_birth, version) " +
+                    "SELECT ?, ?, ?, " + ChangeTracking.NEXT_VERSION + " " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM readers WHERE LOWER(first_name) = LOWER(?) AND LOWER(last_name) = LOWER(?) AND date_of_birth = ?)");
+            int inserted;
+
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertNewReaderSql)) {
+                for (Reader reader : readers) {
+                    java.sql.Date dateOfBirth = java.sql.Date.valueOf(reader.getDateOfBirth());
+                    insertStatement.setString(1, reader.getFirstName());
+                    insertStatement.setString(2, reader.getLastName());
+                    insertStatement.setDate(3, dateOfBirth);
+                    insertStatement.setString(4, reader.getFirstName());
+                    insertStatement.setString(5, reader.getLastName());
+                    insertStatement.setDate(6, dateOfBirth);
+                    insertStatement.addBatch();
+                }
+                inserted = ChangeTracking.countInserted(insertStatement.executeBatch());
+            } catch (BatchUpdateException e) {
+                if (!SqlDialect.isUniqueViolation(e)) {
+                    throw e;
+                }
+                inserted = ChangeTracking.countInserted(e.getUpdateCounts()); // H2: some readers were added by another desk at the same moment
             }
-            throw new SQLException("Failed to insert new reader, no ID obtained.");
+
+            if (inserted > 0) {
+                ChangeTracking.notifyTableChange(connection, "readers");
+            }
+            return inserted;
 
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed", e);
@@ -67,6 +123,40 @@ public class ReaderDAO {
         }
     }
 
+    // Fetches the readers matching any of the given readers' first name, last name and date of birth in one query
+    public List<Reader> findReadersByDetails(List<Reader> readers) throws DatabaseOperationException {
+        List<Reader> foundReaders = new ArrayList<>();
+        if (readers.isEmpty()) {
+            return foundReaders;
+        }
+
+        String query = "SELECT id, first_name, last_name, date_of_birth FROM readers " +
+                "WHERE (LOWER(first_name), LOWER(last_name), date_of_birth) IN (" +
+                String.join(", ", Collections.nCopies(readers.size(), "(LOWER(?), LOWER(?), ?)")) + ")";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            int parameter = 1;
+            for (Reader reader : readers) {
+                statement.setString(parameter++, reader.getFirstName());
+                statement.setString(parameter++, reader.getLastName());
+                statement.setDate(parameter++, java.sql.Date.valueOf(reader.getDateOfBirth()));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    foundReaders.add(new Reader(resultSet.getInt("id"),
+                            resultSet.getString("first_name"),
+                            resultSet.getString("last_name"),
+                            resultSet.getDate("date_of_birth").toLocalDate()));
+                }
+            }
+            return foundReaders;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
     // Fetches all readers from the database
     public List<Reader> getAllReaders() throws DatabaseOperationException {
         String query = "SELECT id, first_name, last_name, date_of_birth FROM readers ORDER BY last_name, first_name";
@@ -112,6 +202,105 @@ public class ReaderDAO {
         }
     }
 
+    // Takes loan slots for the readers (reader ID -> number of new loans) in one batch, each only if it keeps the reader
+    // within maxActiveLoans; returns false if any reader is over the limit, in which case the caller must roll back.
+    // Also counts the loans into the readers' lifetime borrow totals, in the borrowing transaction.
+    // The counters are bookkeeping, not reader data, so the version is left alone and the reader caches are not invalidated.
+    public boolean reserveLoans(IntIntHashMap loansByReaderId, int maxActiveLoans) throws DatabaseOperationException {
+        String query = "UPDATE readers SET active_loans = active_loans + ?, total_borrowed = total_borrowed + ? " +
+                "WHERE id = ? AND active_loans + ? <= ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int readerId : loansByReaderId.sortedKeys()) { // Same lock order on every desk
+                int loans = loansByReaderId.get(readerId);
+                statement.setInt(1, loans);
+                statement.setInt(2, loans);
+                statement.setInt(3, readerId);
+                statement.setInt(4, loans);
+                statement.setInt(5, maxActiveLoans);
+                statement.addBatch();
+            }
+
+            for (int updatedRows : statement.executeBatch()) {
+                if (updatedRows == 0) {
+                    return false;
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Gives back loan slots (reader ID -> number of returned loans) in one batch. The counter never drops below zero,
+    // so loans entered outside the services (which never took a slot) cannot drive it negative.
+    public void releaseLoans(IntIntHashMap loansByReaderId) throws DatabaseOperationException {
+        String query = "UPDATE readers SET active_loans = GREATEST(active_loans - ?, 0) WHERE id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int readerId : loansByReaderId.sortedKeys()) {
+                statement.setInt(1, loansByReaderId.get(readerId));
+                statement.setInt(2, readerId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches the active loan counters of the given readers in one query, as reader ID -> active loans
+    public IntIntHashMap getActiveLoanCounts(IntBitSet readerIds) throws DatabaseOperationException {
+        String query = "SELECT id, active_loans FROM readers WHERE id = ANY(?)";
+        IntIntHashMap activeLoans = new IntIntHashMap(readerIds.size());
+        if (readerIds.isEmpty()) {
+            return activeLoans;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setArray(1, SqlDialect.integerArray(connection, readerIds.toArray()));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    activeLoans.put(resultSet.getInt("id"), resultSet.getInt("active_loans"));
+                }
+            }
+            return activeLoans;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Fetches readers added or modified after the given version, plus the IDs of readers removed since then
+    public ChangeSet<Reader> changesSince(long version) throws DatabaseOperationException {
+        String query = "SELECT id, first_name, last_name, date_of_birth, version FROM readers WHERE version > ? ORDER BY version";
+        List<Reader> changedReaders = new ArrayList<>();
+        long maxVersion = version;
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, version);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Reader reader = new Reader(resultSet.getInt("id"),
+                            resultSet.getString("first_name"),
+                            resultSet.getString("last_name"),
+                            resultSet.getDate("date_of_birth").toLocalDate());
+                    reader.setVersion(resultSet.getLong("version"));
+                    changedReaders.add(reader);
+                    maxVersion = resultSet.getLong("version");
+                }
+            }
+            return ChangeTracking.toChangeSet(connection, "readers", version, changedReaders, maxVersion);
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed", e);
+        }
+    }
+
     // Method to remove a reader by its ID
     public boolean removeReaderById(Reader reader) throws DatabaseOperationException {
         Optional<Integer> readerId = doesReaderExist(reader);
@@ -124,7 +313,11 @@ public class ReaderDAO {
         try (PreparedStatement statement = connection.prepareStatement(query)) {
             statement.setInt(1, readerId.get());
 
-            return statement.executeUpdate() > 0;
+            if (statement.executeUpdate() > 0) {
+                ChangeTracking.recordDeletion(connection, "readers", readerId.get());
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             throw new DatabaseOperationException("Database operation failed", e);
@@ -0,0 +1,104 @@
+package dao;
+
+import exception.DatabaseOperationException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+// Streaming scans for the statistics in the report package.
+// Rows are handed to a callback as primitives instead of being collected into model objects, so a scan over
+// millions of rows allocates next to nothing; callers partition the tables by ID range and scan the ranges in parallel.
+public class ReportDAO {
+    private static final Set<String> SCANNABLE_TABLES = Set.of("borrowed_books", "loan_events");
+    private static final int FETCH_SIZE = 10_000;
+
+    private final Connection connection;
+
+    public ReportDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    @FunctionalInterface
+    public interface ActiveLoanHandler {
+        // 'daysOverdue' is negative while the loan is not due yet
+        void accept(int readerId, int bookId, int locationId, int daysOverdue);
+    }
+
+    @FunctionalInterface
+    public interface BorrowEventHandler {
+        void accept(int readerId, int bookId);
+    }
+
+    // Returns the lowest and highest ID of a scannable table as {min, max}, or {0, -1} if it is empty
+    public long[] getIdRange(String tableName) throws DatabaseOperationException {
+        if (!SCANNABLE_TABLES.contains(tableName)) {
+            throw new IllegalArgumentException("Table cannot be scanned: " + tableName);
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MIN(id), MAX(id) FROM " + tableName);
+             ResultSet resultSet = statement.executeQuery()) {
+
+            if (resultSet.next() && resultSet.getObject(1) != null) {
+                return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+            }
+            return new long[]{0, -1};
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Streams the active loans with fromId <= id < toId together with their book's shelf location
+    public void scanActiveLoans(long fromId, long toId, ActiveLoanHandler handler) throws DatabaseOperationException {
+        String query = "SELECT bb.reader_id, bb.book_id, b.shelf_location_id, CAST(CURRENT_DATE - bb.return_due_date AS INTEGER) AS days_overdue " +
+                "FROM borrowed_books bb " +
+                "JOIN books b ON bb.book_id = b.id " +
+                "WHERE bb.id >= ? AND bb.id < ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            statement.setFetchSize(FETCH_SIZE); // PostgreSQL only streams with a fetch size and autocommit off
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    handler.accept(resultSet.getInt(1), resultSet.getInt(2), resultSet.getInt(3), resultSet.getInt(4));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Streams the journaled borrow events with fromId <= id < toId
+    public void scanBorrowEvents(long fromId, long toId, BorrowEventHandler handler) throws DatabaseOperationException {
+        String query = "SELECT reader_id, book_id FROM loan_events WHERE event_type = 'BORROW' AND id >= ? AND id < ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            statement.setFetchSize(FETCH_SIZE);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    handler.accept(resultSet.getInt(1), resultSet.getInt(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+
+    // Counts all registered readers, including those who never borrowed anything
+    public int countReaders() throws DatabaseOperationException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM readers");
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        }
+    }
+}
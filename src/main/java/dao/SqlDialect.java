@@ -0,0 +1,38 @@
+package dao;
+
+import org.postgresql.PGConnection;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// The few places where the SQL sent to PostgreSQL (production) and H2 (tests) has to differ
+final class SqlDialect {
+    // SQLState of a unique constraint violation, the same on PostgreSQL and H2
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private SqlDialect() {}
+
+    static boolean isPostgreSQL(Connection connection) throws SQLException {
+        return connection.isWrapperFor(PGConnection.class);
+    }
+
+    // Completes an "INSERT ... SELECT ... WHERE NOT EXISTS (...)" statement so it inserts nothing instead of failing
+    // when a concurrent transaction inserted the same natural key first. PostgreSQL gets ON CONFLICT DO NOTHING, which keeps
+    // the surrounding transaction usable; H2 has no ON CONFLICT, there the caller catches the violation with isUniqueViolation.
+    static String insertIfAbsent(Connection connection, String insertSelectSql) throws SQLException {
+        return isPostgreSQL(connection) ? insertSelectSql + " ON CONFLICT DO NOTHING" : insertSelectSql;
+    }
+
+    static boolean isUniqueViolation(SQLException e) {
+        return UNIQUE_VIOLATION.equals(e.getSQLState());
+    }
+
+    // Builds the INTEGER array parameter for "= ANY(?)"; JDBC only takes object arrays, so the IDs are boxed here, once
+    static Array integerArray(Connection connection, int[] ids) throws SQLException {
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        return connection.createArrayOf("INTEGER", boxed);
+    }
+}
@@ -0,0 +1,8 @@
+package exception;
+
+// A reader or book named by the caller does not exist
+public class NotFoundException extends DatabaseOperationException {
+    public NotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,162 @@
+package export;
+
+import config.ConnectionSource;
+import dao.ExportDAO;
+import exception.DatabaseOperationException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+// Exports tables to files, one file per dataset, with the datasets written in parallel.
+// Each dataset runs on its own connection inside a repeatable-read, read-only transaction, so the row count used for
+// progress and the rows written come from the same snapshot. Rows go from the ResultSet through a buffered writer
+// (optionally gzip-compressed) into a file channel one at a time, so memory use does not depend on the table size.
+// Files are written as <name>.part and renamed when complete; a failed export leaves no partial files behind.
+public class DataExporter {
+    private static final Logger logger = Logger.getLogger(DataExporter.class.getName());
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int PROGRESS_INTERVAL_ROWS = 5_000;
+
+    private final ConnectionSource connectionSource;
+    private final int parallelism;
+
+    public DataExporter(ConnectionSource connectionSource) {
+        this(connectionSource, ExportDAO.Dataset.values().length);
+    }
+
+    public DataExporter(ConnectionSource connectionSource, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.connectionSource = connectionSource;
+        this.parallelism = parallelism;
+    }
+
+    public List<ExportResult> export(Collection<ExportDAO.Dataset> datasets, Path directory, ExportFormat format, boolean gzip) throws DatabaseOperationException, IOException {
+        return export(datasets, directory, format, gzip, (dataset, rowsWritten, totalRows) -> {});
+    }
+
+    // Writes every dataset into the directory and returns the results in the order of 'datasets'
+    public List<ExportResult> export(Collection<ExportDAO.Dataset> datasets, Path directory, ExportFormat format, boolean gzip,
+                                     ExportProgressListener listener) throws DatabaseOperationException, IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, datasets.size())), runnable -> {
+            Thread thread = new Thread(runnable, "data-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<ExportResult>> futures = new ArrayList<>();
+        try {
+            for (ExportDAO.Dataset dataset : datasets) {
+                futures.add(executor.submit(() -> exportDataset(dataset, directory, format, gzip, listener)));
+            }
+
+            List<ExportResult> results = new ArrayList<>();
+            for (Future<ExportResult> future : futures) {
+                results.add(future.get());
+            }
+            logger.info("Exported " + results + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return results;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The export was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
+        }
+    }
+
+    private ExportResult exportDataset(ExportDAO.Dataset dataset, Path directory, ExportFormat format, boolean gzip,
+                                       ExportProgressListener listener) throws DatabaseOperationException, IOException {
+        Path file = directory.resolve(dataset.getFileName() + "." + format.getExtension() + (gzip ? ".gz" : ""));
+        Path partFile = file.resolveSibling(file.getFileName() + ".part");
+
+        try (Connection connection = connectionSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+
+            ExportDAO exportDAO = new ExportDAO(connection);
+            long totalRows = exportDAO.countRows(dataset);
+            long[] rowsWritten = {0};
+            listener.onProgress(dataset, 0, totalRows);
+
+            try (Writer writer = openWriter(partFile, gzip)) {
+                ExportFormat.RowWriter rowWriter = format.open(writer, dataset.getColumns());
+                exportDAO.scan(dataset, values -> {
+                    try {
+                        rowWriter.write(values);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e); // Row callbacks cannot throw checked exceptions
+                    }
+                    if (++rowsWritten[0] % PROGRESS_INTERVAL_ROWS == 0) {
+                        listener.onProgress(dataset, rowsWritten[0], totalRows);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            connection.rollback(); // Nothing to commit, just ends the snapshot
+
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            listener.onProgress(dataset, rowsWritten[0], totalRows);
+            return new ExportResult(dataset, file, rowsWritten[0]);
+
+        } catch (SQLException e) {
+            throw new DatabaseOperationException("Database operation failed.", e);
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    // File channel -> (gzip) -> UTF-8 encoder -> buffer; closing the writer finishes the gzip stream and closes the channel
+    private static Writer openWriter(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream output = Channels.newOutputStream(channel);
+        if (gzip) {
+            output = new GZIPOutputStream(output, BUFFER_BYTES);
+        }
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_BYTES);
+    }
+
+    private static RuntimeException rethrow(Throwable cause) throws DatabaseOperationException, IOException {
+        if (cause instanceof DatabaseOperationException databaseException) {
+            throw databaseException;
+        }
+        if (cause instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new IllegalStateException("Export failed", cause);
+    }
+}
@@ -0,0 +1,62 @@
+package export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+// File formats of the exporter. Each row is written as soon as it is read, so neither format buffers a table.
+public enum ExportFormat {
+    CSV("csv") {
+        @Override
+        RowWriter open(Writer writer, List<String> columns) throws IOException {
+            writeCsvLine(writer, columns.toArray());
+            return values -> writeCsvLine(writer, values);
+        }
+    },
+    // One JSON object per line, keyed by column name
+    JSON_LINES("jsonl") {
+        @Override
+        RowWriter open(Writer writer, List<String> columns) {
+            return values -> {
+                writer.write('{');
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    TextEscaping.writeJsonString(writer, columns.get(i));
+                    writer.write(':');
+                    TextEscaping.writeJsonValue(writer, values[i]);
+                }
+                writer.write("}\n");
+            };
+        }
+    };
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    // Writes the header, if the format has one, and returns the writer for the rows
+    abstract RowWriter open(Writer writer, List<String> columns) throws IOException;
+
+    @FunctionalInterface
+    interface RowWriter {
+        void write(Object[] values) throws IOException;
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(TextEscaping.csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+}
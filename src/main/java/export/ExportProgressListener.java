@@ -0,0 +1,10 @@
+package export;
+
+import dao.ExportDAO;
+
+// Receives export progress from the exporter's worker threads; UI listeners must hand the updates to the event thread
+@FunctionalInterface
+public interface ExportProgressListener {
+    // 'totalRows' is the row count taken before the export started, rows added since may push 'rowsWritten' past it
+    void onProgress(ExportDAO.Dataset dataset, long rowsWritten, long totalRows);
+}
@@ -0,0 +1,38 @@
+package export;
+
+import dao.ExportDAO;
+import java.nio.file.Path;
+
+// One exported file and the number of rows written to it
+public class ExportResult {
+    private final ExportDAO.Dataset dataset;
+    private final Path file;
+    private final long rows;
+
+    public ExportResult(ExportDAO.Dataset dataset, Path file, long rows) {
+        this.dataset = dataset;
+        this.file = file;
+        this.rows = rows;
+    }
+
+    public ExportDAO.Dataset getDataset() {
+        return dataset;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportResult{" +
+                "dataset=" + dataset +
+                ", file=" + file +
+                ", rows=" + rows +
+                '}';
+    }
+}
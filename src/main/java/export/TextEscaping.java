@@ -0,0 +1,58 @@
+package export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// CSV (RFC 4180) and JSON encoding of single values, shared by the exporters and the report writer
+public final class TextEscaping {
+
+    private TextEscaping() {}
+
+    // Quotes the value if it contains a separator, quote or line break; null becomes an empty field
+    public static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + text.replace("\"", "\"\"") + '"';
+            }
+        }
+        return text;
+    }
+
+    // Numbers and booleans are written as JSON literals, null as null, everything else as a JSON string
+    public static void writeJsonValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writer.write(value.toString());
+        } else {
+            writeJsonString(writer, value.toString());
+        }
+    }
+
+    public static void writeJsonString(Writer writer, String text) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
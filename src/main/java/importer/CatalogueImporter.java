@@ -0,0 +1,401 @@
+package importer;
+
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import export.TextEscaping;
+import model.Book;
+import model.BookLocation;
+import model.Reader;
+import service.DataValidator;
+import service.ValidationResult;
+import util.collections.IntArrayList;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+// Imports books or readers from a CSV or JSON Lines file.
+// The calling thread reads the file into chunks of records; a thread pool parses and validates the chunks in parallel
+// with the services' DataValidator in result mode, collecting rejected rows instead of throwing or logging per row.
+// Parsed chunks are written back in file order, each with one batched insert in its own transaction, while later chunks
+// are still being parsed; at most a few chunks are held in memory at once, whatever the file size.
+// Rows that already exist are skipped, so an import that failed halfway can simply be run again.
+// Rejected rows are listed in <file>.rejects.csv with their line number and reason.
+public class CatalogueImporter {
+    private static final Logger logger = Logger.getLogger(CatalogueImporter.class.getName());
+    private static final int CHUNK_RECORDS = 5_000; // Also the size of one insert batch
+    private static final int MAX_RECORD_LINES = 1_000; // An unclosed quote ends the record here instead of swallowing the file
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final DataValidator validator = DataValidator.getDefault();
+
+    private final Connection connection;
+    private final BookDAO bookDAO;
+    private final ReaderDAO readerDAO;
+    private final BookLocationDAO bookLocationDAO;
+    private final int parallelism;
+
+    public CatalogueImporter(Connection connection) {
+        this(connection, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CatalogueImporter(Connection connection, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.connection = connection;
+        this.bookDAO = new BookDAO(connection);
+        this.readerDAO = new ReaderDAO(connection);
+        this.bookLocationDAO = new BookLocationDAO(connection);
+        this.parallelism = parallelism;
+    }
+
+    public ImportSummary importFile(ImportDataset dataset, Path file) throws IOException, DatabaseOperationException, InvalidDataException {
+        return importFile(dataset, file, ImportFormat.forFile(file));
+    }
+
+    // Imports every valid row of the file; throws InvalidDataException only if the file as a whole is unusable (a CSV header without a required column)
+    public ImportSummary importFile(ImportDataset dataset, Path file, ImportFormat format) throws IOException, DatabaseOperationException, InvalidDataException {
+        long start = System.nanoTime();
+        Path rejectFile = file.resolveSibling(file.getFileName() + ".rejects.csv");
+        Files.deleteIfExists(rejectFile);
+
+        ImportRun run = new ImportRun(dataset, rejectFile);
+        if (dataset == ImportDataset.BOOKS) {
+            for (BookLocation location : bookLocationDAO.getAllBookLocations()) {
+                run.locationIds.put(locationKey(location.getSection(), location.getShelf()), location.getId());
+            }
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "catalogue-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+
+        try (BufferedReader reader = openReader(file); RecordReader records = new RecordReader(reader, format == ImportFormat.CSV)) {
+            int[] csvColumns = format == ImportFormat.CSV ? readCsvHeader(records, dataset) : null;
+            Chunk chunk = new Chunk();
+            String record;
+
+            while ((record = records.next()) != null) {
+                chunk.add(records.getRecordLine(), record);
+                if (chunk.records.size() == CHUNK_RECORDS) {
+                    Chunk full = chunk;
+                    inFlight.add(parsers.submit(() -> parse(dataset, format, csvColumns, full)));
+                    chunk = new Chunk();
+                }
+                if (inFlight.size() > parallelism * 2) {
+                    write(run, inFlight.poll().get()); // Keeps the parsers ahead of the writer without buffering the whole file
+                }
+            }
+            if (!chunk.records.isEmpty()) {
+                Chunk last = chunk;
+                inFlight.add(parsers.submit(() -> parse(dataset, format, csvColumns, last)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(run, inFlight.poll().get());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to parse " + file, e.getCause());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            parsers.shutdownNow();
+            run.closeRejects();
+        }
+
+        ImportSummary summary = new ImportSummary(dataset, file, run.imported, run.skipped, run.rejected,
+                run.rejected > 0 ? rejectFile : null, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Imported " + summary);
+        if (run.rejected > 0) {
+            logger.warning(run.rejected + " rows of " + file + " were rejected, see " + rejectFile);
+        }
+        return summary;
+    }
+
+    // Maps the required columns to their positions in the header, matching names case-insensitively
+    private static int[] readCsvHeader(RecordReader records, ImportDataset dataset) throws IOException, InvalidDataException {
+        String header = records.next();
+        if (header == null) {
+            throw new InvalidDataException("The file is empty.");
+        }
+        List<String> names = new RecordParser().splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        if (names == null) {
+            throw new InvalidDataException("The CSV header is malformed.");
+        }
+
+        List<String> columns = dataset.getColumns();
+        int[] positions = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            positions[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (names.get(j).trim().toLowerCase(Locale.ROOT).equals(columns.get(i))) {
+                    positions[i] = j;
+                    break;
+                }
+            }
+            if (positions[i] < 0) {
+                throw new InvalidDataException("The CSV header has no column " + columns.get(i) + ".");
+            }
+        }
+        return positions;
+    }
+
+    // Runs on the parser threads: turns the chunk's records into books or readers, or rejections
+    private static ParsedChunk parse(ImportDataset dataset, ImportFormat format, int[] csvColumns, Chunk chunk) {
+        RecordParser parser = new RecordParser();
+        ValidationResult result = new ValidationResult();
+        String[] values = new String[dataset.getColumns().size()];
+        ParsedChunk parsed = new ParsedChunk();
+
+        for (int i = 0; i < chunk.records.size(); i++) {
+            String record = chunk.records.get(i);
+            if (record.isBlank()) {
+                continue;
+            }
+
+            boolean read = format == ImportFormat.CSV
+                    ? parser.readCsv(record, csvColumns, values)
+                    : parser.readJson(record, dataset.getColumns(), values);
+            String problem;
+            if (!read) {
+                problem = parser.getError();
+            } else {
+                result.clear();
+                boolean valid = dataset == ImportDataset.BOOKS ? addBook(values, result, parsed.books) : addReader(values, result, parsed.readers);
+                problem = valid ? null : result.getMessage();
+            }
+
+            if (problem != null) {
+                parsed.rejectedLines.add(chunk.lineNumbers.get(i));
+                parsed.rejectReasons.add(problem);
+                parsed.rejectedRecords.add(record);
+            }
+        }
+        return parsed;
+    }
+
+    // Values in ImportDataset.BOOKS column order; adds the book if it is valid. Numbers that do not parse fail the same
+    // check as out-of-range ones, so every violation of the row is collected in one pass.
+    private static boolean addBook(String[] values, ValidationResult result, List<Book> books) {
+        int year = toInt(RecordParser.parseInt(values[2]));
+        int quantity = toInt(RecordParser.parseInt(values[3]));
+        int shelf = toInt(RecordParser.parseInt(values[5]));
+
+        // The location ID is only known once the writer has looked the location up; 0 passes the ID check meanwhile
+        boolean valid = validator.checkAllBookData(values[0], values[1], year, quantity, 0, result);
+        valid &= validator.checkBookLocationData(values[4], shelf, result);
+        if (valid) {
+            books.add(new Book(values[0], values[1], year, quantity, new BookLocation(values[4], shelf)));
+        }
+        return valid;
+    }
+
+    // Values in ImportDataset.READERS column order; adds the reader if it is valid. A date that does not parse counts as missing.
+    private static boolean addReader(String[] values, ValidationResult result, List<Reader> readers) {
+        LocalDate dateOfBirth = RecordParser.parseDate(values[2]);
+        if (validator.checkReaderData(values[0], values[1], dateOfBirth, result)) {
+            readers.add(new Reader(values[0], values[1], dateOfBirth));
+            return true;
+        }
+        return false;
+    }
+
+    private static int toInt(long parsed) {
+        return parsed == RecordParser.NOT_A_NUMBER ? -1 : (int) parsed;
+    }
+
+    // Runs on the calling thread, in file order: inserts the chunk's valid rows in one transaction and records its rejections
+    private void write(ImportRun run, ParsedChunk parsed) throws DatabaseOperationException, IOException {
+        int valid = run.dataset == ImportDataset.BOOKS ? parsed.books.size() : parsed.readers.size();
+
+        if (valid > 0) {
+            try {
+                connection.setAutoCommit(false);
+                int inserted = run.dataset == ImportDataset.BOOKS
+                        ? insertBooks(parsed.books, run.locationIds)
+                        : readerDAO.addReaders(parsed.readers);
+                connection.commit();
+                run.imported += inserted;
+                run.skipped += valid - inserted;
+
+            } catch (SQLException | DatabaseOperationException e) {
+                logger.log(Level.SEVERE, "Error while importing rows: " + e.getMessage(), e);
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+                }
+                throw new DatabaseOperationException("Failed to import rows", e);
+            }
+        }
+
+        for (int i = 0; i < parsed.rejectedLines.size(); i++) {
+            run.reject(parsed.rejectedLines.get(i), parsed.rejectReasons.get(i), parsed.rejectedRecords.get(i));
+        }
+    }
+
+    // Gives each book the ID of its location, creating the locations not seen before, then inserts the books as one batch
+    private int insertBooks(List<Book> books, Map<String, Integer> locationIds) throws DatabaseOperationException {
+        for (Book book : books) {
+            BookLocation location = book.getLocation();
+            String key = locationKey(location.getSection(), location.getShelf());
+            Integer locationId = locationIds.get(key);
+
+            if (locationId == null) {
+                Optional<Integer> addedId = bookLocationDAO.addLocation(location);
+                if (addedId.isEmpty()) {
+                    addedId = bookLocationDAO.doesBookLocationExist(location.getSection(), location.getShelf()); // Added by another desk meanwhile
+                }
+                locationId = addedId.orElseThrow(() -> new DatabaseOperationException("Failed to add new book location"));
+                locationIds.put(key, locationId);
+            }
+            book.setLocation(new BookLocation(locationId, location.getSection(), location.getShelf()));
+        }
+        return bookDAO.addBooks(books);
+    }
+
+    private static String locationKey(String section, int shelf) {
+        return section + '\u0000' + shelf;
+    }
+
+    private static BufferedReader openReader(Path file) throws IOException {
+        InputStream input = Files.newInputStream(file);
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            input = new GZIPInputStream(input, BUFFER_BYTES);
+        }
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_BYTES);
+    }
+
+    // Reads logical records: one per line, except that a CSV record continues onto the next line while a quoted field is open
+    private static final class RecordReader implements AutoCloseable {
+        private final BufferedReader reader;
+        private final boolean csv;
+        private int lineNumber;
+        private int recordLine;
+
+        RecordReader(BufferedReader reader, boolean csv) {
+            this.reader = reader;
+            this.csv = csv;
+        }
+
+        String next() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            recordLine = ++lineNumber;
+            if (!csv || !hasOpenQuote(line, false)) {
+                return line;
+            }
+
+            StringBuilder record = new StringBuilder(line);
+            boolean open = true;
+            for (int lines = 1; open && lines < MAX_RECORD_LINES && (line = reader.readLine()) != null; lines++) {
+                lineNumber++;
+                record.append('\n').append(line);
+                open = hasOpenQuote(line, true);
+            }
+            return record.toString(); // Still open: the parser rejects it as an unterminated field
+        }
+
+        // Line on which the last record returned by next started
+        int getRecordLine() {
+            return recordLine;
+        }
+
+        // Every quote toggles the state; an escaped quote ("") toggles it twice
+        private static boolean hasOpenQuote(String line, boolean open) {
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    open = !open;
+                }
+            }
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Chunk {
+        final IntArrayList lineNumbers = new IntArrayList(CHUNK_RECORDS);
+        final List<String> records = new ArrayList<>(CHUNK_RECORDS);
+
+        void add(int lineNumber, String record) {
+            lineNumbers.add(lineNumber);
+            records.add(record);
+        }
+    }
+
+    private static final class ParsedChunk {
+        final List<Book> books = new ArrayList<>();
+        final List<Reader> readers = new ArrayList<>();
+        final IntArrayList rejectedLines = new IntArrayList();
+        final List<String> rejectReasons = new ArrayList<>();
+        final List<String> rejectedRecords = new ArrayList<>();
+    }
+
+    // State of one importFile call, only touched by the calling thread
+    private static final class ImportRun {
+        final ImportDataset dataset;
+        final Path rejectFile;
+        final Map<String, Integer> locationIds = new HashMap<>();
+        long imported;
+        long skipped;
+        long rejected;
+        private Writer rejects; // Opened with the first rejected row
+
+        ImportRun(ImportDataset dataset, Path rejectFile) {
+            this.dataset = dataset;
+            this.rejectFile = rejectFile;
+        }
+
+        void reject(int lineNumber, String reason, String record) throws IOException {
+            if (rejects == null) {
+                rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+                rejects.write("line,reason,record\n");
+            }
+            rejects.write(lineNumber + "," + TextEscaping.csvField(reason) + "," + TextEscaping.csvField(record) + "\n");
+            rejected++;
+        }
+
+        void closeRejects() throws IOException {
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package importer;
+
+import java.util.List;
+
+// The tables that can be filled from a file, with the columns read for each.
+// Column names are those of the export files (dao.ExportDAO.Dataset), so an exported file can be imported again;
+// columns not listed here, such as the exported id, are ignored.
+public enum ImportDataset {
+    BOOKS("title", "author", "year_of_publication", "quantity", "section", "shelf"),
+    READERS("first_name", "last_name", "date_of_birth");
+
+    private final List<String> columns;
+
+    ImportDataset(String... columns) {
+        this.columns = List.of(columns);
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+}
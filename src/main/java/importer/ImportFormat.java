@@ -0,0 +1,19 @@
+package importer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+// File formats the importer reads; both may be gzip-compressed (a ".gz" suffix)
+public enum ImportFormat {
+    CSV,            // RFC 4180 with a header row naming the columns
+    JSON_LINES;     // One flat JSON object per line
+
+    // Picks the format from the file name: .jsonl or .json (optionally followed by .gz) is JSON Lines, anything else CSV
+    public static ImportFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES : CSV;
+    }
+}
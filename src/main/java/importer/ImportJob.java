@@ -0,0 +1,37 @@
+package importer;
+
+import config.DatabaseConnection;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Command-line entry point for bulk imports: ImportJob <books|readers> <file>
+// The format is taken from the file name (.csv or .jsonl, optionally .gz); rejected rows go to <file>.rejects.csv
+public class ImportJob {
+    private static final Logger logger = Logger.getLogger(ImportJob.class.getName());
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: ImportJob <books|readers> <file>");
+            System.exit(2);
+        }
+        ImportDataset dataset = ImportDataset.valueOf(args[0].toUpperCase(Locale.ROOT));
+        Path file = Path.of(args[1]);
+
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            ImportSummary summary = new CatalogueImporter(connection).importFile(dataset, file);
+            System.out.println(summary.getRowsImported() + " imported, " + summary.getRowsSkipped() + " already present, "
+                    + summary.getRowsRejected() + " rejected in " + summary.getElapsedMillis() + " ms");
+
+        } catch (DatabaseOperationException | InvalidDataException | IOException | SQLException e) {
+            logger.log(Level.SEVERE, "Import failed: " + e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+}
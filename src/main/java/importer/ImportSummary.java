@@ -0,0 +1,71 @@
+package importer;
+
+import java.nio.file.Path;
+
+// Outcome of one file import. Every data row of the file is counted exactly once: imported, skipped because the
+// book or reader already exists, or rejected; rejected rows are listed with their reason in the reject file.
+public class ImportSummary {
+    private final ImportDataset dataset;
+    private final Path file;
+    private final long rowsImported;
+    private final long rowsSkipped;
+    private final long rowsRejected;
+    private final Path rejectFile;
+    private final long elapsedMillis;
+
+    public ImportSummary(ImportDataset dataset, Path file, long rowsImported, long rowsSkipped, long rowsRejected, Path rejectFile, long elapsedMillis) {
+        this.dataset = dataset;
+        this.file = file;
+        this.rowsImported = rowsImported;
+        this.rowsSkipped = rowsSkipped;
+        this.rowsRejected = rowsRejected;
+        this.rejectFile = rejectFile;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public ImportDataset getDataset() {
+        return dataset;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRowsRead() {
+        return rowsImported + rowsSkipped + rowsRejected;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    // The reject file, or null if no row was rejected
+    public Path getRejectFile() {
+        return rejectFile;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportSummary{" +
+                "dataset=" + dataset +
+                ", file=" + file +
+                ", rowsImported=" + rowsImported +
+                ", rowsSkipped=" + rowsSkipped +
+                ", rowsRejected=" + rowsRejected +
+                ", rejectFile=" + rejectFile +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
@@ -0,0 +1,275 @@
+package importer;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Splits import records into column values. Malformed input is reported through getError instead of exceptions,
+// so a file full of bad rows costs no more to reject than to import. One parser per thread; it reuses its buffers.
+final class RecordParser {
+    // Returned by parseInt for text that is not a whole number in the int range
+    static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private final StringBuilder value = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private String text;
+    private int position;
+    private String error;
+
+    String getError() {
+        return error;
+    }
+
+    // Splits one CSV record and copies the fields at 'columns' into 'values' (null if the record is shorter)
+    boolean readCsv(String record, int[] columns, String[] values) {
+        if (splitCsv(record) == null) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i] < fields.size() ? fields.get(columns[i]) : null;
+        }
+        return true;
+    }
+
+    // Splits one CSV record (RFC 4180, the record may contain line breaks inside quotes); returns null if a quote is not closed
+    List<String> splitCsv(String record) {
+        fields.clear();
+        value.setLength(0);
+        boolean quoted = false;
+
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    value.append('"'); // Escaped quote
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            error = "Unterminated quoted field.";
+            return null;
+        }
+        fields.add(value.toString());
+        return fields;
+    }
+
+    // Reads the values of 'keys' from a flat JSON object into 'values', in the order of 'keys'; absent keys and JSON null
+    // give null, other keys are skipped, numbers and booleans are returned as their text. Nested objects and arrays are rejected.
+    boolean readJson(String line, List<String> keys, String[] values) {
+        Arrays.fill(values, null);
+        text = line;
+        position = 0;
+
+        if (!consume('{')) {
+            return fail("Expected a JSON object.");
+        }
+        if (consume('}')) {
+            return atEnd();
+        }
+
+        do {
+            String key = readString();
+            if (key == null) {
+                return fail("Expected a quoted key.");
+            }
+            if (!consume(':')) {
+                return fail("Expected ':' after \"" + key + "\".");
+            }
+
+            String keyValue;
+            if (peek() == '"') {
+                keyValue = readString();
+                if (keyValue == null) {
+                    return fail("Invalid string value for \"" + key + "\".");
+                }
+            } else {
+                keyValue = readLiteral();
+                if (keyValue == null) {
+                    return fail("Invalid value for \"" + key + "\".");
+                }
+                if (keyValue.equals("null")) {
+                    keyValue = null;
+                }
+            }
+
+            int index = keys.indexOf(key);
+            if (index >= 0) {
+                values[index] = keyValue;
+            }
+        } while (consume(','));
+
+        if (!consume('}')) {
+            return fail("Expected ',' or '}'.");
+        }
+        return atEnd();
+    }
+
+    // Parses a decimal whole number without throwing; returns NOT_A_NUMBER for blank text, other characters or overflow
+    static long parseInt(String number) {
+        if (number == null) {
+            return NOT_A_NUMBER;
+        }
+        int start = 0;
+        int end = number.length();
+        while (start < end && number.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && number.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        boolean negative = start < end && number.charAt(start) == '-';
+        if (negative || (start < end && number.charAt(start) == '+')) {
+            start++;
+        }
+        if (start == end || end - start > 10) {
+            return NOT_A_NUMBER;
+        }
+
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = number.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_NUMBER;
+            }
+            result = result * 10 + digit;
+        }
+        result = negative ? -result : result;
+        return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? NOT_A_NUMBER : result;
+    }
+
+    // Parses an ISO date (yyyy-MM-dd) without throwing; returns null if the text is not a valid date
+    static LocalDate parseDate(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int digits(String text, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private String readString() {
+        if (!consume('"')) {
+            return null;
+        }
+        value.setLength(0);
+
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                return null;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        return null;
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int hex = Character.digit(text.charAt(position++), 16);
+                        if (hex < 0) {
+                            return null;
+                        }
+                        code = code * 16 + hex;
+                    }
+                    value.append((char) code);
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return null; // No closing quote
+    }
+
+    // Reads a number, true, false or null as text; returns null at a nested object or array or a missing value
+    private String readLiteral() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == ',' || c == '}' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                break;
+            }
+            if (c == '{' || c == '[' || c == '"') {
+                return null;
+            }
+            position++;
+        }
+        return position > start ? text.substring(start, position) : null;
+    }
+
+    private boolean consume(char expected) {
+        if (peek() == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private char peek() {
+        skipWhitespace();
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean atEnd() {
+        skipWhitespace();
+        return position == text.length() || fail("Unexpected text after the JSON object.");
+    }
+
+    private boolean fail(String message) {
+        error = message;
+        return false;
+    }
+}
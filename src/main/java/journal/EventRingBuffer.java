@@ -0,0 +1,78 @@
+package journal;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free ring buffer for many producers and a single consumer.
+// Every slot carries a sequence number: a producer may only fill a slot whose sequence equals its claimed position,
+// and the consumer hands the slot back by advancing the sequence by one full lap.
+public class EventRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Only touched by the consumer thread
+
+    public EventRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2.");
+        }
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1; // Round up to a power of two
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // Publishes an element without blocking; returns false when the buffer is full
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, element);
+                    sequences.set(index, position + 1); // Makes the element visible to the consumer
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false; // The consumer has not freed this slot yet
+            }
+            // Another producer claimed this position first, try the next one
+        }
+    }
+
+    // Moves up to 'maxElements' published elements into 'sink'; must only be called from the consumer thread
+    public int drainTo(List<? super E> sink, int maxElements) {
+        int drained = 0;
+
+        while (drained < maxElements) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break; // Slot not published yet
+            }
+
+            sink.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, head + slots.length()); // Release the slot for the next lap
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+}
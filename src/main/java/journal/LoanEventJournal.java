@@ -0,0 +1,199 @@
+package journal;
+
+import dao.LoanEventDAO;
+import exception.DatabaseOperationException;
+import model.LoanEvent;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Write-behind journal for circulation events.
+// Services hand events to record(), which never blocks and never touches the database; a single background writer
+// drains the ring buffer and appends the events to the loan_events table in batches on its own connection.
+// On a crash at most the events still sitting in the buffer (capacity) plus one in-flight batch are lost.
+public class LoanEventJournal implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(LoanEventJournal.class.getName());
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    private static final int REPLAY_PAGE_SIZE = 1000;
+
+    private final Connection connection;
+    private final LoanEventDAO loanEventDAO;
+    private final EventRingBuffer<LoanEvent> buffer;
+    private volatile int batchSize; // Can be changed while the writer runs
+    private final long flushIntervalNanos;
+    private final List<LoanEvent> pending = new ArrayList<>();
+    private final AtomicLong recordedEvents = new AtomicLong();
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile boolean running;
+    private Thread writerThread;
+
+    // The journal takes ownership of the connection, it must not be shared with the services
+    public LoanEventJournal(Connection connection) {
+        this(connection, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public LoanEventJournal(Connection connection, int capacity, int batchSize, long flushIntervalMillis) {
+        this.connection = connection;
+        this.loanEventDAO = new LoanEventDAO(connection);
+        this.buffer = new EventRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    }
+
+    // Starts the background writer thread
+    public synchronized void start() throws SQLException {
+        if (running) {
+            return;
+        }
+        connection.setAutoCommit(false); // Every batch is committed as a unit
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "loan-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Loan event journal started with capacity " + buffer.capacity() + " and batch size " + batchSize);
+    }
+
+    // Queues an event for writing; returns false if the buffer is full and the event had to be dropped
+    public boolean record(LoanEvent event) {
+        recordedEvents.incrementAndGet();
+
+        if (buffer.offer(event)) {
+            return true;
+        }
+
+        // Only log the first drop of every thousand, a full buffer usually means the database is unreachable
+        if (droppedEvents.getAndIncrement() % 1000 == 0) {
+            logger.warning("Loan event journal is full, dropping event: " + event);
+        }
+        return false;
+    }
+
+    // Wakes the writer and waits until every event recorded so far has been written or dropped
+    public boolean flush(long timeoutMillis) {
+        long target = recordedEvents.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while (writtenEvents.get() + droppedEvents.get() < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    // Changes the largest batch written at once, taking effect with the next batch
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    // Stops the writer after it has drained whatever is still buffered
+    @Override
+    public void close() {
+        Thread writer;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            writer = writerThread;
+        }
+
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Loan event journal stopped. Written: " + writtenEvents.get() + ", dropped: " + droppedEvents.get());
+    }
+
+    // Streams every journaled event after 'afterEventId' to the handler in write order and returns the last ID seen
+    public static long replay(Connection connection, long afterEventId, Consumer<LoanEvent> handler) throws DatabaseOperationException {
+        LoanEventDAO dao = new LoanEventDAO(connection);
+        long lastEventId = afterEventId;
+
+        while (true) {
+            List<LoanEvent> page = dao.getEventsAfter(lastEventId, REPLAY_PAGE_SIZE);
+            for (LoanEvent event : page) {
+                handler.accept(event);
+                lastEventId = event.getId();
+            }
+            if (page.size() < REPLAY_PAGE_SIZE) {
+                return lastEventId;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            if (pending.isEmpty()) {
+                buffer.drainTo(pending, batchSize);
+            }
+
+            if (pending.isEmpty()) {
+                if (!running) {
+                    return; // Stopped and fully drained
+                }
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+
+            if (!writePending() && !running) {
+                // The database is gone and we are shutting down, the rest of the buffer cannot be saved
+                List<LoanEvent> lost = new ArrayList<>(pending);
+                pending.clear();
+                while (buffer.drainTo(lost, batchSize) > 0) {
+                    // Keep draining so the dropped count is exact
+                }
+                droppedEvents.addAndGet(lost.size());
+                logger.severe("Loan event journal stopped with " + lost.size() + " unwritten events.");
+                return;
+            }
+        }
+    }
+
+    // Writes the pending batch; on failure the batch is kept and retried after the flush interval
+    private boolean writePending() {
+        try {
+            loanEventDAO.addEvents(pending);
+            connection.commit();
+            writtenEvents.addAndGet(pending.size());
+            pending.clear();
+            return true;
+
+        } catch (DatabaseOperationException | SQLException e) {
+            logger.log(Level.SEVERE, "Error while writing loan events: " + e.getMessage(), e);
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+            }
+            LockSupport.parkNanos(flushIntervalNanos);
+            return false;
+        }
+    }
+}
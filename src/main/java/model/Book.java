@@ -9,6 +9,7 @@ public class Book {
     private int yearOfPublication;
     private int quantity;
     private BookLocation location;
+    private long version; // Change version of the row this book was read from, used for optimistic updates
 
     public Book() {}
 
@@ -53,6 +54,14 @@ public class Book {
         this.quantity = quantity;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public BookLocation getLocation() {
         return location;
     }
@@ -6,6 +6,7 @@ public class BookLocation {
     private int id;
     private String section;
     private int shelf;
+    private long version; // Change version of the row this location was read from
 
     public BookLocation(){}
 
@@ -39,6 +40,14 @@ public class BookLocation {
         this.shelf = shelf;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
@@ -1,17 +1,24 @@
 package model;
 
+import config.AppConfig;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 public class BorrowedBook {
-    public static final int BORROW_PERIOD_DAYS = 28;
+    // Loan rules are configurable (loans.* settings) but fixed for the life of the process
+    public static final int BORROW_PERIOD_DAYS = AppConfig.getDefault().get(AppConfig.BORROW_PERIOD_DAYS);
+    // Loans a reader may have at once, enforced through the readers.active_loans counter
+    public static final int MAX_ACTIVE_LOANS = AppConfig.getDefault().get(AppConfig.MAX_ACTIVE_LOANS);
+    // Times a loan may be renewed; each renewal runs a new borrow period from the day of renewal
+    public static final int MAX_RENEWALS = AppConfig.getDefault().get(AppConfig.MAX_RENEWALS);
 
     private int id;
     private int readerID;
     private int bookID;
     private LocalDate borrowDate;
     private LocalDate returnDueDate;
+    private long version; // Change version of the row this loan was read from
 
     public BorrowedBook(LocalDate borrowDate){
         this.borrowDate = borrowDate;
@@ -29,6 +36,11 @@ public class BorrowedBook {
         this.id = id;
     }
 
+    public BorrowedBook(int id, int readerID, int bookID, LocalDate borrowDate, LocalDate returnDueDate){
+        this(id, readerID, bookID, borrowDate);
+        this.returnDueDate = returnDueDate;
+    }
+
     public int getId() {
         return id;
     }
@@ -49,6 +61,14 @@ public class BorrowedBook {
         return returnDueDate;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
@@ -0,0 +1,50 @@
+package model;
+
+import util.collections.IntArrayList;
+import java.util.List;
+
+// Rows of one table that changed after 'sinceVersion', plus the IDs of rows deleted since then.
+// 'version' is the watermark to pass to the next changesSince call.
+public class ChangeSet<T> {
+    private final List<T> changedRows;
+    private final IntArrayList deletedIds;
+    private final long sinceVersion;
+    private final long version;
+
+    public ChangeSet(List<T> changedRows, IntArrayList deletedIds, long sinceVersion, long version){
+        this.changedRows = changedRows;
+        this.deletedIds = deletedIds;
+        this.sinceVersion = sinceVersion;
+        this.version = version;
+    }
+
+    public List<T> getChangedRows() {
+        return changedRows;
+    }
+
+    public IntArrayList getDeletedIds() {
+        return deletedIds;
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return changedRows.isEmpty() && deletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "changedRows=" + changedRows.size() +
+                ", deletedIds=" + deletedIds.size() +
+                ", sinceVersion=" + sinceVersion +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package model;
+
+// Outcome of one fine accrual run
+public class FineAccrual {
+    private final int loansAccrued; // Loans whose fine was brought up to date
+    private final int readersCharged; // Readers whose balance grew
+    private final long centsAccrued;
+
+    public FineAccrual(int loansAccrued, int readersCharged, long centsAccrued) {
+        this.loansAccrued = loansAccrued;
+        this.readersCharged = readersCharged;
+        this.centsAccrued = centsAccrued;
+    }
+
+    public int getLoansAccrued() {
+        return loansAccrued;
+    }
+
+    public int getReadersCharged() {
+        return readersCharged;
+    }
+
+    public long getCentsAccrued() {
+        return centsAccrued;
+    }
+
+    @Override
+    public String toString() {
+        return "FineAccrual{" +
+                "loansAccrued=" + loansAccrued +
+                ", readersCharged=" + readersCharged +
+                ", centsAccrued=" + centsAccrued +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// A reader's place in the queue for a book with no copies on the shelf.
+// Holds are served first come, first served; a returned copy makes the oldest waiting hold READY and is set aside for it.
+public class Hold {
+    public enum Status {
+        WAITING,
+        READY
+    }
+
+    private final int id;
+    private final int readerID;
+    private final int bookID;
+    private final LocalDateTime placedAt;
+    private final Status status;
+
+    public Hold(int id, int readerID, int bookID, LocalDateTime placedAt, Status status) {
+        this.id = id;
+        this.readerID = readerID;
+        this.bookID = bookID;
+        this.placedAt = placedAt;
+        this.status = status;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getReaderID() {
+        return readerID;
+    }
+
+    public int getBookID() {
+        return bookID;
+    }
+
+    public LocalDateTime getPlacedAt() {
+        return placedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isReady() {
+        return status == Status.READY;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        Hold that = (Hold) object;
+        return id == that.id && readerID == that.readerID && bookID == that.bookID && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, readerID, bookID, status);
+    }
+
+    @Override
+    public String toString() {
+        return "Hold{" +
+                "id=" + id +
+                ", readerID=" + readerID +
+                ", bookID=" + bookID +
+                ", placedAt=" + placedAt +
+                ", status=" + status +
+                '}';
+    }
+}
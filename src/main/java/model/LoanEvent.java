@@ -0,0 +1,101 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class LoanEvent {
+    public enum EventType {
+        BORROW,
+        RETURN,
+        QUANTITY_CHANGE,
+        READER_ADDED
+    }
+
+    private long id;
+    private EventType eventType;
+    private int readerID;
+    private int bookID;
+    private int quantityDelta;
+    private LocalDateTime occurredAt;
+
+    public LoanEvent(EventType eventType, int readerID, int bookID, int quantityDelta, LocalDateTime occurredAt){
+        this.eventType = eventType;
+        this.readerID = readerID;
+        this.bookID = bookID;
+        this.quantityDelta = quantityDelta;
+        this.occurredAt = occurredAt;
+    }
+
+    public LoanEvent(long id, EventType eventType, int readerID, int bookID, int quantityDelta, LocalDateTime occurredAt){
+        this(eventType, readerID, bookID, quantityDelta, occurredAt);
+        this.id = id;
+    }
+
+    // Event for a new loan; the copy leaves the shelf, so the quantity drops by one
+    public static LoanEvent borrow(int readerID, int bookID){
+        return new LoanEvent(EventType.BORROW, readerID, bookID, -1, LocalDateTime.now());
+    }
+
+    // Event for a returned loan; the copy goes back on the shelf
+    public static LoanEvent returned(int readerID, int bookID){
+        return new LoanEvent(EventType.RETURN, readerID, bookID, 1, LocalDateTime.now());
+    }
+
+    // Event for a manual stock correction made from the books panel
+    public static LoanEvent quantityChange(int bookID, int quantityDelta){
+        return new LoanEvent(EventType.QUANTITY_CHANGE, 0, bookID, quantityDelta, LocalDateTime.now());
+    }
+
+    // Event for a newly registered reader
+    public static LoanEvent readerAdded(int readerID){
+        return new LoanEvent(EventType.READER_ADDED, readerID, 0, 0, LocalDateTime.now());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public int getReaderID() {
+        return readerID;
+    }
+
+    public int getBookID() {
+        return bookID;
+    }
+
+    public int getQuantityDelta() {
+        return quantityDelta;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        LoanEvent that = (LoanEvent) object;
+        return readerID == that.readerID && bookID == that.bookID && quantityDelta == that.quantityDelta && eventType == that.eventType && Objects.equals(occurredAt, that.occurredAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(eventType, readerID, bookID, quantityDelta, occurredAt);
+    }
+
+    @Override
+    public String toString() {
+        return "LoanEvent{" +
+                "eventType=" + eventType +
+                ", readerID=" + readerID +
+                ", bookID=" + bookID +
+                ", quantityDelta=" + quantityDelta +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
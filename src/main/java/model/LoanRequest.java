@@ -0,0 +1,28 @@
+package model;
+
+// One (reader, book) pair of a bulk borrow or return
+public class LoanRequest {
+    private final Reader reader;
+    private final Book book;
+
+    public LoanRequest(Reader reader, Book book) {
+        this.reader = reader;
+        this.book = book;
+    }
+
+    public Reader getReader() {
+        return reader;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    @Override
+    public String toString() {
+        return "LoanRequest{" +
+                "reader=" + reader +
+                ", book=" + book +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+// Outcome of one item of a bulk borrow or return
+public class LoanResult {
+    public enum Status {
+        BORROWED,
+        RETURNED,
+        INVALID_DATA,
+        READER_NOT_FOUND,
+        BOOK_NOT_FOUND,
+        NO_COPIES_AVAILABLE,
+        OVERDUE_LOANS,
+        LOAN_LIMIT_REACHED,
+        ALREADY_BORROWED,
+        NOT_BORROWED
+    }
+
+    private final LoanRequest request;
+    private final Status status;
+    private final int borrowId; // ID of the created or removed loan, 0 if the item failed
+
+    public LoanResult(LoanRequest request, Status status, int borrowId) {
+        this.request = request;
+        this.status = status;
+        this.borrowId = borrowId;
+    }
+
+    public static LoanResult failed(LoanRequest request, Status status) {
+        return new LoanResult(request, status, 0);
+    }
+
+    public LoanRequest getRequest() {
+        return request;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getBorrowId() {
+        return borrowId;
+    }
+
+    public boolean isSuccessful() {
+        return status == Status.BORROWED || status == Status.RETURNED;
+    }
+
+    @Override
+    public String toString() {
+        return "LoanResult{" +
+                "request=" + request +
+                ", status=" + status +
+                ", borrowId=" + borrowId +
+                '}';
+    }
+}
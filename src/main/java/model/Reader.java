@@ -8,6 +8,7 @@ public class Reader {
     private String firstName;
     private String lastName;
     private LocalDate dateOfBirth;
+    private long version; // Change version of the row this reader was read from
 
     public Reader(){}
 
@@ -38,6 +39,14 @@ public class Reader {
         return dateOfBirth;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
@@ -0,0 +1,73 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// A reader's account at a glance: current loans and their state, plus the number of books ever borrowed
+public class ReaderSummary {
+    private final Reader reader;
+    private final List<String> activeLoans; // Same format as BorrowedBookDAO.getBooksBorrowedByReaderWithDates
+    private final int overdueLoans;
+    private final LocalDate nextDueDate; // Earliest due date that has not passed yet, null if there is none
+    private final long totalBorrowed;
+    private final long fineBalanceCents; // Fines accrued up to the last accrual run, minus payments
+    private final LocalDate computedOn; // The overdue count is only valid for the day it was computed on
+
+    public ReaderSummary(Reader reader, List<String> activeLoans, int overdueLoans, LocalDate nextDueDate, long totalBorrowed, long fineBalanceCents, LocalDate computedOn) {
+        this.reader = reader;
+        this.activeLoans = List.copyOf(activeLoans);
+        this.overdueLoans = overdueLoans;
+        this.nextDueDate = nextDueDate;
+        this.totalBorrowed = totalBorrowed;
+        this.fineBalanceCents = fineBalanceCents;
+        this.computedOn = computedOn;
+    }
+
+    public Reader getReader() {
+        return reader;
+    }
+
+    public List<String> getActiveLoans() {
+        return activeLoans;
+    }
+
+    public int getActiveLoanCount() {
+        return activeLoans.size();
+    }
+
+    public int getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public boolean hasOverdueLoans() {
+        return overdueLoans > 0;
+    }
+
+    public LocalDate getNextDueDate() {
+        return nextDueDate;
+    }
+
+    public long getTotalBorrowed() {
+        return totalBorrowed;
+    }
+
+    public long getFineBalanceCents() {
+        return fineBalanceCents;
+    }
+
+    public LocalDate getComputedOn() {
+        return computedOn;
+    }
+
+    @Override
+    public String toString() {
+        return "ReaderSummary{" +
+                "reader=" + reader +
+                ", activeLoans=" + activeLoans.size() +
+                ", overdueLoans=" + overdueLoans +
+                ", nextDueDate=" + nextDueDate +
+                ", totalBorrowed=" + totalBorrowed +
+                ", fineBalanceCents=" + fineBalanceCents +
+                '}';
+    }
+}
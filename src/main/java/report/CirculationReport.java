@@ -0,0 +1,44 @@
+package report;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Result of CirculationReportGenerator: the statistics tables plus the totals they were computed from
+public class CirculationReport {
+    private final LocalDateTime generatedAt;
+    private final long activeLoans;
+    private final long borrowEvents;
+    private final List<ReportTable> tables;
+
+    public CirculationReport(LocalDateTime generatedAt, long activeLoans, long borrowEvents, List<ReportTable> tables) {
+        this.generatedAt = generatedAt;
+        this.activeLoans = activeLoans;
+        this.borrowEvents = borrowEvents;
+        this.tables = List.copyOf(tables);
+    }
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public long getActiveLoans() {
+        return activeLoans;
+    }
+
+    public long getBorrowEvents() {
+        return borrowEvents;
+    }
+
+    public List<ReportTable> getTables() {
+        return tables;
+    }
+
+    public ReportTable getTable(String name) {
+        for (ReportTable table : tables) {
+            if (table.getName().equals(name)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("No report table named " + name);
+    }
+}
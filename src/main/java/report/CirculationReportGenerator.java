@@ -0,0 +1,247 @@
+package report;
+
+import config.ConnectionSource;
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import dao.ReportDAO;
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Computes the nightly circulation statistics.
+// borrowed_books (current loans, joined with books for the shelf location) and loan_events (the loan history) are split
+// into ID ranges that are scanned in parallel on a dedicated fork/join pool, each range on its own read-only connection.
+// Every range folds its rows into primitive-keyed counters; the partials are merged up the task tree, and only the
+// final aggregates are resolved to titles and shelves, so no model object is created per scanned row.
+public class CirculationReportGenerator {
+    private static final Logger logger = Logger.getLogger(CirculationReportGenerator.class.getName());
+    public static final int DEFAULT_CHUNK_SIZE = 100_000;
+    public static final int DEFAULT_TOP_TITLES = 20;
+    // Upper bounds (inclusive) of the reader activity buckets in borrows; readers without any borrow form their own bucket
+    private static final int[] READER_ACTIVITY_BOUNDS = {1, 5, 20};
+
+    private final ConnectionSource connectionSource;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int topTitles;
+
+    public CirculationReportGenerator(ConnectionSource connectionSource) {
+        this(connectionSource, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, DEFAULT_TOP_TITLES);
+    }
+
+    public CirculationReportGenerator(ConnectionSource connectionSource, int parallelism, int chunkSize, int topTitles) {
+        if (parallelism < 1 || chunkSize < 1 || topTitles < 1) {
+            throw new IllegalArgumentException("Parallelism, chunk size and number of top titles must be positive");
+        }
+        this.connectionSource = connectionSource;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.topTitles = topTitles;
+    }
+
+    public CirculationReport generate() throws DatabaseOperationException {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ScanConnections connections = new ScanConnections(connectionSource);
+
+        try {
+            Connection connection = connections.acquire();
+            ReportDAO reportDAO = new ReportDAO(connection);
+            long[] loanIds = reportDAO.getIdRange("borrowed_books");
+            long[] eventIds = reportDAO.getIdRange("loan_events");
+            connections.release(connection);
+
+            ForkJoinTask<CirculationStats> loans = pool.submit(new ScanTask(ScanKind.ACTIVE_LOANS, loanIds[0], loanIds[1] + 1, connections));
+            ForkJoinTask<CirculationStats> events = pool.submit(new ScanTask(ScanKind.BORROW_EVENTS, eventIds[0], eventIds[1] + 1, connections));
+            CirculationStats stats = loans.join().merge(events.join());
+
+            connection = connections.acquire();
+            CirculationReport report = buildReport(stats, connection);
+            connections.release(connection);
+
+            logger.info("Circulation report over " + stats.activeLoans + " loans and " + stats.borrowEvents + " borrow events generated in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return report;
+
+        } catch (RuntimeException e) {
+            throw unwrap(e);
+        } finally {
+            pool.shutdownNow();
+            connections.closeAll();
+        }
+    }
+
+    private CirculationReport buildReport(CirculationStats stats, Connection connection) throws DatabaseOperationException {
+        ReportTable shelves = new ReportTable("loans_per_shelf", "section", "shelf", "active_loans");
+        for (BookLocation location : new BookLocationDAO(connection).getAllBookLocations()) {
+            shelves.addRow(location.getSection(), location.getShelf(), stats.activeLoansPerLocation.get(location.getId()));
+        }
+
+        ReportTable titles = new ReportTable("most_borrowed_titles", "rank", "title", "author", "year_of_publication", "borrows");
+        BookDAO bookDAO = new BookDAO(connection);
+        int rank = 0;
+        for (int bookId : CirculationStats.topKeys(stats.borrowsPerBook, topTitles)) {
+            Optional<Book> book = bookDAO.findBookById(bookId);
+            int borrows = stats.borrowsPerBook.get(bookId);
+            if (book.isPresent()) {
+                titles.addRow(++rank, book.get().getTitle(), book.get().getAuthor(), book.get().getYearOfPublication(), borrows);
+            } else {
+                titles.addRow(++rank, "(removed book #" + bookId + ")", "", 0, borrows); // History outlives the catalogue
+            }
+        }
+
+        // Readers that were removed since still count in the history buckets, so the idle bucket cannot go below zero
+        long[] readersPerBucket = new long[READER_ACTIVITY_BOUNDS.length + 2];
+        stats.borrowsPerReader.forEach((readerId, borrows) -> readersPerBucket[activityBucket(borrows)]++);
+        readersPerBucket[0] = Math.max(0, new ReportDAO(connection).countReaders() - stats.borrowsPerReader.size());
+
+        ReportTable activity = new ReportTable("reader_activity", "borrows", "readers");
+        activity.addRow("0", readersPerBucket[0]);
+        for (int i = 0; i <= READER_ACTIVITY_BOUNDS.length; i++) {
+            activity.addRow(bucketLabel(READER_ACTIVITY_BOUNDS, i, 1), readersPerBucket[i + 1]);
+        }
+
+        ReportTable aging = new ReportTable("overdue_aging", "days_overdue", "loans");
+        for (int i = 0; i < stats.overdueLoansPerBucket.length; i++) {
+            aging.addRow(bucketLabel(CirculationStats.OVERDUE_BUCKET_BOUNDS, i, 1), stats.overdueLoansPerBucket[i]);
+        }
+
+        return new CirculationReport(LocalDateTime.now(), stats.activeLoans, stats.borrowEvents, List.of(shelves, titles, activity, aging));
+    }
+
+    // Bucket 0 holds readers without borrows, so readers with at least one borrow start at bucket 1
+    private static int activityBucket(long borrows) {
+        for (int i = 0; i < READER_ACTIVITY_BOUNDS.length; i++) {
+            if (borrows <= READER_ACTIVITY_BOUNDS[i]) {
+                return i + 1;
+            }
+        }
+        return READER_ACTIVITY_BOUNDS.length + 1;
+    }
+
+    // Labels bucket i of inclusive upper bounds as "1", "2-5", ... and the open-ended last bucket as ">20"
+    private static String bucketLabel(int[] bounds, int i, int firstLowerBound) {
+        if (i == bounds.length) {
+            return ">" + bounds[bounds.length - 1];
+        }
+        int lower = i == 0 ? firstLowerBound : bounds[i - 1] + 1;
+        return lower == bounds[i] ? String.valueOf(lower) : lower + "-" + bounds[i];
+    }
+
+    // Tasks cannot throw checked exceptions, so database failures cross the pool wrapped; the pool may wrap them once more
+    private static DatabaseOperationException unwrap(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DatabaseOperationException databaseException) {
+                return databaseException;
+            }
+        }
+        throw e;
+    }
+
+    private enum ScanKind { ACTIVE_LOANS, BORROW_EVENTS }
+
+    // Splits the ID range [fromId, toId) in halves until it is at most one chunk, then scans it
+    private class ScanTask extends RecursiveTask<CirculationStats> {
+        private final ScanKind kind;
+        private final long fromId;
+        private final long toId;
+        private final ScanConnections connections;
+
+        ScanTask(ScanKind kind, long fromId, long toId, ScanConnections connections) {
+            this.kind = kind;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.connections = connections;
+        }
+
+        @Override
+        protected CirculationStats compute() {
+            if (toId <= fromId) {
+                return new CirculationStats();
+            }
+            if (toId - fromId > chunkSize) {
+                long middle = fromId + (toId - fromId) / 2;
+                ScanTask upper = new ScanTask(kind, middle, toId, connections);
+                upper.fork();
+                CirculationStats lower = new ScanTask(kind, fromId, middle, connections).compute();
+                return lower.merge(upper.join());
+            }
+
+            CirculationStats stats = new CirculationStats();
+            try {
+                Connection connection = connections.acquire();
+                ReportDAO reportDAO = new ReportDAO(connection);
+                if (kind == ScanKind.ACTIVE_LOANS) {
+                    reportDAO.scanActiveLoans(fromId, toId, stats::addActiveLoan);
+                } else {
+                    reportDAO.scanBorrowEvents(fromId, toId, stats::addBorrowEvent);
+                }
+                connections.release(connection);
+            } catch (DatabaseOperationException e) {
+                throw new IllegalStateException(e);
+            }
+            return stats;
+        }
+    }
+
+    // Read-only connections shared by the scan tasks: one is opened per concurrently running scan and reused afterwards
+    private static class ScanConnections {
+        private final ConnectionSource connectionSource;
+        private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> opened = new ConcurrentLinkedQueue<>();
+
+        ScanConnections(ConnectionSource connectionSource) {
+            this.connectionSource = connectionSource;
+        }
+
+        Connection acquire() throws DatabaseOperationException {
+            Connection connection = idle.poll();
+            if (connection != null) {
+                return connection;
+            }
+
+            try {
+                connection = connectionSource.getConnection();
+                opened.add(connection);
+                connection.setReadOnly(true);
+                connection.setAutoCommit(false); // Lets PostgreSQL stream the scans with a cursor
+                return connection;
+            } catch (SQLException | IOException e) {
+                throw new DatabaseOperationException("Database operation failed.", e);
+            }
+        }
+
+        // Ends the scan's read-only transaction and makes the connection available to the next scan
+        void release(Connection connection) throws DatabaseOperationException {
+            try {
+                connection.rollback();
+                idle.add(connection);
+            } catch (SQLException e) {
+                throw new DatabaseOperationException("Database operation failed.", e);
+            }
+        }
+
+        void closeAll() {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Failed to close report connection: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package report;
+
+import util.collections.IntIntHashMap;
+import java.util.Arrays;
+
+// Partial aggregates of one ID range; the fork/join tasks merge their partials pairwise into the final result
+final class CirculationStats {
+    // Upper bounds (inclusive) of the overdue aging buckets in days; loans beyond the last bound go into the final bucket
+    static final int[] OVERDUE_BUCKET_BOUNDS = {7, 30, 90};
+
+    final IntIntHashMap activeLoansPerLocation = new IntIntHashMap();
+    final IntIntHashMap borrowsPerBook = new IntIntHashMap(1024);
+    final IntIntHashMap borrowsPerReader = new IntIntHashMap(1024);
+    final long[] overdueLoansPerBucket = new long[OVERDUE_BUCKET_BOUNDS.length + 1];
+    long activeLoans;
+    long borrowEvents;
+
+    void addActiveLoan(int readerId, int bookId, int locationId, int daysOverdue) {
+        activeLoans++;
+        activeLoansPerLocation.addTo(locationId, 1);
+        if (daysOverdue > 0) {
+            overdueLoansPerBucket[overdueBucket(daysOverdue)]++;
+        }
+    }
+
+    void addBorrowEvent(int readerId, int bookId) {
+        borrowEvents++;
+        borrowsPerBook.addTo(bookId, 1);
+        borrowsPerReader.addTo(readerId, 1);
+    }
+
+    CirculationStats merge(CirculationStats other) {
+        activeLoansPerLocation.addAll(other.activeLoansPerLocation);
+        borrowsPerBook.addAll(other.borrowsPerBook);
+        borrowsPerReader.addAll(other.borrowsPerReader);
+        for (int i = 0; i < overdueLoansPerBucket.length; i++) {
+            overdueLoansPerBucket[i] += other.overdueLoansPerBucket[i];
+        }
+        activeLoans += other.activeLoans;
+        borrowEvents += other.borrowEvents;
+        return this;
+    }
+
+    // Returns the keys with the 'limit' largest counts, largest first; ties go to the smaller key.
+    // Each entry is packed into a long that sorts in that order (inverted count above, key below), so no boxing is needed.
+    static int[] topKeys(IntIntHashMap counts, int limit) {
+        long[] packed = new long[counts.size()];
+        int[] n = {0};
+        counts.forEach((key, count) -> packed[n[0]++] = ((long) (Integer.MAX_VALUE - count) << 32) | key);
+        Arrays.sort(packed);
+
+        int[] top = new int[Math.min(limit, packed.length)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = (int) packed[i];
+        }
+        return top;
+    }
+
+    private static int overdueBucket(int daysOverdue) {
+        for (int i = 0; i < OVERDUE_BUCKET_BOUNDS.length; i++) {
+            if (daysOverdue <= OVERDUE_BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return OVERDUE_BUCKET_BOUNDS.length;
+    }
+}
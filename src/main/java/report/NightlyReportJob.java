@@ -0,0 +1,46 @@
+package report;
+
+import config.ConnectionRouter;
+import config.DatabaseConnection;
+import exception.DatabaseOperationException;
+import service.FineService;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Entry point for the scheduled nightly run: accrues the day's overdue fines, then generates the circulation report and writes it as CSV and JSON
+// into <output directory>/<date>/ (default output directory: "reports"). The report is read from the replica if one is
+// configured; it does not include fines, so it need not wait for the accrual to replicate.
+public class NightlyReportJob {
+    private static final Logger logger = Logger.getLogger(NightlyReportJob.class.getName());
+
+    public static void main(String[] args) {
+        Path directory = Path.of(args.length > 0 ? args[0] : "reports").resolve(LocalDate.now().toString());
+
+        try {
+            // Fines first, so tomorrow's desk lookups see today's balances
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                new FineService(connection).accrueFines(LocalDate.now());
+            }
+            ConnectionRouter connectionRouter = new ConnectionRouter(DatabaseConnection::getConnection,
+                    DatabaseConnection.isReplicaConfigured() ? DatabaseConnection::getReplicaConnection : null);
+            CirculationReport report = new CirculationReportGenerator(connectionRouter::getReadConnection).generate();
+            ReportWriter.writeCsv(report, directory);
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("circulation.json"), StandardCharsets.UTF_8)) {
+                ReportWriter.writeJson(report, writer);
+            }
+            logger.info("Circulation report written to " + directory.toAbsolutePath());
+
+        } catch (DatabaseOperationException | SQLException | IOException e) {
+            logger.log(Level.SEVERE, "Nightly report failed: " + e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One section of a report: a name usable as a file name, column headers and rows of plain values (strings and numbers)
+public class ReportTable {
+    private final String name;
+    private final List<String> columns;
+    private final List<List<Object>> rows = new ArrayList<>();
+
+    public ReportTable(String name, String... columns) {
+        this.name = name;
+        this.columns = List.of(columns);
+    }
+
+    public void addRow(Object... values) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values for report table " + name + " but got " + values.length);
+        }
+        rows.add(List.of(values));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<List<Object>> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,82 @@
+package report;
+
+import export.TextEscaping;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes a CirculationReport as CSV (one file per table, RFC 4180 quoting) or as a single JSON document
+public class ReportWriter {
+
+    private ReportWriter() {}
+
+    // Writes <table name>.csv for every table into the directory and returns the written files
+    public static List<Path> writeCsv(CirculationReport report, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+
+        for (ReportTable table : report.getTables()) {
+            Path file = directory.resolve(table.getName() + ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writeCsvRow(writer, table.getColumns());
+                for (List<Object> row : table.getRows()) {
+                    writeCsvRow(writer, row);
+                }
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    public static void writeJson(CirculationReport report, Writer writer) throws IOException {
+        writer.write("{\"generatedAt\":");
+        TextEscaping.writeJsonString(writer, report.getGeneratedAt().toString());
+        writer.write(",\"activeLoans\":" + report.getActiveLoans());
+        writer.write(",\"borrowEvents\":" + report.getBorrowEvents());
+        writer.write(",\"tables\":[");
+
+        for (int t = 0; t < report.getTables().size(); t++) {
+            ReportTable table = report.getTables().get(t);
+            writer.write(t == 0 ? "{\"name\":" : ",{\"name\":");
+            TextEscaping.writeJsonString(writer, table.getName());
+            writer.write(",\"columns\":");
+            writeJsonArray(writer, table.getColumns());
+            writer.write(",\"rows\":[");
+            for (int r = 0; r < table.getRows().size(); r++) {
+                if (r > 0) {
+                    writer.write(',');
+                }
+                writeJsonArray(writer, table.getRows().get(r));
+            }
+            writer.write("]}");
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(TextEscaping.csvField(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static void writeJsonArray(Writer writer, List<?> values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            TextEscaping.writeJsonValue(writer, values.get(i));
+        }
+        writer.write(']');
+    }
+}
@@ -0,0 +1,86 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Request count, error count and latency distribution of one endpoint, updated lock-free by the request threads.
+// Latencies go into power-of-two buckets from 64 µs up to about 4 s, plus one for anything slower,
+// so percentiles are reported as the upper bound of their bucket: within a factor of two, in constant memory.
+public class EndpointMetrics {
+    private static final int FIRST_BUCKET_MICROS_BITS = 6; // The first bucket holds everything under 64 µs
+    private static final int BUCKETS = 18;
+
+    private final String name;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    public EndpointMetrics(String name) {
+        this.name = name;
+    }
+
+    // Statuses of 500 and above count as errors; client errors (4xx) are the caller's mistake, not the endpoint's
+    public void record(long elapsedNanos, int status) {
+        requests.increment();
+        if (status >= 500) {
+            errors.increment();
+        }
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        buckets.incrementAndGet(bucketOf(elapsedNanos));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getMeanMillis() {
+        long count = requests.sum();
+        return count == 0 ? 0 : totalNanos.sum() / (double) count / 1_000_000;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100); the maximum if that is the overflow bucket
+    public double getPercentileMillis(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << (FIRST_BUCKET_MICROS_BITS + i)) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    private static int bucketOf(long elapsedNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        int bits = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(BUCKETS - 1, Math.max(0, bits - FIRST_BUCKET_MICROS_BITS));
+    }
+}
@@ -0,0 +1,457 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cache.ChangeFeed;
+import cache.QueryCache;
+import config.AppConfig;
+import config.ConfigWatcher;
+import config.ConnectionPool;
+import config.ConnectionRouter;
+import config.DatabaseConnection;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import exception.NotFoundException;
+import journal.LoanEventJournal;
+import export.TextEscaping;
+import model.Book;
+import model.Reader;
+import model.ReaderSummary;
+import service.BookLookupCoalescer;
+import service.BookService;
+import service.BorrowedBookService;
+import service.ReaderService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Headless HTTP front-end over the services for self-checkout kiosks and the web catalogue.
+// Every request runs on its own virtual thread and borrows a connection from the pool for its duration; the services
+// are created per request over that connection, since they are not shared between threads. Book lookups and reader
+// summaries read from the replica when one is configured; loans, and the searches answered from the query cache, use
+// the primary, as the cache is invalidated from the primary's changes and a lagging replica could refill it with old rows.
+// Every loan request sends reads to the primary for the router's read-your-writes window. Responses are JSON using the
+// column names of the export files; lists are streamed element by element with chunked encoding.
+//
+//   GET  /books?title=... or ?author=...                            matching books
+//   GET  /books/lookup?title=&author=&year_of_publication=          one book
+//   GET  /readers?last_name=...                                     matching readers
+//   GET  /readers/summary?first_name=&last_name=&date_of_birth=     the reader's loans at a glance
+//   POST /loans          first_name, last_name, date_of_birth, title, author, year_of_publication    borrow
+//   POST /loans/return   same parameters                                                              return
+//   POST /loans/renew    same parameters                                                              renew
+//   POST /loans/renew_all  first_name, last_name, date_of_birth                   renew every eligible loan of the reader
+//   GET  /metrics                                                   per-endpoint request counts and latencies, coalesced lookups,
+//                                                                   query cache hits
+//
+// Book and reader searches are answered from a query cache; loans made here invalidate it directly, writes made elsewhere
+// through the change feed started by main.
+// main reads the port and pool size from AppConfig and applies the performance settings again when the configuration
+// file changes; requests slower than server.slow_request_millis are logged as warnings.
+// POST parameters may be sent form-encoded in the body or in the query string.
+// Borrows, returns and renewals are recorded in the loan event journal passed to the constructor, as at the desks.
+// Invalid input gives 400, as do refusals the services report as invalid data (no copies left, overdue loans);
+// an unknown book or reader (NotFoundException) gives 404, other refused borrows or returns 409, a database failure 500.
+public class LibraryHttpServer implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(LibraryHttpServer.class.getName());
+    private static final int BUFFER_BYTES = 16 * 1024;
+
+    private final HttpServer server;
+    private final ConnectionRouter connectionRouter;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, EndpointMetrics> metrics = new LinkedHashMap<>(); // Filled in the constructor, read-only afterwards
+    private final BookLookupCoalescer lookupCoalescer = new BookLookupCoalescer(); // Kiosks opening together search the same titles
+    private final QueryCache queryCache = new QueryCache();
+    private final LoanEventJournal loanEventJournal;
+    private volatile long slowRequestNanos;
+
+    // Where an endpoint's connection comes from: the primary, the replica if the router allows, or the primary
+    // followed by a recorded write
+    private enum Target {PRIMARY, REPLICA, WRITE}
+
+    @FunctionalInterface
+    private interface Endpoint {
+        void handle(HttpExchange exchange, RequestParameters parameters, Connection connection)
+                throws IOException, DatabaseOperationException, InvalidDataException;
+    }
+
+    // Binds the server to the address (port 0 picks a free port); call start to accept requests
+    public LibraryHttpServer(InetSocketAddress address, ConnectionPool connectionPool) throws IOException {
+        this(address, new ConnectionRouter(connectionPool));
+    }
+
+    // Binds the server to the address, reading from the router's replica where the endpoint allows it
+    public LibraryHttpServer(InetSocketAddress address, ConnectionRouter connectionRouter) throws IOException {
+        this(address, connectionRouter, null);
+    }
+
+    // 'loanEventJournal' may be null; the server does not start or close it
+    public LibraryHttpServer(InetSocketAddress address, ConnectionRouter connectionRouter, LoanEventJournal loanEventJournal) throws IOException {
+        this.connectionRouter = connectionRouter;
+        this.loanEventJournal = loanEventJournal;
+        this.server = HttpServer.create(address, 0);
+        applySettings(AppConfig.getDefault());
+        server.setExecutor(executor);
+
+        route("GET", "/books", Target.PRIMARY, this::searchBooks);
+        route("GET", "/books/lookup", Target.REPLICA, this::lookupBook);
+        route("GET", "/readers", Target.PRIMARY, this::searchReaders);
+        route("GET", "/readers/summary", Target.REPLICA, this::readerSummary);
+        route("POST", "/loans", Target.WRITE, this::borrow);
+        route("POST", "/loans/return", Target.WRITE, this::returnLoan);
+        route("POST", "/loans/renew", Target.WRITE, this::renewLoan);
+        route("POST", "/loans/renew_all", Target.WRITE, this::renewAllLoans);
+        server.createContext("/metrics", this::writeMetrics);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Library HTTP server listening on port " + getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public BookLookupCoalescer getLookupCoalescer() {
+        return lookupCoalescer;
+    }
+
+    // Register it with a ChangeFeed so that writes made by the desks invalidate the server's cached searches
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    // Applies the reloadable settings of the server's own cache and request log; pool sizes are left to the pools' owner
+    public void applySettings(AppConfig config) {
+        queryCache.setMaxEntries(config.get(AppConfig.QUERY_CACHE_MAX_ENTRIES));
+        queryCache.setTimeToLive(config.get(AppConfig.QUERY_CACHE_TTL_MILLIS));
+        slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(config.get(AppConfig.SLOW_REQUEST_MILLIS));
+    }
+
+    // Metrics by endpoint ("GET /books", ...)
+    public Map<String, EndpointMetrics> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    // Stops accepting requests and waits up to a second for running ones; the pools are left to their owner
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+        logger.info("Library HTTP server stopped.");
+    }
+
+    private void searchBooks(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        BookService bookService = new BookService(connection, null, lookupCoalescer, queryCache);
+        List<Book> books = parameters.get("author") != null
+                ? bookService.getBooksByAuthor(parameters.require("author"))
+                : bookService.getBooksByTitle(parameters.require("title"));
+        streamList(exchange, books, LibraryHttpServer::writeBook);
+    }
+
+    private void lookupBook(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        Optional<Book> book = new BookService(connection, null, lookupCoalescer).findBookByDetails(
+                parameters.require("title"), parameters.require("author"), parameters.requireInt("year_of_publication"));
+        if (book.isEmpty()) {
+            sendError(exchange, 404, "Book not found.");
+            return;
+        }
+        sendObject(exchange, 200, writer -> writeBook(writer, book.get()));
+    }
+
+    private void searchReaders(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        List<Reader> readers = new ReaderService(connection, null, queryCache).getReadersByLastName(parameters.require("last_name"));
+        streamList(exchange, readers, LibraryHttpServer::writeReader);
+    }
+
+    private void readerSummary(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        Optional<ReaderSummary> summary = new BorrowedBookService(connection).getReaderSummary(readerOf(parameters));
+        if (summary.isEmpty()) {
+            sendError(exchange, 404, "Reader not found.");
+            return;
+        }
+
+        ReaderSummary found = summary.get();
+        sendObject(exchange, 200, writer -> {
+            writer.write("{\"reader\":");
+            writeReader(writer, found.getReader());
+            writer.write(",\"active_loans\":[");
+            List<String> activeLoans = found.getActiveLoans();
+            for (int i = 0; i < activeLoans.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                TextEscaping.writeJsonString(writer, activeLoans.get(i));
+            }
+            writer.write("],\"overdue_loans\":" + found.getOverdueLoans());
+            writer.write(",\"next_due_date\":");
+            TextEscaping.writeJsonValue(writer, found.getNextDueDate());
+            writer.write(",\"total_borrowed\":" + found.getTotalBorrowed());
+            writer.write(",\"fine_balance_cents\":" + found.getFineBalanceCents() + "}");
+        });
+    }
+
+    private void borrow(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        Optional<Integer> loanId = new BorrowedBookService(connection, loanEventJournal, null, queryCache).addBorrowedBook(readerOf(parameters), bookOf(parameters));
+        if (loanId.isEmpty()) {
+            sendError(exchange, 409, "The reader has already borrowed this book.");
+            return;
+        }
+        sendObject(exchange, 201, writer -> writer.write("{\"loan_id\":" + loanId.get() + "}"));
+    }
+
+    private void returnLoan(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        if (!new BorrowedBookService(connection, loanEventJournal, null, queryCache).returnBorrowedBook(readerOf(parameters), bookOf(parameters))) {
+            sendError(exchange, 409, "The book could not be returned.");
+            return;
+        }
+        sendObject(exchange, 200, writer -> writer.write("{\"returned\":true}"));
+    }
+
+    private void renewLoan(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        LocalDate dueDate = new BorrowedBookService(connection, loanEventJournal).renewBorrowedBook(readerOf(parameters), bookOf(parameters));
+        sendObject(exchange, 200, writer -> {
+            writer.write("{\"return_due_date\":");
+            TextEscaping.writeJsonValue(writer, dueDate);
+            writer.write('}');
+        });
+    }
+
+    private void renewAllLoans(HttpExchange exchange, RequestParameters parameters, Connection connection)
+            throws IOException, DatabaseOperationException, InvalidDataException {
+        int renewed = new BorrowedBookService(connection, loanEventJournal).renewAllLoans(readerOf(parameters));
+        sendObject(exchange, 200, writer -> writer.write("{\"renewed\":" + renewed + "}"));
+    }
+
+    private void writeMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sendObject(exchange, 200, writer -> {
+                writer.write("{\"endpoints\":{");
+                boolean first = true;
+                for (EndpointMetrics endpoint : metrics.values()) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    first = false;
+                    TextEscaping.writeJsonString(writer, endpoint.getName());
+                    writer.write(String.format(Locale.ROOT,
+                            ":{\"requests\":%d,\"errors\":%d,\"mean_ms\":%.3f,\"p50_ms\":%.3f,\"p99_ms\":%.3f,\"max_ms\":%.3f}",
+                            endpoint.getRequests(), endpoint.getErrors(), endpoint.getMeanMillis(),
+                            endpoint.getPercentileMillis(50), endpoint.getPercentileMillis(99), endpoint.getMaxMillis()));
+                }
+                writer.write("},\"book_lookups\":{\"calls\":" + lookupCoalescer.getCalls()
+                        + ",\"coalesced\":" + lookupCoalescer.getCoalescedCalls() + "}");
+                writer.write(",\"query_cache\":{\"hits\":" + queryCache.getHits() + ",\"misses\":" + queryCache.getMisses()
+                        + ",\"entries\":" + queryCache.size() + "}");
+                if (connectionRouter.getPrimary() instanceof ConnectionPool pool) {
+                    writer.write(",\"pool\":" + poolMetrics(pool));
+                }
+                if (connectionRouter.getReplica() instanceof ConnectionPool pool) {
+                    writer.write(",\"replica_pool\":" + poolMetrics(pool));
+                }
+                writer.write(",\"reads\":{\"replica\":" + connectionRouter.getReplicaReads() + ",\"primary\":" + connectionRouter.getPrimaryReads()
+                        + ",\"fallbacks\":" + connectionRouter.getFallbacks() + "}}");
+            });
+        }
+    }
+
+    private static String poolMetrics(ConnectionPool pool) {
+        return "{\"active\":" + pool.getActiveCount() + ",\"idle\":" + pool.getIdleCount() + ",\"max\":" + pool.getMaxSize() + "}";
+    }
+
+    // Registers the endpoint under its exact path, timing every request and turning exceptions into status codes
+    private void route(String method, String path, Target target, Endpoint endpoint) {
+        EndpointMetrics endpointMetrics = new EndpointMetrics(method + " " + path);
+        metrics.put(endpointMetrics.getName(), endpointMetrics);
+
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            try {
+                if (!exchange.getRequestURI().getPath().equals(path)) {
+                    sendError(exchange, 404, "Not found."); // The context also matches longer paths
+                } else if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendError(exchange, 405, "Use " + method + ".");
+                } else {
+                    try (Connection connection = target == Target.REPLICA
+                            ? connectionRouter.getReadConnection()
+                            : connectionRouter.getPrimaryConnection()) {
+                        endpoint.handle(exchange, new RequestParameters(exchange), connection);
+                        if (target == Target.WRITE) {
+                            connectionRouter.recordWrite();
+                        }
+                    }
+                }
+            } catch (InvalidDataException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (DatabaseOperationException e) {
+                // Services signal refused operations (no copies left, no such loan, ...) without an SQL cause
+                if (e.getCause() instanceof SQLException) {
+                    logger.log(Level.SEVERE, "Request " + endpointMetrics.getName() + " failed: " + e.getMessage(), e);
+                    sendError(exchange, 500, e.getMessage());
+                } else {
+                    sendError(exchange, e instanceof NotFoundException ? 404 : 409, e.getMessage());
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "No database connection for " + endpointMetrics.getName() + ": " + e.getMessage(), e);
+                sendError(exchange, 503, "The database is busy, try again.");
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.SEVERE, "Request " + endpointMetrics.getName() + " failed: " + e.getMessage(), e);
+                sendError(exchange, 500, "Internal error.");
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                endpointMetrics.record(elapsed, exchange.getResponseCode());
+                if (slowRequestNanos > 0 && elapsed > slowRequestNanos) {
+                    logger.warning("Slow request: " + endpointMetrics.getName() + " took "
+                            + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+                }
+                exchange.close(); // Only now, the error responses above still need it open
+            }
+        });
+    }
+
+    private static Reader readerOf(RequestParameters parameters) throws InvalidDataException {
+        return new Reader(parameters.require("first_name"), parameters.require("last_name"), parameters.requireDate("date_of_birth"));
+    }
+
+    private static Book bookOf(RequestParameters parameters) throws InvalidDataException {
+        return new Book(parameters.require("title"), parameters.require("author"), parameters.requireInt("year_of_publication"));
+    }
+
+    private static void writeBook(Writer writer, Book book) throws IOException {
+        writer.write("{\"id\":" + book.getId() + ",\"title\":");
+        TextEscaping.writeJsonString(writer, book.getTitle());
+        writer.write(",\"author\":");
+        TextEscaping.writeJsonString(writer, book.getAuthor());
+        writer.write(",\"year_of_publication\":" + book.getYearOfPublication() + ",\"quantity\":" + book.getQuantity());
+        if (book.getLocation() != null) {
+            writer.write(",\"section\":");
+            TextEscaping.writeJsonValue(writer, book.getLocation().getSection());
+            writer.write(",\"shelf\":" + book.getLocation().getShelf());
+        }
+        writer.write('}');
+    }
+
+    private static void writeReader(Writer writer, Reader reader) throws IOException {
+        writer.write("{\"id\":" + reader.getId() + ",\"first_name\":");
+        TextEscaping.writeJsonString(writer, reader.getFirstName());
+        writer.write(",\"last_name\":");
+        TextEscaping.writeJsonString(writer, reader.getLastName());
+        writer.write(",\"date_of_birth\":");
+        TextEscaping.writeJsonValue(writer, reader.getDateOfBirth());
+        writer.write('}');
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter<T> {
+        void write(Writer writer, T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(Writer writer) throws IOException;
+    }
+
+    // Sends the list as a JSON array with chunked encoding, writing each element as it comes
+    private static <T> void streamList(HttpExchange exchange, List<T> elements, JsonWriter<T> elementWriter) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_BYTES)) {
+            writer.write('[');
+            for (int i = 0; i < elements.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                elementWriter.write(writer, elements.get(i));
+            }
+            writer.write(']');
+        }
+    }
+
+    private static void sendObject(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        StringWriter json = new StringWriter();
+        body.write(json);
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return; // Headers already sent, e.g. an error while streaming; the client sees a truncated body
+        }
+        try {
+            sendObject(exchange, status, writer -> {
+                writer.write("{\"error\":");
+                TextEscaping.writeJsonValue(writer, message);
+                writer.write('}');
+            });
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not send the error response: " + e.getMessage(), e);
+        }
+    }
+
+    // Starts the server on the port given as the first argument (default 8080) until the process is stopped
+    public static void main(String[] args) throws IOException, SQLException, DatabaseOperationException {
+        AppConfig config = AppConfig.getDefault();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : config.get(AppConfig.SERVER_PORT);
+        ConnectionRouter connectionRouter = ConnectionRouter.withPools(config.get(AppConfig.POOL_MAX_SIZE));
+        LoanEventJournal loanEventJournal = new LoanEventJournal(DatabaseConnection.getConnection());
+        loanEventJournal.setBatchSize(config.get(AppConfig.JOURNAL_BATCH_SIZE));
+        loanEventJournal.start();
+        LibraryHttpServer server = new LibraryHttpServer(new InetSocketAddress(port), connectionRouter, loanEventJournal);
+        ChangeFeed changeFeed = new ChangeFeed(DatabaseConnection.getConnection());
+        changeFeed.addListener(server.getQueryCache());
+        changeFeed.start();
+
+        AppConfig.addListener(reloaded -> {
+            server.applySettings(reloaded);
+            connectionRouter.setPoolSize(reloaded.get(AppConfig.POOL_MAX_SIZE));
+            loanEventJournal.setBatchSize(reloaded.get(AppConfig.JOURNAL_BATCH_SIZE));
+        });
+        ConfigWatcher configWatcher = config.getFile()
+                .map(file -> new ConfigWatcher(file, AppConfig::reloadDefault))
+                .orElse(null);
+        if (configWatcher != null) {
+            configWatcher.start();
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (configWatcher != null) {
+                configWatcher.close();
+            }
+            server.close();
+            loanEventJournal.close(); // After the server, so the last requests' events are written
+            changeFeed.close();
+            connectionRouter.close();
+        }, "http-server-shutdown"));
+        server.start(); // The server's dispatcher thread keeps the process running
+    }
+}
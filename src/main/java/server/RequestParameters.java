@@ -0,0 +1,80 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import exception.InvalidDataException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Parameters of one request: the query string plus, for POST, a form-encoded body (body values win).
+// Missing or malformed values raise InvalidDataException, which the server answers with 400 Bad Request.
+public class RequestParameters {
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final Map<String, String> values = new HashMap<>();
+
+    RequestParameters(HttpExchange exchange) throws IOException, InvalidDataException {
+        parse(exchange.getRequestURI().getRawQuery());
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    throw new InvalidDataException("Request body is too large.");
+                }
+                parse(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    public String get(String name) {
+        return values.get(name);
+    }
+
+    public String require(String name) throws InvalidDataException {
+        String value = values.get(name);
+        if (value == null || value.isBlank()) {
+            throw new InvalidDataException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    public int requireInt(String name) throws InvalidDataException {
+        try {
+            return Integer.parseInt(require(name).trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException("Parameter " + name + " must be a whole number.");
+        }
+    }
+
+    public LocalDate requireDate(String name) throws InvalidDataException {
+        try {
+            return LocalDate.parse(require(name).trim());
+        } catch (DateTimeParseException e) {
+            throw new InvalidDataException("Parameter " + name + " must be a date (yyyy-MM-dd).");
+        }
+    }
+
+    private void parse(String encoded) throws InvalidDataException {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                values.put(name, value);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidDataException("Malformed parameter: " + pair);
+            }
+        }
+    }
+}
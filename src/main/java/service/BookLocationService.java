@@ -1,24 +1,36 @@
 package service;
 
+import cache.QueryCache;
 import dao.BookLocationDAO;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
 import model.BookLocation;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class BookLocationService {
     private static final Logger logger = Logger.getLogger(BookLocationService.class.getName());
+    private static final DataValidator validator = DataValidator.getDefault();
     private final Connection connection;
     private final BookLocationDAO bookLocationDao;
+    private final QueryCache queryCache;
 
     public BookLocationService(Connection connection){
+        this(connection, null);
+    }
+
+    // Creates the service with a query cache shared with other services: the location listing is answered from it, and
+    // this service's writes invalidate it once committed
+    public BookLocationService(Connection connection, QueryCache queryCache){
         this.connection = connection;
         this.bookLocationDao = new BookLocationDAO(connection);
+        this.queryCache = queryCache;
     }
 
     // Checks if a book location exists in the database based on BookLocation object
@@ -59,6 +71,7 @@ public class BookLocationService {
             if(bookLocationId.isPresent()){
                 logger.info("New book location added with ID: " + bookLocationId.get());
                 connection.commit();
+                invalidateQueries();
             }else{
                 logger.warning("Location already exists: Section " + section + ", Shelf " + shelf);
             }
@@ -81,7 +94,9 @@ public class BookLocationService {
         logger.info("Starting to fetch all book locations from the database.");
 
         try {
-            List<BookLocation> allBookLocations = bookLocationDao.getAllBookLocations();
+            List<BookLocation> allBookLocations = queryCache == null
+                    ? bookLocationDao.getAllBookLocations()
+                    : queryCache.get("locations.all", Set.of(QueryCache.LOCATIONS), () -> Collections.unmodifiableList(bookLocationDao.getAllBookLocations()));
 
             if (allBookLocations.isEmpty()) {
                 logger.info("No book locations found during fetch operation.");
@@ -116,6 +131,7 @@ public class BookLocationService {
             if(result){
                 logger.info("Successfully removed location: Section " + section + ", Shelf " + shelf);
                 connection.commit();
+                invalidateQueries();
             }else{
                 logger.warning("Book location with section: " + section + " and shelf: " + shelf + " does not exist in the database.");
             }
@@ -131,18 +147,20 @@ public class BookLocationService {
         }
     }
 
-    // Validates the reader's data (first name, last name, date of birth)
-    private void validateBookLocationData(String section, int shelf) throws InvalidDataException {
-        if(section == null || section.trim().isEmpty()){
-            logger.severe("Validation failed: Section cannot be empty.");
-            throw new InvalidDataException("Section cannot be empty.");
+    // Drops cached location listings after a committed write, if a query cache is configured
+    private void invalidateQueries(){
+        if(queryCache != null){
+            queryCache.invalidate(QueryCache.LOCATIONS);
         }
+    }
 
-        if(shelf <= 0){
-            logger.severe("Validation failed : Shelf number is less than zero.");
-            throw new InvalidDataException("Shelf number is less than zero.");
+    // Validates the reader's data (first name, last name, date of birth)
+    private void validateBookLocationData(String section, int shelf) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if(!validator.checkBookLocationData(section, shelf, result)){
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
         }
-
     }
 
 }
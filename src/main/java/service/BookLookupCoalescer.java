@@ -0,0 +1,36 @@
+package service;
+
+import cache.SingleFlight;
+import exception.DatabaseOperationException;
+import model.Book;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+// Shared by the BookService instances of many concurrent callers (e.g. the HTTP server's requests), so that identical
+// title searches and detail lookups running at the same time share one database call. Only identical arguments are
+// coalesced. Coalesced callers receive the same Book objects; the lists are unmodifiable.
+public class BookLookupCoalescer {
+    private final SingleFlight<String, List<Book>> byTitle = new SingleFlight<>();
+    private final SingleFlight<String, Optional<Book>> byDetails = new SingleFlight<>();
+
+    List<Book> getBooksByTitle(String title, SingleFlight.Loader<List<Book>> loader) throws DatabaseOperationException {
+        return byTitle.execute(title, () -> Collections.unmodifiableList(loader.load()));
+    }
+
+    Optional<Book> findBookByDetails(String title, String author, int yearOfPublication, SingleFlight.Loader<Optional<Book>> loader) throws DatabaseOperationException {
+        return byDetails.execute(title + '\u0000' + author + '\u0000' + yearOfPublication, loader);
+    }
+
+    public long getCalls() {
+        return byTitle.getCalls() + byDetails.getCalls();
+    }
+
+    public long getCoalescedCalls() {
+        return byTitle.getCoalescedCalls() + byDetails.getCoalescedCalls();
+    }
+
+    public long getExecutions() {
+        return byTitle.getExecutions() + byDetails.getExecutions();
+    }
+}
@@ -1,31 +1,65 @@
 package service;
 
+import cache.ColumnarCatalogue;
+import cache.QueryCache;
 import dao.BookDAO;
 import dao.BorrowedBookDAO;
+import dao.HoldDAO;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
+import journal.LoanEventJournal;
 import model.Book;
 import model.BookLocation;
+import model.ChangeSet;
+import model.LoanEvent;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class BookService {
     private static final Logger logger = Logger.getLogger(BookService.class.getName());
+    private static final DataValidator validator = DataValidator.getDefault();
+    private static final Set<String> BOOK_TABLES = Set.of(QueryCache.BOOKS, QueryCache.LOCATIONS); // Books are listed with their locations
     private final Connection connection;
     private final BookDAO bookDAO;
     private final BorrowedBookDAO borrowedBookDAO;
+    private final HoldDAO holdDAO;
     private final BookLocationService bookLocationService;
+    private final LoanEventJournal loanEventJournal;
+    private final BookLookupCoalescer lookupCoalescer;
+    private final QueryCache queryCache;
 
     public BookService(Connection connection){
+        this(connection, null);
+    }
+
+    // Creates the service with a write-behind journal that receives quantity changes after commit
+    public BookService(Connection connection, LoanEventJournal loanEventJournal){
+        this(connection, loanEventJournal, null);
+    }
+
+    // Creates the service sharing a coalescer with other callers' services; concurrent identical title searches and
+    // detail lookups then run once, on the connection of whichever caller came first
+    public BookService(Connection connection, LoanEventJournal loanEventJournal, BookLookupCoalescer lookupCoalescer){
+        this(connection, loanEventJournal, lookupCoalescer, null);
+    }
+
+    // Creates the service with a query cache shared with other services: the book listings are answered from it, and
+    // this service's writes invalidate it once committed
+    public BookService(Connection connection, LoanEventJournal loanEventJournal, BookLookupCoalescer lookupCoalescer, QueryCache queryCache){
         this.connection = connection;
         this.bookDAO = new BookDAO(connection);
         this.borrowedBookDAO = new BorrowedBookDAO(connection);
-        this.bookLocationService = new BookLocationService(connection);
+        this.holdDAO = new HoldDAO(connection);
+        this.bookLocationService = new BookLocationService(connection, queryCache);
+        this.loanEventJournal = loanEventJournal;
+        this.lookupCoalescer = lookupCoalescer;
+        this.queryCache = queryCache;
     }
 
     // Adds a new book after validation, manages transactions for commit/rollback
@@ -55,6 +89,7 @@ public class BookService {
             if(bookId.isPresent()){
                 logger.info("New book added with ID: " + bookId.get());
                 connection.commit();
+                invalidateQueries();
             }else{
                 logger.warning("Book: " + title + " " + author + " " + yearOfPublication + " already exists.");
                 connection.rollback();
@@ -89,6 +124,8 @@ public class BookService {
                 if(result){
                     logger.info("Successfully increased book quantity for ID: " + existingBook.get().getId());
                     connection.commit();
+                    invalidateQueries();
+                    recordEvent(LoanEvent.quantityChange(existingBook.get().getId(), quantityToAdd));
                     return true;
                 }else{
                     logger.warning("Failed to increase book quantity for ID: " + existingBook.get().getId());
@@ -122,20 +159,20 @@ public class BookService {
             Optional<Book> existingBook = bookDAO.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
 
             if(existingBook.isPresent()){
-                int currentQuantity = existingBook.get().getQuantity();
-                if(currentQuantity < quantityToReduce){
-                    logger.warning("Failed to decrease book quantity for ID: " + existingBook.get().getId() + ". Not enough books available.");
-                    throw new InvalidDataException("Cannot reduce quantity. Not enough books in stock.");
-                }
-                boolean result = bookDAO.decreaseBookQuantity(existingBook.get(), quantityToReduce);
+                // The DAO only decreases if enough copies are left at the moment of the update, so another desk reducing
+                // the stock since the read above cannot drive the quantity negative
+                boolean result = existingBook.get().getQuantity() >= quantityToReduce && bookDAO.decreaseBookQuantity(existingBook.get(), quantityToReduce);
 
                 if(result){
                     logger.info("Successfully decreased book quantity for ID: " + existingBook.get().getId());
                     connection.commit();
+                    invalidateQueries();
+                    recordEvent(LoanEvent.quantityChange(existingBook.get().getId(), -quantityToReduce));
                     return true;
                 }else{
-                    logger.warning("Failed to decrease book quantity for ID: " + existingBook.get().getId());
-                    return false;
+                    logger.warning("Failed to decrease book quantity for ID: " + existingBook.get().getId() + ". Not enough books available.");
+                    connection.rollback();
+                    throw new InvalidDataException("Cannot reduce quantity. Not enough books in stock.");
                 }
 
             }else{
@@ -159,7 +196,9 @@ public class BookService {
         logger.info("Starting to fetch all books from the database.");
 
         try {
-            List<Book> allBooks = bookDAO.getAllBooks();
+            List<Book> allBooks = queryCache == null
+                    ? bookDAO.getAllBooks()
+                    : queryCache.get("books.all", BOOK_TABLES, () -> Collections.unmodifiableList(bookDAO.getAllBooks()));
 
             if (allBooks.isEmpty()) {
                 logger.info("No books found during fetch operation.");
@@ -174,6 +213,44 @@ public class BookService {
         }
     }
 
+    // Loads the whole catalogue into a ColumnarCatalogue. The rows are streamed inside a read transaction,
+    // so PostgreSQL sends them through a cursor instead of materializing the full result first.
+    public ColumnarCatalogue getCatalogue() throws DatabaseOperationException {
+        logger.info("Starting to load the book catalogue.");
+
+        try {
+            connection.setAutoCommit(false);
+            ColumnarCatalogue catalogue = ColumnarCatalogue.load(bookDAO);
+            connection.commit();
+            logger.info("Loaded " + catalogue.size() + " books into the catalogue at version " + catalogue.getVersion());
+            return catalogue;
+
+        } catch (DatabaseOperationException | SQLException e) {
+            logger.log(Level.SEVERE, "Error while loading the catalogue: " + e.getMessage(), e);
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+            }
+            throw new DatabaseOperationException("Failed to load the catalogue", e);
+        }
+    }
+
+    // Fetches books changed since the given version, used to refresh local copies of the catalogue incrementally
+    public ChangeSet<Book> getBookChangesSince(long version) throws DatabaseOperationException {
+        logger.info("Fetching book changes since version: " + version);
+
+        try {
+            ChangeSet<Book> changes = bookDAO.changesSince(version);
+            logger.info("Fetched " + changes.getChangedRows().size() + " changed and " + changes.getDeletedIds().size() + " removed books up to version " + changes.getVersion());
+            return changes;
+
+        } catch (DatabaseOperationException e) {
+            logger.log(Level.SEVERE, "Error while fetching book changes: " + e.getMessage(), e);
+            throw new DatabaseOperationException("Failed to fetch book changes", e);
+        }
+    }
+
     // Fetches books by title from the database
     public List<Book> getBooksByTitle(String title) throws DatabaseOperationException, InvalidDataException {
         logger.info("Fetching books by title: " + title + " from the database.");
@@ -184,7 +261,9 @@ public class BookService {
             throw new InvalidDataException("Title cannot be empty.");
         }
         try{
-            List<Book> allBooks = bookDAO.getBooksByTitle(title);
+            List<Book> allBooks = lookupCoalescer == null
+                    ? bookDAO.getBooksByTitle(title)
+                    : lookupCoalescer.getBooksByTitle(title, () -> bookDAO.getBooksByTitle(title));
 
             if(allBooks.isEmpty()){
                 logger.info("No books found with title: " + title);
@@ -209,7 +288,9 @@ public class BookService {
             throw new InvalidDataException("Author cannot be empty.");
         }
         try{
-            List<Book> allBooks = bookDAO.getBooksByAuthor(author);
+            List<Book> allBooks = queryCache == null
+                    ? bookDAO.getBooksByAuthor(author)
+                    : queryCache.get("books.by_author", BOOK_TABLES, () -> Collections.unmodifiableList(bookDAO.getBooksByAuthor(author)), author);
 
             if(allBooks.isEmpty()){
                 logger.info("No books found by author: " + author);
@@ -232,7 +313,9 @@ public class BookService {
         validateBasicBookData(title, author, yearOfPublication);
 
         try{
-            Optional<Book> book = bookDAO.findBookByDetails(title, author, yearOfPublication);
+            Optional<Book> book = lookupCoalescer == null
+                    ? bookDAO.findBookByDetails(title, author, yearOfPublication)
+                    : lookupCoalescer.findBookByDetails(title, author, yearOfPublication, () -> bookDAO.findBookByDetails(title, author, yearOfPublication));
 
             if(book.isEmpty()){
                 logger.info("No book found with title: " + title + ", author: " + author + ", year: " + yearOfPublication);
@@ -270,12 +353,19 @@ public class BookService {
                 throw new DatabaseOperationException("Cannot remove book because it is currently borrowed.");
             }
 
+            // Check if readers are waiting for the book
+            if (holdDAO.hasHoldsForBook(book.getId())) {
+                logger.warning("Book with title: " + title + " has holds and cannot be removed.");
+                throw new DatabaseOperationException("Cannot remove book because readers are waiting for it.");
+            }
+
             // Proceed with removing the book if not borrowed
             boolean result = bookDAO.removeBookByDetails(title, author, yearOfPublication);
 
             if(result){
                 logger.info("Successfully removed book with title: " + title + ", author: " + author + " and year of publication: " + yearOfPublication);
                 connection.commit();
+                invalidateQueries();
             }else{
                 logger.warning("Book with title: " + title + ", author: " + author + " and year of publication: " + yearOfPublication + " does not exist in the database.");
             }
@@ -291,39 +381,35 @@ public class BookService {
         }
     }
 
+    // Drops cached book listings after a committed write, if a query cache is configured
+    private void invalidateQueries(){
+        if(queryCache != null){
+            queryCache.invalidate(QueryCache.BOOKS);
+        }
+    }
 
-    // Validates the book's data (title, author, year of publication, quantity, shelf location ID)
-    private void validateAllBookData(String title, String author, int yearOfPublication, int quantity, int shelfLocationId) throws InvalidDataException {
-        validateBasicBookData(title, author, yearOfPublication);
-
-        if(quantity < 0){
-            logger.severe("Validation failed : quantity is less than zero.");
-            throw new InvalidDataException("Invalid quantity.");
+    // Hands a committed event to the write-behind journal, if one is configured
+    private void recordEvent(LoanEvent event){
+        if(loanEventJournal != null){
+            loanEventJournal.record(event);
         }
+    }
 
-        if(shelfLocationId < 0){
-            logger.severe("Validation failed : shelf location id is less than zero.");
-            throw new InvalidDataException("Invalid shelf location id.");
+    // Validates the book's data (title, author, year of publication, quantity, shelf location ID)
+    private void validateAllBookData(String title, String author, int yearOfPublication, int quantity, int shelfLocationId) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkAllBookData(title, author, yearOfPublication, quantity, shelfLocationId, result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
         }
     }
 
     // Validates the book's data (title, author, year of publication)
     void validateBasicBookData(String title, String author, int yearOfPublication) throws InvalidDataException {
-        if (title == null || title.trim().isEmpty()) {
-            logger.severe("Validation failed: title cannot be empty.");
-            throw new InvalidDataException("Title cannot be empty.");
-        }
-
-        if (author == null || author.trim().isEmpty()) {
-            logger.severe("Validation failed: author cannot be empty.");
-            throw new InvalidDataException("Author cannot be empty.");
-        }
-
-        int currentYear = LocalDate.now().getYear();
-
-        if (yearOfPublication > currentYear || yearOfPublication < 0) {
-            logger.severe("Validation failed: year of publication is invalid.");
-            throw new InvalidDataException("Invalid year of publication.");
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkBasicBookData(title, author, yearOfPublication, result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
         }
     }
 }
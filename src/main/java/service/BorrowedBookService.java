@@ -1,35 +1,90 @@
 package service;
 
+import cache.QueryCache;
+import config.FinePolicy;
 import dao.BookDAO;
 import dao.BorrowedBookDAO;
+import dao.FineDAO;
+import dao.HoldDAO;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import dao.ReaderDAO;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
+import exception.NotFoundException;
+import journal.LoanEventJournal;
 import model.Book;
+import model.BorrowedBook;
+import model.Hold;
+import model.LoanEvent;
+import model.LoanRequest;
+import model.LoanResult;
 import model.Reader;
+import model.ReaderSummary;
+import util.collections.IntArrayList;
+import util.collections.IntBitSet;
+import util.collections.IntIntHashMap;
 
 public class BorrowedBookService {
 
     private static final Logger logger = Logger.getLogger(BorrowedBookService.class.getName());
+    private static final DataValidator validator = DataValidator.getDefault();
+    // Bounds for the optimistic quantity update: attempts before giving up, and the backoff before the first retry, doubled per retry
+    static final int MAX_QUANTITY_UPDATE_ATTEMPTS = 6;
+    private static final long BASE_BACKOFF_MILLIS = 2;
     private final Connection connection;
     private final BorrowedBookDAO borrowedBookDAO;
     private final BookDAO bookDAO;
     private final ReaderDAO readerDAO;
+    private final HoldDAO holdDAO;
+    private final FineDAO fineDAO;
+    private final LoanEventJournal loanEventJournal;
+    private final HoldListener holdListener;
+    private final QueryCache queryCache;
+    // Reader summaries fetched during this desk session, by reader key; dropped when the reader borrows or returns here
+    private final Map<String, ReaderSummary> readerSummaries = new ConcurrentHashMap<>();
 
 
     public BorrowedBookService(Connection connection){
+        this(connection, null);
+    }
+
+    // Creates the service with a write-behind journal that receives borrow, return and reader events after commit
+    public BorrowedBookService(Connection connection, LoanEventJournal loanEventJournal){
+        this(connection, loanEventJournal, null);
+    }
+
+    // Creates the service with a journal and a listener told when a returned copy is set aside for a hold
+    public BorrowedBookService(Connection connection, LoanEventJournal loanEventJournal, HoldListener holdListener){
+        this(connection, loanEventJournal, holdListener, null);
+    }
+
+    // Creates the service with a query cache shared with other services, whose book listings are invalidated once a loan
+    // operation that moved copies commits
+    public BorrowedBookService(Connection connection, LoanEventJournal loanEventJournal, HoldListener holdListener, QueryCache queryCache){
         this.connection = connection;
         this.borrowedBookDAO = new BorrowedBookDAO(connection);
         this.bookDAO = new BookDAO(connection);
         this.readerDAO = new ReaderDAO(connection);
+        this.holdDAO = new HoldDAO(connection);
+        this.fineDAO = new FineDAO(connection);
+        this.loanEventJournal = loanEventJournal;
+        this.holdListener = holdListener;
+        this.queryCache = queryCache;
     }
 
     //Adds a new borrow to the database
@@ -49,43 +104,158 @@ public class BorrowedBookService {
         // Validate book's data before proceeding
         validateBasicBookData(title, author, yearOfPublication);
 
-        try{
-            connection.setAutoCommit(false);
+        for (int attempt = 1; ; attempt++) {
+            try{
+                connection.setAutoCommit(false);
+                List<LoanEvent> pendingEvents = new ArrayList<>(2); // Journaled only once the transaction commits
+
+                // Fetch the book
+                Book existingBook = findBook(book);
+
+                // Check if the reader exists or add a new one
+                Reader updatedReader = checkAndAddReaderIfNecessary(reader, pendingEvents);
+
+                // A copy set aside for the reader's hold is theirs; otherwise a copy must be on the shelf
+                Optional<Hold> readyHold = holdDAO.findHold(updatedReader.getId(), existingBook.getId()).filter(Hold::isReady);
+                if (readyHold.isEmpty()) {
+                    checkBookAvailability(existingBook);
+                }
+
+                // Check if the reader has any overdue loans
+                if (borrowedBookDAO.hasOverdueLoans(updatedReader)) {
+                    logger.warning("Reader has overdue loans and cannot borrow a new book.");
+                    throw new InvalidDataException("Reader has overdue loans and cannot borrow a new book.");
+                }
+
+                // Take one of the reader's loan slots; the conditional update on the counter is the whole quota check
+                if (!readerDAO.reserveLoans(singleLoan(updatedReader.getId()), BorrowedBook.MAX_ACTIVE_LOANS)) {
+                    logger.warning("Reader has reached the limit of active loans.");
+                    throw new InvalidDataException("Reader has reached the limit of " + BorrowedBook.MAX_ACTIVE_LOANS + " active loans.");
+                }
+
+                // Try to add the borrowed book
+                Optional<Integer> borrowId = borrowedBookDAO.addBorrowedBook(updatedReader, existingBook);
+                if (borrowId.isEmpty()) {
+                    logger.warning("Failed to borrow the book. The reader may have already borrowed this book.");
+                    connection.rollback(); // Rollback if the book was already borrowed
+                    return Optional.empty();
+                }
+
+                // The hold is fulfilled, the copy was already off the shelf; otherwise decrease the quantity of available books
+                // by 1, last so the row lock is held only until the commit below
+                boolean taken = readyHold.isPresent()
+                        ? holdDAO.removeHold(readyHold.get().getId())
+                        : bookDAO.compareAndSetQuantity(existingBook, existingBook.getQuantity() - 1);
+                if (taken) {
+                    connection.commit(); // Commit the transaction
+                    logger.info("Book borrowed successfully with borrow ID: " + borrowId.get());
+                    readerSummaries.remove(readerKey(reader));
+                    pendingEvents.add(LoanEvent.borrow(updatedReader.getId(), existingBook.getId()));
+                    invalidateQueries(pendingEvents);
+                    recordEvents(pendingEvents);
+                    return borrowId;
+                }
+                // The book or the hold changed since it was read: start over, so no row locks are held while backing off
+                connection.rollback();
 
-            // Check if the book is available and fetch it
-            Book existingBook = checkBookAvailability(book);
+            } catch (InvalidDataException | DatabaseOperationException e) {
+                rollbackQuietly();
+                throw e;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Error occurred during borrowing process: " + e.getMessage(), e);
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+                }
+                throw new DatabaseOperationException("Failed to borrow the book.", e);
+            }
 
-            // Check if the reader exists or add a new one
-            Reader updatedReader = checkAndAddReaderIfNecessary(reader);
+            retryAfterConflict(book, attempt);
+        }
+    }
 
-            // Check if the reader has any overdue loans
-            if (borrowedBookDAO.hasOverdueLoans(updatedReader)) {
-                logger.warning("Reader has overdue loans and cannot borrow a new book.");
-                throw new InvalidDataException("Reader has overdue loans and cannot borrow a new book.");
+    // Borrows several books in one transaction, e.g. for a batch of loans entered at the desk.
+    // Readers, books, overdue readers and existing loans are resolved with one query each, the loans are inserted and the
+    // quantities adjusted in batches, and everything is committed once. Readers that do not exist yet are registered, as in
+    // addBorrowedBook. An item that cannot be borrowed gets a failure status and does not affect the others.
+    // Returns one result per request, in request order.
+    public List<LoanResult> borrowMany(List<LoanRequest> requests) throws DatabaseOperationException {
+        logger.info("Starting bulk borrow of " + requests.size() + " books.");
+        LoanResult[] results = new LoanResult[requests.size()];
+        IntArrayList validIndexes = validateLoanRequests(requests, results);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connection.setAutoCommit(false);
+                List<LoanEvent> pendingEvents = new ArrayList<>(); // Journaled only once the transaction commits
+
+                if (tryBorrowMany(requests, validIndexes, results, pendingEvents)) {
+                    connection.commit();
+                    invalidateReaderSummaries(results);
+                    invalidateQueries(pendingEvents);
+                    recordEvents(pendingEvents);
+                    logger.info("Bulk borrow finished: " + countSuccessful(results) + " of " + requests.size() + " books borrowed.");
+                    return List.of(results);
+                }
+                connection.rollback(); // Copies ran out at another desk between our read and write, try again
+
+            } catch (DatabaseOperationException | RuntimeException e) {
+                rollbackQuietly(); // Also on bugs, so the shared connection is not left inside the transaction
+                throw e;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Error occurred during bulk borrowing: " + e.getMessage(), e);
+                rollbackQuietly();
+                throw new DatabaseOperationException("Failed to borrow the books.", e);
             }
 
-            // Try to add the borrowed book
-            Optional<Integer> borrowId = borrowedBookDAO.addBorrowedBook(updatedReader, existingBook);
-            if (borrowId.isPresent()) {
-                // Decrease the quantity of available books by 1
-                bookDAO.decreaseBookQuantity(existingBook, 1);
-                connection.commit(); // Commit the transaction
-                logger.info("Book borrowed successfully with borrow ID: " + borrowId.get());
-                return borrowId;
-            } else {
-                logger.warning("Failed to borrow the book. The reader may have already borrowed this book.");
-                connection.rollback(); // Rollback if the book was already borrowed
-                return Optional.empty();
+            if (attempt == MAX_QUANTITY_UPDATE_ATTEMPTS) {
+                logger.warning("Giving up on bulk borrow after " + attempt + " conflicting attempts.");
+                throw new DatabaseOperationException("The books are being updated by other users, please try again.");
             }
+            backOff(attempt);
+        }
+    }
 
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error occurred during borrowing process: " + e.getMessage(), e);
+    // Returns several borrowed books in one transaction, e.g. the contents of a self-service drop box.
+    // Works like borrowMany: set-based lookups, one batched delete and quantity update, and a single commit.
+    // Returns one result per request, in request order.
+    public List<LoanResult> returnMany(List<LoanRequest> requests) throws DatabaseOperationException {
+        logger.info("Starting bulk return of " + requests.size() + " books.");
+        LoanResult[] results = new LoanResult[requests.size()];
+        IntArrayList validIndexes = validateLoanRequests(requests, results);
+
+        for (int attempt = 1; ; attempt++) {
             try {
-                connection.rollback();
-            } catch (SQLException ex) {
-                logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+                connection.setAutoCommit(false);
+                List<LoanEvent> pendingEvents = new ArrayList<>();
+                List<Hold> readyHolds = new ArrayList<>(); // Announced only once the transaction commits
+
+                if (tryReturnMany(requests, validIndexes, results, pendingEvents, readyHolds)) {
+                    connection.commit();
+                    invalidateReaderSummaries(results);
+                    invalidateQueries(pendingEvents);
+                    recordEvents(pendingEvents);
+                    notifyHoldsReady(readyHolds);
+                    logger.info("Bulk return finished: " + countSuccessful(results) + " of " + requests.size() + " books returned.");
+                    return List.of(results);
+                }
+                connection.rollback(); // Another desk returned one of the loans in the meantime, try again
+
+            } catch (DatabaseOperationException | RuntimeException e) {
+                rollbackQuietly(); // Also on bugs, so the shared connection is not left inside the transaction
+                throw e;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Error occurred during bulk return: " + e.getMessage(), e);
+                rollbackQuietly();
+                throw new DatabaseOperationException("Failed to return the books.", e);
             }
-            throw new DatabaseOperationException("Failed to borrow the book.", e);
+
+            if (attempt == MAX_QUANTITY_UPDATE_ATTEMPTS) {
+                logger.warning("Giving up on bulk return after " + attempt + " conflicting attempts.");
+                throw new DatabaseOperationException("The books are being updated by other users, please try again.");
+            }
+            backOff(attempt);
         }
     }
 
@@ -113,6 +283,34 @@ public class BorrowedBookService {
 
     }
 
+    // Fetches a reader's loans, overdue count, next due date and total borrows with a single query.
+    // The result is kept for the rest of the desk session and refetched after the reader borrows or returns a book
+    // through this service, or on the next day, when loans may have become overdue.
+    public Optional<ReaderSummary> getReaderSummary(Reader reader) throws DatabaseOperationException, InvalidDataException {
+        validateReaderData(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth());
+
+        String key = readerKey(reader);
+        ReaderSummary cached = readerSummaries.get(key);
+        if (cached != null && cached.getComputedOn().equals(LocalDate.now())) {
+            return Optional.of(cached);
+        }
+
+        try {
+            Optional<ReaderSummary> summary = borrowedBookDAO.getReaderSummary(reader);
+            if (summary.isPresent()) {
+                readerSummaries.put(key, summary.get());
+                logger.info("Fetched summary for reader " + reader.getFirstName() + " " + reader.getLastName() + ": " + summary.get());
+            } else {
+                logger.info("Reader " + reader.getFirstName() + " " + reader.getLastName() + " does not exist in the database.");
+            }
+            return summary;
+
+        } catch (DatabaseOperationException e) {
+            logger.log(Level.SEVERE, "Error while fetching reader summary: " + e.getMessage(), e);
+            throw new DatabaseOperationException("Failed to fetch reader summary", e);
+        }
+    }
+
     // Fetches all readers who are overdue
     public List<String> getOverdueReaders() throws DatabaseOperationException {
         logger.info("Fetching list of overdue readers.");
@@ -163,58 +361,203 @@ public class BorrowedBookService {
         // Validate book's data before proceeding
         validateBasicBookData(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
 
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connection.setAutoCommit(false);
+
+                // Check if the reader exists
+                Optional<Integer> existingReader = readerDAO.doesReaderExist(reader);
+                if (existingReader.isEmpty()) {
+                    logger.warning("Reader " + reader.getFirstName() + " " + reader.getLastName() + " does not exist in the database.");
+                    throw new NotFoundException("Reader does not exist in the database.");
+                }
+
+                // Check if the book exists in the database
+                Optional<Book> foundBook = bookDAO.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
+                if (foundBook.isEmpty()) {
+                    logger.warning("Book does not exist in the database.");
+                    throw new NotFoundException("Book does not exist in the database.");
+                }
+
+                // Check if the reader has borrowed this book, by the IDs resolved above
+                Optional<Integer> borrowedBook = borrowedBookDAO.findBorrowedBookIdByReaderAndBook(existingReader.get(), foundBook.get().getId());
+                if (borrowedBook.isEmpty()) {
+                    logger.warning("No loan found in the database.");
+                    throw new DatabaseOperationException("No loan found in the database.");
+                }
+
+                // Charge what the fine accrued since the last accrual run, then remove the borrowed book
+                fineDAO.settleFines(IntArrayList.of(borrowedBook.get()), LocalDate.now(), FinePolicy.getDefault());
+                boolean result = borrowedBookDAO.removeBorrowedBookById(borrowedBook.get());
+                if (result) {
+                    readerDAO.releaseLoans(singleLoan(existingReader.get())); // Before the book row, the lock order of the borrow path
+                    // The copy goes to the oldest waiting hold if there is one, otherwise back on the shelf; the book's row is
+                    // locked first, so a hold placed at the same moment is either seen here or sees the copy on the shelf
+                    bookDAO.lockBook(foundBook.get().getId());
+                    List<Hold> readyHolds = holdDAO.assignNextHolds(foundBook.get().getId(), 1);
+                    if (!readyHolds.isEmpty() || bookDAO.compareAndSetQuantity(foundBook.get(), foundBook.get().getQuantity() + 1)) {
+                        connection.commit();
+                        logger.info("Successfully returned book " + book.getTitle() + " by " + book.getAuthor());
+                        readerSummaries.remove(readerKey(reader));
+                        List<LoanEvent> events = List.of(LoanEvent.returned(existingReader.get(), foundBook.get().getId()));
+                        invalidateQueries(events);
+                        recordEvents(events);
+                        notifyHoldsReady(readyHolds);
+                        return true; // Return true when the book is successfully returned
+                    }
+                    // The book changed since it was read: start over, so no row locks are held while backing off
+                    connection.rollback();
+                } else {
+                    logger.warning("Return operation failed.");
+                    connection.rollback();
+                    return false; // Return false if the operation failed
+                }
+
+            } catch (DatabaseOperationException e) {
+                rollbackQuietly();
+                throw e;
+            } catch (SQLException e) {
+                logger.warning("Return operation failed due to: " + e.getMessage());
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+                    throw new DatabaseOperationException("Rollback failed during return operation.", ex); // Rethrow exception on rollback failure
+                }
+                throw new DatabaseOperationException("Failed to return the book.", e);
+            }
+
+            retryAfterConflict(book, attempt);
+        }
+    }
+
+
+    // Renews the reader's loan of the book for another borrow period from today and returns the new due date.
+    // The eligibility checks run inside the renewing UPDATE; only a refused renewal costs the queries that explain it.
+    public LocalDate renewBorrowedBook(Reader reader, Book book) throws DatabaseOperationException, InvalidDataException {
+        logger.info("Renewing book: " + book.getTitle() + " for reader: " + reader.getFirstName() + " " + reader.getLastName());
+
+        validateReaderData(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth());
+        validateBasicBookData(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
+        LocalDate newDueDate = LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS);
+
         try {
             connection.setAutoCommit(false);
 
-            // Check if the reader exists
             Optional<Integer> existingReader = readerDAO.doesReaderExist(reader);
             if (existingReader.isEmpty()) {
                 logger.warning("Reader " + reader.getFirstName() + " " + reader.getLastName() + " does not exist in the database.");
-                throw new DatabaseOperationException("Reader does not exist in the database.");
+                throw new NotFoundException("Reader does not exist in the database.");
             }
 
-            // Check if the book exists in the database
             Optional<Book> foundBook = bookDAO.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
             if (foundBook.isEmpty()) {
                 logger.warning("Book does not exist in the database.");
-                throw new DatabaseOperationException("Book does not exist in the database.");
+                throw new NotFoundException("Book does not exist in the database.");
             }
 
-            // Check if the reader has borrowed this book
-            Optional<Integer> borrowedBook = borrowedBookDAO.findBorrowedBookIdByReaderAndBook(reader, foundBook.get());
+            Optional<Integer> borrowedBook = borrowedBookDAO.findBorrowedBookIdByReaderAndBook(existingReader.get(), foundBook.get().getId());
             if (borrowedBook.isEmpty()) {
                 logger.warning("No loan found in the database.");
                 throw new DatabaseOperationException("No loan found in the database.");
             }
 
-            // Remove the borrowed book
-            boolean result = borrowedBookDAO.removeBorrowedBook(reader, foundBook.get());
-            if (result) {
-                logger.info("Successfully returned book " + book.getTitle() + " by " + book.getAuthor());
-                bookDAO.increaseBookQuantity(foundBook.get(), 1);
-                connection.commit();
-                return true; // Return true when the book is successfully returned
-            } else {
-                logger.warning("Return operation failed.");
-                connection.rollback();
-                return false; // Return false if the operation failed
+            if (!borrowedBookDAO.renewLoan(borrowedBook.get(), newDueDate, BorrowedBook.MAX_RENEWALS)) {
+                String reason;
+                if (borrowedBookDAO.hasOverdueLoans(existingReader.get())) {
+                    reason = "Reader has overdue loans and cannot renew a book.";
+                } else if (holdDAO.hasWaitingHolds(foundBook.get().getId())) {
+                    reason = "Other readers are waiting for this book, it cannot be renewed.";
+                } else {
+                    reason = "The loan has already been renewed " + BorrowedBook.MAX_RENEWALS + " times or is not due before " + newDueDate + ".";
+                }
+                logger.warning(reason);
+                throw new InvalidDataException(reason);
             }
 
+            connection.commit();
+            readerSummaries.remove(readerKey(reader));
+            logger.info("Loan " + borrowedBook.get() + " renewed until " + newDueDate);
+            return newDueDate;
+
+        } catch (InvalidDataException | DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
         } catch (SQLException e) {
-            logger.warning("Return operation failed due to: " + e.getMessage());
-            try {
+            logger.log(Level.SEVERE, "Error occurred during renewal: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to renew the book.", e);
+        }
+    }
+
+    // Renews every eligible loan of the reader with one statement, e.g. at a kiosk; ineligible loans are skipped.
+    // Returns the number of loans renewed, 0 if the reader does not exist.
+    public int renewAllLoans(Reader reader) throws DatabaseOperationException, InvalidDataException {
+        logger.info("Renewing all loans of reader: " + reader.getFirstName() + " " + reader.getLastName());
+
+        validateReaderData(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth());
+        LocalDate newDueDate = LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS);
+
+        try {
+            connection.setAutoCommit(false);
+
+            Optional<Integer> existingReader = readerDAO.doesReaderExist(reader);
+            if (existingReader.isEmpty()) {
+                logger.info("Reader " + reader.getFirstName() + " " + reader.getLastName() + " does not exist in the database.");
                 connection.rollback();
-            } catch (SQLException ex) {
-                logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
-                throw new DatabaseOperationException("Rollback failed during return operation.", ex); // Rethrow exception on rollback failure
+                return 0;
+            }
+
+            int renewed = borrowedBookDAO.renewLoansByReader(existingReader.get(), newDueDate, BorrowedBook.MAX_RENEWALS);
+            connection.commit();
+            if (renewed > 0) {
+                readerSummaries.remove(readerKey(reader));
             }
-            throw new DatabaseOperationException("Failed to return the book.", e);
+            logger.info("Renewed " + renewed + " loans until " + newDueDate);
+            return renewed;
+
+        } catch (DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error occurred during bulk renewal: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to renew the loans.", e);
         }
     }
 
+    // Moves every loan due while the library is closed (both days inclusive) to the day it reopens, with one statement.
+    // Returns the number of loans moved.
+    public int extendLoansDueDuring(LocalDate firstClosedDay, LocalDate lastClosedDay) throws DatabaseOperationException, InvalidDataException {
+        if (firstClosedDay == null || lastClosedDay == null || lastClosedDay.isBefore(firstClosedDay)) {
+            logger.severe("Validation failed: invalid closure period.");
+            throw new InvalidDataException("The closure must end on or after the day it starts.");
+        }
+        LocalDate reopeningDay = lastClosedDay.plusDays(1);
+        logger.info("Extending loans due from " + firstClosedDay + " to " + lastClosedDay + " until " + reopeningDay);
 
-    // Method to check if a book is available
-    private Book checkBookAvailability(Book book) throws DatabaseOperationException, InvalidDataException {
+        try {
+            connection.setAutoCommit(false);
+            int extended = borrowedBookDAO.extendLoansDueBetween(firstClosedDay, lastClosedDay, reopeningDay);
+            connection.commit();
+            if (extended > 0) {
+                readerSummaries.clear();
+            }
+            logger.info("Extended " + extended + " loans.");
+            return extended;
+
+        } catch (DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error occurred while extending loans: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to extend the loans.", e);
+        }
+    }
+
+    // Method to fetch the book to be borrowed
+    private Book findBook(Book book) throws DatabaseOperationException, InvalidDataException {
         String title = book.getTitle();
         String author = book.getAuthor();
         int yearOfPublication = book.getYearOfPublication();
@@ -224,23 +567,25 @@ public class BorrowedBookService {
             logger.warning("Book does not exist in the database.");
             throw new InvalidDataException("Book does not exist in the database.");
         }
+        return foundBook.get();
+    }
 
-        Book existingBook = foundBook.get();
+    // Method to check if a copy of the book is on the shelf; if not, the reader can place a hold through HoldService
+    private void checkBookAvailability(Book existingBook) throws InvalidDataException {
         if (existingBook.getQuantity() <= 0) {
             logger.warning("Not enough copies of the book are available.");
             throw new InvalidDataException("Not enough copies of the book are available.");
         }
-
-        return existingBook;
     }
 
     // Method to check if the reader exists or add a new reader if necessary
-    private Reader checkAndAddReaderIfNecessary(Reader reader) throws DatabaseOperationException{
+    private Reader checkAndAddReaderIfNecessary(Reader reader, List<LoanEvent> pendingEvents) throws DatabaseOperationException{
         Optional<Integer> existingReaderId = readerDAO.doesReaderExist(reader);
 
         if (existingReaderId.isEmpty()) {
             logger.info("Reader does not exist. Adding new reader.");
             Optional<Integer> readerID = readerDAO.addReader(reader);
+            pendingEvents.add(LoanEvent.readerAdded(readerID.get()));
             return new Reader(readerID.get(), reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth()); // Return reader with ID
         } else {
             logger.info("Reader exists with ID: " + existingReaderId.get());
@@ -248,41 +593,377 @@ public class BorrowedBookService {
         }
     }
 
-    // Validates the book's data (title, author, year of publication)
-    void validateBasicBookData(String title, String author, int yearOfPublication) throws InvalidDataException {
-        if (title == null || title.trim().isEmpty()) {
-            logger.severe("Validation failed: title cannot be empty.");
-            throw new InvalidDataException("Title cannot be empty.");
+    // Validates every request, recording INVALID_DATA for the bad ones, and returns the indexes of the valid ones.
+    // Uses the validator's result mode, so a batch full of bad requests costs no exceptions or log lines.
+    private IntArrayList validateLoanRequests(List<LoanRequest> requests, LoanResult[] results) {
+        IntArrayList validIndexes = new IntArrayList(requests.size());
+        ValidationResult result = new ValidationResult();
+
+        for (int i = 0; i < requests.size(); i++) {
+            LoanRequest request = requests.get(i);
+            Reader reader = request.getReader();
+            Book book = request.getBook();
+            result.clear();
+            validator.checkReaderData(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth(), result);
+            validator.checkBasicBookData(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), result);
+
+            if (result.isValid()) {
+                validIndexes.add(i);
+            } else {
+                results[i] = LoanResult.failed(request, LoanResult.Status.INVALID_DATA);
+            }
+        }
+        if (validIndexes.size() < requests.size()) {
+            logger.warning((requests.size() - validIndexes.size()) + " of " + requests.size() + " loan requests have invalid data.");
+        }
+        return validIndexes;
+    }
+
+    // One attempt of borrowMany inside the open transaction; returns false if a quantity update or loan slot reservation was refused
+    // and the attempt must be retried
+    private boolean tryBorrowMany(List<LoanRequest> requests, IntArrayList indexes, LoanResult[] results, List<LoanEvent> pendingEvents) throws DatabaseOperationException {
+        Map<String, Book> booksByKey = findBooks(requests, indexes);
+        Map<String, Integer> readerIdsByKey = findReaderIds(requests, indexes);
+
+        // Register the missing readers of the items that can still succeed, in one batch
+        Map<String, Reader> missingReaders = new HashMap<>();
+        for (int n = 0; n < indexes.size(); n++) {
+            int i = indexes.get(n);
+            Reader reader = requests.get(i).getReader();
+            Book book = booksByKey.get(bookKey(requests.get(i).getBook()));
+            if (book != null && book.getQuantity() > 0 && !readerIdsByKey.containsKey(readerKey(reader))) {
+                missingReaders.putIfAbsent(readerKey(reader), reader);
+            }
+        }
+        if (!missingReaders.isEmpty()) {
+            int added = readerDAO.addReaders(new ArrayList<>(missingReaders.values()));
+            for (Reader reader : readerDAO.findReadersByDetails(new ArrayList<>(missingReaders.values()))) {
+                readerIdsByKey.put(readerKey(reader), reader.getId());
+                if (added == missingReaders.size()) {
+                    // Otherwise some were registered by another desk in the meantime, and which ones cannot be told apart
+                    pendingEvents.add(LoanEvent.readerAdded(reader.getId()));
+                }
+            }
+            if (!readerIdsByKey.keySet().containsAll(missingReaders.keySet())) {
+                throw new DatabaseOperationException("Failed to register reader.");
+            }
+        }
+
+        IntBitSet readerIds = toIdSet(readerIdsByKey.values());
+        IntBitSet overdueReaderIds = borrowedBookDAO.findReaderIdsWithOverdueLoans(readerIds);
+        IntIntHashMap activeLoans = readerDAO.getActiveLoanCounts(readerIds);
+        Set<Long> borrowedPairs = new HashSet<>(findBorrowedPairs(readerIds, booksByKey.values()).keySet());
+        Map<Long, Integer> readyHoldIdsByPair = findReadyHolds(readerIds, booksByKey.values());
+        IntIntHashMap remainingCopies = new IntIntHashMap(booksByKey.size());
+        for (Book book : booksByKey.values()) {
+            remainingCopies.put(book.getId(), book.getQuantity());
         }
 
-        if (author == null || author.trim().isEmpty()) {
-            logger.severe("Validation failed: author cannot be empty.");
-            throw new InvalidDataException("Author cannot be empty.");
+        IntArrayList acceptedIndexes = new IntArrayList();
+        List<BorrowedBook> newLoans = new ArrayList<>();
+        IntIntHashMap quantityDeltas = new IntIntHashMap(booksByKey.size());
+        IntIntHashMap loansByReaderId = new IntIntHashMap(readerIds.size());
+        IntArrayList fulfilledHoldIds = new IntArrayList();
+        LocalDate today = LocalDate.now();
+
+        for (int n = 0; n < indexes.size(); n++) {
+            int i = indexes.get(n);
+            LoanRequest request = requests.get(i);
+            Book book = booksByKey.get(bookKey(request.getBook()));
+            Integer readerId = readerIdsByKey.get(readerKey(request.getReader()));
+
+            Integer readyHoldId = book == null || readerId == null ? null : readyHoldIdsByPair.get(loanPair(readerId, book.getId()));
+
+            if (book == null) {
+                results[i] = LoanResult.failed(request, LoanResult.Status.BOOK_NOT_FOUND);
+            } else if (readerId == null || readyHoldId == null && remainingCopies.get(book.getId()) <= 0) {
+                // Readers are only registered above for books with copies on the shelf, and an unregistered reader has no hold
+                results[i] = LoanResult.failed(request, LoanResult.Status.NO_COPIES_AVAILABLE);
+            } else if (overdueReaderIds.contains(readerId)) {
+                results[i] = LoanResult.failed(request, LoanResult.Status.OVERDUE_LOANS);
+            } else if (activeLoans.get(readerId) >= BorrowedBook.MAX_ACTIVE_LOANS) {
+                results[i] = LoanResult.failed(request, LoanResult.Status.LOAN_LIMIT_REACHED);
+            } else if (!borrowedPairs.add(loanPair(readerId, book.getId()))) {
+                results[i] = LoanResult.failed(request, LoanResult.Status.ALREADY_BORROWED);
+            } else {
+                if (readyHoldId != null) {
+                    fulfilledHoldIds.add(readyHoldId); // The copy set aside for the reader, not one from the shelf
+                } else {
+                    remainingCopies.addTo(book.getId(), -1);
+                    quantityDeltas.addTo(book.getId(), -1);
+                }
+                activeLoans.addTo(readerId, 1);
+                loansByReaderId.addTo(readerId, 1);
+                newLoans.add(new BorrowedBook(readerId, book.getId(), today));
+                acceptedIndexes.add(i);
+            }
         }
 
-        int currentYear = LocalDate.now().getYear();
+        if (newLoans.isEmpty()) {
+            return true;
+        }
+
+        if (!readerDAO.reserveLoans(loansByReaderId, BorrowedBook.MAX_ACTIVE_LOANS)) {
+            return false; // Another desk lent to one of the readers since the counters were read
+        }
+        if (holdDAO.removeHoldsByIds(fulfilledHoldIds) != fulfilledHoldIds.size()) {
+            return false; // A ready hold was cancelled at another desk
+        }
+        Optional<IntArrayList> borrowIds = borrowedBookDAO.addBorrowedBooks(newLoans);
+        if (borrowIds.isEmpty()) {
+            return false; // Another desk lent one of the pairs since they were read; the retry reports it as already borrowed
+        }
+        if (!quantityDeltas.isEmpty() && !bookDAO.adjustQuantities(quantityDeltas)) {
+            return false;
+        }
 
-        if (yearOfPublication > currentYear || yearOfPublication < 0) {
-            logger.severe("Validation failed: year of publication is invalid.");
-            throw new InvalidDataException("Invalid year of publication.");
+        for (int n = 0; n < acceptedIndexes.size(); n++) {
+            int i = acceptedIndexes.get(n);
+            results[i] = new LoanResult(requests.get(i), LoanResult.Status.BORROWED, borrowIds.get().get(n));
+            pendingEvents.add(LoanEvent.borrow(newLoans.get(n).getReaderID(), newLoans.get(n).getBookID()));
         }
+        return true;
     }
 
-    // Validates the reader's data (first name, last name, date of birth)
-    private void validateReaderData(String firstName, String lastName, LocalDate dateOfBirth) throws InvalidDataException {
-        if (firstName == null || firstName.trim().isEmpty()) {
-            logger.severe("Validation failed: First name cannot be empty.");
-            throw new InvalidDataException("First name cannot be empty.");
+    // One attempt of returnMany inside the open transaction; returns false if a loan disappeared and the attempt must be retried.
+    // Returned copies go to the books' hold queues first; only the rest go back on the shelf.
+    private boolean tryReturnMany(List<LoanRequest> requests, IntArrayList indexes, LoanResult[] results, List<LoanEvent> pendingEvents,
+                                  List<Hold> readyHolds) throws DatabaseOperationException {
+        Map<String, Book> booksByKey = findBooks(requests, indexes);
+        Map<String, Integer> readerIdsByKey = findReaderIds(requests, indexes);
+        Map<Long, Integer> borrowIdsByPair = findBorrowedPairs(toIdSet(readerIdsByKey.values()), booksByKey.values());
+
+        IntArrayList acceptedIndexes = new IntArrayList();
+        IntArrayList returnedBorrowIds = new IntArrayList();
+        IntIntHashMap quantityDeltas = new IntIntHashMap(booksByKey.size());
+        IntIntHashMap loansByReaderId = new IntIntHashMap(readerIdsByKey.size());
+
+        for (int n = 0; n < indexes.size(); n++) {
+            int i = indexes.get(n);
+            LoanRequest request = requests.get(i);
+            Integer readerId = readerIdsByKey.get(readerKey(request.getReader()));
+            Book book = booksByKey.get(bookKey(request.getBook()));
+
+            if (readerId == null) {
+                results[i] = LoanResult.failed(request, LoanResult.Status.READER_NOT_FOUND);
+            } else if (book == null) {
+                results[i] = LoanResult.failed(request, LoanResult.Status.BOOK_NOT_FOUND);
+            } else {
+                Integer borrowId = borrowIdsByPair.remove(loanPair(readerId, book.getId())); // Removed, so a duplicate request fails
+                if (borrowId == null) {
+                    results[i] = LoanResult.failed(request, LoanResult.Status.NOT_BORROWED);
+                } else {
+                    returnedBorrowIds.add(borrowId);
+                    quantityDeltas.addTo(book.getId(), 1);
+                    loansByReaderId.addTo(readerId, 1);
+                    acceptedIndexes.add(i);
+                    pendingEvents.add(LoanEvent.returned(readerId, book.getId()));
+                }
+            }
+        }
+
+        if (returnedBorrowIds.isEmpty()) {
+            return true;
+        }
+        fineDAO.settleFines(returnedBorrowIds, LocalDate.now(), FinePolicy.getDefault());
+        if (borrowedBookDAO.removeBorrowedBooksByIds(returnedBorrowIds) != returnedBorrowIds.size()) {
+            return false;
+        }
+        readerDAO.releaseLoans(loansByReaderId);
+
+        IntIntHashMap shelvedCopies = new IntIntHashMap(quantityDeltas.size());
+        for (int bookId : quantityDeltas.sortedKeys()) {
+            bookDAO.lockBook(bookId); // In ID order, like adjustQuantities; serializes with placeHold as in returnBorrowedBook
+            List<Hold> assigned = holdDAO.assignNextHolds(bookId, quantityDeltas.get(bookId));
+            readyHolds.addAll(assigned);
+            if (assigned.size() < quantityDeltas.get(bookId)) {
+                shelvedCopies.put(bookId, quantityDeltas.get(bookId) - assigned.size());
+            }
+        }
+        if (!shelvedCopies.isEmpty() && !bookDAO.adjustQuantities(shelvedCopies)) {
+            return false;
+        }
+
+        for (int n = 0; n < acceptedIndexes.size(); n++) {
+            int i = acceptedIndexes.get(n);
+            results[i] = new LoanResult(requests.get(i), LoanResult.Status.RETURNED, returnedBorrowIds.get(n));
+        }
+        return true;
+    }
+
+    // Resolves the distinct books of the given requests with one query, keyed by bookKey
+    private Map<String, Book> findBooks(List<LoanRequest> requests, IntArrayList indexes) throws DatabaseOperationException {
+        Map<String, Book> requestedBooks = new HashMap<>();
+        for (int n = 0; n < indexes.size(); n++) {
+            int i = indexes.get(n);
+            requestedBooks.putIfAbsent(bookKey(requests.get(i).getBook()), requests.get(i).getBook());
+        }
+
+        Map<String, Book> booksByKey = new HashMap<>();
+        for (Book book : bookDAO.findBooksByDetails(new ArrayList<>(requestedBooks.values()))) {
+            booksByKey.put(bookKey(book), book);
+        }
+        return booksByKey;
+    }
+
+    // Resolves the distinct readers of the given requests with one query, keyed by readerKey
+    private Map<String, Integer> findReaderIds(List<LoanRequest> requests, IntArrayList indexes) throws DatabaseOperationException {
+        Map<String, Reader> requestedReaders = new HashMap<>();
+        for (int n = 0; n < indexes.size(); n++) {
+            int i = indexes.get(n);
+            requestedReaders.putIfAbsent(readerKey(requests.get(i).getReader()), requests.get(i).getReader());
+        }
+
+        Map<String, Integer> readerIdsByKey = new HashMap<>();
+        for (Reader reader : readerDAO.findReadersByDetails(new ArrayList<>(requestedReaders.values()))) {
+            readerIdsByKey.put(readerKey(reader), reader.getId());
         }
+        return readerIdsByKey;
+    }
+
+    // Fetches the existing loans between the given readers and books, as loanPair -> borrow ID
+    private Map<Long, Integer> findBorrowedPairs(IntBitSet readerIds, Iterable<Book> books) throws DatabaseOperationException {
+        IntBitSet bookIds = new IntBitSet();
+        books.forEach(book -> bookIds.add(book.getId()));
+
+        Map<Long, Integer> borrowIdsByPair = new HashMap<>();
+        for (BorrowedBook borrowedBook : borrowedBookDAO.findBorrowedBooksByReadersAndBooks(readerIds, bookIds)) {
+            borrowIdsByPair.put(loanPair(borrowedBook.getReaderID(), borrowedBook.getBookID()), borrowedBook.getId());
+        }
+        return borrowIdsByPair;
+    }
+
+    // Fetches the ready holds between the given readers and books, as loanPair -> hold ID
+    private Map<Long, Integer> findReadyHolds(IntBitSet readerIds, Iterable<Book> books) throws DatabaseOperationException {
+        IntBitSet bookIds = new IntBitSet();
+        books.forEach(book -> bookIds.add(book.getId()));
 
-        if (lastName == null || lastName.trim().isEmpty()) {
-            logger.severe("Validation failed: Last name cannot be empty.");
-            throw new InvalidDataException("Last name cannot be empty.");
+        Map<Long, Integer> holdIdsByPair = new HashMap<>();
+        for (Hold hold : holdDAO.findReadyHolds(readerIds, bookIds)) {
+            holdIdsByPair.put(loanPair(hold.getReaderID(), hold.getBookID()), hold.getId());
         }
+        return holdIdsByPair;
+    }
+
+    private static IntIntHashMap singleLoan(int readerId) {
+        IntIntHashMap loansByReaderId = new IntIntHashMap(1);
+        loansByReaderId.put(readerId, 1);
+        return loansByReaderId;
+    }
+
+    private static IntBitSet toIdSet(Iterable<Integer> ids) {
+        IntBitSet idSet = new IntBitSet();
+        ids.forEach(idSet::add);
+        return idSet;
+    }
 
-        if (dateOfBirth == null || dateOfBirth.isAfter(LocalDate.now())) {
-            logger.severe("Validation failed : Date of birth is invalid.");
-            throw new InvalidDataException("Invalid date of birth.");
+    // Drops the cached summaries of the readers whose items succeeded
+    private void invalidateReaderSummaries(LoanResult[] results) {
+        for (LoanResult result : results) {
+            if (result.isSuccessful()) {
+                readerSummaries.remove(readerKey(result.getRequest().getReader()));
+            }
+        }
+    }
+
+    // Keys matching the DAOs' case-insensitive lookups by natural key
+    private static String readerKey(Reader reader) {
+        return reader.getFirstName().toLowerCase(Locale.ROOT) + '\n' + reader.getLastName().toLowerCase(Locale.ROOT) + '\n' + reader.getDateOfBirth();
+    }
+
+    private static String bookKey(Book book) {
+        return book.getTitle().toLowerCase(Locale.ROOT) + '\n' + book.getAuthor().toLowerCase(Locale.ROOT) + '\n' + book.getYearOfPublication();
+    }
+
+    private static long loanPair(int readerId, int bookId) {
+        return ((long) readerId << 32) | bookId;
+    }
+
+    private static long countSuccessful(LoanResult[] results) {
+        long successful = 0;
+        for (LoanResult result : results) {
+            if (result.isSuccessful()) {
+                successful++;
+            }
+        }
+        return successful;
+    }
+
+    // The single borrow and return change the quantity with a compare-and-set on the row version instead of holding a lock
+    // from read to write. When another desk changed the book first, the attempt is rolled back and this gives up after too
+    // many conflicts, or backs off before the next attempt; no row locks are held while sleeping.
+    private void retryAfterConflict(Book book, int attempt) throws DatabaseOperationException {
+        if (attempt == MAX_QUANTITY_UPDATE_ATTEMPTS) {
+            logger.warning("Giving up on updating the quantity of book " + book.getTitle() + " after " + attempt + " conflicting attempts.");
+            throw new DatabaseOperationException("The book is being updated by other users, please try again.");
+        }
+        logger.info("Book " + book.getTitle() + " was changed concurrently, retrying (attempt " + (attempt + 1) + ").");
+        backOff(attempt);
+    }
+
+    // Sleeps for a random time between zero and the exponential backoff bound of the given attempt ("full jitter")
+    private void backOff(int attempt) throws DatabaseOperationException {
+        long bound = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseOperationException("Interrupted while retrying the quantity update.", e);
+        }
+    }
+
+    // Rolls back the current transaction after a failed check, keeping the original failure as the reported error
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Error during rollback: " + ex.getMessage(), ex);
+        }
+    }
+
+    // Tells the desk about copies set aside by a committed return
+    private void notifyHoldsReady(List<Hold> readyHolds) {
+        if (!readyHolds.isEmpty()) {
+            logger.info(readyHolds.size() + " returned copies were set aside for holds.");
+        }
+        if (holdListener != null) {
+            readyHolds.forEach(holdListener::onHoldReady);
+        }
+    }
+
+    // Drops cached book listings after committed loans moved copies, and reader listings if the loans registered readers,
+    // if a query cache is configured
+    private void invalidateQueries(List<LoanEvent> events){
+        if(queryCache != null){
+            queryCache.invalidate(QueryCache.BOOKS);
+            if(events.stream().anyMatch(event -> event.getEventType() == LoanEvent.EventType.READER_ADDED)){
+                queryCache.invalidate(QueryCache.READERS);
+            }
+        }
+    }
+
+    // Hands committed events to the write-behind journal, if one is configured
+    private void recordEvents(List<LoanEvent> events){
+        if(loanEventJournal != null){
+            events.forEach(loanEventJournal::record);
+        }
+    }
+
+    // Validates the book's data (title, author, year of publication)
+    void validateBasicBookData(String title, String author, int yearOfPublication) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkBasicBookData(title, author, yearOfPublication, result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
+        }
+    }
+
+    // Validates the reader's data (first name, last name, date of birth)
+    private void validateReaderData(String firstName, String lastName, LocalDate dateOfBirth) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkReaderData(firstName, lastName, dateOfBirth, result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
         }
     }
-}
\ No newline at end of file
+}
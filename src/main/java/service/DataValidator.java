@@ -0,0 +1,143 @@
+package service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+// Validation rules for books, shelf locations and readers, shared by the services and the bulk importer.
+// Checks record every violation into a ValidationResult instead of throwing, and return whether the data was valid.
+// Today's date, needed for years of publication and dates of birth, is cached and only recomputed after midnight,
+// so a check costs a clock read rather than a LocalDate.now() time-zone calculation. Thread-safe.
+public class DataValidator {
+    private static final DataValidator DEFAULT = new DataValidator(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile Today today;
+
+    public DataValidator(Clock clock) {
+        this.clock = clock;
+        this.today = computeToday();
+    }
+
+    // The validator on the system clock used by the services
+    public static DataValidator getDefault() {
+        return DEFAULT;
+    }
+
+    // Title, author and year of publication
+    public boolean checkBasicBookData(String title, String author, int yearOfPublication, ValidationResult result) {
+        boolean valid = true;
+        if (isBlank(title)) {
+            result.add(Violation.TITLE_EMPTY);
+            valid = false;
+        }
+        if (isBlank(author)) {
+            result.add(Violation.AUTHOR_EMPTY);
+            valid = false;
+        }
+        if (yearOfPublication > getCurrentYear() || yearOfPublication < 0) {
+            result.add(Violation.YEAR_INVALID);
+            valid = false;
+        }
+        return valid;
+    }
+
+    // The basic book data plus quantity and shelf location ID
+    public boolean checkAllBookData(String title, String author, int yearOfPublication, int quantity, int shelfLocationId, ValidationResult result) {
+        boolean valid = checkBasicBookData(title, author, yearOfPublication, result);
+        if (quantity < 0) {
+            result.add(Violation.QUANTITY_NEGATIVE);
+            valid = false;
+        }
+        if (shelfLocationId < 0) {
+            result.add(Violation.LOCATION_ID_NEGATIVE);
+            valid = false;
+        }
+        return valid;
+    }
+
+    public boolean checkBookLocationData(String section, int shelf, ValidationResult result) {
+        boolean valid = true;
+        if (isBlank(section)) {
+            result.add(Violation.SECTION_EMPTY);
+            valid = false;
+        }
+        if (shelf <= 0) {
+            result.add(Violation.SHELF_INVALID);
+            valid = false;
+        }
+        return valid;
+    }
+
+    // First name, last name and a date of birth that is not in the future
+    public boolean checkReaderData(String firstName, String lastName, LocalDate dateOfBirth, ValidationResult result) {
+        boolean valid = true;
+        if (isBlank(firstName)) {
+            result.add(Violation.FIRST_NAME_EMPTY);
+            valid = false;
+        }
+        if (!checkLastName(lastName, result)) {
+            valid = false;
+        }
+        if (dateOfBirth == null || dateOfBirth.isAfter(getToday())) {
+            result.add(Violation.DATE_OF_BIRTH_INVALID);
+            valid = false;
+        }
+        return valid;
+    }
+
+    public boolean checkLastName(String lastName, ValidationResult result) {
+        if (isBlank(lastName)) {
+            result.add(Violation.LAST_NAME_EMPTY);
+            return false;
+        }
+        return true;
+    }
+
+    public LocalDate getToday() {
+        return today().date;
+    }
+
+    public int getCurrentYear() {
+        return today().year;
+    }
+
+    private Today today() {
+        Today current = today;
+        if (clock.millis() >= current.endMillis) {
+            current = computeToday(); // Past midnight; racing threads compute the same day
+            today = current;
+        }
+        return current;
+    }
+
+    private Today computeToday() {
+        LocalDate date = LocalDate.now(clock);
+        long endMillis = date.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Today(date, endMillis);
+    }
+
+    // Blank without allocating a trimmed copy; same rule as trim().isEmpty()
+    private static boolean isBlank(String text) {
+        if (text == null) {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Today {
+        final LocalDate date;
+        final int year;
+        final long endMillis; // Epoch millis of the next midnight
+
+        Today(LocalDate date, long endMillis) {
+            this.date = date;
+            this.year = date.getYear();
+            this.endMillis = endMillis;
+        }
+    }
+}
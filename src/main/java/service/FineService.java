@@ -0,0 +1,127 @@
+package service;
+
+import config.FinePolicy;
+import dao.FineDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import exception.NotFoundException;
+import model.FineAccrual;
+import model.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Accrues fines for overdue loans and takes payments.
+// accrueFines is meant to run once a day (NightlyReportJob does); returns through BorrowedBookService charge whatever
+// accrued since the last run, so a fine is complete even if the loan ends between runs.
+public class FineService {
+    private static final Logger logger = Logger.getLogger(FineService.class.getName());
+    private static final DataValidator validator = DataValidator.getDefault();
+    private final Connection connection;
+    private final FineDAO fineDAO;
+    private final ReaderDAO readerDAO;
+    private final FinePolicy finePolicy;
+
+    public FineService(Connection connection) {
+        this(connection, FinePolicy.getDefault());
+    }
+
+    public FineService(Connection connection, FinePolicy finePolicy) {
+        this.connection = connection;
+        this.fineDAO = new FineDAO(connection);
+        this.readerDAO = new ReaderDAO(connection);
+        this.finePolicy = finePolicy;
+    }
+
+    // Brings every overdue loan's fine up to 'day' in one transaction. Loans already accrued through 'day' or at the cap
+    // are not read, so running twice on the same day changes nothing.
+    public FineAccrual accrueFines(LocalDate day) throws DatabaseOperationException {
+        logger.info("Accruing fines through " + day);
+
+        try {
+            connection.setAutoCommit(false);
+            FineAccrual accrual = fineDAO.accrueFines(day, finePolicy);
+            connection.commit();
+            logger.info("Accrued " + FinePolicy.formatCents(accrual.getCentsAccrued()) + " on " + accrual.getLoansAccrued()
+                    + " loans of " + accrual.getReadersCharged() + " readers.");
+            return accrual;
+
+        } catch (DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error while accruing fines: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to accrue fines.", e);
+        }
+    }
+
+    // Fetches the reader's fine balance in cents; empty if the reader does not exist
+    public Optional<Long> getFineBalance(Reader reader) throws DatabaseOperationException, InvalidDataException {
+        validateReaderData(reader);
+
+        Optional<Integer> readerId = readerDAO.doesReaderExist(reader);
+        if (readerId.isEmpty()) {
+            logger.info("Reader " + reader.getFirstName() + " " + reader.getLastName() + " does not exist in the database.");
+            return Optional.empty();
+        }
+        return Optional.of(fineDAO.getBalance(readerId.get()));
+    }
+
+    // Takes a payment off the reader's balance and returns the remaining balance in cents
+    public long payFine(Reader reader, long cents) throws DatabaseOperationException, InvalidDataException {
+        logger.info("Taking a payment of " + FinePolicy.formatCents(cents) + " from reader: " + reader.getFirstName() + " " + reader.getLastName());
+
+        validateReaderData(reader);
+        if (cents <= 0) {
+            logger.severe("Validation failed: payment must be positive.");
+            throw new InvalidDataException("The payment must be a positive amount.");
+        }
+
+        try {
+            connection.setAutoCommit(false);
+
+            Optional<Integer> readerId = readerDAO.doesReaderExist(reader);
+            if (readerId.isEmpty()) {
+                logger.warning("Reader " + reader.getFirstName() + " " + reader.getLastName() + " does not exist in the database.");
+                throw new NotFoundException("Reader does not exist in the database.");
+            }
+            if (!fineDAO.payFine(readerId.get(), cents)) {
+                logger.warning("Payment exceeds the reader's balance.");
+                throw new InvalidDataException("The payment exceeds the reader's fine balance.");
+            }
+
+            long balance = fineDAO.getBalance(readerId.get());
+            connection.commit();
+            return balance;
+
+        } catch (InvalidDataException | DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error while taking a payment: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to take the payment.", e);
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error during rollback: " + e.getMessage(), e);
+        }
+    }
+
+    private void validateReaderData(Reader reader) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkReaderData(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth(), result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
+        }
+    }
+}
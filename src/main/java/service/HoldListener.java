@@ -0,0 +1,10 @@
+package service;
+
+import model.Hold;
+
+// Told about copies set aside for holds, once the return or cancellation that freed them has committed.
+// Called on the thread that made the change; UI listeners must hand the updates to the event thread.
+@FunctionalInterface
+public interface HoldListener {
+    void onHoldReady(Hold hold);
+}
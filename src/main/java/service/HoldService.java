@@ -0,0 +1,244 @@
+package service;
+
+import cache.QueryCache;
+import dao.BookDAO;
+import dao.BorrowedBookDAO;
+import dao.HoldDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import model.Book;
+import model.Hold;
+import model.Reader;
+import util.collections.IntIntHashMap;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Places and cancels holds on books that have no copies on the shelf.
+// Copies returned while readers are waiting are handed to the queue by BorrowedBookService; the reader then borrows
+// the copy set aside for them as usual. Cancelling a ready hold passes its copy on to the next waiting reader.
+public class HoldService {
+    private static final Logger logger = Logger.getLogger(HoldService.class.getName());
+    private static final DataValidator validator = DataValidator.getDefault();
+    private final Connection connection;
+    private final HoldDAO holdDAO;
+    private final BookDAO bookDAO;
+    private final ReaderDAO readerDAO;
+    private final BorrowedBookDAO borrowedBookDAO;
+    private final HoldListener holdListener;
+    private final QueryCache queryCache;
+
+    public HoldService(Connection connection) {
+        this(connection, null);
+    }
+
+    // Creates the service with a listener told when a cancelled hold's copy is passed on to the next reader
+    public HoldService(Connection connection, HoldListener holdListener) {
+        this(connection, holdListener, null);
+    }
+
+    // Creates the service with a query cache shared with other services, invalidated once a hold registers a reader or
+    // puts a copy back on the shelf
+    public HoldService(Connection connection, HoldListener holdListener, QueryCache queryCache) {
+        this.connection = connection;
+        this.holdDAO = new HoldDAO(connection);
+        this.bookDAO = new BookDAO(connection);
+        this.readerDAO = new ReaderDAO(connection);
+        this.borrowedBookDAO = new BorrowedBookDAO(connection);
+        this.holdListener = holdListener;
+        this.queryCache = queryCache;
+    }
+
+    // Queues the reader for a book with no copies on the shelf, registering the reader if necessary.
+    // Returns the hold's ID, or an empty Optional if the reader already holds the book.
+    public Optional<Integer> placeHold(Reader reader, Book book) throws DatabaseOperationException, InvalidDataException {
+        logger.info("Placing a hold on book: " + book.getTitle() + " for reader: " + reader.getFirstName() + " " + reader.getLastName());
+
+        validateReaderData(reader);
+        validateBookData(book);
+
+        try {
+            connection.setAutoCommit(false);
+
+            Book existingBook = findBook(book);
+            if (existingBook.getQuantity() > 0) {
+                logger.warning("Copies of the book are available, no hold is needed.");
+                throw new InvalidDataException("Copies of the book are available, borrow it instead.");
+            }
+
+            Optional<Integer> readerId = readerDAO.doesReaderExist(reader);
+            boolean readerAdded = false;
+            if (readerId.isEmpty()) {
+                logger.info("Reader does not exist. Adding new reader.");
+                readerId = readerDAO.addReader(reader);
+                readerAdded = readerId.isPresent();
+                if (readerId.isEmpty()) {
+                    readerId = readerDAO.doesReaderExist(reader); // Registered by another desk in the meantime
+                }
+            }
+            int id = readerId.orElseThrow(() -> new DatabaseOperationException("Failed to register reader."));
+
+            if (borrowedBookDAO.findBorrowedBookIdByReaderAndBook(id, existingBook.getId()).isPresent()) {
+                logger.warning("Reader has already borrowed this book.");
+                throw new InvalidDataException("Reader has already borrowed this book.");
+            }
+
+            // Check the shelf again under the book's row lock: a return committing at the same moment either put its copy on
+            // the shelf before this read, or waits for this hold and hands the copy to it
+            Optional<Integer> lockedQuantity = bookDAO.lockBook(existingBook.getId());
+            if (lockedQuantity.isEmpty()) {
+                logger.warning("Book does not exist in the database.");
+                throw new InvalidDataException("Book does not exist in the database.");
+            }
+            if (lockedQuantity.get() > 0) {
+                logger.warning("A copy of the book was returned in the meantime, no hold is needed.");
+                throw new InvalidDataException("Copies of the book are available, borrow it instead.");
+            }
+
+            Optional<Integer> holdId = holdDAO.addHold(id, existingBook.getId());
+            connection.commit();
+            if (readerAdded) {
+                invalidateQueries(QueryCache.READERS);
+            }
+            if (holdId.isPresent()) {
+                logger.info("Hold placed with ID: " + holdId.get());
+            } else {
+                logger.warning("Reader already holds this book.");
+            }
+            return holdId;
+
+        } catch (InvalidDataException | DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error while placing a hold: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to place the hold.", e);
+        }
+    }
+
+    // Cancels the reader's hold on the book. A copy set aside for the hold goes to the next waiting reader, or back on the shelf.
+    // Returns false if the reader holds no such book.
+    public boolean cancelHold(Reader reader, Book book) throws DatabaseOperationException, InvalidDataException {
+        logger.info("Cancelling the hold on book: " + book.getTitle() + " for reader: " + reader.getFirstName() + " " + reader.getLastName());
+
+        validateReaderData(reader);
+        validateBookData(book);
+
+        try {
+            connection.setAutoCommit(false);
+
+            Optional<Hold> hold = findHold(reader, book);
+            if (hold.isEmpty() || !holdDAO.removeHold(hold.get().getId())) {
+                logger.warning("No hold found in the database.");
+                connection.rollback();
+                return false;
+            }
+
+            List<Hold> passedOn = List.of();
+            boolean shelved = false;
+            if (hold.get().isReady()) {
+                bookDAO.lockBook(hold.get().getBookID()); // Serializes with placeHold, as on a return
+                passedOn = holdDAO.assignNextHolds(hold.get().getBookID(), 1);
+                if (passedOn.isEmpty()) {
+                    IntIntHashMap quantityDeltas = new IntIntHashMap(1);
+                    quantityDeltas.put(hold.get().getBookID(), 1);
+                    bookDAO.adjustQuantities(quantityDeltas); // Nobody else is waiting, the copy goes back on the shelf
+                    shelved = true;
+                }
+            }
+
+            connection.commit();
+            logger.info("Hold cancelled.");
+            if (shelved) {
+                invalidateQueries(QueryCache.BOOKS);
+            }
+            if (holdListener != null) {
+                passedOn.forEach(holdListener::onHoldReady);
+            }
+            return true;
+
+        } catch (DatabaseOperationException e) {
+            rollbackQuietly();
+            throw e;
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error while cancelling a hold: " + e.getMessage(), e);
+            rollbackQuietly();
+            throw new DatabaseOperationException("Failed to cancel the hold.", e);
+        }
+    }
+
+    // Fetches the reader's holds, oldest first; empty if the reader does not exist
+    public List<Hold> getHolds(Reader reader) throws DatabaseOperationException, InvalidDataException {
+        validateReaderData(reader);
+
+        Optional<Integer> readerId = readerDAO.doesReaderExist(reader);
+        return readerId.isPresent() ? holdDAO.getHoldsByReader(readerId.get()) : List.of();
+    }
+
+    // Position of the reader's waiting hold in the book's queue, 1 for the next reader to be served.
+    // Empty if the reader holds no such book or the copy is already set aside for them.
+    public Optional<Integer> getQueuePosition(Reader reader, Book book) throws DatabaseOperationException, InvalidDataException {
+        validateReaderData(reader);
+        validateBookData(book);
+
+        Optional<Hold> hold = findHold(reader, book);
+        if (hold.isEmpty() || hold.get().isReady()) {
+            return Optional.empty();
+        }
+        return Optional.of(holdDAO.getQueuePosition(hold.get()));
+    }
+
+    private Optional<Hold> findHold(Reader reader, Book book) throws DatabaseOperationException {
+        Optional<Integer> readerId = readerDAO.doesReaderExist(reader);
+        Optional<Book> foundBook = bookDAO.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
+        if (readerId.isEmpty() || foundBook.isEmpty()) {
+            return Optional.empty();
+        }
+        return holdDAO.findHold(readerId.get(), foundBook.get().getId());
+    }
+
+    private Book findBook(Book book) throws DatabaseOperationException, InvalidDataException {
+        Optional<Book> foundBook = bookDAO.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
+        if (foundBook.isEmpty()) {
+            logger.warning("Book does not exist in the database.");
+            throw new InvalidDataException("Book does not exist in the database.");
+        }
+        return foundBook.get();
+    }
+
+    // Drops cached listings of the table after a committed write, if a query cache is configured
+    private void invalidateQueries(String table) {
+        if (queryCache != null) {
+            queryCache.invalidate(table);
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error during rollback: " + e.getMessage(), e);
+        }
+    }
+
+    private void validateReaderData(Reader reader) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkReaderData(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth(), result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
+        }
+    }
+
+    private void validateBookData(Book book) throws InvalidDataException {
+        ValidationResult result = new ValidationResult();
+        if (!validator.checkBasicBookData(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), result)) {
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
+        }
+    }
+}
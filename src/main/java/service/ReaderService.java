@@ -1,28 +1,53 @@
 package service;
 
+import cache.QueryCache;
 import dao.BorrowedBookDAO;
+import dao.HoldDAO;
 import dao.ReaderDAO;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
+import exception.NotFoundException;
+import journal.LoanEventJournal;
+import model.LoanEvent;
 import model.Reader;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ReaderService {
     private static final Logger logger = Logger.getLogger(ReaderService.class.getName());
+    private static final DataValidator validator = DataValidator.getDefault();
     private final Connection connection;
     private final ReaderDAO readerDAO;
     private final BorrowedBookDAO borrowedBookDAO;
+    private final HoldDAO holdDAO;
+    private final LoanEventJournal loanEventJournal;
+    private final QueryCache queryCache;
 
     public ReaderService(Connection connection){
+        this(connection, null);
+    }
+
+    // Creates the service with a write-behind journal that receives reader registrations after commit
+    public ReaderService(Connection connection, LoanEventJournal loanEventJournal){
+        this(connection, loanEventJournal, null);
+    }
+
+    // Creates the service with a query cache shared with other services: reader searches are answered from it, and
+    // this service's writes invalidate it once committed
+    public ReaderService(Connection connection, LoanEventJournal loanEventJournal, QueryCache queryCache){
         this.connection = connection;
         this.readerDAO = new ReaderDAO(connection);
         this.borrowedBookDAO = new BorrowedBookDAO(connection);
+        this.holdDAO = new HoldDAO(connection);
+        this.loanEventJournal = loanEventJournal;
+        this.queryCache = queryCache;
     }
 
     // Adds a new reader after validation, manages transactions for commit/rollback
@@ -39,6 +64,10 @@ public class ReaderService {
             if(readerId.isPresent()){
                 logger.info("New reader added with ID: " + readerId.get());
                 connection.commit();
+                invalidateQueries();
+                if(loanEventJournal != null){
+                    loanEventJournal.record(LoanEvent.readerAdded(readerId.get()));
+                }
             }else{
                 logger.warning("Reader " + firstName + " " + lastName + " already exists.");
             }
@@ -84,7 +113,9 @@ public class ReaderService {
         validateLastName(lastName);
 
         try{
-            List<Reader> allReaders = readerDAO.getReadersByLastName(lastName);
+            List<Reader> allReaders = queryCache == null
+                    ? readerDAO.getReadersByLastName(lastName)
+                    : queryCache.get("readers.by_last_name", Set.of(QueryCache.READERS), () -> Collections.unmodifiableList(readerDAO.getReadersByLastName(lastName)), lastName);
 
             if(allReaders.isEmpty()){
                 logger.info("No readers found with last name: " + lastName + " in the database.");
@@ -113,7 +144,7 @@ public class ReaderService {
             Optional<Integer> readerId = readerDAO.doesReaderExist(reader);
             if (readerId.isEmpty()) {
                 logger.warning("Reader does not exist in the database: " + firstName + " " + lastName + " " + dateOfBirth);
-                throw new DatabaseOperationException("Reader does not exist in the database: " + firstName + " " + lastName + " " + dateOfBirth);
+                throw new NotFoundException("Reader does not exist in the database: " + firstName + " " + lastName + " " + dateOfBirth);
             }
 
             Reader readerWithId = new Reader(readerId.get(), firstName, lastName, dateOfBirth);
@@ -125,11 +156,18 @@ public class ReaderService {
                 throw new DatabaseOperationException("Reader " + firstName + " " + lastName + " cannot be removed because they have borrowed books.");
             }
 
+            // Check if the reader has any holds
+            if (holdDAO.hasHoldsForReader(readerWithId.getId())) {
+                logger.warning("Reader " + firstName + " " + lastName + " cannot be removed because they have holds.");
+                throw new DatabaseOperationException("Reader " + firstName + " " + lastName + " cannot be removed because they have holds.");
+            }
+
             boolean result = readerDAO.removeReaderById(readerWithId);
 
             if(result){
                 logger.info("Successfully removed reader: " + firstName + " " + lastName + " " + dateOfBirth);
                 connection.commit();
+                invalidateQueries();
 
             }else{
                 logger.warning("Failed to remove reader: " + firstName + " " + lastName + " " + dateOfBirth);
@@ -148,27 +186,28 @@ public class ReaderService {
         }
     }
 
-    // Validates the reader's data (first name, last name, date of birth)
-    void validateReaderData(String firstName, String lastName, LocalDate dateOfBirth) throws InvalidDataException{
-        if(firstName == null || firstName.trim().isEmpty()){
-            logger.severe("Validation failed: First name cannot be empty.");
-            throw new InvalidDataException("First name cannot be empty.");
+    // Drops cached reader searches after a committed write, if a query cache is configured
+    private void invalidateQueries(){
+        if(queryCache != null){
+            queryCache.invalidate(QueryCache.READERS);
         }
+    }
 
-        validateLastName(lastName);
-
-        if(dateOfBirth == null || dateOfBirth.isAfter(LocalDate.now())){
-            logger.severe("Validation failed : Date of birth is invalid.");
-            throw new InvalidDataException("Invalid date of birth.");
+    // Validates the reader's data (first name, last name, date of birth)
+    void validateReaderData(String firstName, String lastName, LocalDate dateOfBirth) throws InvalidDataException{
+        ValidationResult result = new ValidationResult();
+        if(!validator.checkReaderData(firstName, lastName, dateOfBirth, result)){
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
         }
-
     }
 
     // Validates last name for fetching readers by last name
     private void validateLastName(String lastName) throws InvalidDataException{
-        if(lastName == null || lastName.trim().isEmpty()){
-            logger.severe("Validation failed : last name cannot be empty.");
-            throw new InvalidDataException("Last name cannot be empty.");
+        ValidationResult result = new ValidationResult();
+        if(!validator.checkLastName(lastName, result)){
+            logger.severe("Validation failed: " + result.getMessage());
+            throw result.toException();
         }
     }
 }
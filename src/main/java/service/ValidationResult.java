@@ -0,0 +1,64 @@
+package service;
+
+import exception.InvalidDataException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Violations collected by DataValidator. Recording one sets a bit, so checking valid data allocates nothing;
+// bulk callers keep one result per thread and clear it between rows.
+public final class ValidationResult {
+    private static final Violation[] VIOLATIONS = Violation.values();
+
+    private int violations; // Bit i set = VIOLATIONS[i] recorded
+
+    void add(Violation violation) {
+        violations |= 1 << violation.ordinal();
+    }
+
+    public boolean isValid() {
+        return violations == 0;
+    }
+
+    public boolean has(Violation violation) {
+        return (violations & (1 << violation.ordinal())) != 0;
+    }
+
+    // The recorded violations in check order
+    public List<Violation> getViolations() {
+        List<Violation> recorded = new ArrayList<>(Integer.bitCount(violations));
+        for (Violation violation : VIOLATIONS) {
+            if (has(violation)) {
+                recorded.add(violation);
+            }
+        }
+        return recorded;
+    }
+
+    // The messages of all recorded violations, separated by spaces; empty if the data is valid
+    public String getMessage() {
+        StringBuilder message = new StringBuilder();
+        for (Violation violation : VIOLATIONS) {
+            if (has(violation)) {
+                if (!message.isEmpty()) {
+                    message.append(' ');
+                }
+                message.append(violation.getMessage());
+            }
+        }
+        return message.toString();
+    }
+
+    // For single-item flows that report invalid data by throwing
+    public InvalidDataException toException() {
+        return new InvalidDataException(getMessage());
+    }
+
+    public void clear() {
+        violations = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationResult{" + getViolations() + '}';
+    }
+}
@@ -0,0 +1,26 @@
+package service;
+
+// The ways book, location and reader data can be invalid, in the order the checks run.
+// Messages are the ones the services have always put in their InvalidDataException.
+public enum Violation {
+    TITLE_EMPTY("Title cannot be empty."),
+    AUTHOR_EMPTY("Author cannot be empty."),
+    YEAR_INVALID("Invalid year of publication."),
+    QUANTITY_NEGATIVE("Invalid quantity."),
+    LOCATION_ID_NEGATIVE("Invalid shelf location id."),
+    SECTION_EMPTY("Section cannot be empty."),
+    SHELF_INVALID("Shelf number is less than zero."),
+    FIRST_NAME_EMPTY("First name cannot be empty."),
+    LAST_NAME_EMPTY("Last name cannot be empty."),
+    DATE_OF_BIRTH_INVALID("Invalid date of birth.");
+
+    private final String message;
+
+    Violation(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -1,30 +1,142 @@
 package ui;
 
+import cache.CatalogueSnapshot;
+import cache.ChangeFeed;
+import cache.ChangeListener;
+import cache.QueryCache;
+import config.AppConfig;
+import config.ConfigWatcher;
 import config.DatabaseConnection;
+import exception.DatabaseOperationException;
+import journal.LoanEventJournal;
+import model.Book;
+import model.ChangeSet;
 import ui.panels.BookLocationsPanel;
 import ui.panels.BooksPanel;
 import ui.panels.BorrowedBookPanel;
+import ui.panels.ExportPanel;
 import ui.panels.ReadersPanel;
 import ui.util.BackgroundPanel;
+import ui.util.Images;
 
 import javax.swing.*;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class MainWindow {
+    private static final Logger logger = Logger.getLogger(MainWindow.class.getName());
     private static JFrame mainFrame;
     private static Connection connection;
-
+    private static LoanEventJournal loanEventJournal;
+    private static ChangeFeed changeFeed;
+    // Listing results shared by the panels; only used while the change feed runs, since it is what invalidates them for
+    // writes made at other desks
+    private static QueryCache queryCache;
+    private static final CatalogueSnapshot catalogueSnapshot = new CatalogueSnapshot(CatalogueSnapshot.DEFAULT_PATH);
+    // The desk's windows by title, built on first use; used on the event dispatch thread only
+    private static final Map<String, JFrame> windows = new HashMap<>();
+    private static final List<JButton> databaseButtons = new ArrayList<>();
+
+    // Shows the main window straight away and connects in the background; the buttons that need the database are
+    // enabled once the connection is up
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            try {
-                connection = DatabaseConnection.getConnection();
-                createAndShowGUI();
-            } catch (SQLException | IOException e) {
-                JOptionPane.showMessageDialog(null, "Failed to connect to the database: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        // Decode the local catalogue snapshot while the database connection is being established
+        Thread snapshotLoader = new Thread(catalogueSnapshot::load, "catalogue-snapshot-loader");
+        snapshotLoader.setDaemon(true);
+        snapshotLoader.start();
+
+        SwingUtilities.invokeLater(MainWindow::createAndShowGUI);
+
+        Thread connector = new Thread(MainWindow::connect, "desk-connector");
+        connector.setDaemon(true);
+        connector.start();
+    }
+
+    // Connects and starts the background services off the event dispatch thread
+    private static void connect() {
+        try {
+            connection = DatabaseConnection.getConnection();
+            startLoanEventJournal();
+            startChangeFeed();
+            watchConfiguration();
+            SwingUtilities.invokeLater(() -> databaseButtons.forEach(button -> button.setEnabled(true)));
+        } catch (SQLException | IOException e) {
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(mainFrame,
+                    "Failed to connect to the database: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+        }
+    }
+
+    // Starts the write-behind loan event journal on its own connection and flushes it when the application exits
+    private static void startLoanEventJournal() throws SQLException, IOException {
+        loanEventJournal = new LoanEventJournal(DatabaseConnection.getConnection());
+        loanEventJournal.setBatchSize(AppConfig.getDefault().get(AppConfig.JOURNAL_BATCH_SIZE));
+        loanEventJournal.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(loanEventJournal::close, "loan-event-journal-shutdown"));
+    }
+
+    // Keeps the local catalogue snapshot current with changes made at other desks, on its own connection.
+    // The application still works without it, the books panel then refreshes the snapshot when it is opened.
+    private static void startChangeFeed() throws SQLException, IOException {
+        changeFeed = new ChangeFeed(DatabaseConnection.getConnection());
+        changeFeed.addListener(new ChangeListener() {
+            @Override
+            public void onBooksChanged(ChangeSet<Book> changes) {
+                if (!catalogueSnapshot.isLoaded()) {
+                    return;
+                }
+                try {
+                    catalogueSnapshot.applyChanges(changes);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Failed to update the catalogue snapshot: " + e.getMessage(), e);
+                }
+            }
+        });
+
+        AppConfig config = AppConfig.getDefault();
+        QueryCache listingCache = new QueryCache(config.get(AppConfig.QUERY_CACHE_MAX_ENTRIES));
+        listingCache.setTimeToLive(config.get(AppConfig.QUERY_CACHE_TTL_MILLIS));
+        changeFeed.addListener(listingCache);
+
+        try {
+            changeFeed.start();
+            queryCache = listingCache;
+            Runtime.getRuntime().addShutdownHook(new Thread(changeFeed::close, "change-feed-shutdown"));
+        } catch (DatabaseOperationException e) {
+            logger.log(Level.WARNING, "Change feed could not be started: " + e.getMessage(), e);
+        }
+    }
+
+    // Applies changes of the external configuration file to the journal and the query cache while the application runs
+    private static void watchConfiguration() {
+        AppConfig.addListener(config -> {
+            loanEventJournal.setBatchSize(config.get(AppConfig.JOURNAL_BATCH_SIZE));
+            if (queryCache != null) {
+                queryCache.setMaxEntries(config.get(AppConfig.QUERY_CACHE_MAX_ENTRIES));
+                queryCache.setTimeToLive(config.get(AppConfig.QUERY_CACHE_TTL_MILLIS));
             }
         });
+
+        Optional<Path> file = AppConfig.getDefault().getFile();
+        if (file.isEmpty()) {
+            return;
+        }
+        ConfigWatcher configWatcher = new ConfigWatcher(file.get(), AppConfig::reloadDefault);
+        try {
+            configWatcher.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(configWatcher::close, "config-watcher-shutdown"));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Configuration changes will not be picked up: " + e.getMessage(), e);
+        }
     }
 
     private static void createAndShowGUI() {
@@ -32,35 +144,48 @@ public class MainWindow {
         mainFrame.setSize(1024, 1024);
         mainFrame.setLocationRelativeTo(null);
         mainFrame.setResizable(false);
-        mainFrame.setVisible(true);
         mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainFrame.setIconImage(Images.get(Images.ICON));
+        mainFrame.setContentPane(createMenuPanel());
+        mainFrame.setVisible(true);
+    }
 
-        ImageIcon icon = new ImageIcon(MainWindow.class.getResource("/images/icon.png"));
-        mainFrame.setIconImage(icon.getImage());
-
-        BackgroundPanel backgroundPanel = new BackgroundPanel("/images/background.png");
+    // The main menu; also built by StartupTraining to record the classes it needs
+    static BackgroundPanel createMenuPanel() {
+        BackgroundPanel backgroundPanel = new BackgroundPanel(Images.BACKGROUND);
         backgroundPanel.setLayout(null);
-        mainFrame.setContentPane(backgroundPanel);
 
-        JButton booksButton = createButton("BOOKS");
+        JButton booksButton = createDatabaseButton("BOOKS");
         booksButton.setBounds(400, 397, 224, 50);
-        booksButton.addActionListener(e -> openBooksWindow());
+        booksButton.addActionListener(e -> openWindow("Books",
+                () -> new BooksPanel(Images.BACKGROUND, connection, loanEventJournal, catalogueSnapshot, queryCache)));
         backgroundPanel.add(booksButton);
 
-        JButton readersButton = createButton("READERS");
+        JButton readersButton = createDatabaseButton("READERS");
         readersButton.setBounds(400, 457, 224, 50);
-        readersButton.addActionListener(e -> openReadersWindow());
+        readersButton.addActionListener(e -> openWindow("Readers",
+                () -> new ReadersPanel(Images.BACKGROUND, connection, loanEventJournal, queryCache)));
         backgroundPanel.add(readersButton);
 
-        JButton booksLocationsButton = createButton("BOOK LOCATIONS");
+        JButton booksLocationsButton = createDatabaseButton("BOOK LOCATIONS");
         booksLocationsButton.setBounds(400, 517, 224, 50);
-        booksLocationsButton.addActionListener(e -> openButtonLocationsWindow());
+        booksLocationsButton.addActionListener(e -> openWindow("Book Locations",
+                () -> new BookLocationsPanel(Images.BACKGROUND, connection, queryCache)));
         backgroundPanel.add(booksLocationsButton);
 
-        JButton borrowsAndReturnsButton = createButton("BORROWS & RETURNS");
+        JButton borrowsAndReturnsButton = createDatabaseButton("BORROWS & RETURNS");
         borrowsAndReturnsButton.setBounds(400, 577, 224, 50);
-        borrowsAndReturnsButton.addActionListener(e -> openBorrowsAndReturnsWindow());
+        borrowsAndReturnsButton.addActionListener(e -> openWindow("Borrows & Returns",
+                () -> new BorrowedBookPanel(Images.BACKGROUND, connection, loanEventJournal, queryCache)));
         backgroundPanel.add(borrowsAndReturnsButton);
+
+        // Exports open their own connections, so this one works before the desk has connected
+        JButton exportButton = createButton("EXPORT DATA");
+        exportButton.setBounds(400, 637, 224, 50);
+        exportButton.addActionListener(e -> openExportWindow());
+        backgroundPanel.add(exportButton);
+
+        return backgroundPanel;
     }
 
     public static void showMainWindow() {
@@ -74,100 +199,52 @@ public class MainWindow {
         return button;
     }
 
-    private static void openBooksWindow() {
-        mainFrame.setVisible(false);
-
-        JFrame booksFrame = new JFrame("Books");
-        booksFrame.setSize(1024, 1024);
-        booksFrame.setLocationRelativeTo(null);
-        booksFrame.setResizable(false);
-        booksFrame.setVisible(true);
-
-        ImageIcon icon = new ImageIcon(MainWindow.class.getResource("/images/icon.png"));
-        booksFrame.setIconImage(icon.getImage());
-
-        BooksPanel booksPanel = new BooksPanel("/images/background.png", connection);
-        booksPanel.setLayout(null);
-        booksFrame.setContentPane(booksPanel);
-
-        booksFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        booksFrame.addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                showMainWindow();
-            }
-        });
-    }
-
-    private static void openReadersWindow() {
-        mainFrame.setVisible(false);
-        JFrame readersFrame = new JFrame("Readers");
-        readersFrame.setSize(1024, 1024);
-        readersFrame.setLocationRelativeTo(null);
-        readersFrame.setResizable(false);
-        readersFrame.setVisible(true);
-
-        ImageIcon icon = new ImageIcon(MainWindow.class.getResource("/images/icon.png"));
-        readersFrame.setIconImage(icon.getImage());
-
-        ReadersPanel readersPanel = new ReadersPanel("/images/background.png", connection);
-        readersPanel.setLayout(null);
-        readersFrame.setContentPane(readersPanel);
-
-        readersFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        readersFrame.addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                showMainWindow();
-            }
-        });
+    // A button that stays disabled until the desk's connection is up
+    private static JButton createDatabaseButton(String text) {
+        JButton button = createButton(text);
+        button.setEnabled(connection != null);
+        databaseButtons.add(button);
+        return button;
     }
 
-    private static void openButtonLocationsWindow() {
+    // Shows the window with the given title, building it and its panel the first time. Closing it only hides it,
+    // so it opens again at once and as it was left.
+    private static void openWindow(String title, Supplier<BackgroundPanel> panelFactory) {
         mainFrame.setVisible(false);
-        JFrame bookLocationsFrame = new JFrame("Book Locations");
-        bookLocationsFrame.setSize(1024, 1024);
-        bookLocationsFrame.setLocationRelativeTo(null);
-        bookLocationsFrame.setResizable(false);
-        bookLocationsFrame.setVisible(true);
-
-        ImageIcon icon = new ImageIcon(MainWindow.class.getResource("/images/icon.png"));
-        bookLocationsFrame.setIconImage(icon.getImage());
-
-        BookLocationsPanel bookLocationsPanel = new BookLocationsPanel("/images/background.png", connection);
-        bookLocationsPanel.setLayout(null);
-        bookLocationsFrame.setContentPane(bookLocationsPanel);
 
-        bookLocationsFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        bookLocationsFrame.addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                showMainWindow();
-            }
+        JFrame frame = windows.computeIfAbsent(title, t -> {
+            JFrame window = new JFrame(t);
+            window.setSize(1024, 1024);
+            window.setLocationRelativeTo(null);
+            window.setResizable(false);
+            window.setIconImage(Images.get(Images.ICON));
+
+            BackgroundPanel panel = panelFactory.get();
+            panel.setLayout(null);
+            window.setContentPane(panel);
+
+            window.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+            window.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosing(java.awt.event.WindowEvent windowEvent) {
+                    showMainWindow();
+                }
+            });
+            return window;
         });
+        frame.setVisible(true);
     }
 
-    private static void openBorrowsAndReturnsWindow() {
-        mainFrame.setVisible(false);
-        JFrame borrowsAndReturnsFrame = new JFrame("Borrows & Returns");
-        borrowsAndReturnsFrame.setSize(1024, 1024);
-        borrowsAndReturnsFrame.setLocationRelativeTo(null);
-        borrowsAndReturnsFrame.setResizable(false);
-        borrowsAndReturnsFrame.setVisible(true);
-
-        ImageIcon icon = new ImageIcon(MainWindow.class.getResource("/images/icon.png"));
-        borrowsAndReturnsFrame.setIconImage(icon.getImage());
-
-        BorrowedBookPanel borrowsAndReturnsPanel = new BorrowedBookPanel("/images/background.png", connection);
-        borrowsAndReturnsPanel.setLayout(null);
-        borrowsAndReturnsFrame.setContentPane(borrowsAndReturnsPanel);
-
-        borrowsAndReturnsFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        borrowsAndReturnsFrame.addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                showMainWindow();
-            }
-        });
+    // Exports run on their own connections, one per dataset, so the desk stays usable meanwhile
+    private static void openExportWindow() {
+        JFrame exportFrame = new JFrame("Export Data");
+        exportFrame.setSize(500, 300);
+        exportFrame.setLocationRelativeTo(null);
+        exportFrame.setResizable(false);
+        exportFrame.setIconImage(Images.get(Images.ICON));
+
+        exportFrame.setContentPane(new ExportPanel(DatabaseConnection::getConnection));
+        exportFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        exportFrame.setVisible(true);
     }
 }
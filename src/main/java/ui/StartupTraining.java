@@ -0,0 +1,34 @@
+package ui;
+
+import config.AppConfig;
+import ui.util.Images;
+
+// Training run for the class-data sharing archive built by 'mvn -Pcds package'. Loads the classes the desk needs
+// before its first interaction: the configuration, the images, the main menu and the windows it opens, and the
+// JDBC driver. Runs headless, so it builds the menu panel without a frame and does not connect.
+public class StartupTraining {
+    private static final String[] STARTUP_CLASSES = {
+            "ui.panels.BooksPanel",
+            "ui.panels.ReadersPanel",
+            "ui.panels.BookLocationsPanel",
+            "ui.panels.BorrowedBookPanel",
+            "ui.panels.ExportPanel",
+            "cache.ChangeFeed",
+            "cache.QueryCache",
+            "cache.CatalogueSnapshot",
+            "journal.LoanEventJournal",
+            "config.ConfigWatcher",
+            "org.postgresql.Driver"
+    };
+
+    public static void main(String[] args) throws ClassNotFoundException {
+        AppConfig.getDefault();
+        Images.get(Images.BACKGROUND);
+        Images.get(Images.ICON);
+        MainWindow.createMenuPanel().doLayout();
+
+        for (String className : STARTUP_CLASSES) {
+            Class.forName(className);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ui.panels;
 
+import cache.QueryCache;
 import model.BookLocation;
 import service.BookLocationService;
 import ui.MainWindow;
@@ -12,9 +13,9 @@ import java.util.Optional;
 
 public class BookLocationsPanel extends BackgroundPanel {
     private final BookLocationService bookLocationService;
-    public BookLocationsPanel(String imagePath, Connection connection){
+    public BookLocationsPanel(String imagePath, Connection connection, QueryCache queryCache){
         super(imagePath);
-        this.bookLocationService = new BookLocationService(connection);
+        this.bookLocationService = new BookLocationService(connection, queryCache);
         setLayout(null);
 
         int buttonWidth = 224;
@@ -40,7 +41,7 @@ public class BookLocationsPanel extends BackgroundPanel {
         backButton.setBounds(270, 867, buttonWidth, buttonHeight);
         backButton.setBorderPainted(false);
         backButton.addActionListener(e -> {
-            SwingUtilities.getWindowAncestor(backButton).dispose();
+            SwingUtilities.getWindowAncestor(backButton).setVisible(false); // Kept for the next time it is opened
             MainWindow.showMainWindow();
         });
         add(backButton);
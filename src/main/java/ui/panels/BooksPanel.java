@@ -1,12 +1,17 @@
 package ui.panels;
 
+import cache.CatalogueSnapshot;
+import cache.ColumnarCatalogue;
+import cache.QueryCache;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
+import journal.LoanEventJournal;
 import model.BookLocation;
 import service.BookLocationService;
 import service.BookService;
 import ui.MainWindow;
 import ui.util.BackgroundPanel;
+import ui.util.CatalogueTableModel;
 import model.Book;
 
 import javax.swing.*;
@@ -18,11 +23,13 @@ import java.util.Optional;
 public class BooksPanel extends BackgroundPanel {
     private final BookLocationService bookLocationService;
     private final BookService bookService;
+    private final CatalogueSnapshot catalogueSnapshot;
 
-    public BooksPanel(String imagePath, Connection connection){
+    public BooksPanel(String imagePath, Connection connection, LoanEventJournal loanEventJournal, CatalogueSnapshot catalogueSnapshot, QueryCache queryCache){
         super(imagePath);
-        this.bookLocationService = new BookLocationService(connection);
-        this.bookService = new BookService(connection);
+        this.catalogueSnapshot = catalogueSnapshot;
+        this.bookLocationService = new BookLocationService(connection, queryCache);
+        this.bookService = new BookService(connection, loanEventJournal, null, queryCache);
         setLayout(null);
 
         int buttonWidth = 224;
@@ -72,7 +79,7 @@ public class BooksPanel extends BackgroundPanel {
         backButton.setBounds(270, 867, buttonWidth, buttonHeight);
         backButton.setBorderPainted(false);
         backButton.addActionListener(e -> {
-            SwingUtilities.getWindowAncestor(backButton).dispose();
+            SwingUtilities.getWindowAncestor(backButton).setVisible(false); // Kept for the next time it is opened
             MainWindow.showMainWindow();
         });
         add(backButton);
@@ -357,32 +364,42 @@ public class BooksPanel extends BackgroundPanel {
         ImageIcon icon = new ImageIcon(MainWindow.class.getResource("/images/icon.png"));
         frame.setIconImage(icon.getImage());
 
-        try {
-            List<Book> books = bookService.getAllBooks();
-
-            String[] columnNames = {"ID", "Title", "Author", "Pub. Year", "Quantity", "Loc. ID", "Section", "Shelf"};
-            Object[][] data = new Object[books.size()][8];
-
-            for (int i = 0; i < books.size(); i++) {
-                Book book = books.get(i);
-                data[i][0] = book.getId();
-                data[i][1] = book.getTitle();
-                data[i][2] = book.getAuthor();
-                data[i][3] = book.getYearOfPublication();
-                data[i][4] = book.getQuantity();
-                data[i][5] = book.getLocation().getId();
-                data[i][6] = book.getLocation().getSection();
-                data[i][7] = book.getLocation().getShelf();
-            }
-
-            JTable table = new JTable(data, columnNames);
-            JScrollPane scrollPane = new JScrollPane(table);
-            frame.add(scrollPane, BorderLayout.CENTER);
+        CatalogueTableModel tableModel = new CatalogueTableModel();
+        JTable table = new JTable(tableModel);
+        JScrollPane scrollPane = new JScrollPane(table);
+        frame.add(scrollPane, BorderLayout.CENTER);
 
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(frame, "Failed to fetch books: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        // Render the local snapshot straight away, the database result replaces it once it arrives
+        if (catalogueSnapshot.isLoaded()) {
+            frame.setTitle("All Books (refreshing...)");
+            tableModel.setCatalogue(catalogueSnapshot.getCatalogue());
         }
 
+        new SwingWorker<ColumnarCatalogue, Void>() {
+            @Override
+            protected ColumnarCatalogue doInBackground() throws Exception {
+                if (catalogueSnapshot.isLoaded()) {
+                    // Only rows changed since the snapshot's watermark travel over the wire
+                    catalogueSnapshot.applyChanges(bookService.getBookChangesSince(catalogueSnapshot.getWatermark()));
+                } else {
+                    ColumnarCatalogue catalogue = bookService.getCatalogue();
+                    catalogueSnapshot.save(catalogue, catalogue.getVersion());
+                }
+                return catalogueSnapshot.getCatalogue();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    tableModel.setCatalogue(get());
+                    frame.setTitle("All Books");
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(frame, "Failed to fetch books: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+
         frame.setVisible(true);
     }
 
@@ -1,8 +1,14 @@
 package ui.panels;
 
+import cache.QueryCache;
+import journal.LoanEventJournal;
+import exception.InvalidDataException;
 import model.Book;
+import model.Hold;
 import model.Reader;
+import model.ReaderSummary;
 import service.BorrowedBookService;
+import service.HoldService;
 import ui.MainWindow;
 import ui.util.BackgroundPanel;
 
@@ -16,9 +22,11 @@ import java.util.Optional;
 
 public class BorrowedBookPanel extends BackgroundPanel {
     private final BorrowedBookService borrowedBookService;
-    public BorrowedBookPanel(String imagePath, Connection connection){
+    private final HoldService holdService;
+    public BorrowedBookPanel(String imagePath, Connection connection, LoanEventJournal loanEventJournal, QueryCache queryCache){
         super(imagePath);
-        this.borrowedBookService = new BorrowedBookService(connection);
+        this.borrowedBookService = new BorrowedBookService(connection, loanEventJournal, this::showHoldReady, queryCache);
+        this.holdService = new HoldService(connection, this::showHoldReady, queryCache);
         setLayout(null);
 
         int buttonWidth = 224;
@@ -56,7 +64,7 @@ public class BorrowedBookPanel extends BackgroundPanel {
         backButton.setBounds(270, 867, buttonWidth, buttonHeight);
         backButton.setBorderPainted(false);
         backButton.addActionListener(e -> {
-            SwingUtilities.getWindowAncestor(backButton).dispose();
+            SwingUtilities.getWindowAncestor(backButton).setVisible(false); // Kept for the next time it is opened
             MainWindow.showMainWindow();
         });
         add(backButton);
@@ -165,6 +173,12 @@ public class BorrowedBookPanel extends BackgroundPanel {
 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(frame, "Year of publication must be a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (InvalidDataException ex) {
+                if (ex.getMessage().startsWith("Not enough copies")) {
+                    offerHold(frame, new Reader(firstName, lastName, dob), new Book(title, author, Integer.parseInt(yearField.getText())));
+                } else {
+                    JOptionPane.showMessageDialog(frame, "Failed to borrow book: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(frame, "Failed to borrow book: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -172,6 +186,37 @@ public class BorrowedBookPanel extends BackgroundPanel {
         frame.setVisible(true);
     }
 
+    // Offers to queue the reader for a book with no copies left
+    private void offerHold(JFrame frame, Reader reader, Book book) {
+        int choice = JOptionPane.showConfirmDialog(frame,
+                "No copies of the book are available. Place a hold for the reader?",
+                "No Copies Available",
+                JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        try {
+            if (holdService.placeHold(reader, book).isPresent()) {
+                int position = holdService.getQueuePosition(reader, book).orElse(1);
+                JOptionPane.showMessageDialog(frame, "Hold placed. The reader is number " + position + " in the queue.");
+            } else {
+                JOptionPane.showMessageDialog(frame, "The reader already has a hold on this book.", "Warning", JOptionPane.WARNING_MESSAGE);
+            }
+            frame.dispose();
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(frame, "Failed to place hold: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Tells the desk to set a returned copy aside instead of shelving it
+    private void showHoldReady(Hold hold) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                "Do not shelve this copy: it is held for reader ID " + hold.getReaderID() + ". Set it aside until they borrow it.",
+                "Copy Held",
+                JOptionPane.INFORMATION_MESSAGE));
+    }
+
     private void showReturnBookForm() {
         JFrame frame = new JFrame("Return Book");
         frame.setSize(400, 500);
@@ -314,10 +359,13 @@ public class BorrowedBookPanel extends BackgroundPanel {
                 LocalDate dob = LocalDate.parse(dobString);
                 Reader reader = new Reader(firstName, lastName, dob);
 
-                List<String> borrowedBooks = borrowedBookService.getBooksBorrowedByReaderWithDates(reader);
+                Optional<ReaderSummary> summary = borrowedBookService.getReaderSummary(reader);
+                List<String> borrowedBooks = summary.map(ReaderSummary::getActiveLoans).orElse(List.of());
 
-                if (borrowedBooks.isEmpty()) {
-                    JOptionPane.showMessageDialog(frame, "No borrowed books found for this reader.", "Information", JOptionPane.INFORMATION_MESSAGE);
+                if (summary.isEmpty()) {
+                    JOptionPane.showMessageDialog(frame, "Reader does not exist in the database.", "Information", JOptionPane.INFORMATION_MESSAGE);
+                } else if (borrowedBooks.isEmpty()) {
+                    JOptionPane.showMessageDialog(frame, "No borrowed books found for this reader.\nTotal books borrowed: " + summary.get().getTotalBorrowed(), "Information", JOptionPane.INFORMATION_MESSAGE);
                 } else {
 
                     JFrame resultFrame = new JFrame("Borrowed Books for " + firstName + " " + lastName);
@@ -325,6 +373,15 @@ public class BorrowedBookPanel extends BackgroundPanel {
                     resultFrame.setLocationRelativeTo(null);
                     resultFrame.setIconImage(icon.getImage());
 
+                    ReaderSummary readerSummary = summary.get();
+                    JLabel summaryLabel = new JLabel(String.format("Active loans: %d   Overdue: %d   Next due: %s   Total borrowed: %d",
+                            readerSummary.getActiveLoanCount(),
+                            readerSummary.getOverdueLoans(),
+                            readerSummary.getNextDueDate() == null ? "-" : readerSummary.getNextDueDate(),
+                            readerSummary.getTotalBorrowed()));
+                    summaryLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+                    resultFrame.add(summaryLabel, BorderLayout.NORTH);
+
                     String[] columnNames = {"Title", "Author", "Year of publication", "Borrow Date", "Return Date"};
                     Object[][] data = new Object[borrowedBooks.size()][5];
 
@@ -339,7 +396,7 @@ public class BorrowedBookPanel extends BackgroundPanel {
 
                     JTable table = new JTable(data, columnNames);
                     JScrollPane scrollPane = new JScrollPane(table);
-                    resultFrame.add(scrollPane);
+                    resultFrame.add(scrollPane, BorderLayout.CENTER);
                     resultFrame.setVisible(true);
                 }
 
@@ -442,10 +499,12 @@ public class BorrowedBookPanel extends BackgroundPanel {
                 LocalDate dob = LocalDate.parse(dobString);
                 Reader reader = new Reader(firstName, lastName, dob);
 
-                boolean hasOverdueLoans = borrowedBookService.hasOverdueLoans(reader);
+                Optional<ReaderSummary> summary = borrowedBookService.getReaderSummary(reader);
 
-                if (hasOverdueLoans) {
-                    JOptionPane.showMessageDialog(frame, "Reader " + firstName + " " + lastName + " has overdue loans.", "Overdue Loans", JOptionPane.WARNING_MESSAGE);
+                if (summary.isEmpty()) {
+                    JOptionPane.showMessageDialog(frame, "Reader does not exist in the database.", "Overdue Loans", JOptionPane.INFORMATION_MESSAGE);
+                } else if (summary.get().hasOverdueLoans()) {
+                    JOptionPane.showMessageDialog(frame, "Reader " + firstName + " " + lastName + " has " + summary.get().getOverdueLoans() + " overdue loans.", "Overdue Loans", JOptionPane.WARNING_MESSAGE);
                 } else {
                     JOptionPane.showMessageDialog(frame, "Reader " + firstName + " " + lastName + " does not have overdue loans.", "Overdue Loans", JOptionPane.INFORMATION_MESSAGE);
                 }
@@ -0,0 +1,130 @@
+package ui.panels;
+
+import config.ConnectionSource;
+import dao.ExportDAO;
+import export.DataExporter;
+import export.ExportFormat;
+import export.ExportResult;
+
+import javax.swing.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Form for exporting books, readers and loans to files, with one progress bar per dataset
+public class ExportPanel extends JPanel {
+    private final DataExporter dataExporter;
+    private final Map<ExportDAO.Dataset, JCheckBox> datasetBoxes = new EnumMap<>(ExportDAO.Dataset.class);
+    private final Map<ExportDAO.Dataset, JProgressBar> progressBars = new EnumMap<>(ExportDAO.Dataset.class);
+
+    public ExportPanel(ConnectionSource connectionSource) {
+        this.dataExporter = new DataExporter(connectionSource);
+        setLayout(null);
+
+        int y = 20;
+        for (ExportDAO.Dataset dataset : ExportDAO.Dataset.values()) {
+            JCheckBox datasetBox = new JCheckBox(dataset.getFileName(), true);
+            datasetBox.setBounds(20, y, 100, 25);
+            add(datasetBox);
+            datasetBoxes.put(dataset, datasetBox);
+
+            JProgressBar progressBar = new JProgressBar(0, 100);
+            progressBar.setStringPainted(true);
+            progressBar.setString("");
+            progressBar.setBounds(130, y, 330, 25);
+            add(progressBar);
+            progressBars.put(dataset, progressBar);
+            y += 35;
+        }
+
+        JLabel formatLabel = new JLabel("Format:");
+        formatLabel.setBounds(20, y, 100, 25);
+        add(formatLabel);
+
+        JComboBox<ExportFormat> formatBox = new JComboBox<>(ExportFormat.values());
+        formatBox.setBounds(130, y, 150, 25);
+        add(formatBox);
+
+        JCheckBox gzipBox = new JCheckBox("gzip");
+        gzipBox.setBounds(300, y, 100, 25);
+        add(gzipBox);
+        y += 35;
+
+        JLabel directoryLabel = new JLabel("Directory:");
+        directoryLabel.setBounds(20, y, 100, 25);
+        add(directoryLabel);
+
+        JTextField directoryField = new JTextField(Path.of(System.getProperty("user.home"), "library-export").toString());
+        directoryField.setBounds(130, y, 240, 25);
+        add(directoryField);
+
+        JButton browseButton = new JButton("Browse...");
+        browseButton.setBounds(375, y, 85, 25);
+        browseButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(directoryField.getText());
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                directoryField.setText(chooser.getSelectedFile().getPath());
+            }
+        });
+        add(browseButton);
+        y += 45;
+
+        JButton exportButton = new JButton("Export");
+        exportButton.setBounds(180, y, 100, 30);
+        exportButton.addActionListener(e -> {
+            List<ExportDAO.Dataset> datasets = new ArrayList<>();
+            datasetBoxes.forEach((dataset, box) -> {
+                if (box.isSelected()) {
+                    datasets.add(dataset);
+                }
+            });
+            if (datasets.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Select at least one dataset to export.", "Nothing to export", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            startExport(datasets, Path.of(directoryField.getText()), (ExportFormat) formatBox.getSelectedItem(), gzipBox.isSelected(), exportButton);
+        });
+        add(exportButton);
+    }
+
+    // Runs the export off the event thread; progress callbacks arrive on the export threads and are handed over to it
+    private void startExport(List<ExportDAO.Dataset> datasets, Path directory, ExportFormat format, boolean gzip, JButton exportButton) {
+        exportButton.setEnabled(false);
+        progressBars.values().forEach(bar -> {
+            bar.setValue(0);
+            bar.setString("");
+        });
+
+        new SwingWorker<List<ExportResult>, Void>() {
+            @Override
+            protected List<ExportResult> doInBackground() throws Exception {
+                return dataExporter.export(datasets, directory, format, gzip, (dataset, rowsWritten, totalRows) ->
+                        SwingUtilities.invokeLater(() -> showProgress(progressBars.get(dataset), rowsWritten, totalRows)));
+            }
+
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                try {
+                    long rows = 0;
+                    for (ExportResult result : get()) {
+                        rows += result.getRows();
+                    }
+                    JOptionPane.showMessageDialog(ExportPanel.this, "Exported " + rows + " rows to " + directory, "Export finished", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(ExportPanel.this, "Export failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private static void showProgress(JProgressBar progressBar, long rowsWritten, long totalRows) {
+        int percent = totalRows == 0 ? 100 : (int) Math.min(100, rowsWritten * 100 / totalRows);
+        progressBar.setValue(percent);
+        progressBar.setString(rowsWritten + " / " + totalRows);
+    }
+}
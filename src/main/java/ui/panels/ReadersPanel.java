@@ -1,5 +1,7 @@
 package ui.panels;
 
+import cache.QueryCache;
+import journal.LoanEventJournal;
 import model.Reader;
 import service.ReaderService;
 import ui.MainWindow;
@@ -14,9 +16,9 @@ import java.util.List;
 
 public class ReadersPanel extends BackgroundPanel {
     private final ReaderService readerService;
-    public ReadersPanel(String imagePath, Connection connection){
+    public ReadersPanel(String imagePath, Connection connection, LoanEventJournal loanEventJournal, QueryCache queryCache){
         super(imagePath);
-        this.readerService = new ReaderService(connection);
+        this.readerService = new ReaderService(connection, loanEventJournal, queryCache);
         setLayout(null);
 
         int buttonWidth = 224;
@@ -46,7 +48,7 @@ public class ReadersPanel extends BackgroundPanel {
         backButton.setBounds(270, 867, buttonWidth, buttonHeight);
         backButton.setBorderPainted(false);
         backButton.addActionListener(e -> {
-            SwingUtilities.getWindowAncestor(backButton).dispose();
+            SwingUtilities.getWindowAncestor(backButton).setVisible(false); // Kept for the next time it is opened
             MainWindow.showMainWindow();
         });
         add(backButton);
@@ -1,7 +1,5 @@
 package ui.util;
 
-import ui.MainWindow;
-
 import javax.swing.*;
 import java.awt.*;
 import java.util.logging.Level;
@@ -12,7 +10,7 @@ public class BackgroundPanel extends JPanel {
     private final Image backgroundImage;
 
     public BackgroundPanel(String imagePath) {
-        backgroundImage = new ImageIcon(MainWindow.class.getResource(imagePath)).getImage();
+        backgroundImage = Images.get(imagePath);
         if (backgroundImage == null) {
             logger.log(Level.SEVERE, "Error: Background image not found at " + imagePath);
         }
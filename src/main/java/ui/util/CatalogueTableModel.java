@@ -0,0 +1,59 @@
+package ui.util;
+
+import cache.ColumnarCatalogue;
+
+import javax.swing.table.AbstractTableModel;
+
+// Table model reading straight from a ColumnarCatalogue: JTable only asks for the visible cells, so listing
+// the whole catalogue creates no per-row objects, and replacing the catalogue is a single reference swap
+public class CatalogueTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"ID", "Title", "Author", "Pub. Year", "Quantity", "Loc. ID", "Section", "Shelf"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, String.class, Integer.class, Integer.class, Integer.class, String.class, Integer.class};
+
+    private ColumnarCatalogue catalogue = ColumnarCatalogue.empty();
+
+    // Must be called on the event dispatch thread
+    public void setCatalogue(ColumnarCatalogue catalogue) {
+        this.catalogue = catalogue;
+        fireTableDataChanged();
+    }
+
+    public ColumnarCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    @Override
+    public int getRowCount() {
+        return catalogue.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return switch (column) {
+            case 0 -> catalogue.getId(row);
+            case 1 -> catalogue.getTitle(row);
+            case 2 -> catalogue.getAuthor(row);
+            case 3 -> catalogue.getYearOfPublication(row);
+            case 4 -> catalogue.getQuantity(row);
+            case 5 -> catalogue.getLocationId(row);
+            case 6 -> catalogue.getSection(row);
+            case 7 -> catalogue.getShelf(row);
+            default -> throw new IndexOutOfBoundsException("No column " + column);
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package ui.util;
+
+import javax.swing.*;
+import java.awt.*;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Decoded images by resource path, shared by every window so each image is read and decoded only once
+public final class Images {
+    public static final String BACKGROUND = "/images/background.png";
+    public static final String ICON = "/images/icon.png";
+
+    private static final Map<String, Image> images = new ConcurrentHashMap<>();
+
+    private Images() {
+    }
+
+    // Returns the decoded image, or null if there is no such resource
+    public static Image get(String path) {
+        return images.computeIfAbsent(path, p -> {
+            URL url = Images.class.getResource(p);
+            return url != null ? new ImageIcon(url).getImage() : null;
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package util.collections;
+
+// Sizing and hashing shared by the open-addressing maps
+final class HashSupport {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashSupport() {}
+
+    // Smallest power of two that holds expectedSize entries without exceeding the load factor
+    static int capacityFor(int expectedSize, float loadFactor) {
+        long needed = Math.max(4, (long) Math.ceil(expectedSize / (double) loadFactor));
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many entries: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    // Spreads sequential IDs over the table (Fibonacci hashing)
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
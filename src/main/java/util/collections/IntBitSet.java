@@ -0,0 +1,115 @@
+package util.collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Set of non-negative IDs stored as one bit per possible ID, growing with the largest ID added.
+// Database IDs are dense, so a million-ID set takes about 125 KB and membership tests are a shift and a mask.
+// Iteration is in ascending order.
+public class IntBitSet {
+    private long[] words;
+    private int size;
+
+    public IntBitSet() {
+        this(64);
+    }
+
+    public IntBitSet(int expectedMaxId) {
+        words = new long[(Math.max(expectedMaxId, 0) >>> 6) + 1];
+    }
+
+    public static IntBitSet of(int... ids) {
+        IntBitSet set = new IntBitSet();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    // Returns true if the ID was not in the set yet
+    public boolean add(int id) {
+        checkId(id);
+        int word = id >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        long bit = 1L << id;
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        words[word] |= bit;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        int word = id >>> 6;
+        return id >= 0 && word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    // Returns true if the ID was in the set
+    public boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        words[id >>> 6] &= ~(1L << id);
+        size--;
+        return true;
+    }
+
+    public void addAll(IntBitSet other) {
+        other.forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] ids = new int[size];
+        int n = 0;
+        for (int word = 0; word < words.length; word++) {
+            for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                ids[n++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return ids;
+    }
+
+    private static void checkId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("IDs must not be negative: " + id);
+        }
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (!(object instanceof IntBitSet other)) return false;
+        return size == other.size && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
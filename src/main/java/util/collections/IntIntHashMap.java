@@ -0,0 +1,168 @@
+package util.collections;
+
+import java.util.Arrays;
+
+// Open-addressing int -> int map (linear probing over parallel primitive arrays): no boxing and no entry objects.
+// Keys are database IDs; 0 marks an empty slot and cannot be used as a key. Missing keys read as 0, which suits counters.
+public class IntIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = HashSupport.capacityFor(expectedSize, LOAD_FACTOR);
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        int slot = findSlot(key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return keys[findSlot(key)] == key;
+    }
+
+    // Returns the previous value, or 0 if the key was absent
+    public int put(int key, int value) {
+        int slot = findSlot(key);
+        if (keys[slot] == key) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(slot, key, value);
+        return 0;
+    }
+
+    // Adds delta to the key's value (absent keys start at 0) and returns the new value
+    public int addTo(int key, int delta) {
+        int slot = findSlot(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    // Returns the removed value, or 0 if the key was absent
+    public int remove(int key) {
+        int slot = findSlot(key);
+        if (keys[slot] != key) {
+            return 0;
+        }
+        int removed = values[slot];
+        deleteSlot(slot);
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // Adds every value of the other map to this one, e.g. to merge partial counts
+    public void addAll(IntIntHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    // Returns the keys in ascending order
+    public int[] sortedKeys() {
+        int[] sorted = new int[size];
+        int n = 0;
+        for (int key : keys) {
+            if (key != 0) {
+                sorted[n++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private int findSlot(int key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int mask = keys.length - 1;
+        int slot = HashSupport.mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, int key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    // Backward-shift deletion: moves later entries of the probe chain into the gap, so lookups need no tombstones
+    private void deleteSlot(int gap) {
+        int mask = keys.length - 1;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (keys[slot] == 0) {
+                break;
+            }
+            int home = HashSupport.mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = HashSupport.mix(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+-- PostgreSQL schema for the library database.
+-- The H2 equivalents used by the tests live in util.TestDatabaseHelper and must be kept in sync with this file.
+
+-- Global change watermark: every insert or update stamps the row with the next value, see dao.ChangeTracking
+CREATE SEQUENCE IF NOT EXISTS change_version_seq;
+
+CREATE TABLE IF NOT EXISTS book_shelf_location (
+    id SERIAL PRIMARY KEY,
+    section VARCHAR(255) NOT NULL,
+    shelf INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT nextval('change_version_seq')
+);
+
+CREATE TABLE IF NOT EXISTS books (
+    id SERIAL PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    author VARCHAR(255) NOT NULL,
+    year_of_publication INT NOT NULL,
+    quantity INT NOT NULL,
+    shelf_location_id INT NOT NULL REFERENCES book_shelf_location(id),
+    version BIGINT NOT NULL DEFAULT nextval('change_version_seq')
+);
+
+CREATE TABLE IF NOT EXISTS readers (
+    id SERIAL PRIMARY KEY,
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    date_of_birth DATE NOT NULL,
+    version BIGINT NOT NULL DEFAULT nextval('change_version_seq'),
+    active_loans INT NOT NULL DEFAULT 0 CHECK (active_loans >= 0),
+    fine_balance_cents BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS borrowed_books (
+    id SERIAL PRIMARY KEY,
+    reader_id INT NOT NULL REFERENCES readers(id),
+    book_id INT NOT NULL REFERENCES books(id),
+    borrow_date DATE NOT NULL,
+    return_due_date DATE NOT NULL,
+    version BIGINT NOT NULL DEFAULT nextval('change_version_seq'),
+    renewal_count INT NOT NULL DEFAULT 0,
+    fine_accrued_cents INT NOT NULL DEFAULT 0,
+    fine_accrued_through DATE
+);
+
+-- Reservation queues for books with no copies on the shelf, see dao.HoldDAO. A reader holds a book at most once.
+-- A returned copy goes to the oldest WAITING hold, which becomes READY until the reader borrows the copy or cancels.
+CREATE TABLE IF NOT EXISTS holds (
+    id SERIAL PRIMARY KEY,
+    reader_id INT NOT NULL REFERENCES readers(id),
+    book_id INT NOT NULL REFERENCES books(id),
+    placed_at TIMESTAMP NOT NULL,
+    status VARCHAR(16) NOT NULL CHECK (status IN ('WAITING', 'READY')),
+    UNIQUE (reader_id, book_id)
+);
+
+-- Append-only circulation history written by journal.LoanEventJournal.
+-- No foreign keys: history must survive the removal of books and readers.
+CREATE TABLE IF NOT EXISTS loan_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    reader_id INT NOT NULL,
+    book_id INT NOT NULL,
+    quantity_delta INT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL
+);
+
+-- Tombstones for deleted rows, read by the DAOs' changesSince methods
+CREATE TABLE IF NOT EXISTS deleted_rows (
+    table_name VARCHAR(64) NOT NULL,
+    row_id INT NOT NULL,
+    version BIGINT NOT NULL
+);
+
+-- Upgrade of databases created before the change watermark existed; existing rows get distinct versions
+ALTER TABLE book_shelf_location ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('change_version_seq');
+ALTER TABLE books ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('change_version_seq');
+ALTER TABLE readers ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('change_version_seq');
+ALTER TABLE borrowed_books ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('change_version_seq');
+
+-- Upgrade of databases created before loans could be renewed
+ALTER TABLE borrowed_books ADD COLUMN IF NOT EXISTS renewal_count INT NOT NULL DEFAULT 0;
+
+-- Upgrade of databases created before fines, see dao.FineDAO. Fines of existing overdue loans accrue from the first run.
+ALTER TABLE readers ADD COLUMN IF NOT EXISTS fine_balance_cents BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE borrowed_books ADD COLUMN IF NOT EXISTS fine_accrued_cents INT NOT NULL DEFAULT 0;
+ALTER TABLE borrowed_books ADD COLUMN IF NOT EXISTS fine_accrued_through DATE;
+
+CREATE INDEX IF NOT EXISTS idx_books_version ON books (version);
+CREATE INDEX IF NOT EXISTS idx_readers_version ON readers (version);
+CREATE INDEX IF NOT EXISTS idx_book_shelf_location_version ON book_shelf_location (version);
+CREATE INDEX IF NOT EXISTS idx_borrowed_books_version ON borrowed_books (version);
+CREATE INDEX IF NOT EXISTS idx_deleted_rows_table_version ON deleted_rows (table_name, version);
+
+-- Natural keys. The DAOs' add methods insert only if the key is absent and rely on these to settle races between desks.
+-- Books and readers are matched case-insensitively, hence the expression indexes (H2 has none, see TestDatabaseHelper).
+CREATE UNIQUE INDEX IF NOT EXISTS uq_books_natural_key ON books (LOWER(title), LOWER(author), year_of_publication);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_readers_natural_key ON readers (LOWER(first_name), LOWER(last_name), date_of_birth);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_book_shelf_location_section_shelf ON book_shelf_location (section, shelf);
+
+-- The hold queues: only waiting holds are indexed, so the head of a bestseller's queue is one seek away
+CREATE INDEX IF NOT EXISTS idx_holds_waiting_book ON holds (book_id, id) WHERE status = 'WAITING';
+
+-- Loan lookups by surrogate keys (BorrowedBookDAO's ID-based methods) are answered from these indexes alone.
+-- The (reader_id, book_id) index is also the loans' natural key, so it replaces the plain index of earlier versions.
+DROP INDEX IF EXISTS idx_borrowed_books_reader_book;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_borrowed_books_reader_book ON borrowed_books (reader_id, book_id) INCLUDE (id);
+CREATE INDEX IF NOT EXISTS idx_borrowed_books_reader_due ON borrowed_books (reader_id, return_due_date);
+-- The fine accrual run reads only overdue loans
+CREATE INDEX IF NOT EXISTS idx_borrowed_books_due ON borrowed_books (return_due_date);
+
+-- The reader summary reads borrow totals from readers.total_borrowed instead of counting loan_events
+DROP INDEX IF EXISTS idx_loan_events_reader_type;
+
+-- Active loan counter kept by the borrow and return paths, so the loan limit is checked without counting borrowed_books.
+-- Databases created before the counter existed are backfilled once, when the column is added.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'readers' AND column_name = 'active_loans') THEN
+        ALTER TABLE readers ADD COLUMN active_loans INT NOT NULL DEFAULT 0 CHECK (active_loans >= 0);
+        UPDATE readers r SET active_loans = (SELECT COUNT(*) FROM borrowed_books b WHERE b.reader_id = r.id);
+    END IF;
+END $$;
+
+-- Lifetime borrow counter, raised in the same transaction as each borrow (see ReaderDAO.reserveLoans).
+-- Databases created before the counter existed are backfilled once from the loan event journal, the only history there is.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns WHERE table_name = 'readers' AND column_name = 'total_borrowed') THEN
+        ALTER TABLE readers ADD COLUMN total_borrowed BIGINT NOT NULL DEFAULT 0;
+        UPDATE readers r SET total_borrowed = (SELECT COUNT(*) FROM loan_events le WHERE le.reader_id = r.id AND le.event_type = 'BORROW');
+    END IF;
+END $$;
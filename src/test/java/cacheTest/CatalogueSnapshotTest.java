@@ -0,0 +1,97 @@
+package cacheTest;
+
+import cache.CatalogueSnapshot;
+import model.Book;
+import model.BookLocation;
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogueSnapshotTest {
+
+    @TempDir
+    Path temporaryDirectory;
+
+    private List<Book> sampleCatalogue() {
+        BookLocation location = new BookLocation(1, "Programming", 3);
+        return List.of(
+                new Book(2, "Clean Code", "Robert C. Martin", 2008, 5, location),
+                new Book(1, "Effective Java", "Joshua Bloch", 2018, 10, location),
+                new Book(3, "Żółta książka", "Zażółć Gęślą", 1999, 0, new BookLocation(2, "Poezja", 1))
+        );
+    }
+
+    // Test that a saved snapshot is read back unchanged by a new instance
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path path = temporaryDirectory.resolve("catalogue.snapshot");
+        new CatalogueSnapshot(path).save(sampleCatalogue(), 42);
+
+        CatalogueSnapshot snapshot = new CatalogueSnapshot(path);
+        assertTrue(snapshot.load(), "A freshly written snapshot should load.");
+        assertEquals(42, snapshot.getWatermark(), "The watermark should be preserved.");
+
+        List<Book> books = snapshot.getAllBooks();
+        assertEquals(3, books.size(), "All books should be read back.");
+        assertEquals("Clean Code", books.get(0).getTitle(), "The catalogue order should be preserved.");
+        assertEquals(10, books.get(1).getQuantity(), "The quantity should be preserved.");
+        assertEquals("Żółta książka", books.get(2).getTitle(), "Non-ASCII titles should survive the round-trip.");
+        assertEquals("Poezja", books.get(2).getLocation().getSection(), "The location should be preserved.");
+    }
+
+    // Test that lookups are served from the snapshot, case-insensitively like the DAO
+    @Test
+    public void testLookups() throws IOException {
+        CatalogueSnapshot snapshot = new CatalogueSnapshot(temporaryDirectory.resolve("catalogue.snapshot"));
+        snapshot.save(sampleCatalogue(), 1);
+
+        Optional<Book> found = snapshot.findBookByDetails("effective java", "JOSHUA BLOCH", 2018);
+        assertTrue(found.isPresent(), "The book should be found regardless of case.");
+        assertEquals(1, found.get().getId());
+
+        assertEquals(1, snapshot.getBooksByTitle("clean code").size(), "Title lookups should find one book.");
+        assertTrue(snapshot.findBookByDetails("Effective Java", "Joshua Bloch", 2017).isEmpty(), "The year must match.");
+    }
+
+    // Test that a missing or foreign file is ignored instead of failing startup
+    @Test
+    public void testLoadMissingOrCorruptFile() throws IOException {
+        Path path = temporaryDirectory.resolve("catalogue.snapshot");
+        assertFalse(new CatalogueSnapshot(path).load(), "A missing snapshot should not load.");
+
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+        CatalogueSnapshot snapshot = new CatalogueSnapshot(path);
+        assertFalse(snapshot.load(), "A file with the wrong header should not load.");
+        assertFalse(snapshot.isLoaded());
+        assertTrue(snapshot.getAllBooks().isEmpty());
+    }
+
+    // Test that incremental changes are merged into the snapshot and persisted with the new watermark
+    @Test
+    public void testApplyChanges() throws IOException {
+        Path path = temporaryDirectory.resolve("catalogue.snapshot");
+        CatalogueSnapshot snapshot = new CatalogueSnapshot(path);
+        snapshot.save(sampleCatalogue(), 10);
+
+        BookLocation location = new BookLocation(1, "Programming", 3);
+        Book updated = new Book(1, "Effective Java", "Joshua Bloch", 2018, 7, location);
+        Book added = new Book(4, "Algorithms", "Robert Sedgewick", 2011, 2, location);
+        snapshot.applyChanges(new ChangeSet<>(List.of(updated, added), IntArrayList.of(2), 10, 15));
+
+        CatalogueSnapshot reloaded = new CatalogueSnapshot(path);
+        assertTrue(reloaded.load());
+        assertEquals(15, reloaded.getWatermark(), "The new watermark should be persisted.");
+        assertEquals(3, reloaded.getAllBooks().size(), "One book added and one removed should keep three books.");
+        assertEquals("Algorithms", reloaded.getAllBooks().getFirst().getTitle(), "Merged books should be kept in catalogue order.");
+        assertEquals(7, reloaded.findBookByDetails("Effective Java", "Joshua Bloch", 2018).get().getQuantity(), "Changed rows should replace old ones.");
+        assertTrue(reloaded.getBooksByTitle("Clean Code").isEmpty(), "Deleted books should be dropped.");
+    }
+}
@@ -0,0 +1,140 @@
+package cacheTest;
+
+import cache.ChangeFeed;
+import cache.ChangeListener;
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+
+    private Connection connection;
+    private Connection feedConnection;
+    private ChangeFeed changeFeed;
+    private final BlockingQueue<ChangeSet<Book>> bookChanges = new LinkedBlockingQueue<>();
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+        }
+    }
+
+    // H2 has no LISTEN/NOTIFY, so the feed runs in polling mode with a short interval
+    @BeforeEach
+    public void setup() throws SQLException, DatabaseOperationException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+
+        feedConnection = TestDatabaseHelper.getTestConnection();
+        changeFeed = new ChangeFeed(feedConnection, 20);
+        changeFeed.addListener(new ChangeListener() {
+            @Override
+            public void onBooksChanged(ChangeSet<Book> changes) {
+                bookChanges.add(changes);
+            }
+        });
+        changeFeed.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        changeFeed.close();
+        feedConnection.close();
+        connection.close();
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+            stmt.executeUpdate("DELETE FROM deleted_rows");
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    // Test that books added and removed on another connection reach the listener as incremental change sets
+    @Test
+    public void testBookChangesAreDelivered() throws Exception {
+        BookLocationDAO bookLocationDAO = new BookLocationDAO(connection);
+        BookDAO bookDAO = new BookDAO(connection);
+        int locationId = bookLocationDAO.addLocation(new BookLocation("A", 1)).get();
+        int bookId = bookDAO.addBook(new Book("Effective Java", "Joshua Bloch", 2018, 10, new BookLocation(locationId, "A", 1))).get();
+
+        ChangeSet<Book> added = bookChanges.poll(5, TimeUnit.SECONDS);
+        assertNotNull(added, "The added book should be delivered.");
+        assertEquals(List.of(bookId), added.getChangedRows().stream().map(Book::getId).toList());
+
+        bookDAO.removeBookByDetails("Effective Java", "Joshua Bloch", 2018);
+
+        ChangeSet<Book> removed = bookChanges.poll(5, TimeUnit.SECONDS);
+        assertNotNull(removed, "The removal should be delivered.");
+        assertEquals(added.getVersion(), removed.getSinceVersion(), "Each change set should continue from the previous one.");
+        assertEquals(IntArrayList.of(bookId), removed.getDeletedIds());
+        assertTrue(removed.getChangedRows().isEmpty());
+    }
+
+    // Test that a row whose transaction took its version first but committed last is still delivered, and only once
+    @Test
+    public void testOutOfOrderCommitIsDelivered() throws Exception {
+        int locationId = new BookLocationDAO(connection).addLocation(new BookLocation("A", 1)).get();
+        String insert = "INSERT INTO books (title, author, year_of_publication, quantity, shelf_location_id, version) " +
+                "VALUES (?, 'Author', 2020, 1, ?, nextval('change_version_seq'))";
+
+        try (Connection slowConnection = TestDatabaseHelper.getTestConnection()) {
+            slowConnection.setAutoCommit(false);
+            try (PreparedStatement statement = slowConnection.prepareStatement(insert)) {
+                statement.setString(1, "Slow");
+                statement.setInt(2, locationId);
+                statement.executeUpdate(); // Takes the lower version
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                statement.setString(1, "Fast");
+                statement.setInt(2, locationId);
+                statement.executeUpdate(); // Takes the higher version and commits first
+            }
+            ChangeSet<Book> fast = bookChanges.poll(5, TimeUnit.SECONDS);
+            assertNotNull(fast, "The first commit should be delivered.");
+            assertEquals(List.of("Fast"), fast.getChangedRows().stream().map(Book::getTitle).toList());
+
+            Thread.sleep(200); // Several more polls past the higher version before the lower one commits
+            slowConnection.commit();
+        }
+
+        ChangeSet<Book> slow = bookChanges.poll(5, TimeUnit.SECONDS);
+        assertNotNull(slow, "The row committed last should be delivered although its version is lower.");
+        assertEquals(List.of("Slow"), slow.getChangedRows().stream().map(Book::getTitle).toList());
+        assertNull(bookChanges.poll(200, TimeUnit.MILLISECONDS), "Rows already delivered should not be delivered again.");
+    }
+
+    // Test that nothing is delivered while nothing changes
+    @Test
+    public void testNoChangesNoDelivery() throws InterruptedException {
+        assertNull(bookChanges.poll(200, TimeUnit.MILLISECONDS), "Listeners should only be called for actual changes.");
+    }
+}
@@ -0,0 +1,112 @@
+package cacheTest;
+
+import cache.BookView;
+import cache.ColumnarCatalogue;
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import org.junit.jupiter.api.Test;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarCatalogueTest {
+
+    private ColumnarCatalogue sampleCatalogue() {
+        BookLocation programming = new BookLocation(1, "Programming", 3);
+        return ColumnarCatalogue.of(List.of(
+                new Book(2, "Clean Code", "Robert C. Martin", 2008, 5, programming),
+                new Book(4, "Clean Architecture", "Robert C. Martin", 2017, 1, programming),
+                new Book(1, "Effective Java", "Joshua Bloch", 2018, 10, programming),
+                new Book(3, "Żółta książka", "Zażółć Gęślą", 1999, 0, new BookLocation(2, "Poezja", 1))
+        ), 9);
+    }
+
+    // Test that every column reads back what was added, through the getters and a flyweight view
+    @Test
+    public void testColumnsAndViews() {
+        ColumnarCatalogue catalogue = sampleCatalogue();
+
+        assertEquals(4, catalogue.size());
+        assertEquals(9, catalogue.getVersion());
+        assertEquals("Effective Java", catalogue.getTitle(2));
+        assertEquals("Robert C. Martin", catalogue.getAuthor(1));
+
+        BookView view = catalogue.view(0);
+        assertEquals(2, view.getId());
+        assertEquals("Clean Code", view.getTitle());
+        view.moveTo(3);
+        assertEquals("Żółta książka", view.getTitle(), "Non-ASCII titles should be stored as UTF-8 and decoded back.");
+        assertEquals("Poezja", view.getSection());
+        assertEquals(1, view.getShelf());
+        assertEquals(new Book("Żółta książka", "Zażółć Gęślą", 1999), view.toBook());
+    }
+
+    // Test that title, author and natural key searches ignore case, for ASCII and non-ASCII titles alike
+    @Test
+    public void testSearch() {
+        ColumnarCatalogue catalogue = sampleCatalogue();
+
+        assertEquals(IntArrayList.of(0), catalogue.findRowsByTitle("CLEAN code"));
+        assertTrue(catalogue.findRowsByTitle("Clean").isEmpty(), "Titles should match whole, not by prefix.");
+        assertEquals(IntArrayList.of(3), catalogue.findRowsByTitle("ŻÓŁTA KSIĄŻKA"));
+        assertEquals(IntArrayList.of(0, 1), catalogue.findRowsByAuthor("robert c. martin"));
+        assertTrue(catalogue.findRowsByAuthor("Martin").isEmpty());
+        assertEquals(2, catalogue.findRow("effective java", "JOSHUA BLOCH", 2018));
+        assertEquals(-1, catalogue.findRow("Effective Java", "Joshua Bloch", 2017), "The year must match.");
+    }
+
+    // Test that changes are merged in catalogue order and deleted rows are dropped
+    @Test
+    public void testWithChanges() {
+        ColumnarCatalogue catalogue = sampleCatalogue();
+        BookLocation programming = new BookLocation(1, "Programming", 3);
+        ChangeSet<Book> changes = new ChangeSet<>(List.of(
+                new Book(1, "Effective Java", "Joshua Bloch", 2018, 7, programming),
+                new Book(5, "Algorithms", "Robert Sedgewick", 2011, 2, programming),
+                new Book(6, "Domain-Driven Design", "Eric Evans", 2003, 3, programming)
+        ), IntArrayList.of(4), 9, 12);
+
+        ColumnarCatalogue merged = catalogue.withChanges(changes);
+        List<String> titles = merged.toBooks().stream().map(Book::getTitle).toList();
+        assertEquals(List.of("Algorithms", "Clean Code", "Domain-Driven Design", "Effective Java", "Żółta książka"), titles);
+        assertEquals(7, merged.getQuantity(merged.findRow("Effective Java", "Joshua Bloch", 2018)), "Changed rows should replace old ones.");
+        assertEquals(12, merged.getVersion());
+        assertEquals(4, catalogue.size(), "The original catalogue should not change.");
+    }
+
+    // Test that the catalogue is streamed from the database in catalogue order with the highest row version
+    @Test
+    public void testLoadFromDatabase() throws SQLException, DatabaseOperationException {
+        try (Connection connection = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(connection);
+            TestDatabaseHelper.createBooksTable(connection);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                stmt.executeUpdate("DELETE FROM books");
+                stmt.executeUpdate("DELETE FROM book_shelf_location");
+                stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            }
+
+            int locationId = new BookLocationDAO(connection).addLocation(new BookLocation("A", 1)).get();
+            BookDAO bookDAO = new BookDAO(connection);
+            bookDAO.addBook(new Book("Refactoring", "Martin Fowler", 2018, 2, new BookLocation(locationId, "A", 1)));
+            bookDAO.addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, new BookLocation(locationId, "A", 1)));
+
+            ColumnarCatalogue catalogue = ColumnarCatalogue.load(bookDAO);
+            assertEquals(2, catalogue.size());
+            assertEquals("Clean Code", catalogue.getTitle(0), "Rows should be in title order.");
+            assertEquals("A", catalogue.getSection(1));
+            assertEquals(bookDAO.findBookByDetails("Clean Code", "Robert C. Martin", 2008).get().getVersion(), catalogue.getVersion(),
+                    "The catalogue version should be the newest row's version.");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package cacheTest;
+
+import cache.QueryCache;
+import exception.DatabaseOperationException;
+import model.ChangeSet;
+import org.junit.jupiter.api.Test;
+import util.collections.IntArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCacheTest {
+
+    private static final Set<String> BOOK_TABLES = Set.of(QueryCache.BOOKS, QueryCache.LOCATIONS);
+    private static final Set<String> READER_TABLES = Set.of(QueryCache.READERS);
+
+    // Test that a repeated query is answered from the cache, and different arguments are cached separately
+    @Test
+    public void testRepeatedQueryIsCached() throws DatabaseOperationException {
+        QueryCache cache = new QueryCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("Bloch 1", cache.get("books.by_author", BOOK_TABLES, () -> "Bloch " + loads.incrementAndGet(), "Bloch"));
+        assertEquals("Bloch 1", cache.get("books.by_author", BOOK_TABLES, () -> "Bloch " + loads.incrementAndGet(), "Bloch"));
+        assertEquals("Martin 2", cache.get("books.by_author", BOOK_TABLES, () -> "Martin " + loads.incrementAndGet(), "Martin"));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    // Test that invalidating a table drops only the entries read from it
+    @Test
+    public void testInvalidationDropsOnlyTaggedEntries() throws DatabaseOperationException {
+        QueryCache cache = new QueryCache(10);
+        cache.get("books.all", BOOK_TABLES, () -> "books");
+        cache.get("locations.all", Set.of(QueryCache.LOCATIONS), () -> "locations");
+        cache.get("readers.by_last_name", READER_TABLES, () -> "Does", "Doe");
+
+        cache.invalidate(QueryCache.READERS);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getInvalidations());
+
+        cache.invalidate(QueryCache.LOCATIONS); // Books are listed with their locations
+        assertEquals(0, cache.size());
+        assertEquals("reloaded", cache.get("books.all", BOOK_TABLES, () -> "reloaded"));
+    }
+
+    // Test that the least recently used entry is evicted first
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() throws DatabaseOperationException {
+        QueryCache cache = new QueryCache(2);
+        cache.get("readers.by_last_name", READER_TABLES, () -> "Does", "Doe");
+        cache.get("readers.by_last_name", READER_TABLES, () -> "Smiths", "Smith");
+        cache.get("readers.by_last_name", READER_TABLES, () -> "unused", "Doe"); // Doe is now the most recently used
+        cache.get("readers.by_last_name", READER_TABLES, () -> "Browns", "Brown");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("Does", cache.get("readers.by_last_name", READER_TABLES, () -> "reloaded", "Doe"));
+        assertEquals("reloaded", cache.get("readers.by_last_name", READER_TABLES, () -> "reloaded", "Smith"));
+
+        cache.invalidate(QueryCache.READERS); // Evicted keys must not linger in the table's tag set
+        assertEquals(0, cache.size());
+    }
+
+    // Test that a result loaded while its table was invalidated is returned but not kept
+    @Test
+    public void testResultLoadedDuringInvalidationIsNotKept() throws DatabaseOperationException {
+        QueryCache cache = new QueryCache(10);
+
+        String result = cache.get("books.all", BOOK_TABLES, () -> {
+            cache.invalidate(QueryCache.BOOKS); // A write commits while the query runs
+            return "maybe stale";
+        });
+
+        assertEquals("maybe stale", result);
+        assertEquals(0, cache.size());
+        assertEquals("fresh", cache.get("books.all", BOOK_TABLES, () -> "fresh"));
+    }
+
+    // Test that changes delivered by the change feed invalidate the matching table
+    @Test
+    public void testChangeFeedInvalidates() throws DatabaseOperationException {
+        QueryCache cache = new QueryCache(10);
+        cache.get("books.all", BOOK_TABLES, () -> "books");
+        cache.get("readers.by_last_name", READER_TABLES, () -> "Does", "Doe");
+
+        cache.onReadersChanged(new ChangeSet<>(List.of(), IntArrayList.of(1), 1, 2));
+
+        assertEquals(1, cache.size());
+        assertEquals("books", cache.get("books.all", BOOK_TABLES, () -> "reloaded"));
+    }
+
+    // Test that a failed load leaves nothing cached
+    @Test
+    public void testFailedLoadIsNotCached() throws DatabaseOperationException {
+        QueryCache cache = new QueryCache(10);
+
+        assertThrows(DatabaseOperationException.class, () -> cache.get("books.all", BOOK_TABLES, () -> {
+            throw new DatabaseOperationException("Database operation failed.");
+        }));
+        assertEquals(0, cache.size());
+        assertEquals("books", cache.get("books.all", BOOK_TABLES, () -> "books"));
+    }
+}
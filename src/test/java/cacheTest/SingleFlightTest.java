@@ -0,0 +1,102 @@
+package cacheTest;
+
+import cache.SingleFlight;
+import exception.DatabaseOperationException;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    // Loaders may only throw DatabaseOperationException
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Test that callers arriving while a call runs share its result, and a later caller runs a new call
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("Clean Code", () -> {
+                started.countDown();
+                await(release);
+                return "result " + executions.incrementAndGet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("Clean Code", () -> "result " + executions.incrementAndGet())));
+            }
+            while (singleFlight.getCoalescedCalls() < 4) {
+                Thread.onSpinWait(); // Until every follower is waiting on the leader's call
+            }
+            release.countDown();
+
+            assertEquals("result 1", leader.get());
+            for (Future<String> follower : followers) {
+                assertEquals("result 1", follower.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(5, singleFlight.getCalls());
+        assertEquals(1, singleFlight.getExecutions());
+
+        assertEquals("result 2", singleFlight.execute("Clean Code", () -> "result " + executions.incrementAndGet()),
+                "Nothing is kept once a call completes.");
+    }
+
+    // Test that a failed call fails the waiting callers too, and different keys never wait for each other
+    @Test
+    public void testFailureIsSharedAndKeysAreIndependent() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("broken", () -> {
+                started.countDown();
+                await(release);
+                throw new DatabaseOperationException("Database operation failed.");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> singleFlight.execute("broken", () -> "never"));
+            while (singleFlight.getCoalescedCalls() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertEquals("other", singleFlight.execute("other key", () -> "other"), "Other keys should not wait.");
+            release.countDown();
+
+            Exception leaderFailure = assertThrows(Exception.class, leader::get);
+            assertInstanceOf(DatabaseOperationException.class, leaderFailure.getCause());
+            Exception followerFailure = assertThrows(Exception.class, follower::get);
+            assertInstanceOf(DatabaseOperationException.class, followerFailure.getCause());
+            assertEquals("Database operation failed.", followerFailure.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
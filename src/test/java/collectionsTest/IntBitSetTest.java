@@ -0,0 +1,48 @@
+package collectionsTest;
+
+import org.junit.jupiter.api.Test;
+import util.collections.IntArrayList;
+import util.collections.IntBitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntBitSetTest {
+
+    // Test that IDs are added once, grow the set as needed and are iterated in ascending order
+    @Test
+    public void testAddContainsRemove() {
+        IntBitSet ids = new IntBitSet(10);
+
+        assertTrue(ids.add(1_000_000), "The set should grow for large IDs.");
+        assertTrue(ids.add(3));
+        assertTrue(ids.add(64));
+        assertFalse(ids.add(3), "Adding an ID twice should report it as present.");
+        assertEquals(3, ids.size());
+        assertTrue(ids.contains(64));
+        assertFalse(ids.contains(65));
+        assertFalse(ids.contains(-1));
+        assertArrayEquals(new int[]{3, 64, 1_000_000}, ids.toArray());
+
+        assertTrue(ids.remove(64));
+        assertFalse(ids.remove(64));
+        assertEquals(IntBitSet.of(1_000_000, 3), ids);
+        assertThrows(IllegalArgumentException.class, () -> ids.add(-5));
+    }
+
+    // Test the growable int list used for ID lists
+    @Test
+    public void testIntArrayList() {
+        IntArrayList list = new IntArrayList(1);
+        for (int i = 20; i > 0; i--) {
+            list.add(i);
+        }
+
+        assertEquals(20, list.size());
+        assertEquals(20, list.get(0));
+        assertTrue(list.contains(7));
+        list.sort();
+        assertEquals(1, list.get(0));
+        assertEquals(IntArrayList.of(1, 2, 3), IntArrayList.of(list.get(0), list.get(1), list.get(2)));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(20));
+    }
+}
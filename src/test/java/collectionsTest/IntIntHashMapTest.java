@@ -0,0 +1,57 @@
+package collectionsTest;
+
+import org.junit.jupiter.api.Test;
+import util.collections.IntIntHashMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntIntHashMapTest {
+
+    // Test put, get, addTo and remove on a few keys
+    @Test
+    public void testBasicOperations() {
+        IntIntHashMap map = new IntIntHashMap();
+
+        assertEquals(0, map.put(7, 70));
+        assertEquals(70, map.put(7, 71), "put should return the previous value.");
+        assertEquals(3, map.addTo(9, 3), "Absent keys should start at 0.");
+        assertEquals(5, map.addTo(9, 2));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(9));
+        assertEquals(0, map.get(8), "Missing keys should read as 0.");
+        assertEquals(-1, map.getOrDefault(8, -1));
+
+        assertEquals(71, map.remove(7));
+        assertFalse(map.containsKey(7));
+        assertEquals(1, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1), "Key 0 is reserved.");
+    }
+
+    // Test that growing and removing with colliding probe chains behaves like a HashMap
+    @Test
+    public void testMatchesHashMapUnderRandomOperations() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, 0).intValue(), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.merge(key, 1, Integer::sum).intValue(), map.addTo(key, 1));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        map.forEach((key, value) -> assertEquals(expected.get(key).intValue(), value));
+        int[] keys = map.sortedKeys();
+        for (int i = 1; i < keys.length; i++) {
+            assertTrue(keys[i - 1] < keys[i], "Keys should be sorted ascending.");
+        }
+    }
+}
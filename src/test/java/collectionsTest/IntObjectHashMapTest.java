@@ -0,0 +1,35 @@
+package collectionsTest;
+
+import org.junit.jupiter.api.Test;
+import util.collections.IntObjectHashMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntObjectHashMapTest {
+
+    // Test that puts and removes with colliding probe chains behave like a HashMap
+    @Test
+    public void testMatchesHashMapUnderRandomOperations() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>(4);
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = 1 + random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+        assertNull(map.get(1_001), "Missing keys should read as null.");
+    }
+}
@@ -0,0 +1,91 @@
+package configTest;
+
+import config.AppConfig;
+import config.ConfigWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppConfigTest {
+
+    @TempDir
+    Path directory;
+
+    private Path writeFile(String content) throws IOException {
+        Path file = directory.resolve("library.properties");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    // Test that unset settings have their built-in defaults
+    @Test
+    public void testDefaults() {
+        AppConfig config = AppConfig.load(null, Map.of(), new Properties());
+
+        assertEquals(28, config.get(AppConfig.BORROW_PERIOD_DAYS));
+        assertEquals(16, config.get(AppConfig.POOL_MAX_SIZE));
+        assertEquals(0L, config.get(AppConfig.QUERY_CACHE_TTL_MILLIS));
+        assertNull(config.get(AppConfig.DB_REPLICA_URL));
+        assertTrue(config.getFile().isEmpty());
+    }
+
+    // Test that environment variables override the file and system properties override both
+    @Test
+    public void testLayerPrecedence() throws IOException {
+        Path file = writeFile("pool.max_size=4\nquery_cache.max_entries=100\njournal.batch_size=32\n");
+        Map<String, String> environment = Map.of("LIBRARY_QUERY_CACHE_MAX_ENTRIES", "200", "LIBRARY_JOURNAL_BATCH_SIZE", "64");
+        Properties systemProperties = new Properties();
+        systemProperties.setProperty("library.journal.batch_size", "128");
+
+        AppConfig config = AppConfig.load(file, environment, systemProperties);
+
+        assertEquals(4, config.get(AppConfig.POOL_MAX_SIZE));
+        assertEquals(200, config.get(AppConfig.QUERY_CACHE_MAX_ENTRIES));
+        assertEquals(128, config.get(AppConfig.JOURNAL_BATCH_SIZE));
+        assertEquals(file, config.getFile().orElseThrow());
+    }
+
+    // Test that values which do not parse or are out of range are rejected
+    @Test
+    public void testInvalidValueRejected() throws IOException {
+        Path notANumber = writeFile("pool.max_size=many\n");
+        assertThrows(IllegalArgumentException.class, () -> AppConfig.load(notANumber, Map.of(), new Properties()));
+
+        Path tooSmall = writeFile("pool.max_size=0\n");
+        assertThrows(IllegalArgumentException.class, () -> AppConfig.load(tooSmall, Map.of(), new Properties()));
+    }
+
+    // Test that a reload takes new values of reloadable settings only
+    @Test
+    public void testReloadKeepsRestartOnlySettings() throws IOException {
+        Path file = writeFile("pool.max_size=4\nloans.max_active=5\n");
+        AppConfig config = AppConfig.load(file, Map.of(), new Properties());
+
+        writeFile("pool.max_size=8\nloans.max_active=10\n");
+        AppConfig reloaded = config.reload();
+
+        assertEquals(8, reloaded.get(AppConfig.POOL_MAX_SIZE));
+        assertEquals(5, reloaded.get(AppConfig.MAX_ACTIVE_LOANS), "Loan rules should only change on restart.");
+    }
+
+    // Test that the watcher runs its action when the file changes
+    @Test
+    public void testWatcherDetectsChange() throws IOException, InterruptedException {
+        Path file = writeFile("pool.max_size=4\n");
+        CountDownLatch changed = new CountDownLatch(1);
+
+        try (ConfigWatcher watcher = new ConfigWatcher(file, changed::countDown, 50)) {
+            watcher.start();
+            writeFile("pool.max_size=8\n");
+            assertTrue(changed.await(30, TimeUnit.SECONDS), "The change should have been detected.");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package configTest;
+
+import config.ConnectionPool;
+import org.junit.jupiter.api.Test;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    // Test that a returned connection is reset and lent again instead of opening a new one
+    @Test
+    public void testConnectionIsResetAndReused() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        try (ConnectionPool pool = new ConnectionPool(() -> {
+            opened.incrementAndGet();
+            return TestDatabaseHelper.getTestConnection();
+        }, 2)) {
+            Connection first = pool.getConnection();
+            first.setAutoCommit(false);
+            first.setReadOnly(true);
+            assertEquals(1, pool.getActiveCount());
+            first.close();
+            first.close(); // Giving back twice is harmless
+
+            assertTrue(first.isClosed());
+            assertThrows(SQLException.class, first::createStatement, "A returned connection cannot be used any more.");
+
+            try (Connection second = pool.getConnection()) {
+                assertTrue(second.getAutoCommit(), "Auto-commit should be restored.");
+                assertFalse(second.isReadOnly(), "Read-only should be reset.");
+            }
+            assertEquals(1, opened.get());
+            assertEquals(1, pool.getIdleCount());
+            assertEquals(0, pool.getActiveCount());
+        }
+    }
+
+    // Test that a caller beyond the maximum waits and times out if no connection comes back
+    @Test
+    public void testAcquireTimesOutWhenExhausted() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(TestDatabaseHelper::getTestConnection, 1, 50);
+             Connection lent = pool.getConnection()) {
+            assertNotNull(lent);
+            SQLException exception = assertThrows(SQLException.class, pool::getConnection);
+            assertTrue(exception.getMessage().contains("Timed out"));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package configTest;
+
+import config.ConnectionRouter;
+import config.ConnectionSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import util.TestDatabaseHelper;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionRouterTest {
+
+    // A second in-memory database standing in for the streaming replica
+    private static Connection getReplicaConnection() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("user");
+        dataSource.setPassword("password");
+        return dataSource.getConnection();
+    }
+
+    private static boolean isReplica(Connection connection) throws SQLException {
+        return connection.getMetaData().getURL().contains("replica");
+    }
+
+    // Test that reads go to the replica and writes to the primary
+    @Test
+    public void testReadsGoToReplica() throws SQLException, IOException {
+        ConnectionRouter router = new ConnectionRouter(TestDatabaseHelper::getTestConnection, ConnectionRouterTest::getReplicaConnection);
+
+        try (Connection read = router.getReadConnection(); Connection write = router.getPrimaryConnection()) {
+            assertTrue(isReplica(read));
+            assertFalse(isReplica(write));
+        }
+        assertEquals(1, router.getReplicaReads());
+        assertEquals(0, router.getPrimaryReads());
+    }
+
+    // Test that reads stay on the primary for the read-your-writes window after a write
+    @Test
+    public void testReadYourWritesWindow() throws SQLException, IOException, InterruptedException {
+        ConnectionRouter router = new ConnectionRouter(TestDatabaseHelper::getTestConnection, ConnectionRouterTest::getReplicaConnection, 100, 0);
+
+        router.recordWrite();
+        try (Connection read = router.getReadConnection()) {
+            assertFalse(isReplica(read), "A read right after a write should see the primary.");
+        }
+
+        Thread.sleep(150);
+        try (Connection read = router.getReadConnection()) {
+            assertTrue(isReplica(read), "Once the window has passed, reads should go back to the replica.");
+        }
+    }
+
+    // Test that an unreachable replica falls back to the primary and is not retried until the retry interval has passed
+    @Test
+    public void testFallbackToPrimary() throws SQLException, IOException, InterruptedException {
+        AtomicInteger replicaAttempts = new AtomicInteger();
+        ConnectionSource unreachableReplica = () -> {
+            replicaAttempts.incrementAndGet();
+            throw new SQLException("Connection refused");
+        };
+        ConnectionRouter router = new ConnectionRouter(TestDatabaseHelper::getTestConnection, unreachableReplica, 0, 100);
+
+        try (Connection first = router.getReadConnection(); Connection second = router.getReadConnection()) {
+            assertFalse(isReplica(first));
+            assertFalse(isReplica(second));
+        }
+        assertEquals(1, replicaAttempts.get(), "The replica should not be retried within the retry interval.");
+        assertEquals(1, router.getFallbacks());
+        assertEquals(2, router.getPrimaryReads());
+
+        Thread.sleep(150);
+        router.getReadConnection().close();
+        assertEquals(2, replicaAttempts.get(), "The replica should be retried once the interval has passed.");
+    }
+
+    // Test that without a replica every read goes to the primary
+    @Test
+    public void testWithoutReplica() throws SQLException, IOException {
+        ConnectionRouter router = new ConnectionRouter(TestDatabaseHelper::getTestConnection);
+
+        try (Connection read = router.getReadConnection()) {
+            assertFalse(isReplica(read));
+        }
+        assertFalse(router.hasReplica());
+        assertEquals(1, router.getPrimaryReads());
+    }
+}
@@ -5,6 +5,7 @@ import dao.BookLocationDAO;
 import exception.DatabaseOperationException;
 import model.Book;
 import model.BookLocation;
+import model.ChangeSet;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -121,6 +122,17 @@ public class BookDAOTest {
         assertEquals(8, currentQuantity, "The quantity should be reduced to 8 after decreasing by 2.");
     }
 
+    // Test that a decrease below zero is refused and leaves the quantity unchanged
+    @Test
+    public void testDecreaseBookQuantityBelowZero() throws DatabaseOperationException {
+        BookLocation location = insertShelfLocation();
+        Book book = new Book("Effective Java", "Joshua Bloch", 2018, 2, location);
+        bookDAO.addBook(book);
+
+        assertFalse(bookDAO.decreaseBookQuantity(book, 3), "A decrease below zero should be refused.");
+        assertEquals(2, bookDAO.getAllBooks().getFirst().getQuantity(), "The refused decrease should not change the quantity.");
+    }
+
     // Test for retrieving all books from the database
     @Test
     public void testGetAllBooks() throws DatabaseOperationException {
@@ -214,4 +226,43 @@ public class BookDAOTest {
         List<Book> booksAfterRemoval = bookDAO.getAllBooks();
         assertTrue(booksAfterRemoval.isEmpty(), "There should be no books after removal.");
     }
+
+    // Test that changesSince returns only books changed after the watermark, plus tombstones for removed books
+    @Test
+    public void testChangesSince() throws DatabaseOperationException, SQLException {
+        BookLocation location = insertShelfLocation();
+        bookDAO.addBook(new Book("Effective Java", "Joshua Bloch", 2018, 10, location));
+        bookDAO.addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, location));
+        long watermark = bookDAO.changesSince(0).getVersion();
+
+        bookDAO.increaseBookQuantity(new Book("Effective Java", "Joshua Bloch", 2018), 1);
+        bookDAO.removeBookByDetails("Clean Code", "Robert C. Martin", 2008);
+
+        ChangeSet<Book> changes = bookDAO.changesSince(watermark);
+        assertEquals(1, changes.getChangedRows().size(), "Only the updated book should be returned.");
+        assertEquals(11, changes.getChangedRows().getFirst().getQuantity(), "The changed row should carry the new quantity.");
+        assertEquals(1, changes.getDeletedIds().size(), "The removed book should be reported as a tombstone.");
+        assertTrue(changes.getVersion() > watermark, "The watermark should advance.");
+
+        assertTrue(bookDAO.changesSince(changes.getVersion()).isEmpty(), "Nothing should change after the new watermark.");
+    }
+
+    // Test that a quantity update with a stale version is rejected instead of overwriting a newer change
+    @Test
+    public void testCompareAndSetQuantity() throws DatabaseOperationException {
+        BookLocation location = insertShelfLocation();
+        bookDAO.addBook(new Book("Effective Java", "Joshua Bloch", 2018, 10, location));
+
+        Book firstRead = bookDAO.findBookByDetails("Effective Java", "Joshua Bloch", 2018).get();
+        Book secondRead = bookDAO.findBookById(firstRead.getId()).get();
+        assertEquals(firstRead.getVersion(), secondRead.getVersion(), "Both reads should see the same version.");
+
+        assertTrue(bookDAO.compareAndSetQuantity(firstRead, 9), "The first update should succeed.");
+        assertFalse(bookDAO.compareAndSetQuantity(secondRead, 9), "An update based on a stale read should be rejected.");
+
+        Book current = bookDAO.findBookById(firstRead.getId()).get();
+        assertEquals(9, current.getQuantity());
+        assertTrue(current.getVersion() > firstRead.getVersion(), "A successful update should advance the version.");
+        assertTrue(bookDAO.compareAndSetQuantity(current, 8), "An update based on a fresh read should succeed.");
+    }
 }
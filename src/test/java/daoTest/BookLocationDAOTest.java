@@ -5,6 +5,8 @@ import dao.BookLocationDAO;
 import exception.DatabaseOperationException;
 import model.Book;
 import model.BookLocation;
+import model.ChangeSet;
+import util.collections.IntArrayList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -156,4 +158,18 @@ public class BookLocationDAOTest {
         assertFalse(result, "Attempting to remove a non-existing location should return false.");
     }
 
+    // Test that changesSince returns locations added after the watermark and tombstones for removed locations
+    @Test
+    public void testChangesSince() throws DatabaseOperationException {
+        Optional<Integer> firstId = bookLocationDAO.addLocation(new BookLocation("A", 1));
+        long watermark = bookLocationDAO.changesSince(0).getVersion();
+
+        bookLocationDAO.addLocation(new BookLocation("B", 2));
+        bookLocationDAO.removeBookLocation("A", 1);
+
+        ChangeSet<BookLocation> changes = bookLocationDAO.changesSince(watermark);
+        assertEquals(1, changes.getChangedRows().size(), "Only the new location should be returned.");
+        assertEquals("B", changes.getChangedRows().getFirst().getSection());
+        assertEquals(IntArrayList.of(firstId.get()), changes.getDeletedIds(), "The removed location should be reported as a tombstone.");
+    }
 }
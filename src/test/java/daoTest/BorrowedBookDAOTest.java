@@ -3,12 +3,19 @@ package daoTest;
 import dao.BookDAO;
 import dao.BookLocationDAO;
 import dao.BorrowedBookDAO;
+import dao.LoanEventDAO;
 import dao.ReaderDAO;
 import exception.DatabaseOperationException;
 import model.Book;
 import model.BookLocation;
 import model.BorrowedBook;
+import model.LoanEvent;
 import model.Reader;
+import model.ReaderSummary;
+import model.ChangeSet;
+import util.collections.IntArrayList;
+import util.collections.IntBitSet;
+import util.collections.IntIntHashMap;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -38,6 +45,7 @@ public class BorrowedBookDAOTest {
             TestDatabaseHelper.createBooksTable(conn);
             TestDatabaseHelper.createReadersTable(conn);
             TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createLoanEventsTable(conn);
         }
     }
 
@@ -70,6 +78,7 @@ public class BorrowedBookDAOTest {
             stmt.executeUpdate("DELETE FROM books");
             stmt.executeUpdate("DELETE FROM book_shelf_location");
             stmt.executeUpdate("DELETE FROM readers");
+            stmt.executeUpdate("DELETE FROM loan_events");
 
             stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
         }
@@ -229,4 +238,114 @@ public class BorrowedBookDAOTest {
         assertFalse(result, "Removing a non-existing borrowed book should return false.");
 
     }
+
+    // Test that changesSince reports a new loan and, after the return, its tombstone
+    @Test
+    public void testChangesSince() throws DatabaseOperationException {
+        Reader reader = insertReader();
+        Book book = insertBook();
+        long watermark = borrowedBookDAO.changesSince(0).getVersion();
+
+        Optional<Integer> loanId = borrowedBookDAO.addBorrowedBook(reader, book);
+        ChangeSet<BorrowedBook> afterBorrow = borrowedBookDAO.changesSince(watermark);
+        assertEquals(1, afterBorrow.getChangedRows().size(), "The new loan should be returned.");
+        assertEquals(LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS), afterBorrow.getChangedRows().getFirst().getReturnDueDate());
+
+        borrowedBookDAO.removeBorrowedBook(reader, book);
+        ChangeSet<BorrowedBook> afterReturn = borrowedBookDAO.changesSince(afterBorrow.getVersion());
+        assertTrue(afterReturn.getChangedRows().isEmpty(), "No loan rows should have changed.");
+        assertEquals(IntArrayList.of(loanId.get()), afterReturn.getDeletedIds(), "The returned loan should be reported as a tombstone.");
+    }
+
+    // Test that loans inserted as a batch can be found by reader and book IDs and removed with one statement
+    @Test
+    public void testBatchAddFindAndRemove() throws DatabaseOperationException {
+        Reader reader = insertReader();
+        Book book = insertBook();
+        Optional<Integer> secondBookId = bookDAO.addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, book.getLocation()));
+
+        IntArrayList borrowIds = borrowedBookDAO.addBorrowedBooks(List.of(
+                new BorrowedBook(reader.getId(), book.getId(), LocalDate.now()),
+                new BorrowedBook(reader.getId(), secondBookId.get(), LocalDate.now()))).orElseThrow();
+        assertEquals(2, borrowIds.size(), "Every inserted loan should get an ID.");
+
+        List<BorrowedBook> found = borrowedBookDAO.findBorrowedBooksByReadersAndBooks(IntBitSet.of(reader.getId()), IntBitSet.of(book.getId(), secondBookId.get()));
+        assertEquals(2, found.size(), "Both loans should be found.");
+        assertTrue(borrowedBookDAO.findReaderIdsWithOverdueLoans(IntBitSet.of(reader.getId())).isEmpty(), "New loans are not overdue.");
+
+        assertEquals(2, borrowedBookDAO.removeBorrowedBooksByIds(borrowIds), "Both loans should be removed.");
+        assertTrue(borrowedBookDAO.findBorrowedBooksByReadersAndBooks(IntBitSet.of(reader.getId()), IntBitSet.of(book.getId())).isEmpty());
+    }
+
+    // Test that a batch containing a loan that already exists is refused instead of failing
+    @Test
+    public void testBatchAddRefusesExistingLoan() throws DatabaseOperationException {
+        Reader reader = insertReader();
+        Book book = insertBook();
+        Optional<Integer> secondBookId = bookDAO.addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, book.getLocation()));
+        borrowedBookDAO.addBorrowedBook(reader, book); // Lent at another desk since the caller checked
+
+        Optional<IntArrayList> borrowIds = borrowedBookDAO.addBorrowedBooks(List.of(
+                new BorrowedBook(reader.getId(), secondBookId.get(), LocalDate.now()),
+                new BorrowedBook(reader.getId(), book.getId(), LocalDate.now())));
+        assertTrue(borrowIds.isEmpty(), "A batch with an existing loan should be refused so the caller can roll back.");
+    }
+
+    // Test that loans are found by reader and book IDs, and by their details when the objects carry no IDs
+    @Test
+    public void testIdBasedLookups() throws DatabaseOperationException {
+        Reader reader = insertReader();
+        Book book = insertBook();
+        Optional<Integer> borrowId = borrowedBookDAO.addBorrowedBook(reader, book);
+
+        assertEquals(borrowId, borrowedBookDAO.findBorrowedBookIdByReaderAndBook(reader.getId(), book.getId()), "The loan should be found by IDs.");
+        assertEquals(borrowId, borrowedBookDAO.findBorrowedBookIdByReaderAndBook(
+                new Reader(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth()),
+                new Book(book.getTitle(), book.getAuthor(), book.getYearOfPublication())), "Objects without IDs should fall back to their details.");
+        assertTrue(borrowedBookDAO.findBorrowedBookIdByReaderAndBook(reader.getId(), book.getId() + 1).isEmpty());
+
+        assertEquals(1, borrowedBookDAO.getBooksBorrowedByReaderWithDates(reader.getId()).size());
+        assertFalse(borrowedBookDAO.hasOverdueLoans(reader.getId()), "A new loan is not overdue.");
+
+        assertTrue(borrowedBookDAO.removeBorrowedBookById(borrowId.get()));
+        assertTrue(borrowedBookDAO.getBooksBorrowedByReaderWithDates(reader.getId()).isEmpty());
+    }
+
+    // Test that the reader summary aggregates the active loans, overdue count, next due date and lifetime borrows
+    @Test
+    public void testGetReaderSummary() throws DatabaseOperationException, SQLException {
+        Reader reader = insertReader();
+        Book book = insertBook();
+        Optional<Integer> secondBookId = bookDAO.addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, book.getLocation()));
+        borrowedBookDAO.addBorrowedBook(reader, book);
+        borrowedBookDAO.addBorrowedBook(reader, new Book(secondBookId.get(), "Clean Code", "Robert C. Martin", 2008, 5, book.getLocation()));
+        IntIntHashMap loans = new IntIntHashMap();
+        loans.put(reader.getId(), 2);
+        assertTrue(new ReaderDAO(connection).reserveLoans(loans, BorrowedBook.MAX_ACTIVE_LOANS));
+        new LoanEventDAO(connection).addEvents(List.of(LoanEvent.borrow(reader.getId(), book.getId()))); // Not counted
+
+        try (PreparedStatement updateStmt = connection.prepareStatement("UPDATE borrowed_books SET return_due_date = ? WHERE book_id = ?")) {
+            updateStmt.setDate(1, java.sql.Date.valueOf(LocalDate.now().minusDays(5)));
+            updateStmt.setInt(2, book.getId());
+            updateStmt.executeUpdate();
+        }
+
+        Reader byDetails = new Reader("JOHN", "doe", reader.getDateOfBirth());
+        ReaderSummary summary = borrowedBookDAO.getReaderSummary(byDetails).get();
+        assertEquals(reader.getId(), summary.getReader().getId(), "The reader should be resolved by details.");
+        assertEquals(2, summary.getActiveLoanCount());
+        assertEquals(1, summary.getOverdueLoans());
+        assertEquals(LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS), summary.getNextDueDate(), "Overdue loans are not the next due.");
+        assertEquals(2, summary.getTotalBorrowed(), "Borrows should be counted when their loan slots are reserved.");
+        assertTrue(summary.getActiveLoans().getFirst().contains("Effective Java"), "Loans should be ordered by due date.");
+
+        borrowedBookDAO.removeBorrowedBook(reader, book);
+        borrowedBookDAO.removeBorrowedBook(reader, new Book(secondBookId.get(), "Clean Code", "Robert C. Martin", 2008, 5, book.getLocation()));
+        ReaderSummary empty = borrowedBookDAO.getReaderSummary(reader).get();
+        assertEquals(0, empty.getActiveLoanCount(), "A reader without loans still has a summary.");
+        assertEquals(0, empty.getOverdueLoans());
+        assertNull(empty.getNextDueDate());
+
+        assertTrue(borrowedBookDAO.getReaderSummary(new Reader("Jane", "Doe", LocalDate.of(1990, 1, 1))).isEmpty(), "Unknown readers have no summary.");
+    }
 }
@@ -0,0 +1,79 @@
+package daoTest;
+
+import dao.LoanEventDAO;
+import exception.DatabaseOperationException;
+import model.LoanEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanEventDAOTest {
+
+    private LoanEventDAO loanEventDAO;
+    private Connection connection;
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createLoanEventsTable(conn);
+        }
+    }
+
+    // Setting up the database connection before each test
+    @BeforeEach
+    public void setup() throws SQLException {
+        connection = TestDatabaseHelper.getTestConnection(); // Connect to the H2 test database
+        clearDatabase();
+
+        loanEventDAO = new LoanEventDAO(connection); // Initialize the DAO class
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM loan_events");
+        }
+    }
+
+    // Test for appending a batch of events
+    @Test
+    public void testAddEvents() throws DatabaseOperationException {
+        int written = loanEventDAO.addEvents(List.of(LoanEvent.borrow(1, 2), LoanEvent.returned(1, 2), LoanEvent.readerAdded(3)));
+
+        assertEquals(3, written, "All three events should be written.");
+    }
+
+    // Test for appending an empty batch
+    @Test
+    public void testAddNoEvents() throws DatabaseOperationException {
+        assertEquals(0, loanEventDAO.addEvents(List.of()), "An empty batch should not write anything.");
+    }
+
+    // Test for reading events back in write order, page by page
+    @Test
+    public void testGetEventsAfter() throws DatabaseOperationException {
+        loanEventDAO.addEvents(List.of(LoanEvent.borrow(1, 2), LoanEvent.quantityChange(2, 5), LoanEvent.returned(1, 2)));
+
+        List<LoanEvent> firstPage = loanEventDAO.getEventsAfter(0, 2);
+        assertEquals(2, firstPage.size(), "The first page should be limited to 2 events.");
+        assertEquals(LoanEvent.EventType.BORROW, firstPage.get(0).getEventType(), "Events should come back in write order.");
+        assertEquals(5, firstPage.get(1).getQuantityDelta(), "The quantity delta should be stored.");
+
+        List<LoanEvent> secondPage = loanEventDAO.getEventsAfter(firstPage.get(1).getId(), 2);
+        assertEquals(1, secondPage.size(), "Only one event should remain after the first page.");
+        assertEquals(LoanEvent.EventType.RETURN, secondPage.getFirst().getEventType(), "The remaining event should be the return.");
+    }
+}
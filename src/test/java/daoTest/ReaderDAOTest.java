@@ -3,6 +3,8 @@ package daoTest;
 import dao.ReaderDAO;
 import exception.DatabaseOperationException;
 import model.Reader;
+import model.ChangeSet;
+import util.collections.IntArrayList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +15,8 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -141,4 +145,45 @@ public class ReaderDAOTest {
         boolean result = readerDAO.removeReaderById(nonExistentReader);
         assertFalse(result, "An attempt to remove a non-existing reader should return false.");
     }
+
+    // Test that changesSince returns readers added after the watermark and tombstones for removed readers
+    @Test
+    public void testChangesSince() throws DatabaseOperationException {
+        Reader john = new Reader("John", "Doe", LocalDate.of(2000, 1, 1));
+        readerDAO.addReader(john);
+        long watermark = readerDAO.changesSince(0).getVersion();
+
+        readerDAO.addReader(new Reader("Jane", "Doe", LocalDate.of(1995, 5, 5)));
+        readerDAO.removeReaderById(john);
+
+        ChangeSet<Reader> changes = readerDAO.changesSince(watermark);
+        assertEquals(1, changes.getChangedRows().size(), "Only the new reader should be returned.");
+        assertEquals("Jane", changes.getChangedRows().getFirst().getFirstName());
+        assertEquals(IntArrayList.of(1), changes.getDeletedIds(), "The removed reader should be reported as a tombstone.");
+    }
+
+    // Test that two desks adding the same reader at the same time create one row, and the second add reports it as existing
+    @Test
+    public void testConcurrentAddCreatesOneReader() throws Exception {
+        Reader reader = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+
+        try (Connection otherDesk = TestDatabaseHelper.getTestConnection()) {
+            otherDesk.setAutoCommit(false);
+            Optional<Integer> firstId = new ReaderDAO(otherDesk).addReader(reader); // Not committed yet
+
+            CompletableFuture<Optional<Integer>> secondAdd = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return readerDAO.addReader(reader);
+                } catch (DatabaseOperationException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Thread.sleep(100);
+            otherDesk.commit();
+
+            assertTrue(firstId.isPresent(), "The first add should create the reader.");
+            assertTrue(secondAdd.get(10, TimeUnit.SECONDS).isEmpty(), "The second add should report the reader as existing.");
+        }
+        assertEquals(1, readerDAO.getAllReaders().size(), "Only one reader should exist.");
+    }
 }
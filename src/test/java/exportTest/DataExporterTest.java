@@ -0,0 +1,130 @@
+package exportTest;
+
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import dao.BorrowedBookDAO;
+import dao.ExportDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import export.DataExporter;
+import export.ExportFormat;
+import export.ExportResult;
+import model.Book;
+import model.BookLocation;
+import model.Reader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.TestDatabaseHelper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataExporterTest {
+    private Connection connection;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException, DatabaseOperationException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+
+        int locationId = new BookLocationDAO(connection).addLocation(new BookLocation("A", 1)).get();
+        BookLocation location = new BookLocation(locationId, "A", 1);
+        BookDAO bookDAO = new BookDAO(connection);
+        int bookId = bookDAO.addBook(new Book("Refactoring, 2nd Edition", "Martin Fowler", 2018, 2, location)).get();
+        bookDAO.addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, location));
+
+        Reader reader = new Reader("John", "O\"Brien", LocalDate.of(2000, 1, 1));
+        int readerId = new ReaderDAO(connection).addReader(reader).get();
+        new BorrowedBookDAO(connection).addBorrowedBook(new Reader(readerId, "John", "O\"Brien", reader.getDateOfBirth()),
+                new Book(bookId, "Refactoring, 2nd Edition", "Martin Fowler", 2018, 2, location));
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+            stmt.executeUpdate("DELETE FROM readers");
+
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    // Test that all datasets are exported in parallel to CSV with quoting, and progress reaches the row counts
+    @Test
+    public void testExportCsv() throws DatabaseOperationException, IOException {
+        Map<ExportDAO.Dataset, Long> progress = new ConcurrentHashMap<>();
+        List<ExportResult> results = new DataExporter(TestDatabaseHelper::getTestConnection).export(
+                EnumSet.allOf(ExportDAO.Dataset.class), directory, ExportFormat.CSV, false,
+                (dataset, rowsWritten, totalRows) -> progress.put(dataset, rowsWritten));
+
+        assertEquals(3, results.size());
+        assertEquals(Map.of(ExportDAO.Dataset.BOOKS, 2L, ExportDAO.Dataset.READERS, 1L, ExportDAO.Dataset.LOANS, 1L), progress);
+
+        List<String> books = Files.readAllLines(directory.resolve("books.csv"));
+        assertEquals("id,title,author,year_of_publication,quantity,section,shelf", books.getFirst());
+        assertTrue(books.get(1).contains(",\"Refactoring, 2nd Edition\",Martin Fowler,2018,2,A,1"), "Fields with commas should be quoted.");
+        assertEquals(3, books.size());
+
+        List<String> readers = Files.readAllLines(directory.resolve("readers.csv"));
+        assertTrue(readers.get(1).endsWith(",John,\"O\"\"Brien\",2000-01-01"), "Quotes should be doubled and dates written as ISO dates.");
+        try (var files = Files.list(directory)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".part")), "No partial files should be left behind.");
+        }
+    }
+
+    // Test that JSON Lines output is gzip-compressed and has one object per row
+    @Test
+    public void testExportGzippedJsonLines() throws DatabaseOperationException, IOException {
+        List<ExportResult> results = new DataExporter(TestDatabaseHelper::getTestConnection, 1).export(
+                List.of(ExportDAO.Dataset.LOANS), directory, ExportFormat.JSON_LINES, true);
+
+        Path file = directory.resolve("loans.jsonl.gz");
+        assertEquals(file, results.getFirst().getFile());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            assertTrue(line.startsWith("{\"id\":"), "Each line should be a JSON object.");
+            assertTrue(line.contains("\"last_name\":\"O\\\"Brien\",\"book_id\":"), "Strings should be escaped and numbers unquoted.");
+            assertTrue(line.contains("\"borrow_date\":\"" + LocalDate.now() + "\""));
+            assertNull(reader.readLine(), "One loan means one line.");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package importTest;
+
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import importer.CatalogueImporter;
+import importer.ImportDataset;
+import importer.ImportSummary;
+import model.Book;
+import model.BookLocation;
+import model.Reader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.TestDatabaseHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogueImporterTest {
+    private Connection connection;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+            stmt.executeUpdate("DELETE FROM readers");
+
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    // Test that valid CSV rows are imported across several chunks, existing books are skipped and invalid rows are rejected with their line
+    @Test
+    public void testImportBooksCsv() throws IOException, DatabaseOperationException, InvalidDataException {
+        int locationId = new BookLocationDAO(connection).addLocation(new BookLocation("A", 1)).get();
+        new BookDAO(connection).addBook(new Book("Clean Code", "Robert C. Martin", 2008, 5, new BookLocation(locationId, "A", 1)));
+
+        StringBuilder csv = new StringBuilder("id,title,author,year_of_publication,quantity,section,shelf\n");
+        csv.append("1,Clean Code,Robert C. Martin,2008,5,A,1\n");                          // Line 2: already in the catalogue
+        csv.append("2,\"Refactoring, 2nd Edition\",Martin Fowler,2018,2,B,3\n");           // Line 3: new location
+        csv.append("3,,Nobody,2000,1,A,1\n");                                              // Line 4: no title
+        csv.append("4,Future Book,Someone,").append(LocalDate.now().getYear() + 1).append(",1,A,1\n"); // Line 5
+        csv.append("5,Bad Quantity,Someone,2000,many,A,1\n");                              // Line 6
+        csv.append("6,\"Multi\nLine\",Someone,2000,1,A,1\n");                              // Lines 7-8
+        for (int i = 0; i < 12_000; i++) {
+            csv.append(i + 10).append(",Title ").append(i).append(",Author,2001,1,C,").append(i % 3 + 1).append('\n');
+        }
+        Path file = directory.resolve("books.csv");
+        Files.writeString(file, csv);
+
+        ImportSummary summary = new CatalogueImporter(connection, 3).importFile(ImportDataset.BOOKS, file);
+
+        assertEquals(12_002, summary.getRowsImported());
+        assertEquals(1, summary.getRowsSkipped());
+        assertEquals(3, summary.getRowsRejected());
+        assertEquals(12_006, summary.getRowsRead());
+
+        BookDAO bookDAO = new BookDAO(connection);
+        assertTrue(bookDAO.findBookByDetails("Refactoring, 2nd Edition", "Martin Fowler", 2018).isPresent());
+        assertTrue(bookDAO.findBookByDetails("Multi\nLine", "Someone", 2000).isPresent(), "Quoted line breaks belong to the field.");
+        assertEquals(12_003, bookDAO.getAllBooks().size());
+        assertEquals(5, new BookLocationDAO(connection).getAllBookLocations().size(), "Missing locations should be created once.");
+
+        List<String> rejects = Files.readAllLines(summary.getRejectFile());
+        assertEquals("line,reason,record", rejects.getFirst());
+        assertEquals("4,Title cannot be empty.,\"3,,Nobody,2000,1,A,1\"", rejects.get(1));
+        assertTrue(rejects.get(2).startsWith("5,Invalid year of publication.,"));
+        assertTrue(rejects.get(3).startsWith("6,Invalid quantity.,"));
+        assertEquals(4, rejects.size());
+    }
+
+    // Test that JSON Lines readers are imported, unknown keys ignored and malformed or invalid lines rejected
+    @Test
+    public void testImportReadersJsonLines() throws IOException, DatabaseOperationException, InvalidDataException {
+        Path file = directory.resolve("readers.jsonl");
+        Files.writeString(file, String.join("\n",
+                "{\"id\":7,\"first_name\":\"John\",\"last_name\":\"O\\\"Brien\",\"date_of_birth\":\"2000-01-01\"}",
+                "{\"first_name\": \"Anna\", \"last_name\": \"Nowak\", \"date_of_birth\": \"1995-02-30\"}",
+                "{\"first_name\":\"Anna\",\"last_name\":\"Nowak\"",
+                "",
+                "{\"first_name\":\"Jan\",\"last_name\":\"Kowalski\",\"date_of_birth\":\"1990-05-17\",\"tags\":[1]}",
+                "{\"first_name\":\"Jan\",\"last_name\":\"Kowalski\",\"date_of_birth\":\"1990-05-17\",\"note\":null}",
+                "{\"first_name\":\"Ewa\",\"last_name\":\"\\u017Bak\",\"date_of_birth\":\"" + LocalDate.now().plusDays(1) + "\"}"));
+
+        ImportSummary summary = new CatalogueImporter(connection).importFile(ImportDataset.READERS, file);
+
+        assertEquals(2, summary.getRowsImported());
+        assertEquals(0, summary.getRowsSkipped());
+        assertEquals(4, summary.getRowsRejected());
+
+        ReaderDAO readerDAO = new ReaderDAO(connection);
+        assertTrue(readerDAO.doesReaderExist(new Reader("John", "O\"Brien", LocalDate.of(2000, 1, 1))).isPresent());
+        assertTrue(readerDAO.doesReaderExist(new Reader("Jan", "Kowalski", LocalDate.of(1990, 5, 17))).isPresent());
+
+        List<String> rejects = Files.readAllLines(summary.getRejectFile());
+        assertTrue(rejects.get(1).startsWith("2,Invalid date of birth.,"));
+        assertTrue(rejects.get(2).startsWith("3,\"Expected ',' or '}'.\","));
+        assertTrue(rejects.get(3).startsWith("5,"), "Nested values are not supported.");
+        assertTrue(rejects.get(4).startsWith("7,Invalid date of birth.,"));
+    }
+
+    // Test that a CSV header without a required column fails the import before anything is written
+    @Test
+    public void testImportCsvMissingColumn() throws IOException, DatabaseOperationException {
+        Path file = directory.resolve("readers.csv");
+        Files.writeString(file, "first_name,last_name\nJohn,Doe\n");
+
+        InvalidDataException exception = assertThrows(InvalidDataException.class,
+                () -> new CatalogueImporter(connection).importFile(ImportDataset.READERS, file));
+        assertEquals("The CSV header has no column date_of_birth.", exception.getMessage());
+        assertTrue(new ReaderDAO(connection).getAllReaders().isEmpty());
+    }
+}
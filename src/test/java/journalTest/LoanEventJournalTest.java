@@ -0,0 +1,110 @@
+package journalTest;
+
+import exception.DatabaseOperationException;
+import journal.EventRingBuffer;
+import journal.LoanEventJournal;
+import model.LoanEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanEventJournalTest {
+
+    private Connection connection;
+    private LoanEventJournal journal;
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createLoanEventsTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        connection = TestDatabaseHelper.getTestConnection();
+        try (var stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM loan_events");
+        }
+
+        journal = new LoanEventJournal(TestDatabaseHelper.getTestConnection(), 1024, 64, 5);
+        journal.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        journal.close();
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    // Test that the ring buffer rejects elements once it is full and accepts them again after draining
+    @Test
+    public void testRingBufferRejectsWhenFull() {
+        EventRingBuffer<Integer> buffer = new EventRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i), "The buffer should accept up to its capacity.");
+        }
+        assertFalse(buffer.offer(4), "A full buffer should reject new elements.");
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10), "All buffered elements should be drained.");
+        assertEquals(List.of(0, 1, 2, 3), drained, "Elements should be drained in publish order.");
+        assertTrue(buffer.offer(5), "Drained slots should be reusable.");
+    }
+
+    // Test that events recorded from many threads are all written and can be replayed
+    @Test
+    public void testConcurrentRecordAndReplay() throws InterruptedException, DatabaseOperationException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            int readerId = thread + 1;
+            executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    journal.record(LoanEvent.borrow(readerId, i));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertTrue(journal.flush(5000), "The journal should flush all recorded events.");
+        assertEquals(400, journal.getWrittenEvents(), "Every recorded event should be written.");
+
+        List<LoanEvent> replayed = new ArrayList<>();
+        long lastEventId = LoanEventJournal.replay(connection, 0, replayed::add);
+
+        assertEquals(400, replayed.size(), "Replay should return every written event.");
+        assertEquals(replayed.getLast().getId(), lastEventId, "Replay should report the last event ID.");
+    }
+
+    // Test that replay only returns events after the given ID
+    @Test
+    public void testReplayFromCheckpoint() throws DatabaseOperationException {
+        journal.record(LoanEvent.readerAdded(1));
+        journal.record(LoanEvent.borrow(1, 1));
+        journal.record(LoanEvent.returned(1, 1));
+        assertTrue(journal.flush(5000));
+
+        List<LoanEvent> all = new ArrayList<>();
+        LoanEventJournal.replay(connection, 0, all::add);
+
+        List<LoanEvent> afterFirst = new ArrayList<>();
+        LoanEventJournal.replay(connection, all.getFirst().getId(), afterFirst::add);
+
+        assertEquals(2, afterFirst.size(), "Replay should skip events up to the checkpoint.");
+        assertEquals(LoanEvent.EventType.BORROW, afterFirst.getFirst().getEventType());
+    }
+}
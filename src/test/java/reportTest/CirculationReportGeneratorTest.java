@@ -0,0 +1,178 @@
+package reportTest;
+
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import dao.BorrowedBookDAO;
+import dao.LoanEventDAO;
+import dao.ReaderDAO;
+import exception.DatabaseOperationException;
+import model.Book;
+import model.BookLocation;
+import model.LoanEvent;
+import model.Reader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import report.CirculationReport;
+import report.CirculationReportGenerator;
+import report.ReportWriter;
+import util.TestDatabaseHelper;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CirculationReportGeneratorTest {
+    private Connection connection;
+    private Book effectiveJava;
+    private Book cleanCode;
+    private Book refactoring;
+    private Reader john;
+    private Reader jane;
+    private Reader adam;
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createLoanEventsTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException, DatabaseOperationException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+
+        BookLocationDAO bookLocationDAO = new BookLocationDAO(connection);
+        BookLocation shelfA = new BookLocation(bookLocationDAO.addLocation(new BookLocation("A", 1)).get(), "A", 1);
+        BookLocation shelfB = new BookLocation(bookLocationDAO.addLocation(new BookLocation("B", 2)).get(), "B", 2);
+
+        effectiveJava = insertBook(new Book("Effective Java", "Joshua Bloch", 2018, 10, shelfA));
+        cleanCode = insertBook(new Book("Clean Code", "Robert C. Martin", 2008, 10, shelfA));
+        refactoring = insertBook(new Book("Refactoring, 2nd Edition", "Martin Fowler", 2018, 10, shelfB));
+
+        john = insertReader(new Reader("John", "Doe", LocalDate.of(2000, 1, 1)));
+        jane = insertReader(new Reader("Jane", "Doe", LocalDate.of(1995, 5, 5)));
+        adam = insertReader(new Reader("Adam", "Smith", LocalDate.of(1980, 3, 3)));
+        insertReader(new Reader("Eve", "Idle", LocalDate.of(1990, 2, 2)));
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+            stmt.executeUpdate("DELETE FROM readers");
+            stmt.executeUpdate("DELETE FROM loan_events");
+
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    private Book insertBook(Book book) throws DatabaseOperationException {
+        int id = new BookDAO(connection).addBook(book).get();
+        return new Book(id, book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), book.getLocation());
+    }
+
+    private Reader insertReader(Reader reader) throws DatabaseOperationException {
+        int id = new ReaderDAO(connection).addReader(reader).get();
+        return new Reader(id, reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth());
+    }
+
+    // Adds a loan that is 'daysOverdue' days past its due date (negative: not due yet)
+    private void insertLoan(Reader reader, Book book, int daysOverdue) throws DatabaseOperationException, SQLException {
+        new BorrowedBookDAO(connection).addBorrowedBook(reader, book);
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE borrowed_books SET return_due_date = ? WHERE reader_id = ? AND book_id = ?")) {
+            statement.setDate(1, java.sql.Date.valueOf(LocalDate.now().minusDays(daysOverdue)));
+            statement.setInt(2, reader.getId());
+            statement.setInt(3, book.getId());
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertHistory() throws DatabaseOperationException, SQLException {
+        insertLoan(john, effectiveJava, 10);
+        insertLoan(john, cleanCode, -5);
+        insertLoan(jane, refactoring, 45);
+        insertLoan(adam, effectiveJava, 100);
+
+        new LoanEventDAO(connection).addEvents(List.of(
+                LoanEvent.borrow(john.getId(), effectiveJava.getId()),
+                LoanEvent.returned(john.getId(), effectiveJava.getId()),
+                LoanEvent.borrow(john.getId(), effectiveJava.getId()),
+                LoanEvent.returned(john.getId(), effectiveJava.getId()),
+                LoanEvent.borrow(john.getId(), effectiveJava.getId()),
+                LoanEvent.borrow(john.getId(), cleanCode.getId()),
+                LoanEvent.borrow(jane.getId(), refactoring.getId()),
+                LoanEvent.borrow(adam.getId(), effectiveJava.getId())));
+    }
+
+    // Small chunks force the ID ranges to be split across many tasks, so merging the partials is exercised
+    @Test
+    public void testGenerateReport() throws DatabaseOperationException, SQLException {
+        insertHistory();
+
+        CirculationReport report = new CirculationReportGenerator(TestDatabaseHelper::getTestConnection, 4, 2, 2).generate();
+
+        assertEquals(4, report.getActiveLoans());
+        assertEquals(6, report.getBorrowEvents(), "Only borrow events count as loan history.");
+        assertEquals(List.of(List.of("A", 1, 3), List.of("B", 2, 1)), report.getTable("loans_per_shelf").getRows());
+        assertEquals(List.of(
+                List.of(1, "Effective Java", "Joshua Bloch", 2018, 4),
+                List.of(2, "Clean Code", "Robert C. Martin", 2008, 1)), report.getTable("most_borrowed_titles").getRows(),
+                "Ties should be ordered by book ID and the list cut at the requested size.");
+        assertEquals(List.of(List.of("0", 1L), List.of("1", 2L), List.of("2-5", 1L), List.of("6-20", 0L), List.of(">20", 0L)),
+                report.getTable("reader_activity").getRows());
+        assertEquals(List.of(List.of("1-7", 0L), List.of("8-30", 1L), List.of("31-90", 1L), List.of(">90", 1L)),
+                report.getTable("overdue_aging").getRows());
+    }
+
+    @Test
+    public void testGenerateReportWithoutLoans() throws DatabaseOperationException {
+        CirculationReport report = new CirculationReportGenerator(TestDatabaseHelper::getTestConnection, 2, 2, 5).generate();
+
+        assertEquals(0, report.getActiveLoans());
+        assertTrue(report.getTable("most_borrowed_titles").getRows().isEmpty());
+        assertEquals(List.of("0", 4L), report.getTable("reader_activity").getRows().getFirst(), "Every reader should be idle.");
+    }
+
+    @Test
+    public void testWriteCsvAndJson(@TempDir Path directory) throws DatabaseOperationException, SQLException, IOException {
+        insertHistory();
+        CirculationReport report = new CirculationReportGenerator(TestDatabaseHelper::getTestConnection, 2, 100, 5).generate();
+
+        List<Path> files = ReportWriter.writeCsv(report, directory);
+        assertEquals(4, files.size(), "Every table should be written to its own file.");
+        List<String> titles = Files.readAllLines(directory.resolve("most_borrowed_titles.csv"));
+        assertEquals("rank,title,author,year_of_publication,borrows", titles.getFirst());
+        assertTrue(titles.contains("3,\"Refactoring, 2nd Edition\",Martin Fowler,2018,1"), "Values with commas should be quoted.");
+
+        StringWriter json = new StringWriter();
+        ReportWriter.writeJson(report, json);
+        assertTrue(json.toString().startsWith("{\"generatedAt\":\""));
+        assertTrue(json.toString().contains("\"activeLoans\":4,\"borrowEvents\":6"));
+        assertTrue(json.toString().contains("{\"name\":\"loans_per_shelf\",\"columns\":[\"section\",\"shelf\",\"active_loans\"],\"rows\":[[\"A\",1,3],[\"B\",2,1]]}"));
+    }
+}
@@ -0,0 +1,184 @@
+package serverTest;
+
+import config.ConnectionPool;
+import config.ConnectionRouter;
+import dao.BookDAO;
+import dao.BookLocationDAO;
+import exception.DatabaseOperationException;
+import journal.LoanEventJournal;
+import model.Book;
+import model.BookLocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.EndpointMetrics;
+import server.LibraryHttpServer;
+import util.TestDatabaseHelper;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibraryHttpServerTest {
+    private static final String LOAN = "first_name=John&last_name=Doe&date_of_birth=1990-01-01&title=Clean+Code&author=Robert+C.+Martin&year_of_publication=2008";
+
+    private Connection connection;
+    private ConnectionPool connectionPool;
+    private LoanEventJournal loanEventJournal;
+    private LibraryHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createHoldsTable(conn);
+            TestDatabaseHelper.createLoanEventsTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException, DatabaseOperationException, IOException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+
+        int locationId = new BookLocationDAO(connection).addLocation(new BookLocation("A", 1)).get();
+        BookLocation location = new BookLocation(locationId, "A", 1);
+        new BookDAO(connection).addBook(new Book("Clean Code", "Robert C. Martin", 2008, 1, location));
+        new BookDAO(connection).addBook(new Book("Clean Architecture", "Robert C. Martin", 2017, 3, location));
+
+        connectionPool = new ConnectionPool(TestDatabaseHelper::getTestConnection, 4);
+        loanEventJournal = new LoanEventJournal(TestDatabaseHelper.getTestConnection());
+        loanEventJournal.start();
+        server = new LibraryHttpServer(new InetSocketAddress("127.0.0.1", 0), new ConnectionRouter(connectionPool), loanEventJournal);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        server.close();
+        loanEventJournal.close();
+        connectionPool.close();
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM holds");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+            stmt.executeUpdate("DELETE FROM readers");
+            stmt.executeUpdate("DELETE FROM loan_events");
+
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String form) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Test that loans made over HTTP are recorded in the loan event journal like the desks' loans
+    @Test
+    public void testLoansAreJournaled() throws IOException, InterruptedException, SQLException {
+        assertEquals(201, post("/loans", LOAN).statusCode());
+        assertEquals(200, post("/loans/return", LOAN).statusCode());
+        assertTrue(loanEventJournal.flush(5000), "The journal should write the events.");
+
+        try (var stmt = connection.createStatement();
+             var resultSet = stmt.executeQuery("SELECT event_type FROM loan_events WHERE event_type IN ('BORROW', 'RETURN') ORDER BY id")) {
+            assertTrue(resultSet.next());
+            assertEquals("BORROW", resultSet.getString(1));
+            assertTrue(resultSet.next());
+            assertEquals("RETURN", resultSet.getString(1));
+            assertFalse(resultSet.next());
+        }
+    }
+
+    // Test that book search streams a JSON array and a lookup returns one book or 404
+    @Test
+    public void testSearchAndLookupBooks() throws IOException, InterruptedException {
+        HttpResponse<String> search = get("/books?author=" + URLEncoder.encode("Robert C. Martin", StandardCharsets.UTF_8));
+        assertEquals(200, search.statusCode());
+        assertTrue(search.body().startsWith("[{\"id\":"));
+        assertTrue(search.body().contains("\"title\":\"Clean Architecture\""));
+        assertTrue(search.body().contains("\"section\":\"A\",\"shelf\":1"));
+
+        HttpResponse<String> lookup = get("/books/lookup?title=Clean+Code&author=Robert+C.+Martin&year_of_publication=2008");
+        assertEquals(200, lookup.statusCode());
+        assertTrue(lookup.body().contains("\"quantity\":1"));
+
+        assertEquals(404, get("/books/lookup?title=Missing&author=Nobody&year_of_publication=2000").statusCode());
+        assertEquals(400, get("/books/lookup?title=Clean+Code&author=Robert+C.+Martin&year_of_publication=soon").statusCode());
+        assertEquals(404, get("/books/unknown").statusCode());
+    }
+
+    // Test that a borrow and a return go through the services, and refused operations map to client errors
+    @Test
+    public void testBorrowAndReturn() throws IOException, InterruptedException {
+        HttpResponse<String> borrow = post("/loans", LOAN);
+        assertEquals(201, borrow.statusCode(), borrow.body());
+        assertTrue(borrow.body().startsWith("{\"loan_id\":"));
+
+        HttpResponse<String> again = post("/loans", LOAN.replace("John", "Jane"));
+        assertEquals(400, again.statusCode());
+        assertTrue(again.body().contains("Not enough copies"), "The only copy is already borrowed.");
+
+        HttpResponse<String> summary = get("/readers/summary?first_name=John&last_name=Doe&date_of_birth=1990-01-01");
+        assertEquals(200, summary.statusCode());
+        assertTrue(summary.body().contains("\"overdue_loans\":0"));
+
+        assertEquals(200, post("/loans/return", LOAN).statusCode());
+        assertEquals(409, post("/loans/return", LOAN).statusCode(), "There is no loan left to return.");
+        assertEquals(404, post("/loans/return", LOAN.replace("John", "Nobody")).statusCode(), "The reader does not exist.");
+        assertEquals(405, get("/loans").statusCode());
+
+        HttpResponse<String> readers = get("/readers?last_name=Doe");
+        assertTrue(readers.body().contains("\"first_name\":\"John\",\"last_name\":\"Doe\",\"date_of_birth\":\"1990-01-01\""));
+        assertEquals(0, connectionPool.getActiveCount(), "Every request should give its connection back.");
+    }
+
+    // Test that every request is counted in its endpoint's metrics and the metrics endpoint reports them
+    @Test
+    public void testMetrics() throws IOException, InterruptedException {
+        get("/books?title=Clean+Code");
+        get("/books?title=Clean+Code");
+        get("/books");
+
+        EndpointMetrics books = server.getMetrics().get("GET /books");
+        assertEquals(3, books.getRequests());
+        assertEquals(0, books.getErrors(), "A missing parameter is a client error.");
+        assertTrue(books.getPercentileMillis(99) > 0);
+
+        HttpResponse<String> metrics = get("/metrics");
+        assertEquals(200, metrics.statusCode());
+        assertTrue(metrics.body().contains("\"GET /books\":{\"requests\":3,\"errors\":0,"));
+        assertTrue(metrics.body().contains("\"pool\":{\"active\":0,"));
+    }
+}
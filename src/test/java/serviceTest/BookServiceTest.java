@@ -1,6 +1,7 @@
 package serviceTest;
 
 
+import cache.QueryCache;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
 import model.Book;
@@ -37,6 +38,7 @@ public class BookServiceTest {
             TestDatabaseHelper.createBooksTable(conn);
             TestDatabaseHelper.createReadersTable(conn);
             TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createHoldsTable(conn);
         }
     }
 
@@ -63,6 +65,7 @@ public class BookServiceTest {
             stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
 
             stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM holds");
             stmt.executeUpdate("DELETE FROM books");
             stmt.executeUpdate("DELETE FROM readers");
             stmt.executeUpdate("DELETE FROM book_shelf_location");
@@ -206,6 +209,26 @@ public class BookServiceTest {
         assertTrue(books.isEmpty(), "The list of books should be empty when the author does not exist.");
     }
 
+    // Test for listings answered from a query cache: repeated calls hit the cache, the service's own writes invalidate it
+    @Test
+    public void testBookListingsUseQueryCache() throws DatabaseOperationException, InvalidDataException {
+        QueryCache queryCache = new QueryCache();
+        BookService cachedBookService = new BookService(connection, null, null, queryCache);
+        BookLocation location = insertShelfLocation();
+        cachedBookService.addBook("Effective Java", "Joshua Bloch", 2008, 5, location);
+
+        assertEquals(1, cachedBookService.getBooksByAuthor("Joshua Bloch").size());
+        assertEquals(1, cachedBookService.getBooksByAuthor("Joshua Bloch").size());
+        assertEquals(1, queryCache.getHits(), "The repeated search should be answered from the cache.");
+
+        cachedBookService.addBook("Java Puzzlers", "Joshua Bloch", 2005, 2, location);
+        assertEquals(2, cachedBookService.getBooksByAuthor("Joshua Bloch").size(), "Adding a book should invalidate the cached search.");
+
+        cachedBookService.increaseBookQuantity(new Book("Effective Java", "Joshua Bloch", 2008, 0, location), 3);
+        assertEquals(8, cachedBookService.getAllBooks().stream().filter(b -> b.getYearOfPublication() == 2008).findFirst().orElseThrow().getQuantity());
+        assertThrows(UnsupportedOperationException.class, () -> cachedBookService.getAllBooks().clear(), "Cached lists are shared and must not be modifiable.");
+    }
+
     // Test for removing a book
     @Test
     public void testRemoveBook() throws DatabaseOperationException, InvalidDataException {
@@ -1,9 +1,14 @@
 package serviceTest;
 
+import cache.QueryCache;
 import exception.DatabaseOperationException;
 import exception.InvalidDataException;
+import journal.LoanEventJournal;
 import model.BookLocation;
 import model.BorrowedBook;
+import model.LoanEvent;
+import model.LoanRequest;
+import model.LoanResult;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,16 +16,24 @@ import org.junit.jupiter.api.Test;
 import service.BookLocationService;
 import service.BookService;
 import service.BorrowedBookService;
+import service.HoldService;
 import service.ReaderService;
 import util.TestDatabaseHelper;
 import model.Book;
 import model.Reader;
+import model.ReaderSummary;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,6 +52,8 @@ public class BorrowedBookServiceTest {
             TestDatabaseHelper.createBooksTable(conn);
             TestDatabaseHelper.createReadersTable(conn);
             TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createHoldsTable(conn);
+            TestDatabaseHelper.createLoanEventsTable(conn);
         }
     }
 
@@ -66,9 +81,11 @@ public class BorrowedBookServiceTest {
             stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
 
             stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM holds");
             stmt.executeUpdate("DELETE FROM books");
             stmt.executeUpdate("DELETE FROM readers");
             stmt.executeUpdate("DELETE FROM book_shelf_location");
+            stmt.executeUpdate("DELETE FROM loan_events");
 
             stmt.execute("ALTER TABLE readers ALTER COLUMN id RESTART WITH 1");
             stmt.execute("ALTER TABLE books ALTER COLUMN id RESTART WITH 1");
@@ -311,4 +328,341 @@ public class BorrowedBookServiceTest {
 
     }
 
+    // Test that a borrow and a return are written to the loan event journal after they commit
+    @Test
+    public void testBorrowAndReturnAreJournaled() throws DatabaseOperationException, InvalidDataException, SQLException {
+        BookLocation location = insertShelfLocation();
+        Book book = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+        Reader reader = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+
+        try (LoanEventJournal journal = new LoanEventJournal(TestDatabaseHelper.getTestConnection())) {
+            journal.start();
+            BorrowedBookService journaledService = new BorrowedBookService(connection, journal);
+
+            journaledService.addBorrowedBook(reader, book);
+            journaledService.returnBorrowedBook(reader, book);
+            assertTrue(journal.flush(5000), "The journal should flush the recorded events.");
+        }
+
+        List<LoanEvent> events = new ArrayList<>();
+        LoanEventJournal.replay(connection, 0, events::add);
+
+        assertEquals(3, events.size(), "Reader registration, borrow and return should be journaled.");
+        assertEquals(LoanEvent.EventType.READER_ADDED, events.get(0).getEventType());
+        assertEquals(LoanEvent.EventType.BORROW, events.get(1).getEventType());
+        assertEquals(LoanEvent.EventType.RETURN, events.get(2).getEventType());
+    }
+
+    // Test that desks borrowing the last copies of a title at the same time neither oversell it nor lose a quantity update
+    @Test
+    public void testConcurrentBorrowsDoNotOversell() throws Exception {
+        BookLocation location = insertShelfLocation();
+        Book book = new Book("Effective Java", "Joshua Bloch", 2008, 3, location);
+        bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+
+        int desks = 6;
+        List<Reader> readers = new ArrayList<>();
+        for (int i = 0; i < desks; i++) {
+            Reader reader = new Reader("Reader" + i, "Doe", LocalDate.of(1990, 1, 1));
+            readerService.addReader(reader.getFirstName(), reader.getLastName(), reader.getDateOfBirth());
+            readers.add(reader);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(desks);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Reader reader : readers) {
+            results.add(executor.submit(() -> {
+                try (Connection deskConnection = TestDatabaseHelper.getTestConnection()) {
+                    BorrowedBookService deskService = new BorrowedBookService(deskConnection);
+                    startGate.await();
+                    return deskService.addBorrowedBook(reader, book).isPresent();
+                } catch (InvalidDataException e) {
+                    return false; // No copies left
+                }
+            }));
+        }
+        startGate.countDown();
+
+        int borrowed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                borrowed++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(3, borrowed, "Exactly the available copies should be borrowed.");
+        Optional<Book> bookAfter = bookService.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication());
+        assertEquals(0, bookAfter.get().getQuantity(), "No copy should be lost or oversold.");
+    }
+
+    // Test that a bulk borrow commits the possible loans and reports a status for every item
+    @Test
+    public void testBorrowManyReportsPerItemStatus() throws DatabaseOperationException, InvalidDataException {
+        BookLocation location = insertShelfLocation();
+        Book effectiveJava = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        Book cleanCode = new Book("Clean Code", "Robert C. Martin", 2008, 1, location);
+        bookService.addBook(effectiveJava.getTitle(), effectiveJava.getAuthor(), effectiveJava.getYearOfPublication(), effectiveJava.getQuantity(), location);
+        bookService.addBook(cleanCode.getTitle(), cleanCode.getAuthor(), cleanCode.getYearOfPublication(), cleanCode.getQuantity(), location);
+
+        Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        Reader jane = new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2)); // Not registered yet
+        readerService.addReader(john.getFirstName(), john.getLastName(), john.getDateOfBirth());
+
+        List<LoanResult> results = borrowedBookService.borrowMany(List.of(
+                new LoanRequest(john, effectiveJava),
+                new LoanRequest(john, cleanCode),
+                new LoanRequest(jane, cleanCode),
+                new LoanRequest(jane, effectiveJava),
+                new LoanRequest(john, new Book("effective java", "JOSHUA BLOCH", 2008)),
+                new LoanRequest(jane, new Book("Missing", "Nobody", 2000)),
+                new LoanRequest(jane, new Book("", "Nobody", 2000))
+        ));
+
+        assertEquals(LoanResult.Status.BORROWED, results.get(0).getStatus());
+        assertTrue(results.get(0).getBorrowId() > 0, "A successful item should carry its borrow ID.");
+        assertEquals(LoanResult.Status.BORROWED, results.get(1).getStatus());
+        assertEquals(LoanResult.Status.NO_COPIES_AVAILABLE, results.get(2).getStatus(), "The only copy was taken by an earlier item.");
+        assertEquals(LoanResult.Status.BORROWED, results.get(3).getStatus(), "A new reader should be registered and served.");
+        assertEquals(LoanResult.Status.ALREADY_BORROWED, results.get(4).getStatus(), "Duplicates within the batch should be detected.");
+        assertEquals(LoanResult.Status.BOOK_NOT_FOUND, results.get(5).getStatus());
+        assertEquals(LoanResult.Status.INVALID_DATA, results.get(6).getStatus());
+
+        assertEquals(3, bookService.findBookByDetails("Effective Java", "Joshua Bloch", 2008).get().getQuantity());
+        assertEquals(0, bookService.findBookByDetails("Clean Code", "Robert C. Martin", 2008).get().getQuantity());
+        assertEquals(2, borrowedBookService.getBooksBorrowedByReaderWithDates(john).size());
+        assertEquals(1, borrowedBookService.getBooksBorrowedByReaderWithDates(jane).size());
+    }
+
+    // Test that committed loans invalidate the book listings, and the reader listings when they register a reader,
+    // of a query cache shared with the other services
+    @Test
+    public void testLoansInvalidateQueryCache() throws DatabaseOperationException, InvalidDataException {
+        QueryCache queryCache = new QueryCache();
+        BookService cachedBookService = new BookService(connection, null, null, queryCache);
+        ReaderService cachedReaderService = new ReaderService(connection, null, queryCache);
+        BorrowedBookService cachedBorrowedBookService = new BorrowedBookService(connection, null, null, queryCache);
+        BookLocation location = insertShelfLocation();
+        Book book = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        Reader reader = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        cachedBookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+
+        assertEquals(5, cachedBookService.getBooksByAuthor("Joshua Bloch").get(0).getQuantity());
+        assertTrue(cachedReaderService.getReadersByLastName("Doe").isEmpty());
+
+        cachedBorrowedBookService.addBorrowedBook(reader, book);
+        assertEquals(4, cachedBookService.getBooksByAuthor("Joshua Bloch").get(0).getQuantity(), "A borrow should invalidate the cached books.");
+        assertEquals(1, cachedReaderService.getReadersByLastName("Doe").size(), "Registering the reader should invalidate the cached readers.");
+
+        cachedBorrowedBookService.returnBorrowedBook(reader, book);
+        assertEquals(5, cachedBookService.getBooksByAuthor("Joshua Bloch").get(0).getQuantity(), "A return should invalidate the cached books.");
+
+        cachedBorrowedBookService.borrowMany(List.of(new LoanRequest(reader, book)));
+        assertEquals(4, cachedBookService.getBooksByAuthor("Joshua Bloch").get(0).getQuantity(), "A bulk borrow should invalidate the cached books.");
+
+        cachedBorrowedBookService.returnMany(List.of(new LoanRequest(reader, book)));
+        assertEquals(5, cachedBookService.getBooksByAuthor("Joshua Bloch").get(0).getQuantity(), "A bulk return should invalidate the cached books.");
+    }
+
+    // Test that a reader who is not registered yet asking for a book with no copies left is refused, not failed
+    @Test
+    public void testBorrowManyNewReaderOutOfStockBook() throws DatabaseOperationException, InvalidDataException {
+        BookLocation location = insertShelfLocation();
+        Book effectiveJava = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        Book cleanCode = new Book("Clean Code", "Robert C. Martin", 2008, 0, location);
+        bookService.addBook(effectiveJava.getTitle(), effectiveJava.getAuthor(), effectiveJava.getYearOfPublication(), effectiveJava.getQuantity(), location);
+        bookService.addBook(cleanCode.getTitle(), cleanCode.getAuthor(), cleanCode.getYearOfPublication(), cleanCode.getQuantity(), location);
+
+        Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        Reader jane = new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2)); // Not registered yet
+        readerService.addReader(john.getFirstName(), john.getLastName(), john.getDateOfBirth());
+
+        List<LoanResult> results = borrowedBookService.borrowMany(List.of(
+                new LoanRequest(jane, cleanCode),
+                new LoanRequest(john, effectiveJava)
+        ));
+
+        assertEquals(LoanResult.Status.NO_COPIES_AVAILABLE, results.get(0).getStatus());
+        assertEquals(LoanResult.Status.BORROWED, results.get(1).getStatus(), "The other items of the batch should still be served.");
+        assertEquals(4, bookService.findBookByDetails("Effective Java", "Joshua Bloch", 2008).get().getQuantity());
+        assertTrue(readerService.getReadersByLastName("Doe").stream().noneMatch(reader -> reader.getFirstName().equals("Jane")),
+                "A reader who could not borrow should not be registered.");
+    }
+
+    // Test that a bulk return removes the loans, restores the quantities and reports items that were not borrowed
+    @Test
+    public void testReturnMany() throws DatabaseOperationException, InvalidDataException {
+        BookLocation location = insertShelfLocation();
+        Book effectiveJava = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        Book cleanCode = new Book("Clean Code", "Robert C. Martin", 2008, 5, location);
+        bookService.addBook(effectiveJava.getTitle(), effectiveJava.getAuthor(), effectiveJava.getYearOfPublication(), effectiveJava.getQuantity(), location);
+        bookService.addBook(cleanCode.getTitle(), cleanCode.getAuthor(), cleanCode.getYearOfPublication(), cleanCode.getQuantity(), location);
+
+        Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        borrowedBookService.addBorrowedBook(john, effectiveJava);
+        borrowedBookService.addBorrowedBook(john, cleanCode);
+
+        List<LoanResult> results = borrowedBookService.returnMany(List.of(
+                new LoanRequest(john, effectiveJava),
+                new LoanRequest(john, cleanCode),
+                new LoanRequest(john, cleanCode),
+                new LoanRequest(new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2)), cleanCode)
+        ));
+
+        assertEquals(LoanResult.Status.RETURNED, results.get(0).getStatus());
+        assertEquals(LoanResult.Status.RETURNED, results.get(1).getStatus());
+        assertEquals(LoanResult.Status.NOT_BORROWED, results.get(2).getStatus(), "A loan can only be returned once.");
+        assertEquals(LoanResult.Status.READER_NOT_FOUND, results.get(3).getStatus());
+
+        assertEquals(5, bookService.findBookByDetails("Effective Java", "Joshua Bloch", 2008).get().getQuantity());
+        assertEquals(5, bookService.findBookByDetails("Clean Code", "Robert C. Martin", 2008).get().getQuantity());
+        assertTrue(borrowedBookService.getBooksBorrowedByReaderWithDates(john).isEmpty(), "All loans should be returned.");
+    }
+
+    // Test that the reader summary is served from the cache until the reader borrows or returns through the service
+    @Test
+    public void testReaderSummaryIsCachedUntilBorrowOrReturn() throws DatabaseOperationException, InvalidDataException, SQLException {
+        BookLocation location = insertShelfLocation();
+        Book book = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+        Reader reader = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        borrowedBookService.addBorrowedBook(reader, book);
+
+        ReaderSummary first = borrowedBookService.getReaderSummary(reader).get();
+        assertEquals(1, first.getActiveLoanCount());
+
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM borrowed_books")) {
+            statement.executeUpdate(); // Changed behind the service's back
+        }
+        assertSame(first, borrowedBookService.getReaderSummary(reader).get(), "The summary should be cached.");
+
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE books SET quantity = 5")) {
+            statement.executeUpdate();
+        }
+        borrowedBookService.addBorrowedBook(reader, book);
+        ReaderSummary afterBorrow = borrowedBookService.getReaderSummary(reader).get();
+        assertNotSame(first, afterBorrow, "A borrow should invalidate the reader's summary.");
+        assertEquals(1, afterBorrow.getActiveLoanCount());
+        assertEquals(2, afterBorrow.getTotalBorrowed(), "Borrows should be counted without a loan event journal.");
+
+        borrowedBookService.returnBorrowedBook(reader, book);
+        assertEquals(0, borrowedBookService.getReaderSummary(reader).get().getActiveLoanCount(), "A return should invalidate the reader's summary.");
+    }
+
+    // Test that the active loan counter follows borrows and returns and caps both the single and the bulk path
+    @Test
+    public void testLoanLimitIsEnforced() throws DatabaseOperationException, InvalidDataException, SQLException {
+        BookLocation location = insertShelfLocation();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i <= BorrowedBook.MAX_ACTIVE_LOANS; i++) {
+            Book book = new Book("Book " + i, "Author", 2000, 5, location);
+            bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+            books.add(book);
+        }
+
+        Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        for (int i = 0; i < BorrowedBook.MAX_ACTIVE_LOANS; i++) {
+            assertTrue(borrowedBookService.addBorrowedBook(john, books.get(i)).isPresent());
+        }
+        assertEquals(BorrowedBook.MAX_ACTIVE_LOANS, activeLoans(john));
+
+        Book extra = books.get(BorrowedBook.MAX_ACTIVE_LOANS);
+        InvalidDataException exception = assertThrows(InvalidDataException.class, () -> borrowedBookService.addBorrowedBook(john, extra));
+        assertTrue(exception.getMessage().contains("limit"), "The refusal should name the loan limit.");
+        assertEquals(5, bookService.findBookByDetails(extra.getTitle(), extra.getAuthor(), 2000).get().getQuantity(), "A refused loan should take no copy.");
+
+        borrowedBookService.returnBorrowedBook(john, books.get(0));
+        assertEquals(BorrowedBook.MAX_ACTIVE_LOANS - 1, activeLoans(john));
+        assertTrue(borrowedBookService.addBorrowedBook(john, extra).isPresent(), "A return should free a loan slot.");
+
+        Reader jane = new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2));
+        List<LoanRequest> requests = new ArrayList<>();
+        for (Book book : books) {
+            requests.add(new LoanRequest(jane, book));
+        }
+        List<LoanResult> results = borrowedBookService.borrowMany(requests);
+        for (int i = 0; i < BorrowedBook.MAX_ACTIVE_LOANS; i++) {
+            assertEquals(LoanResult.Status.BORROWED, results.get(i).getStatus());
+        }
+        assertEquals(LoanResult.Status.LOAN_LIMIT_REACHED, results.get(BorrowedBook.MAX_ACTIVE_LOANS).getStatus());
+        assertEquals(BorrowedBook.MAX_ACTIVE_LOANS, activeLoans(jane));
+
+        borrowedBookService.returnMany(requests);
+        assertEquals(0, activeLoans(jane), "A bulk return should give back every slot.");
+    }
+
+    private int activeLoans(Reader reader) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT active_loans FROM readers WHERE first_name = ? AND last_name = ?")) {
+            statement.setString(1, reader.getFirstName());
+            statement.setString(2, reader.getLastName());
+            try (var resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next(), "The reader should exist.");
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    // Test that a renewal runs a new borrow period, is refused for overdue readers, waited-for books and too many renewals
+    @Test
+    public void testRenewBorrowedBook() throws DatabaseOperationException, InvalidDataException, SQLException {
+        BookLocation location = insertShelfLocation();
+        Book effectiveJava = new Book("Effective Java", "Joshua Bloch", 2008, 1, location);
+        Book cleanCode = new Book("Clean Code", "Robert C. Martin", 2008, 5, location);
+        bookService.addBook(effectiveJava.getTitle(), effectiveJava.getAuthor(), effectiveJava.getYearOfPublication(), effectiveJava.getQuantity(), location);
+        bookService.addBook(cleanCode.getTitle(), cleanCode.getAuthor(), cleanCode.getYearOfPublication(), cleanCode.getQuantity(), location);
+        Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        borrowedBookService.addBorrowedBook(john, effectiveJava);
+        borrowedBookService.addBorrowedBook(john, cleanCode);
+        LocalDate renewedDueDate = LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS);
+
+        assertThrows(InvalidDataException.class, () -> borrowedBookService.renewBorrowedBook(john, effectiveJava), "A renewal must extend the loan.");
+        for (int i = 0; i < BorrowedBook.MAX_RENEWALS; i++) {
+            setDueDates(LocalDate.now().plusDays(3));
+            assertEquals(renewedDueDate, borrowedBookService.renewBorrowedBook(john, effectiveJava));
+        }
+        setDueDates(LocalDate.now().plusDays(3));
+        InvalidDataException tooMany = assertThrows(InvalidDataException.class, () -> borrowedBookService.renewBorrowedBook(john, effectiveJava));
+        assertTrue(tooMany.getMessage().contains("renewed"));
+
+        new HoldService(connection).placeHold(new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2)), effectiveJava);
+        setDueDates(LocalDate.now().minusDays(1));
+        InvalidDataException overdue = assertThrows(InvalidDataException.class, () -> borrowedBookService.renewBorrowedBook(john, cleanCode));
+        assertTrue(overdue.getMessage().contains("overdue"));
+
+        setDueDates(LocalDate.now().plusDays(3));
+        assertEquals(1, borrowedBookService.renewAllLoans(john), "Only the loan nobody waits for and not renewed too often should be renewed.");
+        assertEquals(0, borrowedBookService.renewAllLoans(new Reader("Nobody", "Here", LocalDate.of(2000, 1, 1))));
+    }
+
+    // Test that loans due during a closure move to the reopening day and the others stay put
+    @Test
+    public void testExtendLoansDueDuringClosure() throws DatabaseOperationException, InvalidDataException, SQLException {
+        BookLocation location = insertShelfLocation();
+        Book book = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+        Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+        Reader jane = new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2));
+        borrowedBookService.addBorrowedBook(john, book);
+        borrowedBookService.addBorrowedBook(jane, book);
+
+        LocalDate firstClosedDay = LocalDate.now().plusDays(10);
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE borrowed_books SET return_due_date = ? WHERE reader_id = 1")) {
+            statement.setDate(1, java.sql.Date.valueOf(firstClosedDay.plusDays(2)));
+            statement.executeUpdate();
+        }
+
+        assertEquals(1, borrowedBookService.extendLoansDueDuring(firstClosedDay, firstClosedDay.plusDays(6)));
+        assertEquals(firstClosedDay.plusDays(7), borrowedBookService.getReaderSummary(john).get().getNextDueDate());
+        assertEquals(LocalDate.now().plusDays(BorrowedBook.BORROW_PERIOD_DAYS), borrowedBookService.getReaderSummary(jane).get().getNextDueDate());
+        assertThrows(InvalidDataException.class, () -> borrowedBookService.extendLoansDueDuring(firstClosedDay, firstClosedDay.minusDays(1)));
+    }
+
+    private void setDueDates(LocalDate dueDate) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE borrowed_books SET return_due_date = ?")) {
+            statement.setDate(1, java.sql.Date.valueOf(dueDate));
+            statement.executeUpdate();
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package serviceTest;
+
+import org.junit.jupiter.api.Test;
+import service.DataValidator;
+import service.ValidationResult;
+import service.Violation;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataValidatorTest {
+
+    // Clock that the test moves by hand
+    private static final class MovableClock extends Clock {
+        private Instant instant;
+
+        MovableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    // Test that every violation of a book is collected, in check order, and valid data leaves the result valid
+    @Test
+    public void testCollectsAllBookViolations() {
+        DataValidator validator = DataValidator.getDefault();
+        ValidationResult result = new ValidationResult();
+
+        assertFalse(validator.checkAllBookData(" ", null, validator.getCurrentYear() + 1, -1, 0, result));
+        assertEquals(List.of(Violation.TITLE_EMPTY, Violation.AUTHOR_EMPTY, Violation.YEAR_INVALID, Violation.QUANTITY_NEGATIVE), result.getViolations());
+        assertEquals("Title cannot be empty. Author cannot be empty. Invalid year of publication. Invalid quantity.", result.getMessage());
+
+        result.clear();
+        assertTrue(validator.checkAllBookData("Clean Code", "Robert C. Martin", 2008, 0, 0, result));
+        assertTrue(validator.checkBookLocationData("A", 1, result));
+        assertTrue(result.isValid());
+
+        assertFalse(validator.checkBookLocationData("", 0, result));
+        assertTrue(result.has(Violation.SECTION_EMPTY) && result.has(Violation.SHELF_INVALID));
+        assertEquals("Section cannot be empty. Shelf number is less than zero.", result.toException().getMessage());
+    }
+
+    // Test that the cached date moves on at midnight, so a reader born "tomorrow" becomes valid once that day starts
+    @Test
+    public void testTodayRefreshedAtMidnight() {
+        MovableClock clock = new MovableClock(Instant.parse("2024-12-31T23:59:59Z"));
+        DataValidator validator = new DataValidator(clock);
+        ValidationResult result = new ValidationResult();
+        LocalDate newYear = LocalDate.of(2025, 1, 1);
+
+        assertEquals(2024, validator.getCurrentYear());
+        assertFalse(validator.checkReaderData("John", "Doe", newYear, result));
+        assertEquals(List.of(Violation.DATE_OF_BIRTH_INVALID), result.getViolations());
+
+        clock.instant = Instant.parse("2025-01-01T00:00:00Z");
+        result.clear();
+        assertEquals(newYear, validator.getToday());
+        assertEquals(2025, validator.getCurrentYear());
+        assertTrue(validator.checkReaderData("John", "Doe", newYear, result));
+        assertTrue(validator.checkBasicBookData("New Book", "Someone", 2025, result));
+    }
+}
@@ -0,0 +1,214 @@
+package serviceTest;
+
+import config.FinePolicy;
+import dao.FineDAO;
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import model.Book;
+import model.BookLocation;
+import model.FineAccrual;
+import model.Reader;
+import model.ReaderSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.BookLocationService;
+import service.BookService;
+import service.BorrowedBookService;
+import service.FineService;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FineServiceTest {
+
+    private Connection connection;
+    private FineService fineService;
+    private BorrowedBookService borrowedBookService;
+    private BookService bookService;
+    private BookLocationService bookLocationService;
+    // The policy returns settle with; the tests configure no fines.* settings, so these are the built-in values
+    private final FinePolicy policy = FinePolicy.getDefault();
+
+    private final Reader reader = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createHoldsTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+
+        fineService = new FineService(connection, policy);
+        borrowedBookService = new BorrowedBookService(connection);
+        bookService = new BookService(connection);
+        bookLocationService = new BookLocationService(connection);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM holds");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM readers");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    // Test for accruing fines day by day: a rerun on the same day touches nothing, the next day adds one day's rate
+    @Test
+    public void testAccrueFinesIncrementally() throws DatabaseOperationException, InvalidDataException, SQLException {
+        borrowOverdue(3);
+
+        FineAccrual first = fineService.accrueFines(today);
+        assertEquals(1, first.getLoansAccrued());
+        assertEquals(1, first.getReadersCharged());
+        assertEquals(3L * policy.getDailyRateCents(), first.getCentsAccrued());
+
+        FineAccrual rerun = fineService.accrueFines(today);
+        assertEquals(0, rerun.getLoansAccrued(), "A loan already accrued through the day should not be touched again.");
+
+        FineAccrual nextDay = fineService.accrueFines(today.plusDays(1));
+        assertEquals(1, nextDay.getLoansAccrued());
+        assertEquals(policy.getDailyRateCents(), nextDay.getCentsAccrued());
+        assertEquals(Optional.of(4L * policy.getDailyRateCents()), fineService.getFineBalance(reader));
+    }
+
+    // Test for the per-loan cap: once reached, the loan is no longer accrued
+    @Test
+    public void testAccrueFinesStopsAtCap() throws DatabaseOperationException, InvalidDataException, SQLException {
+        int daysToCap = policy.getMaxPerLoanCents() / policy.getDailyRateCents();
+        borrowOverdue(daysToCap + 10);
+
+        assertEquals(policy.getMaxPerLoanCents(), fineService.accrueFines(today).getCentsAccrued());
+        assertEquals(0, fineService.accrueFines(today.plusDays(1)).getLoansAccrued());
+        assertEquals(Optional.of((long) policy.getMaxPerLoanCents()), fineService.getFineBalance(reader));
+    }
+
+    // Test for returning an overdue book: the fine accrued since the last run is charged before the loan goes away
+    @Test
+    public void testReturnSettlesFine() throws DatabaseOperationException, InvalidDataException, SQLException {
+        Book book = borrowOverdue(4);
+        setAccruedThrough(today.minusDays(2), 2L * policy.getDailyRateCents()); // As if the last run was two days ago
+
+        assertTrue(borrowedBookService.returnBorrowedBook(reader, book));
+        assertEquals(Optional.of(4L * policy.getDailyRateCents()), fineService.getFineBalance(reader));
+    }
+
+    // Test for a return racing an accrual run that has updated the loan but not committed: the return must wait for the run
+    // and settle from its result, instead of charging the same days again
+    @Test
+    public void testReturnDuringAccrualChargesOnce() throws Exception {
+        Book book = borrowOverdue(4);
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+
+        try (Connection accrualConnection = TestDatabaseHelper.getTestConnection()) {
+            accrualConnection.setAutoCommit(false);
+            assertEquals(1, new FineDAO(accrualConnection).accrueFines(today, policy).getLoansAccrued());
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Boolean> returned = executor.submit(() -> borrowedBookService.returnBorrowedBook(reader, book));
+                Thread.sleep(200); // Let the return reach the loan the run still holds
+                accrualConnection.commit();
+                assertTrue(returned.get(10, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        assertEquals(Optional.of(4L * policy.getDailyRateCents()), fineService.getFineBalance(reader), "The fine should be charged once.");
+    }
+
+    // Test for reading balances through the reader summary and the overdue report
+    @Test
+    public void testBalanceShownInSummaryAndOverdueReport() throws DatabaseOperationException, InvalidDataException, SQLException {
+        borrowOverdue(2);
+        fineService.accrueFines(today);
+
+        ReaderSummary summary = borrowedBookService.getReaderSummary(reader).orElseThrow();
+        assertEquals(2L * policy.getDailyRateCents(), summary.getFineBalanceCents());
+
+        List<String> overdueReaders = borrowedBookService.getOverdueReaders();
+        assertEquals(1, overdueReaders.size());
+        assertTrue(overdueReaders.getFirst().contains(FinePolicy.formatCents(2L * policy.getDailyRateCents())));
+    }
+
+    // Test for paying fines: a partial payment lowers the balance, overpaying and non-positive amounts are refused
+    @Test
+    public void testPayFine() throws DatabaseOperationException, InvalidDataException, SQLException {
+        borrowOverdue(4);
+        fineService.accrueFines(today);
+        long balance = 4L * policy.getDailyRateCents();
+
+        assertEquals(balance - 50, fineService.payFine(reader, 50));
+        assertThrows(InvalidDataException.class, () -> fineService.payFine(reader, balance));
+        assertThrows(InvalidDataException.class, () -> fineService.payFine(reader, 0));
+        assertEquals(Optional.of(balance - 50), fineService.getFineBalance(reader));
+    }
+
+    // Test for the balance of a reader that does not exist
+    @Test
+    public void testGetFineBalanceForUnknownReader() throws DatabaseOperationException, InvalidDataException {
+        assertTrue(fineService.getFineBalance(reader).isEmpty());
+    }
+
+    // Borrows a book for the reader and moves its due date 'daysOverdue' days into the past
+    private Book borrowOverdue(int daysOverdue) throws DatabaseOperationException, InvalidDataException, SQLException {
+        BookLocation location = new BookLocation("A", 1);
+        location = new BookLocation(bookLocationService.addLocation(location).get(), location.getSection(), location.getShelf());
+        Book book = new Book("Effective Java", "Joshua Bloch", 2008, 5, location);
+        bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), location);
+        borrowedBookService.addBorrowedBook(reader, book);
+
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE borrowed_books SET return_due_date = ?")) {
+            statement.setDate(1, java.sql.Date.valueOf(today.minusDays(daysOverdue)));
+            statement.executeUpdate();
+        }
+        return book;
+    }
+
+    private void setAccruedThrough(LocalDate day, long cents) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE borrowed_books SET fine_accrued_cents = ?, fine_accrued_through = ?");
+             PreparedStatement readerStatement = connection.prepareStatement("UPDATE readers SET fine_balance_cents = ?")) {
+            statement.setLong(1, cents);
+            statement.setDate(2, java.sql.Date.valueOf(day));
+            statement.executeUpdate();
+            readerStatement.setLong(1, cents);
+            readerStatement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package serviceTest;
+
+import exception.DatabaseOperationException;
+import exception.InvalidDataException;
+import model.Book;
+import model.BookLocation;
+import model.Hold;
+import model.LoanRequest;
+import model.Reader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.BookLocationService;
+import service.BookService;
+import service.BorrowedBookService;
+import service.HoldService;
+import util.TestDatabaseHelper;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HoldServiceTest {
+
+    private Connection connection;
+    private BorrowedBookService borrowedBookService;
+    private HoldService holdService;
+    private BookService bookService;
+    private final List<Hold> readyHolds = new CopyOnWriteArrayList<>();
+
+    private final Reader john = new Reader("John", "Doe", LocalDate.of(1990, 1, 1));
+    private final Reader jane = new Reader("Jane", "Doe", LocalDate.of(1992, 2, 2));
+    private final Reader bob = new Reader("Bob", "Smith", LocalDate.of(1985, 3, 3));
+    private Book book;
+
+    @BeforeAll
+    public static void setupDatabase() throws SQLException {
+        try (Connection conn = TestDatabaseHelper.getTestConnection()) {
+            TestDatabaseHelper.createShelfLocationTable(conn);
+            TestDatabaseHelper.createBooksTable(conn);
+            TestDatabaseHelper.createReadersTable(conn);
+            TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createHoldsTable(conn);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException, DatabaseOperationException, InvalidDataException {
+        connection = TestDatabaseHelper.getTestConnection();
+        clearDatabase();
+
+        borrowedBookService = new BorrowedBookService(connection, null, readyHolds::add);
+        holdService = new HoldService(connection, readyHolds::add);
+        bookService = new BookService(connection);
+
+        BookLocation location = new BookLocation("A", 1);
+        int locationId = new BookLocationService(connection).addLocation(location).get();
+        book = new Book("Effective Java", "Joshua Bloch", 2008, 1, new BookLocation(locationId, "A", 1));
+        bookService.addBook(book.getTitle(), book.getAuthor(), book.getYearOfPublication(), book.getQuantity(), book.getLocation());
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    private void clearDatabase() throws SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+            stmt.executeUpdate("DELETE FROM holds");
+            stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM books");
+            stmt.executeUpdate("DELETE FROM readers");
+            stmt.executeUpdate("DELETE FROM book_shelf_location");
+
+            stmt.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+    }
+
+    private int shelfQuantity() throws DatabaseOperationException, InvalidDataException {
+        return bookService.findBookByDetails(book.getTitle(), book.getAuthor(), book.getYearOfPublication()).get().getQuantity();
+    }
+
+    // Test that holds are served in the order they were placed and the returned copy skips the shelf
+    @Test
+    public void testReturnedCopyGoesToOldestHold() throws DatabaseOperationException, InvalidDataException {
+        assertThrows(InvalidDataException.class, () -> holdService.placeHold(jane, book), "No hold is needed while copies are on the shelf.");
+
+        borrowedBookService.addBorrowedBook(john, book);
+        assertTrue(holdService.placeHold(jane, book).isPresent());
+        assertTrue(holdService.placeHold(bob, book).isPresent());
+        assertTrue(holdService.placeHold(bob, book).isEmpty(), "A reader holds a book at most once.");
+        assertEquals(Optional.of(1), holdService.getQueuePosition(jane, book));
+        assertEquals(Optional.of(2), holdService.getQueuePosition(bob, book));
+
+        assertTrue(borrowedBookService.returnBorrowedBook(john, book));
+        assertEquals(0, shelfQuantity(), "The returned copy should be set aside, not shelved.");
+        assertEquals(1, readyHolds.size(), "The desk should be told about the ready hold.");
+        assertTrue(holdService.getHolds(jane).get(0).isReady());
+        assertEquals(Optional.empty(), holdService.getQueuePosition(jane, book));
+        assertEquals(Optional.of(1), holdService.getQueuePosition(bob, book));
+
+        assertThrows(InvalidDataException.class, () -> borrowedBookService.addBorrowedBook(john, book), "The copy is not for other readers.");
+        assertTrue(borrowedBookService.addBorrowedBook(jane, book).isPresent(), "The holder should get the copy set aside for them.");
+        assertTrue(holdService.getHolds(jane).isEmpty(), "A fulfilled hold should be removed.");
+        assertEquals(0, shelfQuantity());
+    }
+
+    // Test that cancelling a ready hold passes the copy on, and that the last cancellation shelves it
+    @Test
+    public void testCancelledReadyHoldPassesCopyOn() throws DatabaseOperationException, InvalidDataException {
+        borrowedBookService.addBorrowedBook(john, book);
+        holdService.placeHold(jane, book);
+        holdService.placeHold(bob, book);
+        borrowedBookService.returnBorrowedBook(john, book);
+
+        assertTrue(holdService.cancelHold(jane, book));
+        assertFalse(holdService.cancelHold(jane, book), "A hold can only be cancelled once.");
+        assertTrue(holdService.getHolds(bob).get(0).isReady(), "The copy should pass to the next reader.");
+        assertEquals(2, readyHolds.size());
+        assertEquals(0, shelfQuantity());
+
+        assertTrue(holdService.cancelHold(bob, book));
+        assertEquals(1, shelfQuantity(), "With nobody waiting, the copy should go back on the shelf.");
+    }
+
+    // Test that a hold placed while a return is shelving the last copy waits for the return and is refused, instead of
+    // queueing the reader behind a copy that is already on the shelf
+    @Test
+    public void testHoldRacingReturnSeesShelvedCopy() throws Exception {
+        borrowedBookService.addBorrowedBook(john, book);
+
+        try (Connection returnConnection = TestDatabaseHelper.getTestConnection()) {
+            returnConnection.setAutoCommit(false);
+            try (var stmt = returnConnection.createStatement()) {
+                stmt.executeUpdate("UPDATE books SET quantity = quantity + 1"); // A return putting its copy back, not committed yet
+            }
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Optional<Integer>> hold = executor.submit(() -> holdService.placeHold(jane, book));
+                Thread.sleep(200); // Let the hold read the empty shelf and reach the book's row
+                returnConnection.commit();
+
+                ExecutionException exception = assertThrows(ExecutionException.class, () -> hold.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(InvalidDataException.class, exception.getCause(), "The copy is on the shelf, no hold is needed.");
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        assertTrue(holdService.getHolds(jane).isEmpty());
+    }
+
+    // Test that a bulk return serves as many holds as copies came back and shelves the rest
+    @Test
+    public void testReturnManyServesQueue() throws DatabaseOperationException, InvalidDataException, SQLException {
+        try (var stmt = connection.createStatement()) {
+            stmt.executeUpdate("UPDATE books SET quantity = 2");
+        }
+        borrowedBookService.addBorrowedBook(john, book);
+        borrowedBookService.addBorrowedBook(jane, book);
+        holdService.placeHold(bob, book);
+
+        borrowedBookService.returnMany(List.of(new LoanRequest(john, book), new LoanRequest(jane, book)));
+
+        assertEquals(1, readyHolds.size());
+        assertEquals(1, shelfQuantity(), "Only the copy nobody waits for should be shelved.");
+        assertTrue(borrowedBookService.borrowMany(List.of(new LoanRequest(bob, book))).get(0).isSuccessful());
+        assertTrue(holdService.getHolds(bob).isEmpty());
+        assertEquals(1, shelfQuantity(), "The holder's loan should not take the shelved copy.");
+    }
+}
@@ -35,6 +35,7 @@ public class ReaderServiceTest {
             TestDatabaseHelper.createShelfLocationTable(conn);
             TestDatabaseHelper.createBooksTable(conn);
             TestDatabaseHelper.createBorrowedBooksTable(conn);
+            TestDatabaseHelper.createHoldsTable(conn);
         }
     }
 
@@ -58,6 +59,7 @@ public class ReaderServiceTest {
             stmt.execute("SET REFERENTIAL_INTEGRITY FALSE");
 
             stmt.executeUpdate("DELETE FROM borrowed_books");
+            stmt.executeUpdate("DELETE FROM holds");
             stmt.executeUpdate("DELETE FROM books");
             stmt.executeUpdate("DELETE FROM book_shelf_location");
             stmt.executeUpdate("DELETE FROM readers");
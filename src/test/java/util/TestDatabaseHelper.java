@@ -18,8 +18,10 @@ public class TestDatabaseHelper {
         return dataSource.getConnection();
     }
 
-    // Method to create the books table in the test database
+    // Method to create the books table in the test database.
+    // H2 has no expression indexes, so the natural key constraints are case-sensitive here, unlike in schema.sql
     public static void createBooksTable(Connection connection) throws SQLException {
+        createChangeTrackingObjects(connection);
         try(PreparedStatement createBooksTable = connection.prepareStatement("""
                 CREATE TABLE IF NOT EXISTS books (
                     id SERIAL PRIMARY KEY,
@@ -28,6 +30,8 @@ public class TestDatabaseHelper {
                     year_of_publication INT NOT NULL,
                     quantity INT NOT NULL,
                     shelf_location_id INT NOT NULL,
+                    version BIGINT DEFAULT 0 NOT NULL,
+                    UNIQUE (title, author, year_of_publication),
                     FOREIGN KEY (shelf_location_id) REFERENCES book_shelf_location(id)
                 )
                 """)){
@@ -38,11 +42,14 @@ public class TestDatabaseHelper {
 
     // Method to create the book_shelf_location table in the test database
     public static void createShelfLocationTable(Connection connection) throws SQLException {
+        createChangeTrackingObjects(connection);
         try (PreparedStatement createShelfLocationTable = connection.prepareStatement("""
                 CREATE TABLE IF NOT EXISTS book_shelf_location (
                     id SERIAL PRIMARY KEY,
                     section VARCHAR(255) NOT NULL,
-                    shelf INT NOT NULL
+                    shelf INT NOT NULL,
+                    version BIGINT DEFAULT 0 NOT NULL,
+                    UNIQUE (section, shelf)
                 )
                 """)) {
 
@@ -52,12 +59,18 @@ public class TestDatabaseHelper {
 
     // Method to create the readers table in the test database
     public static void createReadersTable(Connection connection) throws SQLException {
+        createChangeTrackingObjects(connection);
         try (PreparedStatement createReadersTable = connection.prepareStatement("""
                 CREATE TABLE IF NOT EXISTS readers (
                     id SERIAL PRIMARY KEY,
                     first_name VARCHAR(255) NOT NULL,
                     last_name VARCHAR(255) NOT NULL,
-                    date_of_birth DATE NOT NULL
+                    date_of_birth DATE NOT NULL,
+                    version BIGINT DEFAULT 0 NOT NULL,
+                    active_loans INT DEFAULT 0 NOT NULL CHECK (active_loans >= 0),
+                    fine_balance_cents BIGINT DEFAULT 0 NOT NULL,
+                    total_borrowed BIGINT DEFAULT 0 NOT NULL,
+                    UNIQUE (first_name, last_name, date_of_birth)
                 )
                 """)) {
 
@@ -67,6 +80,7 @@ public class TestDatabaseHelper {
 
     // Method to create the borrowed books table in the test database
     public static void createBorrowedBooksTable(Connection connection) throws SQLException {
+        createChangeTrackingObjects(connection);
         try(PreparedStatement createBorrowedBooksTable = connection.prepareStatement("""
                 CREATE TABLE IF NOT EXISTS borrowed_books (
                     id SERIAL PRIMARY KEY,
@@ -74,6 +88,11 @@ public class TestDatabaseHelper {
                     book_id INT NOT NULL,
                     borrow_date DATE NOT NULL,
                     return_due_date DATE NOT NULL,
+                    version BIGINT DEFAULT 0 NOT NULL,
+                    renewal_count INT DEFAULT 0 NOT NULL,
+                    fine_accrued_cents INT DEFAULT 0 NOT NULL,
+                    fine_accrued_through DATE,
+                    UNIQUE (reader_id, book_id),
                     FOREIGN KEY(reader_id) REFERENCES readers(id),
                     FOREIGN KEY(book_id) REFERENCES books(id)
                     )
@@ -82,4 +101,57 @@ public class TestDatabaseHelper {
         }
     }
 
+    // Method to create the holds table in the test database.
+    // H2 has no partial indexes, so the queue index also covers ready holds here, unlike in schema.sql
+    public static void createHoldsTable(Connection connection) throws SQLException {
+        try(PreparedStatement createHoldsTable = connection.prepareStatement("""
+                CREATE TABLE IF NOT EXISTS holds (
+                    id SERIAL PRIMARY KEY,
+                    reader_id INT NOT NULL,
+                    book_id INT NOT NULL,
+                    placed_at TIMESTAMP NOT NULL,
+                    status VARCHAR(16) NOT NULL CHECK (status IN ('WAITING', 'READY')),
+                    UNIQUE (reader_id, book_id),
+                    FOREIGN KEY(reader_id) REFERENCES readers(id),
+                    FOREIGN KEY(book_id) REFERENCES books(id)
+                    )
+                """);
+            PreparedStatement createQueueIndex = connection.prepareStatement(
+                    "CREATE INDEX IF NOT EXISTS idx_holds_waiting_book ON holds (book_id, status, id)")) {
+            createHoldsTable.executeUpdate();
+            createQueueIndex.executeUpdate();
+        }
+    }
+
+    // Method to create the loan events journal table in the test database
+    public static void createLoanEventsTable(Connection connection) throws SQLException {
+        try(PreparedStatement createLoanEventsTable = connection.prepareStatement("""
+                CREATE TABLE IF NOT EXISTS loan_events (
+                    id BIGSERIAL PRIMARY KEY,
+                    event_type VARCHAR(32) NOT NULL,
+                    reader_id INT NOT NULL,
+                    book_id INT NOT NULL,
+                    quantity_delta INT NOT NULL,
+                    occurred_at TIMESTAMP NOT NULL
+                    )
+                """)) {
+            createLoanEventsTable.executeUpdate();
+        }
+    }
+
+    // Method to create the change version sequence and the tombstone table used by the DAOs' changesSince methods
+    private static void createChangeTrackingObjects(Connection connection) throws SQLException {
+        try (PreparedStatement createSequence = connection.prepareStatement("CREATE SEQUENCE IF NOT EXISTS change_version_seq");
+             PreparedStatement createDeletedRowsTable = connection.prepareStatement("""
+                CREATE TABLE IF NOT EXISTS deleted_rows (
+                    table_name VARCHAR(64) NOT NULL,
+                    row_id INT NOT NULL,
+                    version BIGINT NOT NULL
+                    )
+                """)) {
+            createSequence.executeUpdate();
+            createDeletedRowsTable.executeUpdate();
+        }
+    }
+
 }